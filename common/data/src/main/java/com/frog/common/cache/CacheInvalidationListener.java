@@ -11,6 +11,7 @@ import java.nio.charset.StandardCharsets;
 
 /**
  * 订阅缓存失效消息，执行本地L1失效
+ * 新版本节点改由CacheInvalidationBatchListener接收批量帧，此处保留以兼容滚动升级期间旧节点的逐key消息
  */
 @Component
 @RequiredArgsConstructor
@@ -0,0 +1,20 @@
+package com.frog.common.cache;
+
+/**
+ * 负缓存占位值
+ * 表示"已确认不存在"，在L1与L2中与正常值区分存储；使用字符串以便Redis序列化后仍可识别
+ *
+ * @author Deng
+ * createData 2025/11/22 14:30
+ * @version 1.0
+ */
+public final class CacheNullValue {
+    public static final String MARKER = "\u0000frog:cache:null";
+
+    private CacheNullValue() {
+    }
+
+    public static boolean isNull(Object value) {
+        return MARKER.equals(value);
+    }
+}
@@ -0,0 +1,278 @@
+package com.frog.common.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多级缓存配置
+ *
+ * @author Deng
+ * createData 2025/11/20 10:12
+ * @version 1.0
+ */
+@Component
+@ConfigurationProperties(prefix = "frog.cache")
+@Data
+public class CacheProperties {
+    /**
+     * 跨节点加载租约（同一key同一时刻集群内只允许一个节点回源）
+     */
+    private LoadLease loadLease = new LoadLease();
+
+    /**
+     * TwoLevelCache软TTL（refresh-ahead），key为缓存名
+     * 超过软TTL的条目仍会返回，同时仅触发一次后台刷新；缓存自身TTL作为硬TTL限制最大陈旧时间
+     */
+    private Map<String, Duration> refreshAfter = new HashMap<>();
+
+    /**
+     * TwoLevelCache L1内存预算
+     */
+    private Local local = new Local();
+
+    /**
+     * L1失效广播
+     */
+    private Invalidation invalidation = new Invalidation();
+
+    /**
+     * Redis服务端辅助失效（CLIENT TRACKING），与失效广播并行工作
+     */
+    private Tracking tracking = new Tracking();
+
+    /**
+     * L1快照（重启预热）
+     */
+    private Snapshot snapshot = new Snapshot();
+
+    /**
+     * MultiLevelCache热点key识别与L1驻留
+     */
+    private HotKey hotKey = new HotKey();
+
+    /**
+     * TwoLevelCache L2异步写（write-behind）
+     */
+    private WriteBehind writeBehind = new WriteBehind();
+
+    /**
+     * Redis熔断与L1降级
+     */
+    private Breaker breaker = new Breaker();
+
+    /**
+     * TTL抖动与概率提前重算
+     */
+    private Expiration expiration = new Expiration();
+
+    /**
+     * 负缓存（不存在的key）
+     */
+    private Negative negative = new Negative();
+
+    /**
+     * TwoLevelCache代际（clear()通过递增代际实现）
+     */
+    private Generation generation = new Generation();
+
+    /**
+     * Redis值编解码
+     */
+    private Codec codec = new Codec();
+
+    @Data
+    public static class LoadLease {
+        /** 是否启用Redis租约，默认仅做JVM内单飞合并 */
+        private boolean enabled = false;
+
+        /** 租约持有时长（应大于回源耗时上限） */
+        private Duration leaseTime = Duration.ofSeconds(10);
+
+        /** 未拿到租约时等待其他节点回填L2的最长时间，超时后本节点自行回源 */
+        private Duration waitTime = Duration.ofSeconds(3);
+
+        /** 等待期间轮询L2的间隔 */
+        private Duration retryInterval = Duration.ofMillis(50);
+    }
+
+    @Data
+    public static class Local {
+        /** 全部TwoLevelCache L1合计的内存上限，按最大最小公平原则分给各缓存 */
+        private DataSize maxHeap = DataSize.ofMegabytes(256);
+
+        /** 未单独配置预算的缓存申请的L1内存 */
+        private DataSize defaultBudget = DataSize.ofMegabytes(16);
+
+        /** 按缓存名申请的L1内存，实际份额受maxHeap约束 */
+        private Map<String, DataSize> budget = new HashMap<>();
+
+        /** 每个条目在序列化字节数之外的固定开销估算（key、条目对象与Caffeine节点） */
+        private int entryOverheadBytes = 96;
+    }
+
+    @Data
+    public static class Invalidation {
+        /** 合并窗口：窗口内的失效key合并为一帧发送 */
+        private Duration batchWindow = Duration.ofMillis(10);
+
+        /** 单帧最大key数，积压达到该值立即发送 */
+        private int maxBatchSize = 512;
+
+        /** 超过该时长未收到帧的发送节点视为已下线，不再跟踪其序列号 */
+        private Duration nodeIdleTimeout = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Tracking {
+        /** 是否启用（需Redis 6+且连接支持RESP3），默认关闭 */
+        private boolean enabled = false;
+
+        /**
+         * 额外跟踪的key前缀（如MultiLevelCache业务key）
+         * TwoLevelCache已配置缓存的"name:"前缀与代际计数器前缀会自动加入
+         */
+        private List<String> prefixes = new ArrayList<>();
+    }
+
+    @Data
+    public static class Snapshot {
+        /** 是否启用：定期将L1热点条目写入本地文件，启动时加载（失效日志由所有节点写入，与该开关无关） */
+        private boolean enabled = false;
+
+        /** 快照目录（应为Pod本地磁盘） */
+        private String directory = System.getProperty("java.io.tmpdir") + "/frog-cache";
+
+        /** 快照写入间隔 */
+        private Duration interval = Duration.ofMinutes(1);
+
+        /** 每个缓存最多保存的热点条目数 */
+        private int maxEntriesPerCache = 5_000;
+
+        /** Redis失效日志（Stream）近似最大长度，加载快照时据此判断快照之后的失效是否完整可查；所有节点按此值裁剪 */
+        private long invalidationLogMaxLength = 100_000L;
+    }
+
+    @Data
+    public static class HotKey {
+        /** 是否启用：统计L2读取频率，热点key以更长TTL驻留L1且不参与容量淘汰 */
+        private boolean enabled = true;
+
+        /** Count-Min Sketch宽度（向上取2的幂） */
+        private int sketchWidth = 8192;
+
+        /** 维护的热点key数量上限（同时是驻留L1的热点数量） */
+        private int topK = 32;
+
+        /** 一个衰减周期内L2读取次数达到该值才视为热点 */
+        private int hotThreshold = 64;
+
+        /** 热点key在L1中的驻留TTL（依赖失效广播保持一致） */
+        private Duration pinTtl = Duration.ofMinutes(30);
+
+        /**
+         * 同时驻留L1的条目数上限：驻留条目不计入L1容量，key退出热点后仍驻留到TTL结束，
+         * 超过上限时新的热点按普通条目回填
+         */
+        private int maxPinned = 256;
+    }
+
+    @Data
+    public static class WriteBehind {
+        /** 是否启用：启用后put只同步更新L1，L2写入与失效广播由后台线程批量完成 */
+        private boolean enabled = false;
+
+        /** 待写入key上限（同key合并后计数），满时调用方等待 */
+        private int queueCapacity = 10_000;
+
+        /** 队列满时调用方最长等待时间，超时后在调用线程同步写入 */
+        private Duration offerTimeout = Duration.ofMillis(50);
+
+        /** 单次pipeline最大写入数，积压达到该值立即刷新 */
+        private int batchSize = 256;
+
+        /** 合并窗口：积压未达批大小时最长等待多久刷新 */
+        private Duration flushInterval = Duration.ofMillis(5);
+    }
+
+    @Data
+    public static class Breaker {
+        /** 是否启用：熔断打开时缓存跳过L2，只用L1与回源 */
+        private boolean enabled = true;
+
+        /** 连续失败（含慢调用）达到该次数时打开熔断 */
+        private int failureThreshold = 5;
+
+        /** 超过该耗时的Redis调用按失败计 */
+        private Duration slowCallThreshold = Duration.ofMillis(500);
+
+        /** 打开后多久进入半开，放行一次探测 */
+        private Duration openDuration = Duration.ofSeconds(10);
+
+        /** 熔断期间L1条目被读取时至少续期到该时长，Redis恢复前尽量不回源 */
+        private Duration graceTtl = Duration.ofMinutes(5);
+
+        /** 熔断期间记录待重放（删除L2并广播失效）的key上限，超出时恢复后整体失效 */
+        private int maxReplayKeys = 10_000;
+    }
+
+    @Data
+    public static class Expiration {
+        /** 写入TTL随机缩短的最大比例（0~1），实际TTL落在[ttl*(1-jitter), ttl]，0表示不抖动 */
+        private double jitter = 0.1;
+
+        /**
+         * XFetch提前重算系数beta：越大越早重算，0表示关闭
+         * 命中时以 -回源耗时*beta*ln(rand) 与剩余TTL比较，回源越慢、剩余越短越可能提前重算
+         */
+        private double earlyRecomputeBeta = 1.0;
+    }
+
+    @Data
+    public static class Negative {
+        /** 是否缓存"不存在"结果 */
+        private boolean enabled = true;
+
+        /** 负缓存TTL，应明显短于正常条目 */
+        private Duration ttl = Duration.ofSeconds(30);
+
+        /** 每个缓存的负缓存L1容量上限（与正常条目分开计算） */
+        private long maxSize = 10_000L;
+    }
+
+    @Data
+    public static class Generation {
+        /** 本地缓存的代际最长多久向Redis校验一次（错过clear广播时的兜底） */
+        private Duration refreshInterval = Duration.ofSeconds(5);
+
+        /** clear()后是否由发起节点后台SCAN回收旧代际key；关闭时仅依赖TTL过期 */
+        private boolean reclaimEnabled = true;
+
+        /** SCAN每批数量，同时作为UNLINK批大小 */
+        private int scanCount = 500;
+    }
+
+    @Data
+    public static class Codec {
+        /**
+         * 写入格式：JSON为原有Jackson JSON；COMPACT为二进制编码+压缩
+         * 读取始终兼容两种格式，升级时先全量部署（仍写JSON），再切换为COMPACT
+         */
+        private WriteFormat writeFormat = WriteFormat.JSON;
+
+        /** 编码后超过该字节数时进行压缩 */
+        private int compressThreshold = 1024;
+
+        public enum WriteFormat {
+            JSON,
+            COMPACT
+        }
+    }
+}
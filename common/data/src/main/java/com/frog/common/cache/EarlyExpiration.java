@@ -0,0 +1,77 @@
+package com.frog.common.cache;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 过期策略：写入时TTL抖动，读取时XFetch概率提前重算
+ * 同批写入的条目TTL被随机打散；临近过期的条目按回源耗时（每个缓存的指数移动平均）
+ * 与剩余TTL的比值以一定概率提前重算，使重算在时间上平滑分布，避免集中过期引发回源风暴
+ *
+ * @author Deng
+ * createData 2025/11/28 09:20
+ * @version 1.0
+ */
+public class EarlyExpiration {
+    // 回源耗时EWMA的新样本权重
+    private static final double COST_WEIGHT = 0.2;
+
+    private final double jitter;
+    private final double beta;
+    private volatile long costNanos;
+    private final LongAdder earlyRecomputes = new LongAdder();
+
+    public EarlyExpiration(CacheProperties.Expiration config) {
+        this.jitter = Math.max(0d, Math.min(1d, config.getJitter()));
+        this.beta = Math.max(0d, config.getEarlyRecomputeBeta());
+    }
+
+    /**
+     * 写入TTL随机缩短至多jitter比例（只缩短不延长，不突破业务设定的TTL）
+     */
+    public Duration jitter(Duration ttl) {
+        if (ttl == null || jitter <= 0d) {
+            return ttl;
+        }
+        long millis = ttl.toMillis();
+        long cut = (long) (millis * jitter * ThreadLocalRandom.current().nextDouble());
+        return Duration.ofMillis(Math.max(1L, millis - cut));
+    }
+
+    /**
+     * 记录一次回源耗时
+     */
+    public void recordLoad(long nanos) {
+        long prev = costNanos;
+        costNanos = prev == 0L ? nanos : (long) (prev * (1 - COST_WEIGHT) + nanos * COST_WEIGHT);
+    }
+
+    public boolean isEnabled() {
+        return beta > 0d;
+    }
+
+    /**
+     * XFetch：-cost * beta * ln(U) >= remaining 时提前重算，U∈(0,1]
+     */
+    public boolean shouldRecomputeEarly(long remainingNanos) {
+        long cost = costNanos;
+        if (beta <= 0d || cost == 0L) {
+            return false;
+        }
+        double gap = -cost * beta * Math.log(1d - ThreadLocalRandom.current().nextDouble());
+        if (gap >= remainingNanos) {
+            earlyRecomputes.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public long costNanos() {
+        return costNanos;
+    }
+
+    public long earlyRecomputeCount() {
+        return earlyRecomputes.sum();
+    }
+}
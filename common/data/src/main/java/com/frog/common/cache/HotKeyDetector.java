@@ -0,0 +1,129 @@
+package com.frog.common.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点key识别
+ * Count-Min Sketch统计访问频率（4行，取最小值为估计值），按TinyLFU方式在采样数达到阈值后整体减半衰减；
+ * 估计值超过热点阈值的key进入Top-K候选集
+ *
+ * @author Deng
+ * createData 2025/11/27 09:40
+ * @version 1.0
+ */
+public class HotKeyDetector {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private final AtomicIntegerArray table;
+    private final int tableMask;
+    private final int topK;
+    private final int hotThreshold;
+    // 采样数达到该值时整体衰减
+    private final long sampleSize;
+    private final AtomicLong samples = new AtomicLong();
+    private final Map<String, Integer> candidates = new ConcurrentHashMap<>();
+    private final LongAdder recorded = new LongAdder();
+
+    public record HotKey(String key, long estimate) {}
+
+    public HotKeyDetector(CacheProperties.HotKey config) {
+        int width = Integer.highestOneBit(Math.max(64, config.getSketchWidth() - 1) << 1);
+        this.table = new AtomicIntegerArray(width * SEEDS.length);
+        this.tableMask = width - 1;
+        this.topK = config.getTopK();
+        this.hotThreshold = config.getHotThreshold();
+        this.sampleSize = 10L * width;
+    }
+
+    /**
+     * 记录一次访问，返回该key当前是否为热点
+     */
+    public boolean record(String key) {
+        recorded.increment();
+        int hash = spread(key.hashCode());
+        int estimate = Integer.MAX_VALUE;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = i * (tableMask + 1) + indexOf(hash, i);
+            int count = table.incrementAndGet(index);
+            estimate = Math.min(estimate, count);
+        }
+        if (samples.incrementAndGet() >= sampleSize) {
+            decay();
+        }
+        if (estimate < hotThreshold) {
+            return candidates.containsKey(key);
+        }
+        candidates.put(key, estimate);
+        if (candidates.size() > topK) {
+            evictColdestCandidate();
+        }
+        return candidates.containsKey(key);
+    }
+
+    public boolean isHot(String key) {
+        return candidates.containsKey(key);
+    }
+
+    /**
+     * 当前热点key（按估计值降序）
+     */
+    public List<HotKey> topKeys() {
+        List<HotKey> keys = new ArrayList<>();
+        candidates.forEach((k, v) -> keys.add(new HotKey(k, v)));
+        keys.sort(Comparator.comparingLong(HotKey::estimate).reversed());
+        return keys;
+    }
+
+    public long recordedCount() {
+        return recorded.sum();
+    }
+
+    /**
+     * 所有计数减半（并发更新在减半期间可能丢失少量计数，对频率估计无实质影响）
+     */
+    private void decay() {
+        if (samples.getAndSet(0) < sampleSize) {
+            return;
+        }
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, table.get(i) >>> 1);
+        }
+        candidates.replaceAll((k, v) -> v >>> 1);
+        candidates.values().removeIf(v -> v < hotThreshold / 2);
+    }
+
+    private void evictColdestCandidate() {
+        String coldest = null;
+        int min = Integer.MAX_VALUE;
+        for (Map.Entry<String, Integer> e : candidates.entrySet()) {
+            if (e.getValue() < min) {
+                min = e.getValue();
+                coldest = e.getKey();
+            }
+        }
+        if (coldest != null) {
+            candidates.remove(coldest);
+        }
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += (h >>> 32);
+        return ((int) h) & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
@@ -1,15 +1,35 @@
 package com.frog.common.cache;
 
+import com.frog.common.cache.invalidation.CacheInvalidationPublisher;
+import com.frog.common.cache.snapshot.SnapshotEntry;
+import com.frog.common.redis.health.RedisCircuitBreaker;
+import com.frog.common.redis.lock.DistributedLock;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -22,18 +42,43 @@ import java.util.function.Supplier;
  * @version 1.0
  */
 @Component
-@RequiredArgsConstructor
+@Slf4j
 public class MultiLevelCache {
     private final RedisTemplate<String, Object> redisTemplate;
+    private final SingleFlightLoader singleFlight;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final CacheProperties.Negative negativeConfig;
+    // Redis熔断：打开时跳过L2，L1条目按graceTtl续期
+    private final RedisCircuitBreaker breaker;
+    // 熔断期间未能写到L2的key，恢复后删除其L2旧值并重新广播
+    private final Set<String> degradedKeys = ConcurrentHashMap.newKeySet();
 
     // 默认TTL（用于从L2回填至L1时）
     private static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
-    private static final String INVALIDATION_CHANNEL = "cache:invalidation";
 
-    private record CacheValue(Object value, long expireAtNanos) {}
+    /**
+     * pinned为热点驻留条目：权重为0，不参与容量淘汰，仅按TTL过期或被失效；数量单独受maxPinned限制
+     * l2Aligned表示L1到期时间与L2一致（本节点写入），只有这类条目参与XFetch提前重算
+     */
+    private record CacheValue(Object value, long expireAtNanos, boolean pinned, boolean l2Aligned) {}
+
+    /**
+     * 热点key从L2读取时一并取得的剩余寿命（毫秒，-1表示未设置过期，-2表示key不存在）
+     */
+    private record L2Value(Object value, Long pttl) {}
+
+    // 当前驻留条目数：写入时增加，移除（含被覆盖）时由removalListener减少
+    private final AtomicInteger pinnedEntries = new AtomicInteger();
 
     private final Cache<@NonNull String, CacheValue> localCache = Caffeine.newBuilder()
-            .maximumSize(10_000)
+            .maximumWeight(10_000)
+            .weigher((String key, CacheValue value) -> value.pinned() ? 0 : 1)
+            .removalListener((String key, CacheValue value, RemovalCause cause) -> {
+                if (value != null && value.pinned()) {
+                    pinnedEntries.decrementAndGet();
+                }
+            })
+            .executor(Runnable::run)
             .expireAfter(new Expiry<@NonNull String, @NonNull CacheValue>() {
                 @Override
                 public long expireAfterCreate(String key, CacheValue value, long currentTime) {
@@ -47,77 +92,504 @@ public class MultiLevelCache {
 
                 @Override
                 public long expireAfterRead(String key, CacheValue value, long currentTime, long currentDuration) {
-                    return Math.max(0, value.expireAtNanos() - currentTime);
+                    long remaining = Math.max(0, value.expireAtNanos() - currentTime);
+                    return breaker.isOpen() ? Math.max(remaining, breaker.graceTtlNanos()) : remaining;
                 }
             })
             .recordStats()
             .build();
 
+    // 负缓存：独立的容量与TTL，避免大量不存在的key挤占正常条目
+    private final Cache<@NonNull String, Boolean> negativeCache;
+    private final LongAdder negativeHits = new LongAdder();
+    // L2值无法反序列化（按未命中处理，不计入熔断）
+    private final LongAdder decodeErrors = new LongAdder();
+
+    // 热点识别（未启用时为null）
+    private final HotKeyDetector hotKeys;
+    private final Duration pinTtl;
+    private final int maxPinned;
+    private final LongAdder hotPromotions = new LongAdder();
+
+    // TTL抖动与XFetch提前重算
+    private final EarlyExpiration expiration;
+
+    public MultiLevelCache(RedisTemplate<String, Object> redisTemplate,
+                           DistributedLock distributedLock,
+                           CacheProperties cacheProperties,
+                           CacheInvalidationPublisher invalidationPublisher,
+                           RedisCircuitBreaker breaker) {
+        this.redisTemplate = redisTemplate;
+        this.invalidationPublisher = invalidationPublisher;
+        this.breaker = breaker;
+        this.singleFlight = new SingleFlightLoader(distributedLock, cacheProperties.getLoadLease(), breaker);
+        this.negativeConfig = cacheProperties.getNegative();
+        this.negativeCache = Caffeine.newBuilder()
+                .maximumSize(negativeConfig.getMaxSize())
+                .expireAfterWrite(negativeConfig.getTtl())
+                .build();
+        CacheProperties.HotKey hotKeyConfig = cacheProperties.getHotKey();
+        this.hotKeys = hotKeyConfig.isEnabled() ? new HotKeyDetector(hotKeyConfig) : null;
+        this.pinTtl = hotKeyConfig.getPinTtl();
+        this.maxPinned = hotKeyConfig.getMaxPinned();
+        this.expiration = new EarlyExpiration(cacheProperties.getExpiration());
+        breaker.onRecovery(this::replayDegradedWrites);
+    }
+
     /**
      * 获取缓存
      */
     public <T> T get(String key, Class<T> type) {
+        Object value = lookup(key);
+        return CacheNullValue.isNull(value) ? null : type.cast(value);
+    }
+
+    /**
+     * 设置缓存
+     */
+    public void set(String key, Object value, Duration ttl) {
+        // TTL抖动：同批写入的key不在同一时刻过期
+        Duration effectiveTtl = expiration.jitter(ttl);
+        // 同时写入L1和L2
+        if (hotKeys == null || !hotKeys.isHot(key)
+                || !pinLocal(key, value, effectiveTtl != null ? effectiveTtl.toMillis() : -1L)) {
+            putLocal(key, value, effectiveTtl, effectiveTtl != null);
+        }
+        negativeCache.invalidate(key);
+        writeL2(List.of(key), () -> redisTemplate.opsForValue().set(key, value, effectiveTtl));
+        // 通知其他实例失效本地L1（批量合并发送）
+        invalidationPublisher.publishMultiLevel(key);
+    }
+
+    /**
+     * 记录key不存在（负缓存，使用独立的短TTL）
+     */
+    public void setAbsent(String key) {
+        localCache.invalidate(key);
+        negativeCache.put(key, Boolean.TRUE);
+        writeL2(List.of(key), () -> redisTemplate.opsForValue().set(key, CacheNullValue.MARKER, negativeConfig.getTtl()));
+        invalidationPublisher.publishMultiLevel(key);
+    }
+
+    /**
+     * 删除缓存
+     */
+    public void evict(String key) {
+        localCache.invalidate(key);
+        negativeCache.invalidate(key);
+        writeL2(List.of(key), () -> redisTemplate.delete(key));
+        // 通知其他实例失效本地L1（批量合并发送）
+        invalidationPublisher.publishMultiLevel(key);
+    }
+
+    /**
+     * 获取或加载（带回源与写穿）
+     * 同一key的并发回源经单飞合并，只有一个调用方执行loader
+     * 启用负缓存时loader返回null会被记录为不存在，后续请求直接由L1应答
+     * 临近过期的条目按XFetch概率由单个调用方提前重算，其余调用方继续使用当前值
+     */
+    public <T> T getOrLoad(String key, Class<T> type, Duration ttl, Supplier<T> loader) {
+        Object cached = lookup(key);
+        if (CacheNullValue.isNull(cached)) {
+            return null;
+        }
+        if (cached != null) {
+            if (!isEarlyRecompute(key)) {
+                return type.cast(cached);
+            }
+            // 提前重算不复查L2（复查只会读回当前值），其他调用方与节点继续使用当前值
+            return singleFlight.refresh(key, type.cast(cached), () -> loadAndStore(key, ttl, loader));
+        }
+
+        return singleFlight.load(key, () -> get(key, type), () -> loadAndStore(key, ttl, loader));
+    }
+
+    private <T> T loadAndStore(String key, Duration ttl, Supplier<T> loader) {
+        long start = System.nanoTime();
+        T loaded = loader.get();
+        expiration.recordLoad(System.nanoTime() - start);
+        if (loaded == null && negativeConfig.isEnabled()) {
+            setAbsent(key);
+            return null;
+        }
+        Objects.requireNonNull(loaded, "loader returned null");
+        set(key, loaded, ttl != null ? ttl : DEFAULT_TTL);
+        return loaded;
+    }
+
+    /**
+     * 批量获取
+     * L1命中直接返回，其余key通过一次MGET从L2获取；结果中不包含未命中和已确认不存在的key
+     */
+    public <T> Map<String, T> getAll(Collection<String> keys, Class<T> type) {
+        Map<String, T> result = new HashMap<>(keys.size() * 2);
+        lookupAll(keys, type, result);
+        return result;
+    }
+
+    /**
+     * 批量获取或加载
+     * L1/L2均未命中的key合并为一次bulkLoader调用，加载结果批量回写；
+     * bulkLoader未返回的key在启用负缓存时记为不存在
+     */
+    public <T> Map<String, T> getOrLoadAll(Collection<String> keys, Class<T> type, Duration ttl,
+                                           Function<Set<String>, Map<String, T>> bulkLoader) {
+        Map<String, T> result = new HashMap<>(keys.size() * 2);
+        Set<String> missing = lookupAll(keys, type, result);
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Map<String, T> loaded = bulkLoader.apply(missing);
+        Map<String, Object> toPut = new HashMap<>();
+        List<String> absent = new ArrayList<>();
+        for (String key : missing) {
+            T value = loaded != null ? loaded.get(key) : null;
+            if (value != null) {
+                toPut.put(key, value);
+                result.put(key, value);
+            } else {
+                absent.add(key);
+            }
+        }
+        putAll(toPut, ttl);
+        if (negativeConfig.isEnabled()) {
+            setAbsentAll(absent);
+        }
+        return result;
+    }
+
+    /**
+     * 批量写入：L1逐个写入，L2使用pipeline一次往返，失效广播合并为一帧
+     */
+    public void putAll(Map<String, ?> entries, Duration ttl) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Duration baseTtl = ttl != null ? ttl : DEFAULT_TTL;
+        // 每个key独立抖动，L1与L2使用同一TTL
+        Map<String, Duration> ttlByKey = new HashMap<>(entries.size() * 2);
+        entries.forEach((key, value) -> {
+            Duration effectiveTtl = expiration.jitter(baseTtl);
+            ttlByKey.put(key, effectiveTtl);
+            putLocal(key, value, effectiveTtl, true);
+            negativeCache.invalidate(key);
+        });
+        writeL2(entries.keySet(), () -> pipelineSet(entries, ttlByKey::get));
+        invalidationPublisher.publishMultiLevel(entries.keySet());
+    }
+
+    /**
+     * 批量删除
+     */
+    public void evictAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        localCache.invalidateAll(keys);
+        negativeCache.invalidateAll(keys);
+        writeL2(keys, () -> redisTemplate.delete(keys));
+        invalidationPublisher.publishMultiLevel(keys);
+    }
+
+    private void setAbsentAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        Map<String, Object> markers = new HashMap<>();
+        for (String key : keys) {
+            localCache.invalidate(key);
+            negativeCache.put(key, Boolean.TRUE);
+            markers.put(key, CacheNullValue.MARKER);
+        }
+        writeL2(keys, () -> pipelineSet(markers, key -> negativeConfig.getTtl()));
+        invalidationPublisher.publishMultiLevel(keys);
+    }
+
+    /**
+     * 批量查询L1、负缓存与L2，命中值写入result，返回仍需回源的key
+     */
+    private <T> Set<String> lookupAll(Collection<String> keys, Class<T> type, Map<String, T> result) {
+        List<String> l2Keys = new ArrayList<>();
+        for (String key : new LinkedHashSet<>(keys)) {
+            CacheValue cv = localCache.getIfPresent(key);
+            if (cv != null) {
+                result.put(key, type.cast(cv.value));
+            } else if (negativeCache.getIfPresent(key) != null) {
+                negativeHits.increment();
+            } else {
+                l2Keys.add(key);
+            }
+        }
+
+        Set<String> missing = new LinkedHashSet<>();
+        if (l2Keys.isEmpty()) {
+            return missing;
+        }
+        // 热点key在同一次pipeline中一并读取剩余寿命，回填驻留时无需再访问Redis
+        List<String> hotL2Keys = l2Keys.stream().filter(this::isPinCandidate).toList();
+        Map<String, Long> pttls = new HashMap<>();
+        List<Object> values = readL2(l2Keys, () -> multiGetWithTtl(l2Keys, hotL2Keys, pttls));
+        l2Keys.forEach(this::recordL2Read);
+        for (int i = 0; i < l2Keys.size(); i++) {
+            String key = l2Keys.get(i);
+            Object value = values != null ? values.get(i) : null;
+            if (CacheNullValue.isNull(value)) {
+                negativeCache.put(key, Boolean.TRUE);
+                negativeHits.increment();
+            } else if (value != null) {
+                fillLocal(key, value, pttls.get(key));
+                result.put(key, type.cast(value));
+            } else {
+                missing.add(key);
+            }
+        }
+        return missing;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> multiGetWithTtl(List<String> keys, List<String> hotKeys, Map<String, Long> pttls) {
+        if (hotKeys.isEmpty()) {
+            return redisTemplate.opsForValue().multiGet(keys);
+        }
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(@NonNull RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                ops.opsForValue().multiGet(keys);
+                hotKeys.forEach(key -> ops.getExpire(key, TimeUnit.MILLISECONDS));
+                return null;
+            }
+        });
+        for (int i = 0; i < hotKeys.size(); i++) {
+            if (results.get(i + 1) instanceof Long pttl) {
+                pttls.put(hotKeys.get(i), pttl);
+            }
+        }
+        return (List<Object>) results.get(0);
+    }
+
+    private L2Value getWithTtl(String key) {
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(@NonNull RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                ops.opsForValue().get(key);
+                ops.getExpire(key, TimeUnit.MILLISECONDS);
+                return null;
+            }
+        });
+        return new L2Value(results.get(0), results.get(1) instanceof Long pttl ? pttl : null);
+    }
+
+    private void pipelineSet(Map<String, ?> entries, Function<String, Duration> ttlOf) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(@NonNull RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                entries.forEach((key, value) -> ops.opsForValue().set(key, value, ttlOf.apply(key)));
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 依次查询L1、负缓存、L2；确认不存在时返回CacheNullValue.MARKER
+     */
+    private Object lookup(String key) {
         // 1) L1
         CacheValue cv = localCache.getIfPresent(key);
         if (cv != null) {
-            return type.cast(cv.value);
+            return cv.value;
+        }
+        if (negativeCache.getIfPresent(key) != null) {
+            negativeHits.increment();
+            return CacheNullValue.MARKER;
         }
 
-        // 2) L2
-        Object value = redisTemplate.opsForValue().get(key);
+        // 2) L2：热点key同一次往返读取剩余寿命
+        Object value;
+        Long pttl = null;
+        if (isPinCandidate(key)) {
+            L2Value read = readL2(List.of(key), () -> getWithTtl(key));
+            value = read != null ? read.value() : null;
+            pttl = read != null ? read.pttl() : null;
+        } else {
+            value = readL2(List.of(key), () -> redisTemplate.opsForValue().get(key));
+        }
+        recordL2Read(key);
+        if (CacheNullValue.isNull(value)) {
+            negativeCache.put(key, Boolean.TRUE);
+            negativeHits.increment();
+            return CacheNullValue.MARKER;
+        }
         if (value != null) {
-            // 使用默认TTL回填L1
-            putLocal(key, value, DEFAULT_TTL);
-            return type.cast(value);
+            fillLocal(key, value, pttl);
         }
+        return value;
+    }
 
-        return null;
+    /**
+     * 读L2：熔断打开时不访问Redis，读失败按未命中处理（调用方回源）
+     * 反序列化失败说明Redis已正常应答，不计入熔断；删除这批key中的坏值后按未命中回源重建
+     */
+    private <T> T readL2(Collection<String> keys, Supplier<T> read) {
+        if (!breaker.allowRequest()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            T value = read.get();
+            breaker.recordSuccess(System.nanoTime() - start);
+            return value;
+        } catch (Exception e) {
+            if (isDecodeFailure(e)) {
+                breaker.recordSuccess(System.nanoTime() - start);
+                decodeErrors.increment();
+                log.warn("MultiLevelCache decode failed, evicting {} key(s): {}", keys.size(), e.getMessage());
+                evictUndecodable(keys);
+                return null;
+            }
+            breaker.recordFailure();
+            log.warn("MultiLevelCache read redis failed: {}", e.getMessage());
+            return null;
+        }
     }
 
     /**
-     * 设置缓存
+     * 反序列化异常可能被pipeline包装一层，沿cause链查找
      */
-    public void set(String key, Object value, Duration ttl) {
-        // 同时写入L1和L2
-        putLocal(key, value, ttl);
-        redisTemplate.opsForValue().set(key, value, ttl);
-        // 通知其他实例失效本地L1
+    private static boolean isDecodeFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SerializationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 批量读取无法定位具体的坏值，整批删除
+     */
+    private void evictUndecodable(Collection<String> keys) {
         try {
-            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, key);
-        } catch (Exception ignored) {
+            redisTemplate.delete(keys);
+        } catch (Exception e) {
+            log.warn("MultiLevelCache evict undecodable keys failed: {}", e.getMessage());
         }
     }
 
     /**
-     * 删除缓存
+     * 写L2：熔断打开或写失败时只保留L1，记录key待Redis恢复后重放
      */
-    public void evict(String key) {
-        localCache.invalidate(key);
-        redisTemplate.delete(key);
-        // 通知其他实例失效本地L1
+    private void writeL2(Collection<String> keys, Runnable write) {
+        if (breaker.isOpen()) {
+            markDegraded(keys);
+            return;
+        }
+        long start = System.nanoTime();
         try {
-            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, key);
-        } catch (Exception ignored) {
+            write.run();
+            breaker.recordSuccess(System.nanoTime() - start);
+        } catch (Exception e) {
+            breaker.recordFailure();
+            markDegraded(keys);
+            log.warn("MultiLevelCache write redis failed: {}", e.getMessage());
+        }
+    }
+
+    private void markDegraded(Collection<String> keys) {
+        // 超出上限的key不再记录，依赖L1 TTL与失效广播的序号缺口兜底
+        for (String key : keys) {
+            if (degradedKeys.size() >= breaker.maxReplayKeys()) {
+                return;
+            }
+            degradedKeys.add(key);
         }
     }
 
     /**
-     * 获取或加载（带回源与写穿）
+     * Redis恢复后重放：删除熔断期间写入key的L2旧值并重新广播，其他节点下次访问时回源
      */
-    public <T> T getOrLoad(String key, Class<T> type, Duration ttl, Supplier<T> loader) {
-        T val = get(key, type);
-        if (val != null) {
-            return val;
+    public void replayDegradedWrites() {
+        if (degradedKeys.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(degradedKeys);
+        keys.forEach(degradedKeys::remove);
+        try {
+            redisTemplate.delete(keys);
+        } catch (Exception e) {
+            markDegraded(keys);
+            log.warn("MultiLevelCache replay degraded writes failed: {}", e.getMessage());
+            return;
         }
+        invalidationPublisher.publishMultiLevel(keys);
+        log.info("MultiLevelCache replayed {} degraded writes", keys.size());
+    }
 
-        T loaded = Objects.requireNonNull(loader.get(), "loader returned null");
-        set(key, loaded, ttl != null ? ttl : DEFAULT_TTL);
-        return loaded;
+    public int degradedKeyCount() {
+        return degradedKeys.size();
+    }
+
+    private void recordL2Read(String key) {
+        if (hotKeys != null) {
+            hotKeys.record(key);
+        }
+    }
+
+    private boolean isPinCandidate(String key) {
+        return hotKeys != null && hotKeys.isHot(key) && !breaker.isOpen();
+    }
+
+    /**
+     * L2读取后回填L1：热点key驻留，其余使用默认TTL
+     *
+     * @param pttl 与值一同读取的L2剩余寿命，非热点或未取到时为null
+     */
+    private void fillLocal(String key, Object value, Long pttl) {
+        if (pttl != null && pttl != -2L && pinLocal(key, value, pttl)) {
+            return;
+        }
+        putLocal(key, value, expiration.jitter(DEFAULT_TTL), false);
     }
 
-    private void putLocal(String key, Object value, Duration ttl) {
+    /**
+     * 热点驻留：TTL取pinTtl与L2剩余寿命的较小值，不让L1比L2活得更久
+     * 驻留条目数达到上限时不驻留，由调用方按普通条目写入
+     *
+     * @param l2RemainingMillis L2剩余寿命，-1表示L2未设置过期
+     * @return 是否已驻留（或L2已到期无需写入）
+     */
+    private boolean pinLocal(String key, Object value, long l2RemainingMillis) {
+        long ttlMillis = l2RemainingMillis >= 0 ? Math.min(pinTtl.toMillis(), l2RemainingMillis) : pinTtl.toMillis();
+        if (ttlMillis <= 0) {
+            return true;
+        }
+        // 覆盖已驻留的条目不增加驻留数（旧条目移除时计数会减回）
+        CacheValue existing = localCache.policy().getIfPresentQuietly(key);
+        if (pinnedEntries.incrementAndGet() > maxPinned && (existing == null || !existing.pinned())) {
+            pinnedEntries.decrementAndGet();
+            return false;
+        }
+        localCache.put(key, new CacheValue(value, System.nanoTime() + ttlMillis * 1_000_000L, true,
+                ttlMillis == l2RemainingMillis));
+        hotPromotions.increment();
+        return true;
+    }
+
+    private void putLocal(String key, Object value, Duration ttl, boolean l2Aligned) {
         long expireAt = System.nanoTime() + (ttl != null ? ttl.toNanos() : DEFAULT_TTL.toNanos());
-        localCache.put(key, new CacheValue(value, expireAt));
+        localCache.put(key, new CacheValue(value, expireAt, false, l2Aligned));
+    }
+
+    private boolean isEarlyRecompute(String key) {
+        CacheValue cv = localCache.policy().getIfPresentQuietly(key);
+        return cv != null && cv.l2Aligned()
+                && expiration.shouldRecomputeEarly(cv.expireAtNanos() - System.nanoTime());
     }
 
     /**
@@ -125,6 +597,48 @@ public class MultiLevelCache {
      */
     public void invalidateLocal(String key) {
         localCache.invalidate(key);
+        negativeCache.invalidate(key);
+    }
+
+    /**
+     * 清空本地L1（失效广播丢失时兜底）
+     */
+    public void invalidateAllLocal() {
+        localCache.invalidateAll();
+        negativeCache.invalidateAll();
+    }
+
+    /**
+     * L1中访问最频繁的条目（用于写快照）
+     */
+    public List<SnapshotEntry> hottestEntries(int limit) {
+        long nowNanos = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        List<SnapshotEntry> entries = new ArrayList<>();
+        localCache.policy().eviction().ifPresent(eviction -> eviction.hottest(limit).forEach((key, cv) -> {
+            long remainingNanos = cv.expireAtNanos() - nowNanos;
+            if (remainingNanos > 0) {
+                entries.add(new SnapshotEntry(key, cv.value(), nowMillis + remainingNanos / 1_000_000L, 0L));
+            }
+        }));
+        return entries;
+    }
+
+    /**
+     * 从快照恢复L1：仅写本地，不写L2也不广播；已过期的条目跳过，已存在的条目不覆盖
+     */
+    public int restoreLocal(Collection<SnapshotEntry> entries) {
+        long nowNanos = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        int restored = 0;
+        for (SnapshotEntry e : entries) {
+            long remainingMillis = e.expireAtEpochMillis() - nowMillis;
+            if (remainingMillis > 0 && localCache.asMap().putIfAbsent(e.key(),
+                    new CacheValue(e.value(), nowNanos + remainingMillis * 1_000_000L, false, false)) == null) {
+                restored++;
+            }
+        }
+        return restored;
     }
 
     public com.github.benmanes.caffeine.cache.stats.CacheStats localStats() {
@@ -134,4 +648,42 @@ public class MultiLevelCache {
     public long localSize() {
         return localCache.estimatedSize();
     }
-}
\ No newline at end of file
+
+    public long negativeSize() {
+        return negativeCache.estimatedSize();
+    }
+
+    public long negativeHitCount() {
+        return negativeHits.sum();
+    }
+
+    public long decodeErrorCount() {
+        return decodeErrors.sum();
+    }
+
+    public SingleFlightLoader singleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * 热点识别器，未启用时为null
+     */
+    public HotKeyDetector hotKeys() {
+        return hotKeys;
+    }
+
+    public long earlyRecomputeCount() {
+        return expiration.earlyRecomputeCount();
+    }
+
+    public long hotPromotionCount() {
+        return hotPromotions.sum();
+    }
+
+    /**
+     * 当前驻留L1的热点条目数
+     */
+    public long pinnedCount() {
+        return pinnedEntries.get();
+    }
+}
@@ -0,0 +1,293 @@
+package com.frog.common.cache;
+
+import com.frog.common.redis.health.RedisCircuitBreaker;
+import com.frog.common.redis.lock.DistributedLock;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 单飞加载器
+ * 同一key的并发回源在JVM内合并为一次，其余调用方等待同一个Future；
+ * 可选通过Redis租约把回源进一步收敛到集群内单个节点，防止热点key过期时击穿数据库。
+ * 提前重算（{@link #refresh}）只由拿到合并权与租约的单个调用方执行，其余调用方不等待、继续使用当前值。
+ *
+ * @author Deng
+ * createData 2025/11/20 10:20
+ * @version 1.0
+ */
+@Slf4j
+public class SingleFlightLoader {
+    private static final String LEASE_PREFIX = "cache:load:";
+
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final DistributedLock distributedLock;
+    private final CacheProperties.LoadLease lease;
+    private final RedisCircuitBreaker breaker;
+
+    // 实际执行回源的次数
+    private final LongAdder executed = new LongAdder();
+    // 被合并到已有回源上的次数
+    private final LongAdder coalesced = new LongAdder();
+    // 等待其他节点持有租约并从L2拿到结果的次数（含拿到租约后复查L2命中）
+    private final LongAdder leaseWaitHits = new LongAdder();
+    // 获取租约异常（Redis不可用）后直接回源的次数
+    private final LongAdder leaseFailures = new LongAdder();
+    // 提前重算因已有回源进行中或其他节点持有租约而跳过的次数
+    private final LongAdder skippedRefreshes = new LongAdder();
+
+    /**
+     * 进行中的回源，owner用于识别同一线程在loader内重入加载同一key
+     */
+    private record Flight(Thread owner, CompletableFuture<Object> future) {}
+
+    /**
+     * @param distributedLock 为null或租约未启用时仅做JVM内合并
+     */
+    public SingleFlightLoader(DistributedLock distributedLock, CacheProperties.LoadLease lease) {
+        this(distributedLock, lease, null);
+    }
+
+    /**
+     * @param breaker Redis熔断打开时跳过租约，仅做JVM内合并；为null表示不感知熔断
+     */
+    public SingleFlightLoader(DistributedLock distributedLock, CacheProperties.LoadLease lease,
+                              RedisCircuitBreaker breaker) {
+        this.distributedLock = distributedLock;
+        this.lease = lease;
+        this.breaker = breaker;
+    }
+
+    /**
+     * 合并加载
+     *
+     * @param key 缓存key（需在租约命名空间内全局唯一，建议使用Redis key）
+     * @param recheck 未拿到租约时用于轮询L2的读取函数
+     * @param loader 回源并写回缓存的函数
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(String key, Supplier<T> recheck, Supplier<T> loader) {
+        Flight created = new Flight(Thread.currentThread(), new CompletableFuture<>());
+        Flight existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            if (existing.owner() == Thread.currentThread()) {
+                // loader内重入加载同一key：等待自己的Future会死锁，直接回源
+                executed.increment();
+                return loader.get();
+            }
+            coalesced.increment();
+            return (T) await(existing.future());
+        }
+
+        try {
+            T value = loadWithLease(key, recheck, loader);
+            created.future().complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            created.future().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    /**
+     * 提前重算（XFetch）：调用方已持有仍有效的当前值
+     * 与load不同，拿到租约后不复查L2——L2中正是待刷新的当前值，复查必然命中而跳过重算；
+     * 本节点已有同key回源或其他节点持有租约时不等待，直接返回当前值；重算失败同样返回当前值
+     *
+     * @param current 当前值，未重算时原样返回
+     * @param loader 回源并写回缓存的函数
+     */
+    public <T> T refresh(String key, T current, Supplier<T> loader) {
+        Flight created = new Flight(Thread.currentThread(), new CompletableFuture<>());
+        if (inFlight.putIfAbsent(key, created) != null) {
+            skippedRefreshes.increment();
+            return current;
+        }
+
+        try {
+            T value = refreshWithLease(key, current, loader);
+            created.future().complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            created.future().completeExceptionally(e);
+            log.warn("Early recompute failed, keep current value, key={}: {}", key, e.getMessage());
+            return current;
+        } catch (Error e) {
+            created.future().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    private <T> T refreshWithLease(String key, T current, Supplier<T> loader) {
+        if (!leaseEnabled()) {
+            executed.increment();
+            return loader.get();
+        }
+
+        String leaseKey = LEASE_PREFIX + key;
+        String leaseId;
+        try {
+            leaseId = distributedLock.tryLock(leaseKey, lease.getLeaseTime());
+        } catch (Exception e) {
+            onLeaseFailure(key, e);
+            executed.increment();
+            return loader.get();
+        }
+
+        if (leaseId == null) {
+            // 其他节点正在回源，其结果会经L2与失效广播到达本节点
+            skippedRefreshes.increment();
+            return current;
+        }
+        try {
+            executed.increment();
+            return loader.get();
+        } finally {
+            releaseLease(key, leaseKey, leaseId);
+        }
+    }
+
+    private <T> T loadWithLease(String key, Supplier<T> recheck, Supplier<T> loader) {
+        if (!leaseEnabled()) {
+            executed.increment();
+            return loader.get();
+        }
+
+        String leaseKey = LEASE_PREFIX + key;
+        String leaseId;
+        try {
+            leaseId = distributedLock.tryLock(leaseKey, lease.getLeaseTime());
+        } catch (Exception e) {
+            // Redis异常：无法协调，也无法从L2等到其他节点的结果，立即本节点回源，不等待waitTime
+            onLeaseFailure(key, e);
+            executed.increment();
+            return loader.get();
+        }
+
+        if (leaseId == null) {
+            T fromPeer = awaitPeer(key, recheck);
+            if (fromPeer != null) {
+                leaseWaitHits.increment();
+                return fromPeer;
+            }
+            // 等待超时或复查异常：放行本节点回源，保证可用性
+            executed.increment();
+            return loader.get();
+        }
+
+        try {
+            // 其他节点可能在本节点拿到租约前刚写回L2并释放租约，复查一次避免重复回源
+            T fromPeer = recheckQuietly(key, recheck);
+            if (fromPeer != null) {
+                leaseWaitHits.increment();
+                return fromPeer;
+            }
+            executed.increment();
+            return loader.get();
+        } finally {
+            releaseLease(key, leaseKey, leaseId);
+        }
+    }
+
+    private boolean leaseEnabled() {
+        return distributedLock != null && lease != null && lease.isEnabled()
+                && (breaker == null || !breaker.isOpen());
+    }
+
+    private void onLeaseFailure(String key, Exception e) {
+        log.warn("Acquire cache load lease failed, key={}: {}", key, e.getMessage());
+        if (breaker != null) {
+            breaker.recordFailure();
+        }
+        leaseFailures.increment();
+    }
+
+    private void releaseLease(String key, String leaseKey, String leaseId) {
+        try {
+            distributedLock.unlock(leaseKey, leaseId);
+        } catch (Exception e) {
+            log.warn("Release cache load lease failed, key={}: {}", key, e.getMessage());
+        }
+    }
+
+    private <T> T awaitPeer(String key, Supplier<T> recheck) {
+        long deadline = System.nanoTime() + lease.getWaitTime().toNanos();
+        long interval = Math.max(1L, lease.getRetryInterval().toMillis());
+        while (System.nanoTime() < deadline) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(interval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            try {
+                T value = recheck.get();
+                if (value != null) {
+                    return value;
+                }
+            } catch (Exception e) {
+                log.debug("Recheck during lease wait failed, key={}: {}", key, e.getMessage());
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private <T> T recheckQuietly(String key, Supplier<T> recheck) {
+        try {
+            return recheck.get();
+        } catch (Exception e) {
+            log.debug("Recheck after lease acquired failed, key={}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            if (cause instanceof Error err) {
+                throw err;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public long executedCount() {
+        return executed.sum();
+    }
+
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long leaseWaitHitCount() {
+        return leaseWaitHits.sum();
+    }
+
+    public long leaseFailureCount() {
+        return leaseFailures.sum();
+    }
+
+    public long skippedRefreshCount() {
+        return skippedRefreshes.sum();
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,129 @@
+package com.frog.common.cache.invalidation;
+
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.cache.MultiLevelCache;
+import com.frog.common.cache.spring.TwoLevelCacheManager;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 订阅批量失效帧，执行本地L1失效
+ * 按发送节点跟踪序列号，发现缺口（丢帧）时整体清空本地L1
+ * 节点重启后以新的节点ID发送，长时间未收到帧的旧节点ID定期清理
+ *
+ * @author Deng
+ * createData 2025/11/21 10:40
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheInvalidationBatchListener implements MessageListener {
+    private final MultiLevelCache multiLevelCache;
+    private final TwoLevelCacheManager cacheManager;
+    private final CacheInvalidationPublisher publisher;
+    private final CacheProperties cacheProperties;
+
+    // 各发送节点最近一次收到的序列号
+    private final Map<UUID, NodeState> lastSequenceByNode = new ConcurrentHashMap<>();
+    private final AtomicLong nextPruneMillis = new AtomicLong();
+
+    private final LongAdder framesReceived = new LongAdder();
+    private final LongAdder keysReceived = new LongAdder();
+    private final LongAdder gapsDetected = new LongAdder();
+
+    private record NodeState(long sequence, long lastSeenMillis) {}
+
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        try {
+            InvalidationFrame frame = InvalidationFrame.decode(message.getBody());
+            if (frame == null) {
+                log.debug("Ignore unrecognized cache invalidation frame");
+                return;
+            }
+            // 自身发布的失效无需处理（本地写入时已更新L1）
+            if (publisher.nodeId().equals(frame.nodeId())) {
+                return;
+            }
+            framesReceived.increment();
+
+            long now = System.currentTimeMillis();
+            NodeState last = lastSequenceByNode.put(frame.nodeId(), new NodeState(frame.sequence(), now));
+            pruneIdleNodes(now);
+            if (last != null && frame.sequence() > last.sequence() + 1) {
+                gapsDetected.increment();
+                log.warn("Cache invalidation gap from node {}: expected {}, got {}, flushing L1",
+                        frame.nodeId(), last.sequence() + 1, frame.sequence());
+                flushAllLocal();
+                return;
+            }
+
+            for (InvalidationFrame.Entry e : frame.entries()) {
+                apply(e);
+            }
+            keysReceived.add(frame.entries().size());
+        } catch (Exception e) {
+            log.warn("Failed to process cache invalidation frame, flushing L1", e);
+            flushAllLocal();
+        }
+    }
+
+    public long framesReceivedCount() {
+        return framesReceived.sum();
+    }
+
+    public long keysReceivedCount() {
+        return keysReceived.sum();
+    }
+
+    public long gapsDetectedCount() {
+        return gapsDetected.sum();
+    }
+
+    /**
+     * 当前跟踪序列号的发送节点数
+     */
+    public int trackedNodeCount() {
+        return lastSequenceByNode.size();
+    }
+
+    /**
+     * 每个空闲周期最多清理一次，只由抢到清理时间点的线程执行
+     */
+    private void pruneIdleNodes(long now) {
+        long next = nextPruneMillis.get();
+        if (now < next) {
+            return;
+        }
+        long idleMillis = cacheProperties.getInvalidation().getNodeIdleTimeout().toMillis();
+        if (!nextPruneMillis.compareAndSet(next, now + idleMillis)) {
+            return;
+        }
+        lastSequenceByNode.values().removeIf(state -> now - state.lastSeenMillis() > idleMillis);
+    }
+
+    private void apply(InvalidationFrame.Entry e) {
+        switch (e.type()) {
+            case InvalidationFrame.TYPE_MULTI_LEVEL -> multiLevelCache.invalidateLocal(e.key());
+            case InvalidationFrame.TYPE_TWO_LEVEL -> cacheManager.invalidateLocal(e.cacheName(), e.key());
+            case InvalidationFrame.TYPE_TWO_LEVEL_CLEAR -> cacheManager.invalidateLocal(e.cacheName(), "*");
+            default -> log.debug("Unknown invalidation entry type: {}", e.type());
+        }
+    }
+
+    private void flushAllLocal() {
+        multiLevelCache.invalidateAllLocal();
+        cacheManager.clearAllLocal();
+    }
+}
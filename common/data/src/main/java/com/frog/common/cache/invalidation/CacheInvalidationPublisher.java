@@ -0,0 +1,254 @@
+package com.frog.common.cache.invalidation;
+
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.redis.health.RedisCircuitBreaker;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * L1失效广播发布器
+ * 在短时间窗口内合并失效key（同key去重），以二进制帧批量发布，替代逐key的JSON字符串消息
+ * Redis熔断期间失效暂存在待发送集合中，恢复后重放；积压超过上限时丢弃并跳过一个序列号，接收方据缺口整体刷新L1
+ *
+ * @author Deng
+ * createData 2025/11/21 10:05
+ * @version 1.0
+ */
+@Component
+@Slf4j
+public class CacheInvalidationPublisher {
+    public static final String CHANNEL = "cache:invalidation:batch";
+    private static final byte[] CHANNEL_BYTES = CHANNEL.getBytes(StandardCharsets.UTF_8);
+    /**
+     * 失效日志（Stream，条目ID即集群范围的失效版本）
+     * 所有节点都写入，与本节点是否启用L1快照无关：任一节点的快照都依赖集群内全部失效
+     */
+    public static final String INVALIDATION_LOG = "cache:invalidation:log";
+    public static final String LOG_FRAME_FIELD = "f";
+    /**
+     * 缺口标记：此前有失效未能写入日志（发布失败或熔断积压被丢弃），早于该标记的快照不可信
+     */
+    public static final String LOG_GAP_FIELD = "g";
+    private static final byte[] LOG_KEY_BYTES = INVALIDATION_LOG.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LOG_FRAME_FIELD_BYTES = LOG_FRAME_FIELD.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LOG_GAP_FIELD_BYTES = LOG_GAP_FIELD.getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final CacheProperties.Invalidation config;
+    private final CacheProperties.Snapshot snapshotConfig;
+    private final RedisCircuitBreaker breaker;
+
+    // 本节点标识，接收方据此跳过自身消息并按节点跟踪序列号
+    private final UUID nodeId = UUID.randomUUID();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Set<InvalidationFrame.Entry> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    // 有失效未写入日志，下一次成功发送时先追加缺口标记
+    private final AtomicBoolean logGapPending = new AtomicBoolean(false);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cache-invalidation-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder keysPublished = new LongAdder();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder publishFailures = new LongAdder();
+    private final LongAdder replayOverflows = new LongAdder();
+
+    public CacheInvalidationPublisher(RedisTemplate<String, Object> redisTemplate, CacheProperties cacheProperties,
+                                      RedisCircuitBreaker breaker) {
+        this.redisTemplate = redisTemplate;
+        this.config = cacheProperties.getInvalidation();
+        this.snapshotConfig = cacheProperties.getSnapshot();
+        this.breaker = breaker;
+        // 恢复回调在熔断器线程上触发，转交给发送线程，与窗口到期的发送串行执行
+        breaker.onRecovery(() -> scheduleFlush(0L));
+    }
+
+    /**
+     * MultiLevelCache key失效
+     */
+    public void publishMultiLevel(String key) {
+        enqueue(InvalidationFrame.Entry.multiLevel(key));
+    }
+
+    /**
+     * MultiLevelCache批量key失效（合并进同一帧）
+     */
+    public void publishMultiLevel(Collection<String> keys) {
+        for (String key : keys) {
+            pending.add(InvalidationFrame.Entry.multiLevel(key));
+        }
+        scheduleAfterEnqueue();
+    }
+
+    /**
+     * TwoLevelCache key失效
+     */
+    public void publishTwoLevel(String cacheName, String key) {
+        enqueue(InvalidationFrame.Entry.twoLevel(cacheName, key));
+    }
+
+    /**
+     * TwoLevelCache整表失效
+     */
+    public void publishTwoLevelClear(String cacheName) {
+        enqueue(InvalidationFrame.Entry.twoLevelClear(cacheName));
+    }
+
+    public UUID nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 立即发送所有待发送的失效
+     * 串行执行：并发发送会让同一key重复发出，且序列号乱序到达会被接收方误判为缺口
+     */
+    public synchronized void flush() {
+        flushScheduled.set(false);
+        if (breaker.isOpen()) {
+            // 保留待发送集合，由熔断恢复回调重放
+            return;
+        }
+        List<InvalidationFrame.Entry> batch = new ArrayList<>();
+        Iterator<InvalidationFrame.Entry> it = pending.iterator();
+        while (it.hasNext()) {
+            batch.add(it.next());
+            it.remove();
+            if (batch.size() >= config.getMaxBatchSize()) {
+                send(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        flush();
+    }
+
+    public long keysPublishedCount() {
+        return keysPublished.sum();
+    }
+
+    public long framesSentCount() {
+        return framesSent.sum();
+    }
+
+    public long publishFailureCount() {
+        return publishFailures.sum();
+    }
+
+    /**
+     * 熔断期间积压超限而被丢弃（改由序列号缺口触发整体刷新）的次数
+     */
+    public long replayOverflowCount() {
+        return replayOverflows.sum();
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    private void enqueue(InvalidationFrame.Entry entry) {
+        pending.add(entry);
+        scheduleAfterEnqueue();
+    }
+
+    private void scheduleAfterEnqueue() {
+        if (breaker.isOpen()) {
+            if (pending.size() > breaker.maxReplayKeys()) {
+                // 积压过多：放弃逐key重放，消耗一个序列号，恢复后的下一帧让接收方看到缺口并清空L1
+                pending.clear();
+                sequence.incrementAndGet();
+                logGapPending.set(true);
+                replayOverflows.increment();
+            }
+            return;
+        }
+        if (pending.size() >= config.getMaxBatchSize()) {
+            scheduleFlush(0L);
+        } else {
+            scheduleFlush(config.getBatchWindow().toNanos());
+        }
+    }
+
+    private void scheduleFlush(long delayNanos) {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.schedule(this::flushSafely, delayNanos, TimeUnit.NANOSECONDS);
+            } catch (Exception e) {
+                // 调度器已关闭（应用停止中）：同步发送
+                flushSafely();
+            }
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Cache invalidation flush failed: {}", e.getMessage());
+        }
+    }
+
+    private void send(List<InvalidationFrame.Entry> batch) {
+        byte[] frame = new InvalidationFrame(nodeId, sequence.incrementAndGet(), batch).encode();
+        boolean markGap = logGapPending.getAndSet(false);
+        long start = System.nanoTime();
+        try {
+            // 同时追加到失效日志，重启节点据此剔除快照中已失效的条目
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.publish(CHANNEL_BYTES, frame);
+                if (markGap) {
+                    appendLog(connection, LOG_GAP_FIELD_BYTES, nodeId.toString().getBytes(StandardCharsets.UTF_8));
+                }
+                appendLog(connection, LOG_FRAME_FIELD_BYTES, frame);
+                return null;
+            });
+            breaker.recordSuccess(System.nanoTime() - start);
+            framesSent.increment();
+            keysPublished.add(batch.size());
+        } catch (Exception e) {
+            breaker.recordFailure();
+            // 序列号已消耗，接收方将检测到缺口并整体刷新L1；日志中也缺少这一帧，恢复后补写缺口标记
+            logGapPending.set(true);
+            publishFailures.increment();
+            log.warn("Publish cache invalidation frame failed, keys={}: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private void appendLog(RedisConnection connection, byte[] field, byte[] value) {
+        connection.streamCommands().xAdd(
+                StreamRecords.rawBytes(Map.of(field, value)).withStreamKey(LOG_KEY_BYTES),
+                RedisStreamCommands.XAddOptions.maxlen(snapshotConfig.getInvalidationLogMaxLength())
+                        .approximateTrimming(true));
+    }
+}
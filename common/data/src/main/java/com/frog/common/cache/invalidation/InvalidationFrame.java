@@ -0,0 +1,94 @@
+package com.frog.common.cache.invalidation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * L1失效批量帧（二进制编码）
+ * <pre>
+ * magic(1) version(1) nodeId(16) sequence(8) count(4)
+ * entry: type(1) [cacheName(UTF)] key(UTF)
+ * </pre>
+ * 发送节点内sequence单调递增，接收方据此检测丢帧
+ *
+ * @author Deng
+ * createData 2025/11/21 09:40
+ * @version 1.0
+ */
+public record InvalidationFrame(UUID nodeId, long sequence, List<Entry> entries) {
+    private static final byte MAGIC = 0x43;
+    private static final byte VERSION = 1;
+
+    /** MultiLevelCache单key失效 */
+    public static final byte TYPE_MULTI_LEVEL = 1;
+    /** TwoLevelCache单key失效 */
+    public static final byte TYPE_TWO_LEVEL = 2;
+    /** TwoLevelCache整表清空 */
+    public static final byte TYPE_TWO_LEVEL_CLEAR = 3;
+
+    public record Entry(byte type, String cacheName, String key) {
+        public static Entry multiLevel(String key) {
+            return new Entry(TYPE_MULTI_LEVEL, null, key);
+        }
+
+        public static Entry twoLevel(String cacheName, String key) {
+            return new Entry(TYPE_TWO_LEVEL, cacheName, key);
+        }
+
+        public static Entry twoLevelClear(String cacheName) {
+            return new Entry(TYPE_TWO_LEVEL_CLEAR, cacheName, "*");
+        }
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(32 + entries.size() * 32);
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            out.writeByte(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(nodeId.getMostSignificantBits());
+            out.writeLong(nodeId.getLeastSignificantBits());
+            out.writeLong(sequence);
+            out.writeInt(entries.size());
+            for (Entry e : entries) {
+                out.writeByte(e.type());
+                if (e.type() != TYPE_MULTI_LEVEL) {
+                    out.writeUTF(e.cacheName());
+                }
+                out.writeUTF(e.key());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * 解码，非本格式的消息返回null
+     */
+    public static InvalidationFrame decode(byte[] body) {
+        if (body == null || body.length < 2 || body[0] != MAGIC || body[1] != VERSION) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, 2, body.length - 2))) {
+            UUID nodeId = new UUID(in.readLong(), in.readLong());
+            long sequence = in.readLong();
+            int count = in.readInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte type = in.readByte();
+                String cacheName = type != TYPE_MULTI_LEVEL ? in.readUTF() : null;
+                entries.add(new Entry(type, cacheName, in.readUTF()));
+            }
+            return new InvalidationFrame(nodeId, sequence, entries);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
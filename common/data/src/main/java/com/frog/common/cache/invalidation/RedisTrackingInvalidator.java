@@ -0,0 +1,209 @@
+package com.frog.common.cache.invalidation;
+
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.cache.MultiLevelCache;
+import com.frog.common.cache.spring.CacheGeneration;
+import com.frog.common.cache.spring.TwoLevelCache;
+import com.frog.common.cache.spring.TwoLevelCacheManager;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.codec.StringCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.stereotype.Component;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 基于Redis 6+ CLIENT TRACKING（RESP3，BCAST模式）的L1失效
+ * 服务端对跟踪前缀下的任何写入（包括绕过缓存类的脚本、其他服务）推送invalidate消息，
+ * 与应用层失效广播并行工作；跟踪连接断开期间无法获知写入，重连后整体清空L1
+ * BCAST模式下本节点自身的写入同样会收到推送，代价是写入后的下一次读取回源L2一次
+ *
+ * @author Deng
+ * createData 2025/11/25 10:20
+ * @version 1.0
+ */
+@Component
+@ConditionalOnProperty(prefix = "frog.cache.tracking", name = "enabled", havingValue = "true")
+@Slf4j
+public class RedisTrackingInvalidator {
+    private static final String INVALIDATE = "invalidate";
+    // TwoLevelCache代际key布局：name:v{gen}:key
+    private static final Pattern GENERATION_SEGMENT = Pattern.compile("^v\\d+:");
+
+    private final RedisConnectionFactory connectionFactory;
+    private final MultiLevelCache multiLevelCache;
+    private final TwoLevelCacheManager cacheManager;
+    private final CacheProperties.Tracking config;
+
+    private RedisClient client;
+    private StatefulRedisConnection<String, String> connection;
+    private RedisConnectionStateListener stateListener;
+    private volatile TrackingArgs trackingArgs;
+
+    private final LongAdder keysInvalidated = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+
+    public RedisTrackingInvalidator(RedisConnectionFactory connectionFactory,
+                                    MultiLevelCache multiLevelCache,
+                                    TwoLevelCacheManager cacheManager,
+                                    CacheProperties cacheProperties) {
+        this.connectionFactory = connectionFactory;
+        this.multiLevelCache = multiLevelCache;
+        this.cacheManager = cacheManager;
+        this.config = cacheProperties.getTracking();
+    }
+
+    @PostConstruct
+    public void start() {
+        String[] prefixes = trackedPrefixes();
+        try {
+            if (!(connectionFactory instanceof LettuceConnectionFactory lettuce)
+                    || !(lettuce.getNativeClient() instanceof RedisClient redisClient)) {
+                log.warn("Redis client tracking requires a standalone Lettuce connection, tracking disabled");
+                return;
+            }
+            client = redisClient;
+            connection = client.connect(StringCodec.UTF8);
+            connection.addListener(this::onPush);
+            trackingArgs = TrackingArgs.Builder.enabled().bcast().prefixes(prefixes);
+            connection.sync().clientTracking(trackingArgs);
+        } catch (Exception e) {
+            log.warn("Enable redis client tracking failed (requires Redis 6+ with RESP3), tracking disabled: {}",
+                    e.getMessage());
+            close();
+            return;
+        }
+
+        // 跟踪状态随连接存在：断线期间的写入不会再推送，重连后重新开启并清空L1
+        stateListener = new RedisConnectionStateListener() {
+            @Override
+            public void onRedisDisconnected(RedisChannelHandler<?, ?> handler) {
+                if (handler == connection) {
+                    log.warn("Redis tracking connection lost, flushing L1");
+                    flushAllLocal();
+                }
+            }
+
+            @Override
+            public void onRedisConnected(RedisChannelHandler<?, ?> handler, SocketAddress address) {
+                if (handler == connection) {
+                    connection.async().clientTracking(trackingArgs).whenComplete((ok, ex) -> {
+                        if (ex != null) {
+                            log.warn("Re-enable redis client tracking failed: {}", ex.getMessage());
+                        }
+                        flushAllLocal();
+                    });
+                }
+            }
+
+            @Override
+            public void onRedisExceptionCaught(RedisChannelHandler<?, ?> handler, Throwable cause) {
+                // 连接异常由断开/重连回调处理
+            }
+        };
+        client.addListener(stateListener);
+        log.info("Redis client tracking enabled, prefixes={}", List.of(prefixes));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (client != null && stateListener != null) {
+            client.removeListener(stateListener);
+        }
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+    }
+
+    public long keysInvalidatedCount() {
+        return keysInvalidated.sum();
+    }
+
+    public long flushCount() {
+        return flushes.sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onPush(PushMessage message) {
+        if (!INVALIDATE.equals(message.getType())) {
+            return;
+        }
+        try {
+            List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+            Object keys = content.size() > 1 ? content.get(1) : null;
+            if (keys == null) {
+                // FLUSHDB/FLUSHALL
+                flushAllLocal();
+                return;
+            }
+            for (Object key : (List<Object>) keys) {
+                invalidate(String.valueOf(key));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to process redis tracking invalidation, flushing L1", e);
+            flushAllLocal();
+        }
+    }
+
+    private void invalidate(String redisKey) {
+        keysInvalidated.increment();
+        if (redisKey.startsWith(CacheGeneration.GENERATION_KEY_PREFIX)) {
+            // 其他节点clear()：直接丢弃该缓存的L1并重读代际
+            cacheManager.invalidateLocal(redisKey.substring(CacheGeneration.GENERATION_KEY_PREFIX.length()), "*");
+            return;
+        }
+        for (Map.Entry<String, TwoLevelCache> e : cacheManager.currentCaches().entrySet()) {
+            String prefix = e.getKey() + ":";
+            if (redisKey.startsWith(prefix)) {
+                // 只有代际命名空间（name:v{gen}:key）内的key属于该缓存，同前缀下的其他key与L1无关
+                Matcher generation = GENERATION_SEGMENT.matcher(redisKey.substring(prefix.length()));
+                if (generation.lookingAt()) {
+                    e.getValue().invalidateLocal(generation.replaceFirst(""));
+                }
+                return;
+            }
+        }
+        multiLevelCache.invalidateLocal(redisKey);
+    }
+
+    private void flushAllLocal() {
+        flushes.increment();
+        multiLevelCache.invalidateAllLocal();
+        cacheManager.clearAllLocal();
+    }
+
+    /**
+     * BCAST模式下前缀之间不允许互相覆盖，被更短前缀覆盖的前缀需去掉
+     */
+    private String[] trackedPrefixes() {
+        TreeSet<String> candidates = new TreeSet<>(config.getPrefixes());
+        cacheManager.getCacheNames().forEach(n -> candidates.add(n + ":"));
+        candidates.add(CacheGeneration.GENERATION_KEY_PREFIX);
+        List<String> prefixes = new ArrayList<>();
+        for (String p : candidates) {
+            // TreeSet有序：覆盖p的更短前缀一定排在p之前
+            if (prefixes.stream().noneMatch(p::startsWith)) {
+                prefixes.add(p);
+            }
+        }
+        return prefixes.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,374 @@
+package com.frog.common.cache.snapshot;
+
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.cache.MultiLevelCache;
+import com.frog.common.cache.invalidation.CacheInvalidationPublisher;
+import com.frog.common.cache.invalidation.InvalidationFrame;
+import com.frog.common.cache.spring.TwoLevelCache;
+import com.frog.common.cache.spring.TwoLevelCacheManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * L1快照：定期把MultiLevelCache与各TwoLevelCache的热点条目写入本地文件，启动时加载以预热L1
+ * <p>
+ * 快照记录写入时失效日志（Redis Stream）的最新条目ID作为版本；加载时读取该ID之后的失效帧，
+ * 剔除其中涉及的key与被clear的缓存。日志已被裁剪到快照版本之后，或快照版本之后出现缺口标记
+ * （有节点的失效未能写入日志）时，无法确认期间的失效，整体放弃快照。
+ * 条目按剩余寿命恢复，已过期的条目丢弃。
+ *
+ * @author Deng
+ * createData 2025/11/26 10:10
+ * @version 1.0
+ */
+@Component
+@ConditionalOnProperty(prefix = "frog.cache.snapshot", name = "enabled", havingValue = "true")
+@Slf4j
+public class L1SnapshotManager {
+    private static final int MAGIC = 0x46524C31;
+    private static final int FORMAT_VERSION = 1;
+    private static final byte SECTION_END = 0;
+    private static final byte SECTION_MULTI_LEVEL = 1;
+    private static final byte SECTION_TWO_LEVEL = 2;
+    // 空日志对应的版本
+    private static final String EMPTY_LOG_ID = "0-0";
+    private static final int LOG_PAGE_SIZE = 1000;
+    private static final byte[] LOG_KEY = CacheInvalidationPublisher.INVALIDATION_LOG.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LOG_GAP_FIELD = CacheInvalidationPublisher.LOG_GAP_FIELD.getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MultiLevelCache multiLevelCache;
+    private final TwoLevelCacheManager cacheManager;
+    private final CacheProperties.Snapshot config;
+    private final Path file;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cache-l1-snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private record Section(byte type, String cacheName, long generation, List<SnapshotEntry> entries) {}
+
+    /**
+     * 快照版本之后的失效
+     */
+    private static class Invalidations {
+        final Set<String> multiLevelKeys = new HashSet<>();
+        final Map<String, Set<String>> twoLevelKeys = new HashMap<>();
+        final Set<String> clearedCaches = new HashSet<>();
+    }
+
+    public L1SnapshotManager(RedisTemplate<String, Object> redisTemplate,
+                             MultiLevelCache multiLevelCache,
+                             TwoLevelCacheManager cacheManager,
+                             CacheProperties cacheProperties,
+                             @Value("${spring.application.name:application}") String applicationName) {
+        this.redisTemplate = redisTemplate;
+        this.multiLevelCache = multiLevelCache;
+        this.cacheManager = cacheManager;
+        this.config = cacheProperties.getSnapshot();
+        this.file = Paths.get(config.getDirectory(), applicationName + "-l1.snapshot");
+    }
+
+    @PostConstruct
+    public void start() {
+        try {
+            restore();
+        } catch (Exception e) {
+            log.warn("Restore L1 snapshot failed, starting cold: {}", e.getMessage());
+        }
+        long interval = config.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::writeSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停机前写入最后一次快照，滚动发布时新实例可直接使用
+     */
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdown();
+        writeSafely();
+    }
+
+    /**
+     * 写快照：先写临时文件再原子替换，避免进程中途退出留下半个文件
+     */
+    public void write() throws IOException {
+        // 先取版本再取条目：期间发生的失效版本更高，加载时会被剔除
+        String logId = latestLogId();
+        RedisSerializer<Object> serializer = valueSerializer();
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        int count = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, logId);
+            count += writeSection(out, serializer, new Section(SECTION_MULTI_LEVEL, "", 0L,
+                    multiLevelCache.hottestEntries(config.getMaxEntriesPerCache())));
+            for (TwoLevelCache cache : cacheManager.currentCaches().values()) {
+                count += writeSection(out, serializer, new Section(SECTION_TWO_LEVEL, cache.getName(),
+                        cache.getGeneration(), cache.hottestEntries(config.getMaxEntriesPerCache())));
+            }
+            out.writeByte(SECTION_END);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.debug("L1 snapshot written, entries={}, version={}", count, logId);
+    }
+
+    /**
+     * 加载快照
+     */
+    public void restore() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        String logId;
+        List<Section> sections = new ArrayList<>();
+        RedisSerializer<Object> serializer = valueSerializer();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                log.info("Ignore L1 snapshot with unknown format: {}", file);
+                return;
+            }
+            logId = readString(in);
+            Section section;
+            while ((section = readSection(in, serializer)) != null) {
+                sections.add(section);
+            }
+        }
+
+        Invalidations invalidations = invalidationsSince(logId);
+        if (invalidations == null) {
+            log.info("Invalidation log no longer covers snapshot version {}, discard L1 snapshot", logId);
+            return;
+        }
+
+        int restored = 0;
+        int discarded = 0;
+        for (Section section : sections) {
+            if (section.type() == SECTION_MULTI_LEVEL) {
+                List<SnapshotEntry> valid = new ArrayList<>();
+                for (SnapshotEntry e : section.entries()) {
+                    if (invalidations.multiLevelKeys.contains(e.key())) {
+                        discarded++;
+                    } else {
+                        valid.add(e);
+                    }
+                }
+                restored += multiLevelCache.restoreLocal(valid);
+            } else if (section.type() == SECTION_TWO_LEVEL) {
+                if (invalidations.clearedCaches.contains(section.cacheName())) {
+                    discarded += section.entries().size();
+                    continue;
+                }
+                Set<String> stale = invalidations.twoLevelKeys.getOrDefault(section.cacheName(), Set.of());
+                List<SnapshotEntry> valid = new ArrayList<>();
+                for (SnapshotEntry e : section.entries()) {
+                    if (stale.contains(e.key())) {
+                        discarded++;
+                    } else {
+                        valid.add(e);
+                    }
+                }
+                if (cacheManager.getCache(section.cacheName()) instanceof TwoLevelCache cache) {
+                    restored += cache.restoreLocal(valid, section.generation());
+                }
+            }
+        }
+        log.info("L1 snapshot restored, entries={}, invalidated={}, version={}", restored, discarded, logId);
+    }
+
+    private void writeSafely() {
+        try {
+            write();
+        } catch (Exception e) {
+            log.warn("Write L1 snapshot failed: {}", e.getMessage());
+        }
+    }
+
+    private int writeSection(DataOutputStream out, RedisSerializer<Object> serializer, Section section)
+            throws IOException {
+        List<SnapshotEntry> entries = new ArrayList<>();
+        List<byte[]> payloads = new ArrayList<>();
+        for (SnapshotEntry e : section.entries()) {
+            try {
+                payloads.add(serializer.serialize(e.value()));
+                entries.add(e);
+            } catch (Exception ex) {
+                log.debug("Skip unserializable snapshot entry {}: {}", e.key(), ex.getMessage());
+            }
+        }
+        out.writeByte(section.type());
+        writeString(out, section.cacheName());
+        out.writeLong(section.generation());
+        out.writeInt(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            SnapshotEntry e = entries.get(i);
+            writeString(out, e.key());
+            out.writeLong(e.expireAtEpochMillis());
+            out.writeLong(e.writtenAtEpochMillis());
+            out.writeInt(payloads.get(i).length);
+            out.write(payloads.get(i));
+        }
+        return entries.size();
+    }
+
+    private Section readSection(DataInputStream in, RedisSerializer<Object> serializer) throws IOException {
+        byte type = in.readByte();
+        if (type == SECTION_END) {
+            return null;
+        }
+        String cacheName = readString(in);
+        long generation = in.readLong();
+        int count = in.readInt();
+        long nowMillis = System.currentTimeMillis();
+        List<SnapshotEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String key = readString(in);
+            long expireAt = in.readLong();
+            long writtenAt = in.readLong();
+            byte[] payload = in.readNBytes(in.readInt());
+            if (expireAt <= nowMillis) {
+                continue;
+            }
+            try {
+                entries.add(new SnapshotEntry(key, serializer.deserialize(payload), expireAt, writtenAt));
+            } catch (Exception e) {
+                log.debug("Skip undecodable snapshot entry {}: {}", key, e.getMessage());
+            }
+        }
+        return new Section(type, cacheName, generation, entries);
+    }
+
+    private String latestLogId() {
+        String id = redisTemplate.execute((RedisCallback<String>) connection -> {
+            List<ByteRecord> latest = connection.streamCommands()
+                    .xRevRange(LOG_KEY, Range.unbounded(), Limit.limit().count(1));
+            return latest == null || latest.isEmpty() ? null : latest.get(0).getId().getValue();
+        });
+        return id != null ? id : EMPTY_LOG_ID;
+    }
+
+    /**
+     * 读取sinceId之后的失效帧；日志已被裁剪或其后出现缺口标记、无法确认完整性时返回null
+     */
+    private Invalidations invalidationsSince(String sinceId) {
+        return redisTemplate.execute((RedisCallback<Invalidations>) connection -> {
+            RedisStreamCommands streams = connection.streamCommands();
+            Long length = streams.xLen(LOG_KEY);
+            long size = length != null ? length : 0L;
+            if (size == 0) {
+                // 日志为空：快照时也为空才可信，否则日志已被删除
+                return EMPTY_LOG_ID.equals(sinceId) ? new Invalidations() : null;
+            }
+            // 近似裁剪后长度不低于上限，因此未达上限说明从未裁剪；否则最早条目须不晚于快照版本
+            if (size >= config.getInvalidationLogMaxLength()) {
+                List<ByteRecord> oldest = streams.xRange(LOG_KEY, Range.unbounded(), Limit.limit().count(1));
+                if (oldest == null || oldest.isEmpty()
+                        || compare(oldest.get(0).getId(), RecordId.of(sinceId)) > 0) {
+                    return null;
+                }
+            }
+
+            Invalidations result = new Invalidations();
+            RecordId last = RecordId.of(sinceId);
+            while (true) {
+                List<ByteRecord> page = streams.xRange(LOG_KEY,
+                        Range.rightUnbounded(Range.Bound.inclusive(last.getValue())),
+                        Limit.limit().count(LOG_PAGE_SIZE));
+                if (page == null || page.isEmpty()) {
+                    break;
+                }
+                boolean advanced = false;
+                for (ByteRecord record : page) {
+                    if (compare(record.getId(), last) <= 0) {
+                        continue;
+                    }
+                    last = record.getId();
+                    advanced = true;
+                    if (record.getValue().keySet().stream().anyMatch(field -> Arrays.equals(field, LOG_GAP_FIELD))) {
+                        // 快照之后有失效未能写入日志，无法确认快照中哪些条目已失效
+                        return null;
+                    }
+                    for (byte[] frame : record.getValue().values()) {
+                        collect(InvalidationFrame.decode(frame), result);
+                    }
+                }
+                if (!advanced || page.size() < LOG_PAGE_SIZE) {
+                    break;
+                }
+            }
+            return result;
+        });
+    }
+
+    private void collect(InvalidationFrame frame, Invalidations result) {
+        if (frame == null) {
+            return;
+        }
+        for (InvalidationFrame.Entry e : frame.entries()) {
+            switch (e.type()) {
+                case InvalidationFrame.TYPE_MULTI_LEVEL -> result.multiLevelKeys.add(e.key());
+                case InvalidationFrame.TYPE_TWO_LEVEL -> result.twoLevelKeys
+                        .computeIfAbsent(e.cacheName(), n -> new HashSet<>()).add(e.key());
+                case InvalidationFrame.TYPE_TWO_LEVEL_CLEAR -> result.clearedCaches.add(e.cacheName());
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static int compare(RecordId a, RecordId b) {
+        int byTime = Long.compare(a.getTimestamp(), b.getTimestamp());
+        return byTime != 0 ? byTime : Long.compare(a.getSequence(), b.getSequence());
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Object> valueSerializer() {
+        return (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+    }
+}
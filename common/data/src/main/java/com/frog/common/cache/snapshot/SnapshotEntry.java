@@ -0,0 +1,13 @@
+package com.frog.common.cache.snapshot;
+
+/**
+ * L1快照条目，时间均为epoch毫秒（nanoTime跨进程无意义）
+ *
+ * @param expireAtEpochMillis  L1到期时间，加载时按剩余寿命恢复
+ * @param writtenAtEpochMillis 写入时间（refresh-ahead判断软过期），未知时为0
+ * @author Deng
+ * createData 2025/11/26 09:30
+ * @version 1.0
+ */
+public record SnapshotEntry(String key, Object value, long expireAtEpochMillis, long writtenAtEpochMillis) {
+}
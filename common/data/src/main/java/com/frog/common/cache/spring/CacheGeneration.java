@@ -0,0 +1,218 @@
+package com.frog.common.cache.spring;
+
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.redis.health.RedisCircuitBreaker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TwoLevelCache代际：Redis key嵌入代际（name:v{gen}:key），clear()只需INCR计数器，旧代际的key不再可达
+ * 本地缓存的代际按refreshInterval向Redis校验，发现变化（错过clear广播）时回调丢弃L1；
+ * 旧代际的key由发起clear的节点后台SCAN回收，只认代际命名空间内的key
+ *
+ * @author Deng
+ * createData 2025/12/6 10:20
+ * @version 1.0
+ */
+@Slf4j
+public class CacheGeneration {
+    // 缓存代际计数器key前缀
+    public static final String GENERATION_KEY_PREFIX = "cache:gen:";
+
+    private final String name;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisCircuitBreaker breaker;
+    private final CacheProperties.Generation config;
+    // 回收任务执行器，null表示不回收（仅依赖TTL过期）
+    private final Executor reclaimExecutor;
+    // 校验时发现代际已变化的回调
+    private final Runnable onChanged;
+
+    // 当前代际（-1表示尚未从Redis读取）
+    private volatile long generation = -1L;
+    private volatile long checkedAtNanos;
+    private final LongAdder reclaimedKeys = new LongAdder();
+
+    public CacheGeneration(String name, RedisTemplate<String, Object> redisTemplate, RedisCircuitBreaker breaker,
+                           CacheProperties.Generation config, Executor reclaimExecutor, Runnable onChanged) {
+        this.name = name;
+        this.redisTemplate = redisTemplate;
+        this.breaker = breaker;
+        this.config = config;
+        this.reclaimExecutor = reclaimExecutor;
+        this.onChanged = onChanged;
+    }
+
+    /**
+     * 当前代际下的Redis key
+     */
+    public String redisKey(String k) {
+        return keyPrefix(current()) + k;
+    }
+
+    /**
+     * 递增代际并后台回收旧代际；Redis异常向调用方抛出
+     */
+    public void advance() {
+        Long next = redisTemplate.opsForValue().increment(GENERATION_KEY_PREFIX + name);
+        if (next != null) {
+            generation = next;
+            checkedAtNanos = System.nanoTime();
+            scheduleReclaim(next);
+        }
+    }
+
+    /**
+     * 其他节点可能已递增代际，下次访问时重新读取
+     */
+    public void forget() {
+        checkedAtNanos = 0L;
+        generation = -1L;
+    }
+
+    /**
+     * 当前代际（按refreshInterval向Redis校验）
+     */
+    public long current() {
+        long gen = generation;
+        long now = System.nanoTime();
+        if (gen >= 0 && now - checkedAtNanos < config.getRefreshInterval().toNanos()) {
+            return gen;
+        }
+        if (breaker.isOpen()) {
+            // 熔断期间沿用已知代际，不为代际检查访问Redis
+            return Math.max(gen, 0L);
+        }
+        try {
+            long latest = read();
+            if (gen >= 0 && latest != gen) {
+                // 错过了失效广播：丢弃L1中属于旧代际的条目
+                onChanged.run();
+            }
+            gen = latest;
+        } catch (Exception e) {
+            breaker.recordFailure();
+            log.warn("TwoLevelCache read generation failed, cache={}: {}", name, e.getMessage());
+            gen = Math.max(gen, 0L);
+        }
+        generation = gen;
+        checkedAtNanos = now;
+        return gen;
+    }
+
+    /**
+     * 最近一次已知的代际（不访问Redis）
+     */
+    public long known() {
+        return Math.max(generation, 0L);
+    }
+
+    public long reclaimedKeyCount() {
+        return reclaimedKeys.sum();
+    }
+
+    /**
+     * key所属代际：name:v{gen}:key为gen；不在代际命名空间内（不属于本缓存）返回-1
+     */
+    long generationOf(String redisKey) {
+        int start = name.length() + 2;
+        if (!redisKey.startsWith(name + ":v")) {
+            return -1L;
+        }
+        int end = redisKey.indexOf(':', start);
+        if (end <= start) {
+            return -1L;
+        }
+        long gen = 0L;
+        for (int i = start; i < end; i++) {
+            char c = redisKey.charAt(i);
+            if (c < '0' || c > '9' || gen > (Long.MAX_VALUE - 9) / 10) {
+                return -1L;
+            }
+            gen = gen * 10 + (c - '0');
+        }
+        return gen;
+    }
+
+    /**
+     * 所有代际（含0）统一为name:v{gen}:key，回收只认这一命名空间
+     * 原有布局name:key的条目升级后不再可达，由各自TTL过期，不被回收删除
+     */
+    private String keyPrefix(long gen) {
+        return name + ":v" + gen + ":";
+    }
+
+    /**
+     * 从Redis读取当前代际（不走本地缓存）
+     */
+    private long read() {
+        Object raw = redisTemplate.opsForValue().get(GENERATION_KEY_PREFIX + name);
+        return raw instanceof Number n ? n.longValue() : raw != null ? Long.parseLong(raw.toString()) : 0L;
+    }
+
+    private void scheduleReclaim(long currentGen) {
+        if (!config.isReclaimEnabled() || reclaimExecutor == null) {
+            return;
+        }
+        try {
+            reclaimExecutor.execute(() -> reclaim(currentGen));
+        } catch (RejectedExecutionException e) {
+            log.debug("TwoLevelCache reclaim rejected, cache={}, stale keys will expire by TTL", name);
+        }
+    }
+
+    /**
+     * 增量SCAN回收旧代际的key（UNLINK异步删除，不阻塞Redis）
+     * 只删除本缓存代际命名空间（name:v{gen}:）内代际严格低于currentGen的key，同前缀下的其他key一律不动；
+     * 扫描期间代际可能再次递增或被重置，每批UNLINK前重新读取
+     */
+    private void reclaim(long currentGen) {
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(name + ":v*")
+                .count(config.getScanCount())
+                .build();
+        List<String> batch = new ArrayList<>();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String key = cursor.next();
+                long gen = generationOf(key);
+                if (gen >= 0 && gen < currentGen) {
+                    batch.add(key);
+                }
+                if (batch.size() >= config.getScanCount()) {
+                    unlinkStale(batch);
+                }
+            }
+            unlinkStale(batch);
+        } catch (Exception e) {
+            log.warn("TwoLevelCache reclaim failed, cache={}: {}", name, e.getMessage());
+        }
+    }
+
+    private void unlinkStale(List<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        // 代际计数器被重置（如key丢失）时最新代际可能低于currentGen，此时属于最新代际及之后的key不能删除
+        long latest = read();
+        keys.removeIf(key -> generationOf(key) >= latest);
+        unlink(keys);
+    }
+
+    private void unlink(List<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        Long removed = redisTemplate.unlink(keys);
+        reclaimedKeys.add(removed != null ? removed : 0L);
+        keys.clear();
+    }
+}
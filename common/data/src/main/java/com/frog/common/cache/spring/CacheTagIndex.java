@@ -0,0 +1,98 @@
+package com.frog.common.cache.spring;
+
+import com.frog.common.redis.health.RedisCircuitBreaker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 缓存标签索引：cache:tag:{tag} -> Set<缓存名|key>
+ * 写入条目时登记（TwoLevelCache），按标签失效时取出并删除（TwoLevelCacheManager）；
+ * 成员不含代际，失效时按各缓存当前代际定位
+ *
+ * @author Deng
+ * createData 2025/12/6 10:40
+ * @version 1.0
+ */
+@Slf4j
+public class CacheTagIndex {
+    public static final String TAG_KEY_PREFIX = "cache:tag:";
+    public static final char TAG_MEMBER_SEPARATOR = '|';
+
+    // 登记标签：SADD后只延长不缩短索引TTL，保证索引不早于其中任一条目过期
+    private static final DefaultRedisScript<Long> TAG_SCRIPT = new DefaultRedisScript<>("""
+            for i, key in ipairs(KEYS) do
+                redis.call('SADD', key, ARGV[1])
+                if redis.call('PTTL', key) < tonumber(ARGV[2]) then
+                    redis.call('PEXPIRE', key, ARGV[2])
+                end
+            end
+            return #KEYS
+            """, Long.class);
+
+    // 取出标签索引并删除，原子执行：避免取出后、删除前新登记的成员被一并删掉
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> TAG_DRAIN_SCRIPT = new DefaultRedisScript<>("""
+            local members = redis.call('SMEMBERS', KEYS[1])
+            redis.call('DEL', KEYS[1])
+            return members
+            """, List.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisCircuitBreaker breaker;
+
+    public CacheTagIndex(RedisTemplate<String, Object> redisTemplate, RedisCircuitBreaker breaker) {
+        this.redisTemplate = redisTemplate;
+        this.breaker = breaker;
+    }
+
+    /**
+     * 把条目登记到各标签的索引集合，成员为"缓存名|key"；登记失败只记录日志，条目由TTL兜底
+     */
+    public void register(String cacheName, String key, Set<String> tags, Duration entryTtl) {
+        // 熔断期间的写入不登记标签：恢复后这些key会被删除重放，L1条目由TTL兜底
+        if (tags.isEmpty() || breaker.isOpen()) {
+            return;
+        }
+        List<String> tagKeys = new ArrayList<>(tags.size());
+        tags.forEach(t -> tagKeys.add(TAG_KEY_PREFIX + t));
+        try {
+            redisTemplate.execute(TAG_SCRIPT, keySerializer(), keySerializer(), tagKeys,
+                    cacheName + TAG_MEMBER_SEPARATOR + key, String.valueOf(entryTtl.toMillis()));
+        } catch (Exception e) {
+            log.warn("TwoLevelCache index tags failed, cache={}, key={}: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+    /**
+     * 取出并删除标签索引，成员按缓存名分组后并入keysByCache；Redis异常向调用方抛出
+     */
+    @SuppressWarnings("unchecked")
+    public void drain(String tag, Map<String, Set<String>> keysByCache) {
+        List<String> members = (List<String>) redisTemplate.execute(TAG_DRAIN_SCRIPT, keySerializer(), keySerializer(),
+                List.of(TAG_KEY_PREFIX + tag));
+        if (members == null) {
+            return;
+        }
+        for (String member : members) {
+            int sep = member.indexOf(TAG_MEMBER_SEPARATOR);
+            if (sep > 0) {
+                keysByCache.computeIfAbsent(member.substring(0, sep), n -> new HashSet<>())
+                        .add(member.substring(sep + 1));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<String> keySerializer() {
+        return (RedisSerializer<String>) redisTemplate.getKeySerializer();
+    }
+}
@@ -0,0 +1,260 @@
+package com.frog.common.cache.spring;
+
+import com.frog.common.cache.CacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * TwoLevelCache L2异步写队列（write-behind）
+ * 同一Redis key合并为最后一次写入，由专用线程按批pipeline写入Redis，写入完成后才广播失效，
+ * 保证其他节点收到失效时L2已是新值。待写入key数有界：满时调用方等待，超时退回调用线程同步写入
+ *
+ * @author Deng
+ * createData 2025/11/27 09:40
+ * @version 1.0
+ */
+@Slf4j
+public class L2WriteBehindQueue {
+
+    /**
+     * 待写入条目：rawKey已包含入队时的代际，clear()之后刷新的旧代际写入不可达，随TTL过期
+     */
+    record PendingWrite(TwoLevelCache cache, String key, byte[] rawKey, byte[] value,
+                        Duration ttl, Set<String> tags) {}
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final CacheProperties.WriteBehind config;
+    // Redis key -> 最新待写入值
+    private final Map<String, PendingWrite> pending = new ConcurrentHashMap<>();
+    // 已从pending取出、尚未写入Redis的key；evict遇到时需等待本批写完再删除，避免删除后被旧写入复活
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Object signal = new Object();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private volatile LongConsumer flushLatencyRecorder = nanos -> {
+    };
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder flushedKeys = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder syncFallbacks = new LongAdder();
+
+    public L2WriteBehindQueue(RedisTemplate<String, Object> redisTemplate, CacheProperties.WriteBehind config) {
+        this.redisTemplate = redisTemplate;
+        this.config = config;
+        this.permits = new Semaphore(config.getQueueCapacity());
+        this.worker = new Thread(this::run, "twolevel-write-behind");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 入队；返回false表示队列已满（等待超时）或已关闭，调用方应同步写入
+     */
+    boolean offer(String redisKey, PendingWrite write) {
+        if (!running) {
+            return false;
+        }
+        if (pending.computeIfPresent(redisKey, (k, old) -> write) != null) {
+            coalesced.increment();
+            return true;
+        }
+        try {
+            if (!permits.tryAcquire(config.getOfferTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                syncFallbacks.increment();
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            syncFallbacks.increment();
+            return false;
+        }
+        if (pending.put(redisKey, write) != null) {
+            // 与同key的并发入队竞争，只占用一个名额
+            permits.release();
+            coalesced.increment();
+        }
+        enqueued.increment();
+        int size = pending.size();
+        if (size == 1 || size >= config.getBatchSize()) {
+            wakeUp();
+        }
+        return true;
+    }
+
+    /**
+     * 尚未写入Redis的最新值（本节点读自己的写）
+     */
+    PendingWrite peek(String redisKey) {
+        return pending.get(redisKey);
+    }
+
+    /**
+     * 取消待写入；若该key正在写入则等待本批完成，调用方随后的DEL一定晚于该写入
+     */
+    void cancel(String redisKey) {
+        if (pending.remove(redisKey) != null) {
+            permits.release();
+        }
+        if (inFlight.contains(redisKey)) {
+            flushLock.lock();
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 写出全部积压
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            while (!pending.isEmpty()) {
+                List<PendingWrite> batch = new ArrayList<>(Math.min(pending.size(), config.getBatchSize()));
+                Iterator<String> it = pending.keySet().iterator();
+                while (it.hasNext() && batch.size() < config.getBatchSize()) {
+                    String redisKey = it.next();
+                    inFlight.add(redisKey);
+                    PendingWrite write = pending.remove(redisKey);
+                    if (write != null) {
+                        permits.release();
+                        batch.add(write);
+                    } else {
+                        inFlight.remove(redisKey);
+                    }
+                }
+                write(batch);
+                inFlight.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 停止工作线程并写出剩余条目
+     */
+    public void shutdown() {
+        running = false;
+        wakeUp();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public void bindFlushLatencyRecorder(LongConsumer recorder) {
+        this.flushLatencyRecorder = recorder;
+    }
+
+    public int queueSize() {
+        return pending.size();
+    }
+
+    public int queueCapacity() {
+        return config.getQueueCapacity();
+    }
+
+    public long enqueuedCount() {
+        return enqueued.sum();
+    }
+
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long flushedKeyCount() {
+        return flushedKeys.sum();
+    }
+
+    public long flushCount() {
+        return flushes.sum();
+    }
+
+    public long flushFailureCount() {
+        return flushFailures.sum();
+    }
+
+    public long syncFallbackCount() {
+        return syncFallbacks.sum();
+    }
+
+    private void run() {
+        long intervalMillis = Math.max(1L, config.getFlushInterval().toMillis());
+        while (running) {
+            try {
+                synchronized (signal) {
+                    if (pending.isEmpty()) {
+                        // 空闲时等待入队唤醒，兜底定时醒来一次；被唤醒后同样先经过合并窗口再写出
+                        signal.wait(1000L);
+                        continue;
+                    }
+                    if (pending.size() < config.getBatchSize()) {
+                        // 合并窗口：等待同key的后续写入
+                        signal.wait(intervalMillis);
+                    }
+                }
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("TwoLevelCache write-behind flush failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void write(List<PendingWrite> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (PendingWrite w : batch) {
+                    connection.stringCommands().set(w.rawKey(), w.value(), Expiration.from(w.ttl()),
+                            RedisStringCommands.SetOption.upsert());
+                }
+                return null;
+            });
+            flushedKeys.add(batch.size());
+        } catch (Exception e) {
+            // L2保留旧值直到TTL；仍然广播失效，其他节点的L1不会继续持有更旧的值
+            flushFailures.increment();
+            log.warn("TwoLevelCache write-behind batch failed, size={}: {}", batch.size(), e.getMessage());
+        } finally {
+            flushes.increment();
+            flushLatencyRecorder.accept(System.nanoTime() - start);
+        }
+        for (PendingWrite w : batch) {
+            w.cache().afterWriteBehind(w.key(), w.tags(), w.ttl());
+        }
+    }
+
+    private void wakeUp() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.frog.common.cache.spring;
+
+import com.frog.common.redis.health.RedisCircuitBreaker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * TwoLevelCache的L2写入路径
+ * 启用write-behind时交给{@link L2WriteBehindQueue}后台批量写入，未启用或队列已满时在调用线程同步SET；
+ * 删除前取消排队中的写入，读取时可查到本节点尚未落到L2的值
+ *
+ * @author Deng
+ * createData 2025/12/6 11:00
+ * @version 1.0
+ */
+@Slf4j
+class L2Writer {
+
+    enum Outcome {
+        // 已入队，标签登记与失效广播由写队列写入后回调完成
+        QUEUED,
+        WRITTEN,
+        FAILED
+    }
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    // L2异步写队列（多个缓存共用），null表示同步写L2
+    private final L2WriteBehindQueue writeBehind;
+    private final RedisCircuitBreaker breaker;
+    private volatile TwoLevelCacheMetrics metrics = TwoLevelCacheMetrics.NOOP;
+
+    L2Writer(RedisTemplate<String, Object> redisTemplate, L2WriteBehindQueue writeBehind, RedisCircuitBreaker breaker) {
+        this.redisTemplate = redisTemplate;
+        this.writeBehind = writeBehind;
+        this.breaker = breaker;
+    }
+
+    /**
+     * 写入已序列化的值；FAILED时调用方负责记录降级key
+     */
+    Outcome write(TwoLevelCache cache, String k, String redisKey, byte[] raw, Duration ttl, Set<String> tags) {
+        byte[] rawKey = keySerializer().serialize(redisKey);
+        // write-behind：L1已更新，L2写入、标签登记与失效广播由后台批量完成
+        if (writeBehind != null && writeBehind.offer(redisKey,
+                new L2WriteBehindQueue.PendingWrite(cache, k, rawKey, raw, ttl, tags))) {
+            return Outcome.QUEUED;
+        }
+        long start = System.nanoTime();
+        try {
+            redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                    .set(rawKey, raw, Expiration.from(ttl), RedisStringCommands.SetOption.upsert()));
+            breaker.recordSuccess(System.nanoTime() - start);
+            return Outcome.WRITTEN;
+        } catch (Exception e) {
+            breaker.recordFailure();
+            log.warn("TwoLevelCache put redis failed: {}", e.getMessage());
+            return Outcome.FAILED;
+        } finally {
+            metrics.recordLatency(TwoLevelCacheMetrics.Operation.REDIS_SET, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 本节点尚未写入L2的最新值，未启用write-behind或没有待写入时为null
+     */
+    L2WriteBehindQueue.PendingWrite pending(String redisKey) {
+        return writeBehind != null ? writeBehind.peek(redisKey) : null;
+    }
+
+    /**
+     * 删除L2前取消该key的待写入，避免删除后被排队中的旧写入复活
+     */
+    void cancel(String redisKey) {
+        if (writeBehind != null) {
+            writeBehind.cancel(redisKey);
+        }
+    }
+
+    void bindMetrics(TwoLevelCacheMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<String> keySerializer() {
+        return (RedisSerializer<String>) redisTemplate.getKeySerializer();
+    }
+}
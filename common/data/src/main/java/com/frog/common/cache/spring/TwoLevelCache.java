@@ -1,32 +1,159 @@
 package com.frog.common.cache.spring;
 
+import com.frog.common.cache.CacheNullValue;
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.cache.EarlyExpiration;
+import com.frog.common.cache.SingleFlightLoader;
+import com.frog.common.cache.invalidation.CacheInvalidationPublisher;
+import com.frog.common.cache.snapshot.SnapshotEntry;
+import com.frog.common.cache.tag.CacheTagContext;
+import com.frog.common.redis.health.RedisCircuitBreaker;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 
 @Slf4j
 public class TwoLevelCache implements org.springframework.cache.Cache {
-    private static final String CHANNEL = "cache:invalidation:twolevel";
+    // 非sync调用路径下刷新令牌的最长持有时间，防止调用方异常未回写导致永不刷新
+    private static final Duration REFRESH_CLAIM_TIMEOUT = Duration.ofSeconds(30);
 
     private final String name;
     private final Duration ttl;
+    // 软TTL：超过后仍返回旧值并触发一次刷新；null表示不启用refresh-ahead。ttl即硬TTL
+    private final Duration refreshAfter;
     private final RedisTemplate<String, Object> redisTemplate;
-    private final com.github.benmanes.caffeine.cache.Cache<@NonNull String, Object> local;
+    private final com.github.benmanes.caffeine.cache.Cache<@NonNull String, LocalEntry> local;
+    private final SingleFlightLoader singleFlight;
+    private final Executor refreshExecutor;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    // L2写入：同步SET或交给write-behind队列
+    private final L2Writer l2Writer;
+    // 代际：Redis key中嵌入代际，clear()后旧代际的key不再可达
+    private final CacheGeneration generation;
+    private final CacheTagIndex tagIndex;
+    // Redis熔断：打开时跳过L2，只读写L1
+    private final RedisCircuitBreaker breaker;
+    // 熔断期间只写了L1的key，恢复后删除其L2旧值并重新广播；超出上限时恢复后整体失效
+    private final Set<String> degradedKeys = ConcurrentHashMap.newKeySet();
+    private volatile boolean degradedOverflow;
+    private final CacheProperties.Negative negativeConfig;
+    // 负缓存：独立的容量与短TTL
+    private final com.github.benmanes.caffeine.cache.Cache<@NonNull String, Boolean> negative;
+    // 正在刷新的key
+    private final com.github.benmanes.caffeine.cache.Cache<@NonNull String, Boolean> refreshing;
 
-    public TwoLevelCache(String name, Duration ttl, RedisTemplate<String, Object> redisTemplate, long maxSize) {
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    // 分层命中：L1命中 / L1未命中但L2命中 / 两级均未命中
+    private final LongAdder l1Hits = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // L2值无法反序列化（按未命中处理，不计入熔断）
+    private final LongAdder decodeErrors = new LongAdder();
+    private final LongAdder invalidationsSent = new LongAdder();
+    private final LongAdder invalidationsReceived = new LongAdder();
+    // L1移除原因计数（SIZE/EXPIRED/EXPLICIT/REPLACED/COLLECTED）
+    private final Map<RemovalCause, LongAdder> removals = newRemovalCounters();
+    private volatile TwoLevelCacheMetrics metrics = TwoLevelCacheMetrics.NOOP;
+
+    // TTL抖动与XFetch提前重算
+    private final EarlyExpiration expiration;
+    // 每个条目在序列化字节数之外的固定开销
+    private final int entryOverheadBytes;
+    // 当前L1内存预算（字节），由CacheManager按全局上限公平分配后调整
+    private volatile long localBudgetBytes;
+
+    /**
+     * L1条目：记录写入时间用于判断软过期，记录到期时间使L1不超过L2剩余寿命
+     * weight为估算的内存占用（序列化字节数+固定开销），用于按字节预算淘汰
+     */
+    private record LocalEntry(Object value, long writtenAtNanos, long expireAtNanos, int weight) {}
+
+    // 负缓存命中时返回的占位条目（不写入正常L1）
+    private static final LocalEntry NEGATIVE_ENTRY = new LocalEntry(CacheNullValue.MARKER, 0L, Long.MAX_VALUE, 0);
+
+    /**
+     * @param localBudgetBytes L1初始内存预算（字节），之后可通过{@link #resizeLocal(long)}调整
+     * @param writeBehind      L2异步写队列，null表示put在调用线程同步写L2
+     * @param breaker          Redis熔断器
+     */
+    public TwoLevelCache(String name, Duration ttl, Duration refreshAfter,
+                         RedisTemplate<String, Object> redisTemplate, long localBudgetBytes,
+                         SingleFlightLoader singleFlight, Executor refreshExecutor,
+                         CacheInvalidationPublisher invalidationPublisher,
+                         L2WriteBehindQueue writeBehind,
+                         RedisCircuitBreaker breaker,
+                         CacheProperties cacheProperties) {
         this.name = name;
         this.ttl = ttl;
+        this.refreshAfter = (refreshAfter != null && refreshExecutor != null
+                && refreshAfter.compareTo(ttl) < 0) ? refreshAfter : null;
         this.redisTemplate = redisTemplate;
+        this.singleFlight = singleFlight;
+        this.refreshExecutor = refreshExecutor;
+        this.invalidationPublisher = invalidationPublisher;
+        this.l2Writer = new L2Writer(redisTemplate, writeBehind, breaker);
+        this.breaker = breaker;
+        this.negativeConfig = cacheProperties.getNegative();
+        this.generation = new CacheGeneration(name, redisTemplate, breaker, cacheProperties.getGeneration(),
+                refreshExecutor, this::invalidateAllLocalEntries);
+        this.tagIndex = new CacheTagIndex(redisTemplate, breaker);
+        this.expiration = new EarlyExpiration(cacheProperties.getExpiration());
+        this.entryOverheadBytes = cacheProperties.getLocal().getEntryOverheadBytes();
+        this.localBudgetBytes = localBudgetBytes;
+        this.negative = Caffeine.newBuilder()
+                .maximumSize(negativeConfig.getMaxSize())
+                .expireAfterWrite(negativeConfig.getTtl())
+                .build();
         this.local = Caffeine.newBuilder()
-                .maximumSize(maxSize)
-                .expireAfterWrite(ttl)
+                .maximumWeight(localBudgetBytes)
+                .weigher((String k, LocalEntry e) -> e.weight())
+                .expireAfter(new Expiry<@NonNull String, @NonNull LocalEntry>() {
+                    @Override
+                    public long expireAfterCreate(String key, LocalEntry value, long currentTime) {
+                        return Math.max(0, value.expireAtNanos() - currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, LocalEntry value, long currentTime, long currentDuration) {
+                        return Math.max(0, value.expireAtNanos() - currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, LocalEntry value, long currentTime, long currentDuration) {
+                        // 熔断期间被读取的条目续期，Redis恢复前尽量由L1应答
+                        return breaker.isOpen() ? Math.max(currentDuration, breaker.graceTtlNanos()) : currentDuration;
+                    }
+                })
+                .removalListener((String k, LocalEntry e, RemovalCause cause) -> removals.get(cause).increment())
                 .recordStats()
                 .build();
+        this.refreshing = Caffeine.newBuilder()
+                .expireAfterWrite(REFRESH_CLAIM_TIMEOUT)
+                .build();
     }
 
     @NonNull
@@ -43,43 +170,92 @@ public class TwoLevelCache implements org.springframework.cache.Cache {
 
     @Override
     public ValueWrapper get(@NonNull Object key) {
-        Object v = lookup(key);
+        Object v = lookupForRead(keyString(key));
+        if (CacheNullValue.isNull(v)) {
+            // 已确认不存在：返回包装的null，调用方不再回源
+            return () -> null;
+        }
         return (v != null) ? () -> v : null;
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T> T get(@NonNull Object key, Class<T> type) {
-        Object v = lookup(key);
-        return (v != null) ? (T) v : null;
+        Object v = lookupForRead(keyString(key));
+        return (v != null && !CacheNullValue.isNull(v)) ? (T) v : null;
     }
 
     @Override
     public <T> T get(@NonNull Object key, @NonNull Callable<T> valueLoader) {
-        Object v = lookup(key);
-        if (v != null) {
-            @SuppressWarnings("unchecked") T t = (T) v;
-            return t;
+        String k = keyString(key);
+        LocalEntry entry = lookupEntry(k);
+        if (entry == NEGATIVE_ENTRY) {
+            return null;
         }
-        try {
-            T loaded = Objects.requireNonNull(valueLoader.call());
-            put(key, loaded);
-            return loaded;
-        } catch (Exception e) {
-            throw new ValueRetrievalException(key, valueLoader, e);
+        if (entry != null) {
+            if (isStale(entry)) {
+                // 软过期：返回旧值，后台异步刷新
+                staleHits.increment();
+                refreshAsync(key, k, valueLoader);
+            } else if (isEarlyRecompute(entry)) {
+                // XFetch：临近过期时按概率提前后台重算
+                refreshAsync(key, k, valueLoader);
+            }
+            @SuppressWarnings("unchecked") T t = (T) entry.value();
+            return t;
         }
+        // 并发回源合并：同一key只有一个线程执行valueLoader
+        return singleFlight.load(redisKey(k), () -> {
+            @SuppressWarnings("unchecked") T t = (T) lookup(key);
+            return t;
+        }, () -> {
+            try {
+                T loaded = timedLoad(valueLoader);
+                if (loaded == null && negativeConfig.isEnabled()) {
+                    put(key, null);
+                    return null;
+                }
+                put(key, Objects.requireNonNull(loaded));
+                return loaded;
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+        });
     }
 
     @Override
     public void put(@NonNull Object key, Object value) {
         String k = keyString(key);
-        local.put(k, value);
-        try {
-            redisTemplate.opsForValue().set(redisKey(k), value, ttl);
-            redisTemplate.convertAndSend(CHANNEL, name + "|" + k);
-        } catch (Exception e) {
-            log.warn("TwoLevelCache put redis failed: {}", e.getMessage());
+        // 回源时由CacheTagAspect计算的标签，无论写入成功与否都在此消费掉
+        Set<String> tags = CacheTagContext.consume();
+        if (value == null) {
+            putAbsent(k, tags);
+            return;
+        }
+        // 只序列化一次：字节数即L1权重，同一份字节写入L2
+        byte[] raw = serializeValue(value);
+        // TTL抖动：同批写入的条目不在同一时刻过期
+        Duration effectiveTtl = expiration.jitter(ttl);
+        putLocal(k, value, raw, effectiveTtl);
+        negative.invalidate(k);
+        refreshing.invalidate(k);
+        if (raw != null && breaker.isOpen()) {
+            // 熔断：只写L1，Redis恢复后删除L2旧值并重新广播
+            markDegraded(k);
+            publishInvalidation(k);
+            return;
+        }
+        if (raw != null) {
+            L2Writer.Outcome outcome = l2Writer.write(this, k, redisKey(k), raw, effectiveTtl, tags);
+            if (outcome == L2Writer.Outcome.QUEUED) {
+                return;
+            }
+            if (outcome == L2Writer.Outcome.FAILED) {
+                markDegraded(k);
+            }
         }
+        tagIndex.register(name, k, tags, effectiveTtl);
+        publishInvalidation(k);
     }
 
     @Override
@@ -97,34 +273,123 @@ public class TwoLevelCache implements org.springframework.cache.Cache {
     public void evict(@NonNull Object key) {
         String k = keyString(key);
         local.invalidate(k);
-        try {
-            redisTemplate.delete(redisKey(k));
-            redisTemplate.convertAndSend(CHANNEL, name + "|" + k);
-        } catch (Exception e) {
-            log.warn("TwoLevelCache evict redis failed: {}", e.getMessage());
+        negative.invalidate(k);
+        refreshing.invalidate(k);
+        cancelPendingWrite(k);
+        if (breaker.isOpen()) {
+            markDegraded(k);
+        } else {
+            long start = System.nanoTime();
+            try {
+                redisTemplate.delete(redisKey(k));
+                breaker.recordSuccess(System.nanoTime() - start);
+            } catch (Exception e) {
+                breaker.recordFailure();
+                markDegraded(k);
+                log.warn("TwoLevelCache evict redis failed: {}", e.getMessage());
+            }
         }
+        publishInvalidation(k);
     }
 
     @Override
     public void clear() {
         local.invalidateAll();
+        negative.invalidateAll();
+        refreshing.invalidateAll();
+        if (breaker.isOpen()) {
+            // 熔断期间无法递增代际，恢复后补做一次整体失效
+            degradedOverflow = true;
+            invalidationsSent.increment();
+            invalidationPublisher.publishTwoLevelClear(name);
+            return;
+        }
         try {
-            var keys = redisTemplate.keys(redisKey("*"));
-            if (!keys.isEmpty()) {
-                redisTemplate.delete(keys);
-            }
-            redisTemplate.convertAndSend(CHANNEL, name + "|*");
+            // O(1)：递增代际即可使全部旧key失效，旧代际由TTL自然过期或后台SCAN回收
+            generation.advance();
         } catch (Exception e) {
             log.warn("TwoLevelCache clear redis failed: {}", e.getMessage());
         }
+        invalidationsSent.increment();
+        invalidationPublisher.publishTwoLevelClear(name);
+    }
+
+    /**
+     * 批量失效（按标签失效时使用）：一次DEL删除L2，逐key广播L1失效（由发布器合帧）
+     */
+    public void evictKeys(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<String> redisKeys = new ArrayList<>(keys.size());
+        for (String k : keys) {
+            local.invalidate(k);
+            negative.invalidate(k);
+            refreshing.invalidate(k);
+            cancelPendingWrite(k);
+            redisKeys.add(redisKey(k));
+        }
+        if (breaker.isOpen()) {
+            keys.forEach(this::markDegraded);
+        } else {
+            long start = System.nanoTime();
+            try {
+                redisTemplate.delete(redisKeys);
+                breaker.recordSuccess(System.nanoTime() - start);
+            } catch (Exception e) {
+                breaker.recordFailure();
+                keys.forEach(this::markDegraded);
+                log.warn("TwoLevelCache evict keys redis failed: {}", e.getMessage());
+            }
+        }
+        keys.forEach(this::publishInvalidation);
+    }
+
+    /**
+     * Redis恢复后重放熔断期间的写入：删除这些key在L2中的旧值并重新广播失效，
+     * 其他节点在熔断期间可能从自己的L1或回源拿到了不同版本；记录溢出或期间发生过clear时整体失效
+     */
+    public void replayDegradedWrites() {
+        if (degradedOverflow) {
+            degradedOverflow = false;
+            degradedKeys.clear();
+            clear();
+            return;
+        }
+        if (degradedKeys.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(degradedKeys);
+        keys.forEach(degradedKeys::remove);
+        try {
+            redisTemplate.delete(keys.stream().map(this::redisKey).toList());
+        } catch (Exception e) {
+            // 再次失败：放回待重放集合，等下一次恢复
+            keys.forEach(this::markDegraded);
+            log.warn("TwoLevelCache replay degraded writes failed, cache={}: {}", name, e.getMessage());
+            return;
+        }
+        keys.forEach(this::publishInvalidation);
+        log.info("TwoLevelCache replayed {} degraded writes, cache={}", keys.size(), name);
+    }
+
+    public int degradedKeyCount() {
+        return degradedKeys.size();
     }
 
     public void invalidateLocal(Object key) {
-        local.invalidate(keyString(key));
+        invalidationsReceived.increment();
+        String k = keyString(key);
+        local.invalidate(k);
+        negative.invalidate(k);
     }
 
     public void clearLocal() {
+        invalidationsReceived.increment();
         local.invalidateAll();
+        negative.invalidateAll();
+        // 其他节点可能已递增代际，下次访问时重新读取
+        generation.forget();
     }
 
     public com.github.benmanes.caffeine.cache.stats.CacheStats getLocalStats() {
@@ -135,19 +400,433 @@ public class TwoLevelCache implements org.springframework.cache.Cache {
         return local.estimatedSize();
     }
 
+    /**
+     * L1当前估算占用（字节）
+     */
+    public long localWeight() {
+        return local.policy().eviction()
+                .map(e -> e.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    public long getLocalBudgetBytes() {
+        return localBudgetBytes;
+    }
+
+    /**
+     * 调整L1内存预算，超出部分由Caffeine按淘汰策略逐步回收
+     */
+    public void resizeLocal(long budgetBytes) {
+        if (budgetBytes == localBudgetBytes) {
+            return;
+        }
+        localBudgetBytes = budgetBytes;
+        local.policy().eviction().ifPresent(e -> e.setMaximum(budgetBytes));
+    }
+
+    public SingleFlightLoader getSingleFlight() {
+        return singleFlight;
+    }
+
+    public boolean isRefreshAhead() {
+        return refreshAfter != null;
+    }
+
+    public long getStaleHitCount() {
+        return staleHits.sum();
+    }
+
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    public long getRefreshFailureCount() {
+        return refreshFailures.sum();
+    }
+
+    public long negativeSize() {
+        return negative.estimatedSize();
+    }
+
+    public long getNegativeHitCount() {
+        return negativeHits.sum();
+    }
+
+    public long getGeneration() {
+        return generation.known();
+    }
+
+    public long getReclaimedKeyCount() {
+        return generation.reclaimedKeyCount();
+    }
+
+    public long getL1HitCount() {
+        return l1Hits.sum();
+    }
+
+    public long getL2HitCount() {
+        return l2Hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getDecodeErrorCount() {
+        return decodeErrors.sum();
+    }
+
+    public long getRemovalCount(RemovalCause cause) {
+        return removals.get(cause).sum();
+    }
+
+    public long getInvalidationsSentCount() {
+        return invalidationsSent.sum();
+    }
+
+    public long getInvalidationsReceivedCount() {
+        return invalidationsReceived.sum();
+    }
+
+    /**
+     * 绑定延迟记录（由指标配置在缓存创建时调用）
+     */
+    public void bindMetrics(TwoLevelCacheMetrics metrics) {
+        this.metrics = metrics != null ? metrics : TwoLevelCacheMetrics.NOOP;
+        l2Writer.bindMetrics(this.metrics);
+    }
+
+    public long getEarlyRecomputeCount() {
+        return expiration.earlyRecomputeCount();
+    }
+
+    /**
+     * 回源耗时（指数移动平均，纳秒）
+     */
+    public long getLoadCostNanos() {
+        return expiration.costNanos();
+    }
+
+    /**
+     * L1中访问最频繁的条目（用于写快照），负缓存不参与
+     */
+    public List<SnapshotEntry> hottestEntries(int limit) {
+        long nowNanos = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        List<SnapshotEntry> entries = new ArrayList<>();
+        local.policy().eviction().ifPresent(eviction -> eviction.hottest(limit).forEach((k, e) -> {
+            long remainingNanos = e.expireAtNanos() - nowNanos;
+            if (remainingNanos > 0) {
+                entries.add(new SnapshotEntry(k, e.value(),
+                        nowMillis + remainingNanos / 1_000_000L,
+                        nowMillis - (nowNanos - e.writtenAtNanos()) / 1_000_000L));
+            }
+        }));
+        return entries;
+    }
+
+    /**
+     * 从快照恢复L1：快照代际与Redis当前代际不一致（期间发生过clear）时整体放弃
+     */
+    public int restoreLocal(Collection<SnapshotEntry> entries, long snapshotGeneration) {
+        if (generation.current() != snapshotGeneration) {
+            log.info("TwoLevelCache snapshot skipped, cache={}, generation changed {} -> {}",
+                    name, snapshotGeneration, generation.known());
+            return 0;
+        }
+        long nowNanos = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        int restored = 0;
+        for (SnapshotEntry e : entries) {
+            long remainingMillis = e.expireAtEpochMillis() - nowMillis;
+            if (remainingMillis <= 0) {
+                continue;
+            }
+            long writtenAtNanos = nowNanos - Math.max(0L, nowMillis - e.writtenAtEpochMillis()) * 1_000_000L;
+            LocalEntry entry = new LocalEntry(e.value(), writtenAtNanos, nowNanos + remainingMillis * 1_000_000L,
+                    weightOf(e.key(), serializeValue(e.value())));
+            if (local.asMap().putIfAbsent(e.key(), entry) == null) {
+                restored++;
+            }
+        }
+        return restored;
+    }
+
     private Object lookup(Object key) {
-        String k = keyString(key);
-        Object v = local.getIfPresent(k);
-        if (v != null) return v;
+        LocalEntry entry = lookupEntry(keyString(key));
+        return (entry != null && entry != NEGATIVE_ENTRY) ? entry.value() : null;
+    }
+
+    /**
+     * 无loader的读取路径（@Cacheable非sync）
+     * 软过期时第一个调用方拿到未命中并负责回源回写，其余调用方继续使用旧值
+     */
+    private Object lookupForRead(String k) {
+        LocalEntry entry = lookupEntry(k);
+        if (entry == null) {
+            return null;
+        }
+        boolean stale = isStale(entry);
+        if (stale || isEarlyRecompute(entry)) {
+            if (stale) {
+                staleHits.increment();
+            }
+            if (claimRefresh(k)) {
+                refreshes.increment();
+                return null;
+            }
+        }
+        return entry.value();
+    }
+
+    private LocalEntry lookupEntry(String k) {
+        LocalEntry entry = local.getIfPresent(k);
+        if (entry != null) {
+            l1Hits.increment();
+            return entry;
+        }
+        if (negative.getIfPresent(k) != null) {
+            negativeHits.increment();
+            return NEGATIVE_ENTRY;
+        }
+
+        // 读取原始字节：反序列化的同时得到L1权重
+        byte[] raw = null;
+        Object v = null;
+        long remainingNanos = ttl.toNanos();
+        long start = System.nanoTime();
+        boolean remote = false;
+        String redisKey = redisKey(k);
         try {
-            v = redisTemplate.opsForValue().get(redisKey(k));
+            byte[] rawKey = keySerializer().serialize(redisKey);
+            L2WriteBehindQueue.PendingWrite queued = l2Writer.pending(redisKey);
+            if (queued == null && !breaker.allowRequest()) {
+                // 熔断：跳过L2直接回源
+                misses.increment();
+                return null;
+            }
+            remote = queued == null;
+            if (queued != null) {
+                // 本节点尚未落到L2的写入（L1已被淘汰）：直接使用待写入值
+                raw = queued.value();
+                remainingNanos = Math.min(remainingNanos, queued.ttl().toNanos());
+            } else if (refreshAfter == null && !expiration.isEnabled()) {
+                raw = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                        connection.stringCommands().get(rawKey));
+            } else {
+                // 需要知道L2条目年龄与剩余寿命以判断软过期/提前重算：GET与PTTL合并为一次往返
+                List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    pipelineGetWithTtl(connection, rawKey);
+                    return null;
+                }, null);
+                raw = (byte[]) results.get(0);
+                if (results.get(1) instanceof Long pttl && pttl > 0) {
+                    remainingNanos = Math.min(remainingNanos, Duration.ofMillis(pttl).toNanos());
+                }
+            }
+            if (remote) {
+                breaker.recordSuccess(System.nanoTime() - start);
+            }
         } catch (Exception e) {
+            if (remote) {
+                breaker.recordFailure();
+            }
             log.warn("TwoLevelCache get redis failed: {}", e.getMessage());
+        } finally {
+            if (remote) {
+                metrics.recordLatency(TwoLevelCacheMetrics.Operation.REDIS_GET, System.nanoTime() - start);
+            }
+        }
+        if (raw != null) {
+            v = decode(k, redisKey, raw, remote);
+        }
+        if (v == null) {
+            misses.increment();
+            return null;
         }
-        if (v != null) {
-            local.put(k, v);
+        l2Hits.increment();
+        if (CacheNullValue.isNull(v)) {
+            negative.put(k, Boolean.TRUE);
+            negativeHits.increment();
+            return NEGATIVE_ENTRY;
         }
-        return v;
+
+        long now = System.nanoTime();
+        entry = new LocalEntry(v, now - (ttl.toNanos() - remainingNanos), now + remainingNanos, weightOf(k, raw));
+        local.put(k, entry);
+        return entry;
+    }
+
+    /**
+     * 反序列化L2值：数据损坏或格式不兼容不是Redis故障，不计入熔断，
+     * 按未命中处理并删除L2中的坏值，由回源重建
+     */
+    private Object decode(String k, String redisKey, byte[] raw, boolean remote) {
+        try {
+            return redisTemplate.getValueSerializer().deserialize(raw);
+        } catch (SerializationException e) {
+            decodeErrors.increment();
+            log.warn("TwoLevelCache decode failed, evicting: cache={}, key={}, error={}", name, k, e.getMessage());
+            if (remote) {
+                try {
+                    redisTemplate.delete(redisKey);
+                } catch (Exception ex) {
+                    log.warn("TwoLevelCache evict undecodable key failed: {}", ex.getMessage());
+                }
+            }
+            return null;
+        }
+    }
+
+    private void pipelineGetWithTtl(RedisConnection connection, byte[] rawKey) {
+        connection.stringCommands().get(rawKey);
+        connection.keyCommands().pTtl(rawKey);
+    }
+
+    /**
+     * 写入负缓存：L1独立存放，L2写占位值并使用负缓存TTL；未启用负缓存时仅失效已有条目
+     */
+    private void putAbsent(String k, Set<String> tags) {
+        local.invalidate(k);
+        refreshing.invalidate(k);
+        cancelPendingWrite(k);
+        if (negativeConfig.isEnabled()) {
+            negative.put(k, Boolean.TRUE);
+        }
+        if (breaker.isOpen()) {
+            markDegraded(k);
+            publishInvalidation(k);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            if (negativeConfig.isEnabled()) {
+                redisTemplate.opsForValue().set(redisKey(k), CacheNullValue.MARKER, negativeConfig.getTtl());
+            } else {
+                redisTemplate.delete(redisKey(k));
+            }
+            breaker.recordSuccess(System.nanoTime() - start);
+        } catch (Exception e) {
+            breaker.recordFailure();
+            markDegraded(k);
+            log.warn("TwoLevelCache put absent redis failed: {}", e.getMessage());
+        }
+        if (negativeConfig.isEnabled()) {
+            tagIndex.register(name, k, tags, negativeConfig.getTtl());
+        }
+        publishInvalidation(k);
+    }
+
+    private void putLocal(String k, Object value, byte[] raw, Duration entryTtl) {
+        long now = System.nanoTime();
+        local.put(k, new LocalEntry(value, now, now + entryTtl.toNanos(), weightOf(k, raw)));
+    }
+
+    /**
+     * 估算条目占用：序列化字节数 + key + 固定开销；无法序列化时按预算上限的1%估算
+     */
+    private int weightOf(String k, byte[] raw) {
+        long payload = raw != null ? raw.length : Math.max(1L, localBudgetBytes / 100);
+        return (int) Math.min(Integer.MAX_VALUE, payload + 2L * k.length() + entryOverheadBytes);
+    }
+
+    private byte[] serializeValue(Object value) {
+        try {
+            return redisTemplate.getValueSerializer().serialize(value);
+        } catch (Exception e) {
+            log.warn("TwoLevelCache serialize value failed, cache={}: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean isStale(LocalEntry entry) {
+        return refreshAfter != null && entry != NEGATIVE_ENTRY && System.nanoTime() - entry.writtenAtNanos() >= refreshAfter.toNanos();
+    }
+
+    private boolean isEarlyRecompute(LocalEntry entry) {
+        return entry != NEGATIVE_ENTRY && expiration.shouldRecomputeEarly(entry.expireAtNanos() - System.nanoTime());
+    }
+
+    private <T> T timedLoad(Callable<T> valueLoader) throws Exception {
+        long start = System.nanoTime();
+        T loaded = valueLoader.call();
+        long elapsed = System.nanoTime() - start;
+        expiration.recordLoad(elapsed);
+        metrics.recordLatency(TwoLevelCacheMetrics.Operation.LOAD, elapsed);
+        return loaded;
+    }
+
+    /**
+     * write-behind批次写入Redis之后回调：登记标签并广播失效
+     */
+    void afterWriteBehind(String k, Set<String> tags, Duration entryTtl) {
+        tagIndex.register(name, k, tags, entryTtl);
+        publishInvalidation(k);
+    }
+
+    /**
+     * 删除L2前取消该key的待写入，避免删除后被排队中的旧写入复活
+     */
+    private void cancelPendingWrite(String k) {
+        l2Writer.cancel(redisKey(k));
+    }
+
+    private void markDegraded(String k) {
+        if (degradedOverflow) {
+            return;
+        }
+        if (degradedKeys.size() >= breaker.maxReplayKeys()) {
+            degradedOverflow = true;
+            degradedKeys.clear();
+            return;
+        }
+        degradedKeys.add(k);
+    }
+
+    private void publishInvalidation(String k) {
+        invalidationsSent.increment();
+        invalidationPublisher.publishTwoLevel(name, k);
+    }
+
+    private static Map<RemovalCause, LongAdder> newRemovalCounters() {
+        Map<RemovalCause, LongAdder> counters = new EnumMap<>(RemovalCause.class);
+        for (RemovalCause cause : RemovalCause.values()) {
+            counters.put(cause, new LongAdder());
+        }
+        return counters;
+    }
+
+    private boolean claimRefresh(String k) {
+        return refreshing.asMap().putIfAbsent(k, Boolean.TRUE) == null;
+    }
+
+    private <T> void refreshAsync(Object key, String k, Callable<T> valueLoader) {
+        if (!claimRefresh(k)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    // 刷新结果为null时转为负缓存
+                    put(key, timedLoad(valueLoader));
+                    refreshes.increment();
+                } catch (Exception e) {
+                    refreshFailures.increment();
+                    log.warn("TwoLevelCache refresh failed, cache={}, key={}: {}", name, k, e.getMessage());
+                } finally {
+                    refreshing.invalidate(k);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 刷新线程池已满：继续返回旧值，由后续请求或硬TTL兜底
+            refreshing.invalidate(k);
+            log.debug("TwoLevelCache refresh rejected, cache={}, key={}", name, k);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<String> keySerializer() {
+        return (RedisSerializer<String>) redisTemplate.getKeySerializer();
     }
 
     @NonNull
@@ -156,6 +835,14 @@ public class TwoLevelCache implements org.springframework.cache.Cache {
     }
 
     private String redisKey(String k) {
-        return name + ":" + k;
+        return generation.redisKey(k);
+    }
+
+    /**
+     * 代际变化（错过了clear广播）：丢弃L1中属于旧代际的条目
+     */
+    private void invalidateAllLocalEntries() {
+        local.invalidateAll();
+        negative.invalidateAll();
     }
 }
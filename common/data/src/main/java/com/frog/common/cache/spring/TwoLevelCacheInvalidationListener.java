@@ -9,6 +9,9 @@ import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
 
+/**
+ * 兼容旧版本节点的逐key失效消息（滚动升级期间），新节点通过CacheInvalidationBatchListener接收批量帧
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
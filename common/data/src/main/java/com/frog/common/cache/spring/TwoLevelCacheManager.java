@@ -1,28 +1,84 @@
 package com.frog.common.cache.spring;
 
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.cache.SingleFlightLoader;
+import com.frog.common.cache.invalidation.CacheInvalidationPublisher;
+import com.frog.common.redis.health.RedisCircuitBreaker;
+import com.frog.common.redis.lock.DistributedLock;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.util.unit.DataSize;
 
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 @RequiredArgsConstructor
+@Slf4j
 public class TwoLevelCacheManager implements CacheManager {
     private final RedisTemplate<String, Object> redisTemplate;
     private final Duration defaultTtl;
     private final Map<String, Duration> ttlByCache;
-    private final long localMaxSize;
+    // 按缓存配置的软TTL（refresh-ahead），未配置的缓存仍按硬TTL过期
+    private final Map<String, Duration> refreshAfterByCache;
+    // 按缓存申请的L1内存预算，未配置的缓存使用frog.cache.local.default-budget
+    private final Map<String, DataSize> localBudgetByCache;
+    private final DistributedLock distributedLock;
+    private final CacheProperties cacheProperties;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final RedisCircuitBreaker circuitBreaker;
 
     private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
 
+    // 后台刷新线程池：队列有界，满时放弃本次刷新（调用方继续使用旧值）
+    private final ThreadPoolExecutor refreshExecutor = newRefreshExecutor();
+
+    private final LongAdder tagEvictedKeys = new LongAdder();
+
+    // 熔断期间无法读取标签索引的失效请求，Redis恢复后重放
+    private final Set<String> degradedTags = ConcurrentHashMap.newKeySet();
+
+    // L2异步写队列，启用write-behind时首次使用创建，所有缓存共用一个写线程
+    private volatile L2WriteBehindQueue writeBehind;
+    // 标签索引，首次按标签失效时创建
+    private volatile CacheTagIndex tagIndex;
+
+    // 缓存创建回调（指标注册等），懒创建的缓存同样会通知
+    private final List<Consumer<TwoLevelCache>> creationListeners = new CopyOnWriteArrayList<>();
+
     @Override
     public Cache getCache(@NonNull String name) {
-        return caches.computeIfAbsent(name, n ->
-                new TwoLevelCache(n, ttlByCache.getOrDefault(n, defaultTtl), redisTemplate, localMaxSize));
+        TwoLevelCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        synchronized (caches) {
+            cache = caches.get(name);
+            if (cache == null) {
+                cache = new TwoLevelCache(name, ttlByCache.getOrDefault(name, defaultTtl), refreshAfterByCache.get(name),
+                        redisTemplate, Math.min(requestedBudget(name), localHeapCap()),
+                        new SingleFlightLoader(distributedLock, cacheProperties.getLoadLease(), circuitBreaker),
+                        refreshExecutor, invalidationPublisher, writeBehind(), circuitBreaker, cacheProperties);
+                caches.put(name, cache);
+                // 新缓存加入后重新划分全局上限
+                rebalanceLocalBudgets();
+                for (Consumer<TwoLevelCache> listener : creationListeners) {
+                    listener.accept(cache);
+                }
+            }
+            return cache;
+        }
     }
 
     @Override
@@ -31,6 +87,16 @@ public class TwoLevelCacheManager implements CacheManager {
         return Collections.unmodifiableSet(ttlByCache.keySet());
     }
 
+    /**
+     * 注册缓存创建回调：已存在的缓存立即回放一次，之后每个新建缓存回调一次
+     */
+    public void onCacheCreated(Consumer<TwoLevelCache> listener) {
+        synchronized (caches) {
+            caches.values().forEach(listener);
+            creationListeners.add(listener);
+        }
+    }
+
     public void invalidateLocal(String cacheName, String keyOrWildcard) {
         TwoLevelCache cache = caches.get(cacheName);
         if (cache == null) return;
@@ -41,7 +107,174 @@ public class TwoLevelCacheManager implements CacheManager {
         }
     }
 
+    /**
+     * 按标签失效：取出各标签索引中的"缓存名|key"，按缓存分组后批量失效L1与Redis
+     * 只影响挂了标签的条目，同一缓存中其余条目继续命中
+     */
+    public void evictByTags(Collection<String> tags) {
+        if (circuitBreaker.isOpen()) {
+            // 标签索引在Redis中不可读：本节点L1整体丢弃，标签留待恢复后重放
+            degradedTags.addAll(tags);
+            clearAllLocal();
+            return;
+        }
+        // 此前读取失败、熔断未打开因而未被重放的标签随本次一并处理
+        Set<String> pending = new LinkedHashSet<>(tags);
+        if (!degradedTags.isEmpty()) {
+            List<String> retry = new ArrayList<>(degradedTags);
+            retry.forEach(degradedTags::remove);
+            pending.addAll(retry);
+        }
+        CacheTagIndex index = tagIndex();
+        Map<String, Set<String>> keysByCache = new HashMap<>();
+        boolean failed = false;
+        for (String tag : pending) {
+            try {
+                index.drain(tag, keysByCache);
+            } catch (Exception e) {
+                // 与熔断打开时相同：标签留待重放，本节点L1在循环结束后整体丢弃
+                circuitBreaker.recordFailure();
+                degradedTags.add(tag);
+                failed = true;
+                log.warn("TwoLevelCache evict by tag failed, tag={}: {}", tag, e.getMessage());
+            }
+        }
+        keysByCache.forEach((cacheName, keys) -> {
+            ((TwoLevelCache) getCache(cacheName)).evictKeys(keys);
+            tagEvictedKeys.add(keys.size());
+        });
+        if (failed) {
+            clearAllLocal();
+        }
+    }
+
+    /**
+     * Redis恢复回调：重放各缓存熔断期间的写入与按标签失效
+     */
+    public void replayDegradedWrites() {
+        caches.values().forEach(TwoLevelCache::replayDegradedWrites);
+        if (!degradedTags.isEmpty()) {
+            List<String> tags = new ArrayList<>(degradedTags);
+            tags.forEach(degradedTags::remove);
+            evictByTags(tags);
+        }
+    }
+
+    public long tagEvictedKeyCount() {
+        return tagEvictedKeys.sum();
+    }
+
+    /**
+     * 待Redis恢复后重放的按标签失效数
+     */
+    public int degradedTagCount() {
+        return degradedTags.size();
+    }
+
+    /**
+     * 清空所有缓存的本地L1（失效广播丢失时兜底）
+     */
+    public void clearAllLocal() {
+        caches.values().forEach(TwoLevelCache::clearLocal);
+    }
+
     public java.util.Map<String, TwoLevelCache> currentCaches() {
         return java.util.Collections.unmodifiableMap(caches);
     }
+
+    public int refreshQueueSize() {
+        return refreshExecutor.getQueue().size();
+    }
+
+    /**
+     * L2异步写队列，未启用write-behind时为null
+     */
+    public L2WriteBehindQueue getWriteBehind() {
+        synchronized (caches) {
+            return writeBehind();
+        }
+    }
+
+    /**
+     * 容器关闭时写出write-behind积压并停止后台线程
+     */
+    public void close() {
+        L2WriteBehindQueue queue = writeBehind;
+        if (queue != null) {
+            queue.shutdown();
+        }
+        refreshExecutor.shutdown();
+    }
+
+    /**
+     * 全部L1合计内存上限（字节）
+     */
+    public long localHeapCap() {
+        return cacheProperties.getLocal().getMaxHeap().toBytes();
+    }
+
+    /**
+     * 全部L1当前估算占用（字节）
+     */
+    public long totalLocalWeight() {
+        return caches.values().stream().mapToLong(TwoLevelCache::localWeight).sum();
+    }
+
+    private L2WriteBehindQueue writeBehind() {
+        if (writeBehind == null && cacheProperties.getWriteBehind().isEnabled()) {
+            writeBehind = new L2WriteBehindQueue(redisTemplate, cacheProperties.getWriteBehind());
+        }
+        return writeBehind;
+    }
+
+    private CacheTagIndex tagIndex() {
+        CacheTagIndex index = tagIndex;
+        if (index == null) {
+            index = new CacheTagIndex(redisTemplate, circuitBreaker);
+            tagIndex = index;
+        }
+        return index;
+    }
+
+    private long requestedBudget(String name) {
+        DataSize budget = localBudgetByCache.get(name);
+        return (budget != null ? budget : cacheProperties.getLocal().getDefaultBudget()).toBytes();
+    }
+
+    private void rebalanceLocalBudgets() {
+        Map<String, Long> demands = new HashMap<>();
+        caches.keySet().forEach(n -> demands.put(n, requestedBudget(n)));
+        fairShare(demands, localHeapCap()).forEach((n, share) -> caches.get(n).resizeLocal(share));
+    }
+
+    /**
+     * 最大最小公平分配：申请量不超过平均份额的缓存按申请量满足，
+     * 剩余容量在其余缓存间继续平分，因此小缓存不受大缓存挤压，总和不超过capacity
+     */
+    static Map<String, Long> fairShare(Map<String, Long> demands, long capacity) {
+        List<Map.Entry<String, Long>> sorted = new ArrayList<>(demands.entrySet());
+        sorted.sort(Map.Entry.comparingByValue());
+        Map<String, Long> shares = new HashMap<>();
+        long remaining = capacity;
+        int left = sorted.size();
+        for (Map.Entry<String, Long> e : sorted) {
+            long share = Math.min(e.getValue(), remaining / left);
+            shares.put(e.getKey(), share);
+            remaining -= share;
+            left--;
+        }
+        return shares;
+    }
+
+    private static ThreadPoolExecutor newRefreshExecutor() {
+        AtomicInteger seq = new AtomicInteger();
+        return new ThreadPoolExecutor(2, 4, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1024),
+                r -> {
+                    Thread t = new Thread(r, "twolevel-refresh-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
 }
@@ -0,0 +1,26 @@
+package com.frog.common.cache.spring;
+
+/**
+ * TwoLevelCache延迟记录回调
+ * common/data不依赖Micrometer：计数类指标以LongAdder暴露，延迟分布由web层绑定的实现写入直方图
+ *
+ * @author Deng
+ * createData 2025/11/26 15:20
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface TwoLevelCacheMetrics {
+    TwoLevelCacheMetrics NOOP = (operation, nanos) -> {
+    };
+
+    void recordLatency(Operation operation, long nanos);
+
+    /**
+     * 固定枚举，指标标签基数有界
+     */
+    enum Operation {
+        REDIS_GET,
+        REDIS_SET,
+        LOAD
+    }
+}
@@ -0,0 +1,23 @@
+package com.frog.common.cache.tag;
+
+import java.lang.annotation.*;
+
+/**
+ * 按标签失效缓存
+ * 替代@CacheEvict(allEntries = true)：只失效挂了这些标签的条目（L1与Redis），其余条目继续命中
+ * 标签在方法执行前计算（关联关系可能被方法修改），方法成功返回后失效；处于事务中时在提交后失效
+ *
+ * @author Deng
+ * createData 2025/11/26 10:10
+ * @version 1.0
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CacheEvictByTag {
+    /**
+     * 标签SpEL表达式，可返回单个值或集合
+     * 例如: "'role:' + #roleId"
+     */
+    String[] value();
+}
@@ -0,0 +1,109 @@
+package com.frog.common.cache.tag;
+
+import com.frog.common.cache.spring.TwoLevelCacheManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.context.expression.BeanFactoryResolver;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 缓存标签切面
+ * 优先级低于缓存拦截器（见RedisConfig中@EnableCaching的order），因此只包裹真实的回源调用：
+ * 回源完成后把标签放入{@link CacheTagContext}，外层缓存拦截器随后在同一线程执行put
+ *
+ * @author Deng
+ * createData 2025/11/26 10:15
+ * @version 1.0
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheTagAspect {
+    private final TwoLevelCacheManager cacheManager;
+    private final BeanFactory beanFactory;
+    private final ExpressionParser parser = new SpelExpressionParser();
+    private final Map<String, Expression> expressions = new ConcurrentHashMap<>();
+
+    @Around("@annotation(cacheTags)")
+    public Object tag(ProceedingJoinPoint point, CacheTags cacheTags) throws Throwable {
+        Object result = point.proceed();
+        try {
+            CacheTagContext.set(evaluate(point, cacheTags.value(), result));
+        } catch (Exception e) {
+            // 标签计算失败不影响业务结果，该条目只能依赖TTL或按key失效
+            CacheTagContext.clear();
+            log.warn("Cache tag evaluation failed, method={}: {}", point.getSignature().toShortString(), e.getMessage());
+        }
+        return result;
+    }
+
+    @Around("@annotation(evictByTag)")
+    public Object evict(ProceedingJoinPoint point, CacheEvictByTag evictByTag) throws Throwable {
+        // 执行前计算：方法可能删除用于定位标签的关联数据
+        Set<String> tags = evaluate(point, evictByTag.value(), null);
+        Object result = point.proceed();
+        if (tags.isEmpty()) {
+            return result;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 提交后再失效，避免其他请求在提交前回源读到旧数据并重新写入缓存
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cacheManager.evictByTags(tags);
+                }
+            });
+        } else {
+            cacheManager.evictByTags(tags);
+        }
+        return result;
+    }
+
+    private Set<String> evaluate(ProceedingJoinPoint point, String[] tagExpressions, Object result) {
+        MethodSignature signature = (MethodSignature) point.getSignature();
+        String[] paramNames = signature.getParameterNames();
+        Object[] args = point.getArgs();
+
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        context.setBeanResolver(new BeanFactoryResolver(beanFactory));
+        for (int i = 0; i < paramNames.length; i++) {
+            context.setVariable(paramNames[i], args[i]);
+        }
+        context.setVariable("result", result);
+
+        Set<String> tags = new LinkedHashSet<>();
+        for (String expression : tagExpressions) {
+            collect(expressions.computeIfAbsent(expression, parser::parseExpression).getValue(context), tags);
+        }
+        return tags;
+    }
+
+    private void collect(Object value, Set<String> tags) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Collection<?> values) {
+            values.forEach(v -> collect(v, tags));
+        } else {
+            tags.add(value.toString());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.frog.common.cache.tag;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 缓存标签上下文
+ * 由{@link CacheTagAspect}在业务方法返回后写入，随后同一线程上的TwoLevelCache.put读取并清除
+ * 未被消费的标签只会让下一次写入多挂几个标签（多失效，不会漏失效）
+ *
+ * @author Deng
+ * createData 2025/11/26 10:05
+ * @version 1.0
+ */
+public final class CacheTagContext {
+    private static final ThreadLocal<Set<String>> TAGS = new ThreadLocal<>();
+
+    private CacheTagContext() {
+    }
+
+    public static void set(Collection<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            TAGS.remove();
+        } else {
+            TAGS.set(new LinkedHashSet<>(tags));
+        }
+    }
+
+    /**
+     * 取出并清除当前线程的标签，没有时返回空集合
+     */
+    public static Set<String> consume() {
+        Set<String> tags = TAGS.get();
+        if (tags == null) {
+            return Set.of();
+        }
+        TAGS.remove();
+        return tags;
+    }
+
+    public static void clear() {
+        TAGS.remove();
+    }
+}
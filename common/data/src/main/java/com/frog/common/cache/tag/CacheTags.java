@@ -0,0 +1,23 @@
+package com.frog.common.cache.tag;
+
+import java.lang.annotation.*;
+
+/**
+ * 缓存标签注解
+ * 与@Cacheable同用：方法回源后按SpEL计算标签，写入缓存时登记到Redis标签索引
+ * 表达式可返回单个值或集合，可引用方法参数、#result及@bean
+ * 例如: {"'user:' + #userId", "#result.roleIds.![ 'role:' + #this ]"}
+ *
+ * @author Deng
+ * createData 2025/11/26 10:08
+ * @version 1.0
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CacheTags {
+    /**
+     * 标签SpEL表达式
+     */
+    String[] value();
+}
@@ -0,0 +1,30 @@
+package com.frog.common.dto.permission;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * 批量访问判定中的单个（用户, 路由）
+ *
+ * @author Deng
+ * createData 2025/12/1 10:25
+ * @version 1.0
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccessCheckRequest implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private UUID userId;
+    private String method;
+    private String path;
+}
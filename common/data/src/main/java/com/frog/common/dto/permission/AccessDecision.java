@@ -0,0 +1,44 @@
+package com.frog.common.dto.permission;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * API访问判定结果
+ * 权限服务一次调用同时完成路由规则匹配与用户权限判断，调用方不再分别查询两者
+ *
+ * @author Deng
+ * createData 2025/12/1 10:20
+ * @version 1.0
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccessDecision implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private UUID userId;
+    private String method;
+    private String path;
+
+    /** 是否允许访问；没有匹配的规则时允许 */
+    private boolean allowed;
+
+    /** 命中的规则（"方法:路径模式"），没有匹配的规则时为null */
+    private String matchedRule;
+
+    /** 规则要求的权限（满足任一即可） */
+    private Set<String> requiredPermissions;
+
+    /** 判定所依据的权限规则版本（sys_permission.revision），规则表尚未同步时为-1 */
+    private long decisionVersion;
+}
@@ -0,0 +1,70 @@
+package com.frog.common.redis.codec;
+
+import com.frog.common.dto.dept.DeptDTO;
+import com.frog.common.dto.permission.PermissionDTO;
+import com.frog.common.dto.role.RoleDTO;
+import com.frog.common.dto.user.UserDTO;
+import com.frog.common.dto.user.UserInfo;
+
+import java.util.*;
+
+/**
+ * 缓存值类型注册表
+ * 常用类型以短数字ID代替全限定类名写入类型信息；未注册类型仍回退为类名
+ * 注意：ID一经发布不可修改或复用，只能在末尾追加
+ *
+ * @author Deng
+ * createData 2025/11/24 15:10
+ * @version 1.0
+ */
+public final class CacheTypeRegistry {
+    private static final List<Class<?>> TYPES = List.of(
+            // 1-8: JDK集合
+            HashMap.class,
+            LinkedHashMap.class,
+            TreeMap.class,
+            HashSet.class,
+            LinkedHashSet.class,
+            TreeSet.class,
+            ArrayList.class,
+            LinkedList.class,
+            // 9-: 业务DTO
+            UserInfo.class,
+            UserDTO.class,
+            RoleDTO.class,
+            PermissionDTO.class,
+            DeptDTO.class
+    );
+
+    private static final Map<Class<?>, String> ID_BY_TYPE;
+    private static final Map<String, Class<?>> TYPE_BY_ID;
+
+    static {
+        Map<Class<?>, String> ids = new HashMap<>();
+        Map<String, Class<?>> types = new HashMap<>();
+        for (int i = 0; i < TYPES.size(); i++) {
+            String id = String.valueOf(i + 1);
+            ids.put(TYPES.get(i), id);
+            types.put(id, TYPES.get(i));
+        }
+        ID_BY_TYPE = Collections.unmodifiableMap(ids);
+        TYPE_BY_ID = Collections.unmodifiableMap(types);
+    }
+
+    private CacheTypeRegistry() {
+    }
+
+    /**
+     * @return 注册ID，未注册返回null
+     */
+    public static String idOf(Class<?> type) {
+        return ID_BY_TYPE.get(type);
+    }
+
+    /**
+     * @return 注册类型，非注册ID（如类名）返回null
+     */
+    public static Class<?> typeOf(String id) {
+        return TYPE_BY_ID.get(id);
+    }
+}
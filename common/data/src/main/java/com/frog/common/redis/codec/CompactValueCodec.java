@@ -0,0 +1,190 @@
+package com.frog.common.redis.codec;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.jsontype.NamedType;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.TypeIdResolver;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.frog.common.cache.CacheProperties;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 紧凑二进制值编解码器
+ * Smile二进制编码 + 注册类型短ID，超过阈值时Deflate压缩
+ * <pre>
+ * magic(1) flags(1) [rawLength(4), 仅压缩时] payload
+ * </pre>
+ * 读取时兼容旧的JSON格式（首字节不是magic即按JSON解析），可通过写格式开关灰度切换
+ *
+ * @author Deng
+ * createData 2025/11/24 15:40
+ * @version 1.0
+ */
+public class CompactValueCodec implements RedisSerializer<Object> {
+    private static final byte MAGIC = (byte) 0xC5;
+    private static final byte FLAG_COMPRESSED = 0x01;
+
+    private final ObjectMapper compactMapper;
+    private final RedisSerializer<Object> legacySerializer;
+    private final CacheProperties.Codec config;
+
+    /**
+     * @param legacySerializer 旧格式（JSON）序列化器，用于读取历史数据以及JSON写模式
+     */
+    public CompactValueCodec(RedisSerializer<Object> legacySerializer, CacheProperties.Codec config) {
+        this.legacySerializer = legacySerializer;
+        this.config = config;
+        this.compactMapper = createCompactMapper();
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (config.getWriteFormat() == CacheProperties.Codec.WriteFormat.JSON) {
+            return legacySerializer.serialize(value);
+        }
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            byte[] payload = compactMapper.writeValueAsBytes(value);
+            if (payload.length >= config.getCompressThreshold()) {
+                byte[] compressed = deflate(payload);
+                if (compressed.length < payload.length) {
+                    byte[] out = new byte[6 + compressed.length];
+                    out[0] = MAGIC;
+                    out[1] = FLAG_COMPRESSED;
+                    writeInt(out, 2, payload.length);
+                    System.arraycopy(compressed, 0, out, 6, compressed.length);
+                    return out;
+                }
+            }
+            byte[] out = new byte[2 + payload.length];
+            out[0] = MAGIC;
+            out[1] = 0;
+            System.arraycopy(payload, 0, out, 2, payload.length);
+            return out;
+        } catch (Exception e) {
+            throw new SerializationException("Could not write compact value: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            // 迁移期：历史JSON数据
+            return legacySerializer.deserialize(bytes);
+        }
+        try {
+            if ((bytes[1] & FLAG_COMPRESSED) != 0) {
+                byte[] payload = inflate(bytes, 6, bytes.length - 6, readInt(bytes, 2));
+                return compactMapper.readValue(payload, Object.class);
+            }
+            return compactMapper.readValue(bytes, 2, bytes.length - 2, Object.class);
+        } catch (Exception e) {
+            throw new SerializationException("Could not read compact value: " + e.getMessage(), e);
+        }
+    }
+
+    private static ObjectMapper createCompactMapper() {
+        SmileFactory factory = SmileFactory.builder()
+                // 同一值内重复出现的字符串（如权限编码、类型ID）写为回引用
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        ObjectMapper mapper = new ObjectMapper(factory);
+        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        mapper.setDefaultTyping(new RegisteredTypeResolverBuilder()
+                .init(JsonTypeInfo.Id.CLASS, null)
+                .inclusion(JsonTypeInfo.As.WRAPPER_ARRAY));
+        return mapper;
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(input.length / 2);
+            byte[] buf = new byte[4096];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buf);
+                bos.write(buf, 0, n);
+            }
+            return bos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input, int offset, int length, int rawLength) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input, offset, length);
+            byte[] out = new byte[rawLength];
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(out, n, rawLength - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += read;
+            }
+            if (n != rawLength) {
+                throw new DataFormatException("Truncated compact value, expected " + rawLength + " bytes, got " + n);
+            }
+            return out;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeInt(byte[] buf, int offset, int v) {
+        buf[offset] = (byte) (v >>> 24);
+        buf[offset + 1] = (byte) (v >>> 16);
+        buf[offset + 2] = (byte) (v >>> 8);
+        buf[offset + 3] = (byte) v;
+    }
+
+    private static int readInt(byte[] buf, int offset) {
+        return ((buf[offset] & 0xFF) << 24) | ((buf[offset + 1] & 0xFF) << 16)
+                | ((buf[offset + 2] & 0xFF) << 8) | (buf[offset + 3] & 0xFF);
+    }
+
+    /**
+     * 与activateDefaultTyping(NON_FINAL)等价的类型策略，仅把类型ID解析替换为注册ID
+     */
+    private static class RegisteredTypeResolverBuilder extends ObjectMapper.DefaultTypeResolverBuilder {
+        RegisteredTypeResolverBuilder() {
+            super(ObjectMapper.DefaultTyping.NON_FINAL, LaissezFaireSubTypeValidator.instance);
+        }
+
+        @Override
+        protected TypeIdResolver idResolver(MapperConfig<?> config, JavaType baseType,
+                                            PolymorphicTypeValidator subtypeValidator,
+                                            Collection<NamedType> subtypes, boolean forSer, boolean forDeser) {
+            return new RegisteredTypeIdResolver(baseType, config.getTypeFactory(), subtypeValidator);
+        }
+
+        @Override
+        public ObjectMapper.DefaultTypeResolverBuilder withDefaultImpl(Class<?> defaultImpl) {
+            // 默认类型策略不使用defaultImpl
+            return this;
+        }
+    }
+}
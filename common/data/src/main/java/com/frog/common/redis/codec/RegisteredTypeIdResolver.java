@@ -0,0 +1,45 @@
+package com.frog.common.redis.codec;
+
+import com.fasterxml.jackson.databind.DatabindContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.impl.ClassNameIdResolver;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+import java.io.IOException;
+
+/**
+ * 类型ID解析：已注册类型写短ID，其余沿用全限定类名
+ *
+ * @author Deng
+ * createData 2025/11/24 15:25
+ * @version 1.0
+ */
+public class RegisteredTypeIdResolver extends ClassNameIdResolver {
+
+    public RegisteredTypeIdResolver(JavaType baseType, TypeFactory typeFactory, PolymorphicTypeValidator ptv) {
+        super(baseType, typeFactory, ptv);
+    }
+
+    @Override
+    public String idFromValue(Object value) {
+        String id = CacheTypeRegistry.idOf(value.getClass());
+        return id != null ? id : super.idFromValue(value);
+    }
+
+    @Override
+    public String idFromValueAndType(Object value, Class<?> type) {
+        String id = CacheTypeRegistry.idOf(type);
+        return id != null ? id : super.idFromValueAndType(value, type);
+    }
+
+    @Override
+    public JavaType typeFromId(DatabindContext context, String id) throws IOException {
+        Class<?> type = CacheTypeRegistry.typeOf(id);
+        if (type != null) {
+            // 保留声明类型上的泛型参数（如Set<UUID>）
+            return context.getTypeFactory().constructSpecializedType(_baseType, type);
+        }
+        return super.typeFromId(context, id);
+    }
+}
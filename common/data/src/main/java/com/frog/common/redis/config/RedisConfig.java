@@ -5,7 +5,13 @@ import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.frog.common.cache.CacheInvalidationListener;
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.cache.invalidation.CacheInvalidationBatchListener;
+import com.frog.common.cache.invalidation.CacheInvalidationPublisher;
 import com.frog.common.cache.spring.TwoLevelCacheInvalidationListener;
+import com.frog.common.redis.codec.CompactValueCodec;
+import com.frog.common.redis.health.RedisCircuitBreaker;
+import com.frog.common.redis.lock.DistributedLock;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,9 +24,12 @@ import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.unit.DataSize;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
 import com.frog.common.cache.spring.TwoLevelCacheManager;
 
 import java.time.Duration;
@@ -35,22 +44,20 @@ import java.util.Map;
  * @version 1.0
  */
 @Configuration
-@EnableCaching
+// 缓存拦截器排在事务和CacheTagAspect外层：@CacheEvict在事务提交后执行，CacheTagAspect只包裹真实回源
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
 public class RedisConfig {
     private static final String INVALIDATION_CHANNEL = "cache:invalidation";
     private static final String TWOLEVEL_INVALIDATION_CHANNEL = "cache:invalidation:twolevel";
 
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory factory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory factory,
+                                                       CacheProperties cacheProperties) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(factory);
 
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
-        mapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance,
-                ObjectMapper.DefaultTyping.NON_FINAL);
-        
-        Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(mapper, Object.class);
+        // 按配置写JSON或紧凑二进制，读取兼容两种格式
+        RedisSerializer<Object> serializer = valueSerializer(cacheProperties);
 
         StringRedisSerializer stringSerializer = new StringRedisSerializer();
 
@@ -58,9 +65,9 @@ public class RedisConfig {
         template.setKeySerializer(stringSerializer);
         // hash的key也采用String的序列化方式
         template.setHashKeySerializer(stringSerializer);
-        // value序列化方式采用jackson
+        // value序列化方式
         template.setValueSerializer(serializer);
-        // hash的value序列化方式采用jackson
+        // hash的value序列化方式
         template.setHashValueSerializer(serializer);
 
         template.afterPropertiesSet();
@@ -87,9 +94,24 @@ public class RedisConfig {
         return container;
     }
 
+    @Bean
+    public RedisMessageListenerContainer batchInvalidationListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            CacheInvalidationBatchListener batchListener) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(new MessageListenerAdapter(batchListener),
+                new PatternTopic(CacheInvalidationPublisher.CHANNEL));
+        return container;
+    }
+
     @Bean
     @Primary
-    public CacheManager twoLevelCacheManager(RedisTemplate<String, Object> redisTemplate) {
+    public CacheManager twoLevelCacheManager(RedisTemplate<String, Object> redisTemplate,
+                                             DistributedLock distributedLock,
+                                             CacheProperties cacheProperties,
+                                             CacheInvalidationPublisher invalidationPublisher,
+                                             RedisCircuitBreaker circuitBreaker) {
         Duration defaultTtl = Duration.ofHours(1);
         Map<String, Duration> ttls = new HashMap<>();
         ttls.put("user", Duration.ofMinutes(30));
@@ -99,52 +121,69 @@ public class RedisConfig {
         ttls.put("permissionTree", Duration.ofHours(2));
         ttls.put("roles", Duration.ofHours(1));
         ttls.put("role", Duration.ofHours(1));
-        long localMaxSize = 10_000L;
-        return new TwoLevelCacheManager(redisTemplate, defaultTtl, ttls, localMaxSize);
+        // 热点缓存在硬TTL前提前后台刷新，避免整点过期时由请求线程承担回源延迟
+        Map<String, Duration> refreshAfter = new HashMap<>();
+        refreshAfter.put("userPermissions", Duration.ofMinutes(50));
+        refreshAfter.put("permissionTree", Duration.ofMinutes(100));
+        refreshAfter.putAll(cacheProperties.getRefreshAfter());
+        // L1按内存预算而非条目数限制：权限树单条目可达MB级，角色列表仅数百字节
+        Map<String, DataSize> localBudgets = new HashMap<>();
+        localBudgets.put("userPermissions", DataSize.ofMegabytes(64));
+        localBudgets.put("userInfo", DataSize.ofMegabytes(32));
+        localBudgets.put("permissionTree", DataSize.ofMegabytes(32));
+        localBudgets.put("userRoles", DataSize.ofMegabytes(8));
+        localBudgets.putAll(cacheProperties.getLocal().getBudget());
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(redisTemplate, defaultTtl, ttls, refreshAfter,
+                localBudgets, distributedLock, cacheProperties, invalidationPublisher, circuitBreaker);
+        // Redis恢复后删除熔断期间只写了L1的key的L2旧值，并重放按标签失效
+        circuitBreaker.onRecovery(manager::replayDegradedWrites);
+        return manager;
     }
 
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public RedisCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory,
+                                          CacheProperties cacheProperties) {
+        RedisSerializer<Object> valueSerializer = valueSerializer(cacheProperties);
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jackson2JsonRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer))
                 .entryTtl(Duration.ofHours(1)); // 默认缓存1小时
 
         // 为不同的缓存设置不同的过期时间
         Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
         cacheConfigurations.put("user", RedisCacheConfiguration.defaultCacheConfig()
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jackson2JsonRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer))
                 .entryTtl(Duration.ofMinutes(30))); // 用户缓存30分钟
 
         cacheConfigurations.put("userInfo", RedisCacheConfiguration.defaultCacheConfig()
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jackson2JsonRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer))
                 .entryTtl(Duration.ofMinutes(30))); // 用户信息缓存30分钟
 
         cacheConfigurations.put("userRoles", RedisCacheConfiguration.defaultCacheConfig()
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jackson2JsonRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer))
                 .entryTtl(Duration.ofHours(1))); // 用户角色缓存1小时
 
         cacheConfigurations.put("userPermissions", RedisCacheConfiguration.defaultCacheConfig()
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jackson2JsonRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer))
                 .entryTtl(Duration.ofHours(1))); // 用户权限缓存1小时
 
         cacheConfigurations.put("permissionTree", RedisCacheConfiguration.defaultCacheConfig()
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jackson2JsonRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer))
                 .entryTtl(Duration.ofHours(2))); // 权限树缓存2小时
 
         cacheConfigurations.put("roles", RedisCacheConfiguration.defaultCacheConfig()
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jackson2JsonRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer))
                 .entryTtl(Duration.ofHours(1))); // 角色列表缓存1小时
 
         cacheConfigurations.put("role", RedisCacheConfiguration.defaultCacheConfig()
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jackson2JsonRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer))
                 .entryTtl(Duration.ofHours(1))); // 角色缓存1小时
 
         return RedisCacheManager.builder(redisConnectionFactory)
@@ -153,6 +192,10 @@ public class RedisConfig {
                 .build();
     }
 
+    private RedisSerializer<Object> valueSerializer(CacheProperties cacheProperties) {
+        return new CompactValueCodec(jackson2JsonRedisSerializer(), cacheProperties.getCodec());
+    }
+
     private Jackson2JsonRedisSerializer<Object> jackson2JsonRedisSerializer() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
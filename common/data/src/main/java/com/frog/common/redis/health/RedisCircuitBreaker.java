@@ -0,0 +1,221 @@
+package com.frog.common.redis.health;
+
+import com.frog.common.cache.CacheProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis熔断器（缓存层共用）
+ * CLOSED：正常访问；连续失败或慢调用达到阈值后OPEN：缓存跳过L2，只用L1与回源；
+ * OPEN持续openDuration后HALF_OPEN：只放行一次探测（请求线程或后台PING），成功则关闭，失败重新打开
+ *
+ * @author Deng
+ * createData 2025/11/27 14:10
+ * @version 1.0
+ */
+@Component
+@Slf4j
+public class RedisCircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final RedisConnectionFactory connectionFactory;
+    private final CacheProperties.Breaker config;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAtNanos;
+    private volatile long lastStateChangeMillis = System.currentTimeMillis();
+    // 熔断关闭（Redis恢复）时的回调：重放失效等
+    private final List<Runnable> recoveryListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "redis-breaker-probe");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder opens = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param connectionFactory 为null时不做后台探测，仅依赖请求线程的半开探测
+     */
+    public RedisCircuitBreaker(RedisConnectionFactory connectionFactory, CacheProperties cacheProperties) {
+        this.connectionFactory = connectionFactory;
+        this.config = cacheProperties.getBreaker();
+        if (config.isEnabled() && connectionFactory != null) {
+            long period = Math.max(1L, config.getOpenDuration().toMillis());
+            scheduler.scheduleWithFixedDelay(this::probe, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 是否可以访问Redis；HALF_OPEN时只有第一个调用方获得探测机会
+     * 返回true的调用方必须随后调用{@link #recordSuccess(long)}或{@link #recordFailure()}
+     */
+    public boolean allowRequest() {
+        if (!config.isEnabled()) {
+            return true;
+        }
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && System.nanoTime() - openedAtNanos >= config.getOpenDuration().toNanos()
+                && transition(State.OPEN, State.HALF_OPEN)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * 记录一次成功调用；超过慢调用阈值按失败计
+     */
+    public void recordSuccess(long elapsedNanos) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        if (elapsedNanos > config.getSlowCallThreshold().toNanos()) {
+            recordFailure();
+            return;
+        }
+        consecutiveFailures.set(0);
+        if (state.get() == State.HALF_OPEN && transition(State.HALF_OPEN, State.CLOSED)) {
+            onRecovered();
+        }
+    }
+
+    public void recordFailure() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        int failures = consecutiveFailures.incrementAndGet();
+        if (transition(State.HALF_OPEN, State.OPEN)) {
+            return;
+        }
+        if (failures >= config.getFailureThreshold()) {
+            transition(State.CLOSED, State.OPEN);
+        }
+    }
+
+    /**
+     * 熔断未关闭（OPEN或HALF_OPEN）；不消耗探测机会，用于租约等可选的Redis操作
+     */
+    public boolean isOpen() {
+        return config.isEnabled() && state.get() != State.CLOSED;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public long getLastStateChangeMillis() {
+        return lastStateChangeMillis;
+    }
+
+    /**
+     * 熔断期间L1条目的续期时长
+     */
+    public long graceTtlNanos() {
+        return config.getGraceTtl().toNanos();
+    }
+
+    public int maxReplayKeys() {
+        return config.getMaxReplayKeys();
+    }
+
+    /**
+     * 注册Redis恢复回调（在探测线程执行）
+     */
+    public void onRecovery(Runnable listener) {
+        recoveryListeners.add(listener);
+    }
+
+    public long openCount() {
+        return opens.sum();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private boolean transition(State from, State to) {
+        if (!state.compareAndSet(from, to)) {
+            return false;
+        }
+        lastStateChangeMillis = System.currentTimeMillis();
+        if (to == State.OPEN) {
+            openedAtNanos = System.nanoTime();
+            if (from == State.CLOSED) {
+                opens.increment();
+                log.warn("Redis circuit breaker opened after {} consecutive failures, cache falls back to L1",
+                        consecutiveFailures.get());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 后台探测：无请求流量时也能在Redis恢复后关闭熔断；连接用完即关闭
+     */
+    private void probe() {
+        if (!allowProbe()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.ping();
+            recordSuccess(System.nanoTime() - start);
+        } catch (Exception e) {
+            recordFailure();
+            log.debug("Redis breaker probe failed: {}", e.getMessage());
+        }
+    }
+
+    private boolean allowProbe() {
+        return state.get() == State.OPEN
+                && System.nanoTime() - openedAtNanos >= config.getOpenDuration().toNanos()
+                && transition(State.OPEN, State.HALF_OPEN);
+    }
+
+    private void onRecovered() {
+        log.info("Redis circuit breaker closed, replaying queued invalidations");
+        try {
+            scheduler.execute(this::notifyRecovered);
+        } catch (Exception e) {
+            // 调度器已关闭（应用停止中）
+            notifyRecovered();
+        }
+    }
+
+    private void notifyRecovered() {
+        for (Runnable listener : recoveryListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                log.warn("Redis recovery listener failed: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.frog.common.cache;
+
+import com.frog.common.cache.invalidation.CacheInvalidationPublisher;
+import com.frog.common.redis.health.RedisCircuitBreaker;
+import com.frog.common.redis.lock.DistributedLock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * MultiLevelCache热点驻留：剩余寿命与值同一次往返读取，驻留条目数受上限约束；
+ * L2坏值按未命中处理且不计入熔断；XFetch提前重算在到期前真正刷新值；
+ * loader返回null时记为不存在，后续由L1应答直至写入；批量接口只对两级均未命中的key回源
+ *
+ * @author Deng
+ * createData 2025/12/3 20:10
+ */
+public class MultiLevelCacheTest {
+    private final CacheProperties properties = new CacheProperties();
+    private final RedisCircuitBreaker breaker = new RedisCircuitBreaker(null, properties);
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, Object> valueOps = mock(ValueOperations.class);
+
+    private MultiLevelCache newCache(int maxPinned) {
+        properties.getHotKey().setHotThreshold(1);
+        properties.getHotKey().setMaxPinned(maxPinned);
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.get(anyString())).thenReturn("v");
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of("v", 60_000L));
+        return new MultiLevelCache(redisTemplate, null, properties, mock(CacheInvalidationPublisher.class), breaker);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        breaker.shutdown();
+    }
+
+    @Test
+    public void pinsHotKeyWithTtlFromSameRoundTrip() {
+        MultiLevelCache cache = newCache(8);
+        // 第一次L2读取使key成为热点
+        assertEquals("v", cache.get("k", String.class));
+        assertEquals(0, cache.pinnedCount());
+
+        cache.invalidateLocal("k");
+        assertEquals("v", cache.get("k", String.class));
+
+        assertEquals(1, cache.pinnedCount());
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+        verify(redisTemplate, never()).getExpire(anyString(), any());
+    }
+
+    @Test
+    public void capsPinnedEntries() {
+        MultiLevelCache cache = newCache(2);
+        for (int i = 0; i < 5; i++) {
+            String key = "k" + i;
+            cache.get(key, String.class);
+            cache.invalidateLocal(key);
+            cache.get(key, String.class);
+        }
+
+        assertEquals(2, cache.pinnedCount());
+        // 超出上限的热点按普通条目回填，仍由L1应答
+        assertEquals(5, cache.localSize());
+
+        cache.invalidateAllLocal();
+        assertEquals(0, cache.pinnedCount());
+    }
+
+    @Test
+    public void undecodableValueIsMissAndEvictedWithoutTrippingBreaker() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.get(anyString())).thenThrow(new SerializationException("unknown format"));
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenThrow(new SerializationException("unknown format"));
+        MultiLevelCache cache = new MultiLevelCache(redisTemplate, null, properties,
+                mock(CacheInvalidationPublisher.class), breaker);
+
+        int reads = properties.getBreaker().getFailureThreshold() + 1;
+        for (int i = 0; i < reads; i++) {
+            assertNull(cache.get("k", String.class));
+        }
+
+        assertFalse(breaker.isOpen());
+        assertEquals(reads, cache.decodeErrorCount());
+        verify(redisTemplate, times(reads)).delete(List.of("k"));
+    }
+
+    @Test
+    public void earlyRecomputeRefreshesValueBeforeExpiry() {
+        properties.getHotKey().setEnabled(false);
+        properties.getExpiration().setJitter(0);
+        // beta取极大值：有回源耗时记录后每次命中都提前重算
+        properties.getExpiration().setEarlyRecomputeBeta(Double.MAX_VALUE);
+        properties.getLoadLease().setEnabled(true);
+        DistributedLock lock = mock(DistributedLock.class);
+        when(lock.tryLock(anyString(), any(Duration.class))).thenReturn("lease-1");
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        MultiLevelCache cache = new MultiLevelCache(redisTemplate, lock, properties,
+                mock(CacheInvalidationPublisher.class), breaker);
+
+        assertEquals("v1", cache.getOrLoad("k", String.class, Duration.ofMinutes(10), () -> "v1"));
+        // L2中仍是当前值：若重算路径复查L2，会读回v1而跳过刷新
+        when(valueOps.get("k")).thenReturn("v1");
+
+        assertEquals("v2", cache.getOrLoad("k", String.class, Duration.ofMinutes(10), () -> "v2"));
+        // 距10分钟TTL到期还很远，L1与L2均已是新值
+        assertEquals("v2", cache.get("k", String.class));
+        verify(valueOps).set(eq("k"), eq("v2"), any(Duration.class));
+        verify(lock, times(2)).tryLock(eq("cache:load:k"), any(Duration.class));
+    }
+
+    @Test
+    public void absentKeyIsAnsweredFromL1UntilWritten() {
+        properties.getHotKey().setEnabled(false);
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        MultiLevelCache cache = new MultiLevelCache(redisTemplate, null, properties,
+                mock(CacheInvalidationPublisher.class), breaker);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(cache.getOrLoad("missing", String.class, Duration.ofMinutes(5), () -> {
+                loads.incrementAndGet();
+                return null;
+            }));
+        }
+
+        // 只回源一次、只访问一次L2，L2写入负缓存占位值
+        assertEquals(1, loads.get());
+        assertEquals(2, cache.negativeHitCount());
+        verify(valueOps, times(1)).get("missing");
+        verify(valueOps).set("missing", CacheNullValue.MARKER, properties.getNegative().getTtl());
+
+        cache.set("missing", "now-present", Duration.ofMinutes(5));
+        assertEquals("now-present", cache.getOrLoad("missing", String.class, Duration.ofMinutes(5), () -> null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void bulkLoadFetchesOnlyKeysMissingFromBothLevels() {
+        properties.getHotKey().setEnabled(false);
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        CacheInvalidationPublisher publisher = mock(CacheInvalidationPublisher.class);
+        MultiLevelCache cache = new MultiLevelCache(redisTemplate, null, properties, publisher, breaker);
+        cache.set("a", "va", Duration.ofMinutes(5));
+        // a在L1；b在L2命中，c两级均未命中，d在L2中记为不存在
+        when(valueOps.multiGet(List.of("b", "c", "d"))).thenReturn(Arrays.asList("vb", null, CacheNullValue.MARKER));
+        List<Set<String>> requested = new ArrayList<>();
+
+        Map<String, String> result = cache.getOrLoadAll(List.of("a", "b", "c", "d"), String.class,
+                Duration.ofMinutes(5), missing -> {
+                    requested.add(Set.copyOf(missing));
+                    return Map.of("c", "vc");
+                });
+
+        assertEquals(Map.of("a", "va", "b", "vb", "c", "vc"), result);
+        assertEquals(List.of(Set.of("c")), requested);
+        verify(valueOps, times(1)).multiGet(anyList());
+        // 回源结果一次pipeline写回，失效合并为一帧
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+        verify(publisher).publishMultiLevel(Set.of("c"));
+
+        // 再次批量读取全部由L1与负缓存应答
+        assertEquals(result, cache.getAll(List.of("a", "b", "c", "d"), String.class));
+        verify(valueOps, times(1)).multiGet(anyList());
+        assertEquals(2, cache.negativeHitCount());
+
+        cache.evictAll(List.of("a", "b"));
+        when(valueOps.multiGet(List.of("a", "b"))).thenReturn(Arrays.asList(null, null));
+        verify(redisTemplate).delete((Collection<String>) List.of("a", "b"));
+        verify(publisher).publishMultiLevel((Collection<String>) List.of("a", "b"));
+        assertEquals(Map.of("c", "vc"), cache.getAll(List.of("a", "b", "c"), String.class));
+    }
+}
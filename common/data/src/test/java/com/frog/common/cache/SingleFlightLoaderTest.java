@@ -0,0 +1,243 @@
+package com.frog.common.cache;
+
+import com.frog.common.redis.lock.DistributedLock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单飞加载：JVM内合并、同线程重入、租约下的L2复查与等待、租约异常时的回退；提前重算不复查、不等待
+ *
+ * @author Deng
+ * createData 2025/12/3 10:00
+ */
+public class SingleFlightLoaderTest {
+
+    /**
+     * 内存版租约：只记录持有者，不访问Redis
+     */
+    private static class FakeLock extends DistributedLock {
+        private final ConcurrentHashMap<String, String> held = new ConcurrentHashMap<>();
+        private volatile boolean failing;
+
+        FakeLock() {
+            super(null);
+        }
+
+        @Override
+        public String tryLock(String lockKey, Duration expireTime) {
+            if (failing) {
+                throw new IllegalStateException("redis down");
+            }
+            String id = java.util.UUID.randomUUID().toString();
+            return held.putIfAbsent(lockKey, id) == null ? id : null;
+        }
+
+        @Override
+        public boolean unlock(String lockKey, String lockId) {
+            return held.remove(lockKey, lockId);
+        }
+    }
+
+    private static CacheProperties.LoadLease lease(boolean enabled) {
+        CacheProperties.LoadLease lease = new CacheProperties.LoadLease();
+        lease.setEnabled(enabled);
+        lease.setWaitTime(Duration.ofMillis(500));
+        lease.setRetryInterval(Duration.ofMillis(5));
+        return lease;
+    }
+
+    @Test
+    public void coalescesConcurrentLoads() throws Exception {
+        SingleFlightLoader loader = new SingleFlightLoader(null, lease(false));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> loader.load("k", () -> null, () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "v";
+                })));
+            }
+            // 等所有调用方都挂到同一个回源上再放行
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (loader.coalescedCount() < callers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("v", result.get(2, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, loader.executedCount());
+        assertEquals(callers - 1, loader.coalescedCount());
+        assertEquals(0, loader.inFlightCount());
+    }
+
+    @Test
+    public void reentrantLoadOfSameKeyDoesNotDeadlock() {
+        SingleFlightLoader loader = new SingleFlightLoader(null, lease(false));
+        String value = assertTimeoutPreemptively(Duration.ofSeconds(2), () ->
+                loader.load("k", () -> null, () -> "outer:" + loader.load("k", () -> null, () -> "inner")));
+        assertEquals("outer:inner", value);
+        assertEquals(2, loader.executedCount());
+    }
+
+    @Test
+    public void propagatesLoaderFailureToWaiters() {
+        SingleFlightLoader loader = new SingleFlightLoader(null, lease(false));
+        assertThrows(IllegalArgumentException.class, () -> loader.load("k", () -> null, () -> {
+            throw new IllegalArgumentException("db down");
+        }));
+        assertEquals(0, loader.inFlightCount());
+        // 失败不会残留，下一次重新回源
+        assertEquals("v", loader.load("k", () -> null, () -> "v"));
+    }
+
+    @Test
+    public void rechecksL2AfterAcquiringLease() {
+        SingleFlightLoader loader = new SingleFlightLoader(new FakeLock(), lease(true));
+        AtomicInteger loads = new AtomicInteger();
+        // 其他节点刚写回L2并释放租约
+        String value = loader.load("k", () -> "from-peer", () -> {
+            loads.incrementAndGet();
+            return "from-db";
+        });
+        assertEquals("from-peer", value);
+        assertEquals(0, loads.get());
+        assertEquals(1, loader.leaseWaitHitCount());
+    }
+
+    @Test
+    public void waitsForPeerHoldingLease() throws Exception {
+        FakeLock lock = new FakeLock();
+        SingleFlightLoader loader = new SingleFlightLoader(lock, lease(true));
+        String peerLease = lock.tryLock("cache:load:k", Duration.ofSeconds(10));
+        AtomicReference<String> l2 = new AtomicReference<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        ScheduledExecutorService peer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            peer.schedule(() -> {
+                l2.set("from-peer");
+                lock.unlock("cache:load:k", peerLease);
+            }, 50, TimeUnit.MILLISECONDS);
+            String value = loader.load("k", l2::get, () -> {
+                loads.incrementAndGet();
+                return "from-db";
+            });
+            assertEquals("from-peer", value);
+        } finally {
+            peer.shutdownNow();
+        }
+        assertEquals(0, loads.get());
+        assertEquals(1, loader.leaseWaitHitCount());
+    }
+
+    @Test
+    public void loadsLocallyWhenPeerNeverFills() {
+        FakeLock lock = new FakeLock();
+        SingleFlightLoader loader = new SingleFlightLoader(lock, lease(true));
+        lock.tryLock("cache:load:k", Duration.ofSeconds(10));
+        // 等待超时后本节点自行回源，保证可用性
+        assertEquals("from-db", loader.load("k", () -> null, () -> "from-db"));
+        assertEquals(1, loader.executedCount());
+    }
+
+    @Test
+    public void fallsBackToLocalLoadWhenLeaseFails() {
+        FakeLock lock = new FakeLock();
+        lock.failing = true;
+        CacheProperties.LoadLease lease = lease(true);
+        lease.setWaitTime(Duration.ofSeconds(30));
+        SingleFlightLoader loader = new SingleFlightLoader(lock, lease);
+        AtomicInteger rechecks = new AtomicInteger();
+
+        // 租约异常即无协调：不轮询L2、不等待waitTime，立即回源
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () ->
+                assertEquals("from-db", loader.load("k", () -> {
+                    rechecks.incrementAndGet();
+                    return null;
+                }, () -> "from-db")));
+        assertEquals(0, rechecks.get());
+        assertEquals(1, loader.executedCount());
+        assertEquals(1, loader.leaseFailureCount());
+    }
+
+    @Test
+    public void refreshSkipsRecheckOnceLeaseAcquired() {
+        FakeLock lock = new FakeLock();
+        SingleFlightLoader loader = new SingleFlightLoader(lock, lease(true));
+
+        // 当前值仍在L2中，load的复查会直接命中；refresh必须真正回源
+        assertEquals("v2", loader.refresh("k", "v1", () -> "v2"));
+        assertEquals(1, loader.executedCount());
+        assertEquals(0, loader.leaseWaitHitCount());
+    }
+
+    @Test
+    public void refreshServesCurrentValueWhileOthersRecompute() throws Exception {
+        FakeLock lock = new FakeLock();
+        CacheProperties.LoadLease lease = lease(true);
+        lease.setWaitTime(Duration.ofSeconds(30));
+        SingleFlightLoader loader = new SingleFlightLoader(lock, lease);
+
+        // 其他节点持有租约：不等待waitTime，立即返回当前值
+        lock.tryLock("cache:load:k", Duration.ofSeconds(10));
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () ->
+                assertEquals("v1", loader.refresh("k", "v1", () -> "v2")));
+
+        // 本节点已有同key回源：同样不阻塞
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> refreshing = pool.submit(() -> loader.refresh("k2", "v1", () -> {
+                started.countDown();
+                await(release);
+                return "v2";
+            }));
+            await(started);
+            assertTimeoutPreemptively(Duration.ofSeconds(1), () ->
+                    assertEquals("v1", loader.refresh("k2", "v1", () -> "v3")));
+            release.countDown();
+            assertEquals("v2", refreshing.get(2, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(2, loader.skippedRefreshCount());
+        assertEquals(1, loader.executedCount());
+    }
+
+    @Test
+    public void failedRefreshKeepsCurrentValue() {
+        SingleFlightLoader loader = new SingleFlightLoader(null, lease(false));
+        assertEquals("v1", loader.refresh("k", "v1", () -> {
+            throw new IllegalStateException("db down");
+        }));
+        assertEquals(0, loader.inFlightCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(2, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
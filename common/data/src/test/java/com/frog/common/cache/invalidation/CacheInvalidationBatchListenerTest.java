@@ -0,0 +1,69 @@
+package com.frog.common.cache.invalidation;
+
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.cache.MultiLevelCache;
+import com.frog.common.cache.spring.TwoLevelCacheManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+/**
+ * 失效帧接收：序列号缺口触发整体清空L1，空闲节点的序列号被清理
+ *
+ * @author Deng
+ * createData 2025/12/3 17:30
+ */
+public class CacheInvalidationBatchListenerTest {
+    private final MultiLevelCache multiLevelCache = mock(MultiLevelCache.class);
+    private final TwoLevelCacheManager cacheManager = mock(TwoLevelCacheManager.class);
+    private final CacheInvalidationPublisher publisher = mock(CacheInvalidationPublisher.class);
+    private final CacheProperties properties = new CacheProperties();
+    private final CacheInvalidationBatchListener listener =
+            new CacheInvalidationBatchListener(multiLevelCache, cacheManager, publisher, properties);
+
+    {
+        when(publisher.nodeId()).thenReturn(UUID.randomUUID());
+    }
+
+    @Test
+    public void flushesL1OnSequenceGap() {
+        UUID node = UUID.randomUUID();
+        listener.onMessage(frame(node, 1, "a"), null);
+        listener.onMessage(frame(node, 2, "b"), null);
+        verify(multiLevelCache).invalidateLocal("a");
+        verify(multiLevelCache).invalidateLocal("b");
+        verify(multiLevelCache, never()).invalidateAllLocal();
+
+        listener.onMessage(frame(node, 4, "d"), null);
+        verify(multiLevelCache).invalidateAllLocal();
+        verify(cacheManager).clearAllLocal();
+        assertEquals(1, listener.gapsDetectedCount());
+    }
+
+    @Test
+    public void prunesIdleNodes() throws Exception {
+        properties.getInvalidation().setNodeIdleTimeout(Duration.ofMillis(20));
+        UUID departed = UUID.randomUUID();
+        UUID active = UUID.randomUUID();
+        listener.onMessage(frame(departed, 1, "a"), null);
+        listener.onMessage(frame(active, 1, "b"), null);
+        assertEquals(2, listener.trackedNodeCount());
+
+        Thread.sleep(50);
+        listener.onMessage(frame(active, 2, "c"), null);
+        assertEquals(1, listener.trackedNodeCount());
+        assertEquals(0, listener.gapsDetectedCount());
+    }
+
+    private static DefaultMessage frame(UUID node, long sequence, String key) {
+        byte[] body = new InvalidationFrame(node, sequence, List.of(InvalidationFrame.Entry.multiLevel(key))).encode();
+        return new DefaultMessage(CacheInvalidationPublisher.CHANNEL.getBytes(StandardCharsets.UTF_8), body);
+    }
+}
@@ -0,0 +1,156 @@
+package com.frog.common.cache.invalidation;
+
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.redis.health.RedisCircuitBreaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 失效发布：熔断恢复后的重放与并发flush串行执行（每个key只发送一次，序列号按发送顺序递增），
+ * 每帧写入失效日志，发布失败后补写缺口标记
+ *
+ * @author Deng
+ * createData 2025/12/3 17:00
+ */
+public class CacheInvalidationPublisherTest {
+    private final List<InvalidationFrame> sent = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> logFields = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean failNextSend;
+    private RedisCircuitBreaker breaker;
+    private CacheInvalidationPublisher publisher;
+
+    @SuppressWarnings("unchecked")
+    private void setUp(int maxBatchSize, int failureThreshold) {
+        CacheProperties properties = new CacheProperties();
+        properties.getInvalidation().setMaxBatchSize(maxBatchSize);
+        properties.getInvalidation().setBatchWindow(Duration.ofSeconds(10));
+        properties.getBreaker().setFailureThreshold(failureThreshold);
+        properties.getBreaker().setOpenDuration(Duration.ofMillis(20));
+        breaker = new RedisCircuitBreaker(null, properties);
+
+        RedisStreamCommands streams = mock(RedisStreamCommands.class);
+        when(streams.xAdd(any(), any(RedisStreamCommands.XAddOptions.class))).thenAnswer(invocation -> {
+            MapRecord<byte[], byte[], byte[]> record = invocation.getArgument(0);
+            record.getValue().keySet().forEach(field -> logFields.add(new String(field, StandardCharsets.UTF_8)));
+            return RecordId.autoGenerate();
+        });
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connection.streamCommands()).thenReturn(streams);
+        when(connection.publish(any(byte[].class), any(byte[].class))).thenAnswer(invocation -> {
+            sent.add(InvalidationFrame.decode(invocation.getArgument(1)));
+            return 1L;
+        });
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            if (failNextSend) {
+                failNextSend = false;
+                throw new RedisConnectionFailureException("redis down");
+            }
+            ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection);
+            return List.of();
+        });
+        publisher = new CacheInvalidationPublisher(redisTemplate, properties, breaker);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        publisher.shutdown();
+        breaker.shutdown();
+    }
+
+    @Test
+    public void replaysPendingOnRecoveryWithoutDuplicatesOrReordering() throws Exception {
+        setUp(16, 1);
+        breaker.recordFailure();
+        int keys = 2_000;
+        for (int i = 0; i < keys; i++) {
+            publisher.publishMultiLevel("k" + i);
+        }
+        assertEquals(keys, publisher.pendingCount());
+        assertTrue(sent.isEmpty());
+
+        Thread.sleep(30);
+        assertTrue(breaker.allowRequest());
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> flushes = new ArrayList<>();
+            // 恢复回调与多个调用方的flush同时发生
+            flushes.add(pool.submit(() -> breaker.recordSuccess(0L)));
+            for (int i = 0; i < 3; i++) {
+                flushes.add(pool.submit(publisher::flush));
+            }
+            for (Future<?> flush : flushes) {
+                flush.get(2, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (publisher.pendingCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        Set<String> published = new HashSet<>();
+        long lastSequence = 0;
+        synchronized (sent) {
+            for (InvalidationFrame frame : sent) {
+                assertTrue(frame.sequence() > lastSequence, "frames must be sent in sequence order");
+                lastSequence = frame.sequence();
+                for (InvalidationFrame.Entry entry : frame.entries()) {
+                    assertTrue(published.add(entry.key()), "duplicate key " + entry.key());
+                }
+            }
+        }
+        assertEquals(keys, published.size());
+        assertEquals(keys, publisher.keysPublishedCount());
+    }
+
+    @Test
+    public void logsEveryFrameAndMarksGapAfterFailure() {
+        setUp(16, 5);
+        publisher.publishMultiLevel("a");
+        publisher.flush();
+        assertEquals(List.of(CacheInvalidationPublisher.LOG_FRAME_FIELD), logFields);
+
+        failNextSend = true;
+        publisher.publishMultiLevel("b");
+        publisher.flush();
+        assertEquals(1, publisher.publishFailureCount());
+
+        logFields.clear();
+        publisher.publishMultiLevel("c");
+        publisher.flush();
+        // 失败的帧未进入日志：下一次成功发送先写缺口标记，让早于它的快照被放弃
+        assertEquals(List.of(CacheInvalidationPublisher.LOG_GAP_FIELD, CacheInvalidationPublisher.LOG_FRAME_FIELD),
+                logFields);
+
+        logFields.clear();
+        publisher.publishMultiLevel("d");
+        publisher.flush();
+        assertEquals(List.of(CacheInvalidationPublisher.LOG_FRAME_FIELD), logFields);
+    }
+}
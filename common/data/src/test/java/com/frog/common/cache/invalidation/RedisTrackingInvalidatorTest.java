@@ -0,0 +1,145 @@
+package com.frog.common.cache.invalidation;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.cache.MultiLevelCache;
+import com.frog.common.cache.spring.TwoLevelCacheManager;
+import com.frog.common.redis.health.RedisCircuitBreaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * CLIENT TRACKING失效：绕过缓存类直接写Redis后，L1应被服务端推送失效
+ * 需要本地Redis 6+（REDIS_HOST/REDIS_PORT，默认localhost:6379），不可用时跳过
+ *
+ * @author Deng
+ * createData 2025/11/25 11:05
+ */
+public class RedisTrackingInvalidatorTest {
+    private static final String PREFIX = "tracking-test:";
+    private static final String CACHE = "trackingUsers";
+    private static final Duration WAIT = Duration.ofSeconds(3);
+
+    private LettuceConnectionFactory factory;
+    private RedisTemplate<String, Object> redisTemplate;
+    private CacheInvalidationPublisher publisher;
+    private MultiLevelCache multiLevelCache;
+    private TwoLevelCacheManager cacheManager;
+    private RedisTrackingInvalidator tracker;
+
+    @BeforeEach
+    public void setUp() {
+        String host = System.getenv().getOrDefault("REDIS_HOST", "localhost");
+        int port = Integer.parseInt(System.getenv().getOrDefault("REDIS_PORT", "6379"));
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        factory.afterPropertiesSet();
+        assumeTrue(isReachable(), "local redis not available");
+
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(factory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(jsonSerializer());
+        redisTemplate.afterPropertiesSet();
+
+        CacheProperties properties = new CacheProperties();
+        properties.getTracking().setEnabled(true);
+        properties.getTracking().setPrefixes(List.of(PREFIX));
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker(null, properties);
+        publisher = new CacheInvalidationPublisher(redisTemplate, properties, breaker);
+        multiLevelCache = new MultiLevelCache(redisTemplate, null, properties, publisher, breaker);
+        cacheManager = new TwoLevelCacheManager(redisTemplate, Duration.ofMinutes(5),
+                Map.of(CACHE, Duration.ofMinutes(5)), Map.of(), Map.of(), null, properties, publisher, breaker);
+        tracker = new RedisTrackingInvalidator(factory, multiLevelCache, cacheManager, properties);
+        tracker.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (tracker != null) {
+            tracker.close();
+        }
+        if (publisher != null) {
+            publisher.shutdown();
+        }
+        if (redisTemplate != null) {
+            redisTemplate.delete(List.of(PREFIX + "k1", CACHE + ":v0:u1"));
+        }
+        factory.destroy();
+    }
+
+    @Test
+    public void externalWriteInvalidatesMultiLevelL1() {
+        String key = PREFIX + "k1";
+        multiLevelCache.set(key, "v1", Duration.ofMinutes(5));
+        // 自身写入同样会收到推送，等其到达后再让L1回填
+        awaitUntil(() -> tracker.keysInvalidatedCount() >= 1);
+        assertEquals("v1", multiLevelCache.get(key, String.class));
+
+        // 模拟绕过缓存类的写入（脚本、其他服务）
+        redisTemplate.opsForValue().set(key, "v2");
+
+        awaitUntil(() -> "v2".equals(multiLevelCache.get(key, String.class)));
+        assertEquals("v2", multiLevelCache.get(key, String.class));
+    }
+
+    @Test
+    public void externalWriteInvalidatesTwoLevelL1() {
+        Cache cache = cacheManager.getCache(CACHE);
+        cache.put("u1", "a");
+        awaitUntil(() -> tracker.keysInvalidatedCount() >= 1);
+        assertEquals("a", cache.get("u1", String.class));
+
+        redisTemplate.opsForValue().set(CACHE + ":v0:u1", "b");
+
+        awaitUntil(() -> "b".equals(cache.get("u1", String.class)));
+        assertEquals("b", cache.get("u1", String.class));
+    }
+
+    private void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + WAIT.toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean isReachable() {
+        try {
+            factory.getConnection().close();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // 与RedisConfig中的JSON序列化器配置一致
+    private Jackson2JsonRedisSerializer<Object> jsonSerializer() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        mapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance,
+                ObjectMapper.DefaultTyping.NON_FINAL);
+        return new Jackson2JsonRedisSerializer<>(mapper, Object.class);
+    }
+}
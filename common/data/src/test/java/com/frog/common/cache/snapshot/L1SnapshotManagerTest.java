@@ -0,0 +1,113 @@
+package com.frog.common.cache.snapshot;
+
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.cache.MultiLevelCache;
+import com.frog.common.cache.invalidation.CacheInvalidationPublisher;
+import com.frog.common.cache.invalidation.InvalidationFrame;
+import com.frog.common.cache.spring.TwoLevelCacheManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * L1快照加载：剔除快照之后失效的key；快照之后出现缺口标记时整体放弃
+ *
+ * @author Deng
+ * createData 2025/12/3 19:00
+ */
+public class L1SnapshotManagerTest {
+    private static final byte[] LOG_KEY = CacheInvalidationPublisher.INVALIDATION_LOG.getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    private final MultiLevelCache multiLevelCache = mock(MultiLevelCache.class);
+    private final TwoLevelCacheManager cacheManager = mock(TwoLevelCacheManager.class);
+    private final RedisStreamCommands streams = mock(RedisStreamCommands.class);
+    private L1SnapshotManager manager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        CacheProperties properties = new CacheProperties();
+        properties.getSnapshot().setDirectory(directory.toString());
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connection.streamCommands()).thenReturn(streams);
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        when(redisTemplate.execute(any(RedisCallback.class))).thenAnswer(invocation ->
+                ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection));
+        when(redisTemplate.getValueSerializer()).thenAnswer(invocation -> RedisSerializer.java());
+        when(cacheManager.currentCaches()).thenReturn(Map.of());
+
+        long now = System.currentTimeMillis();
+        when(multiLevelCache.hottestEntries(anyInt())).thenReturn(List.of(
+                new SnapshotEntry("kept", "v1", now + 60_000, now),
+                new SnapshotEntry("changed", "v2", now + 60_000, now)));
+        manager = new L1SnapshotManager(redisTemplate, multiLevelCache, cacheManager, properties, "test");
+
+        // 快照版本为1-0
+        when(streams.xRevRange(any(byte[].class), any(), any(Limit.class))).thenReturn(List.of(frame("1-0", "x")));
+        manager.write();
+    }
+
+    @Test
+    public void dropsKeysInvalidatedAfterSnapshot() throws Exception {
+        logContains(frame("1-0", "x"), frame("2-0", "changed"));
+
+        manager.restore();
+
+        verify(multiLevelCache).restoreLocal(argThat((Collection<SnapshotEntry> entries) ->
+                entries.size() == 1 && entries.iterator().next().key().equals("kept")));
+    }
+
+    @Test
+    public void discardsSnapshotAfterGapMarker() throws Exception {
+        ByteRecord gap = StreamRecords.rawBytes(Map.of(
+                        CacheInvalidationPublisher.LOG_GAP_FIELD.getBytes(StandardCharsets.UTF_8),
+                        UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8)))
+                .withStreamKey(LOG_KEY).withId(RecordId.of("2-0"));
+        logContains(frame("1-0", "x"), gap, frame("3-0", "other"));
+
+        manager.restore();
+
+        verify(multiLevelCache, never()).restoreLocal(anyCollection());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void logContains(ByteRecord... records) {
+        when(streams.xLen(any(byte[].class))).thenReturn((long) records.length);
+        when(streams.xRange(any(byte[].class), any(Range.class), any(Limit.class))).thenReturn(List.of(records));
+    }
+
+    private static ByteRecord frame(String id, String key) {
+        byte[] frame = new InvalidationFrame(UUID.randomUUID(), 1,
+                List.of(InvalidationFrame.Entry.multiLevel(key))).encode();
+        return StreamRecords.rawBytes(Map.of(
+                        CacheInvalidationPublisher.LOG_FRAME_FIELD.getBytes(StandardCharsets.UTF_8), frame))
+                .withStreamKey(LOG_KEY).withId(RecordId.of(id));
+    }
+}
@@ -0,0 +1,163 @@
+package com.frog.common.cache.spring;
+
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.redis.health.RedisCircuitBreaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * L2异步写队列：同key合并为最后一次写入，删除越过排队中的写入时旧值不落到L2，队列满时退回调用线程同步写
+ *
+ * @author Deng
+ * createData 2025/12/6 14:30
+ */
+public class L2WriteBehindQueueTest {
+    private final CacheProperties properties = new CacheProperties();
+    private final RedisCircuitBreaker breaker = new RedisCircuitBreaker(null, properties);
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    private final RedisConnection connection = mock(RedisConnection.class);
+    private final RedisStringCommands stringCommands = mock(RedisStringCommands.class);
+    private final TwoLevelCache cache = mock(TwoLevelCache.class);
+    private L2WriteBehindQueue queue;
+
+    {
+        when(connection.stringCommands()).thenReturn(stringCommands);
+        // 后台线程只在测试显式flush时写出：合并窗口足够长，积压达不到批大小
+        properties.getWriteBehind().setFlushInterval(Duration.ofMinutes(1));
+        properties.getWriteBehind().setBatchSize(1_000);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (queue != null) {
+            queue.shutdown();
+        }
+        breaker.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void coalescesRepeatedPutsToLastValue() {
+        pipelineRunsAgainstConnection();
+        queue = new L2WriteBehindQueue(redisTemplate, properties.getWriteBehind());
+
+        assertTrue(queue.offer("users:v0:1", write("1", "a")));
+        assertTrue(queue.offer("users:v0:1", write("1", "b")));
+        assertTrue(queue.offer("users:v0:1", write("1", "c")));
+        assertEquals(1, queue.queueSize());
+
+        queue.flush();
+
+        // 一次pipeline只写最后的值，写入后回调一次
+        verify(redisTemplate, times(1)).executePipelined(any(RedisCallback.class));
+        verify(stringCommands, times(1)).set(any(byte[].class), any(byte[].class), any(Expiration.class),
+                any(RedisStringCommands.SetOption.class));
+        verify(stringCommands).set(eq(bytes("users:v0:1")), eq(bytes("c")), any(Expiration.class),
+                any(RedisStringCommands.SetOption.class));
+        verify(cache, times(1)).afterWriteBehind(eq("1"), any(), any());
+        assertEquals(1, queue.enqueuedCount());
+        assertEquals(2, queue.coalescedCount());
+        assertEquals(1, queue.flushedKeyCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void evictOvertakingQueuedPutDropsStaleWrite() throws Exception {
+        pipelineRunsAgainstConnection();
+        queue = new L2WriteBehindQueue(redisTemplate, properties.getWriteBehind());
+
+        // 尚在排队：取消后不再写出
+        queue.offer("users:v0:1", write("1", "stale"));
+        queue.cancel("users:v0:1");
+        queue.flush();
+
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+        verify(cache, never()).afterWriteBehind(any(), any(), any());
+        assertEquals(0, queue.queueSize());
+
+        // 已在写出：cancel等本批写完才返回，调用方随后的DEL一定晚于该写入
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            writing.countDown();
+            assertTrue(release.await(2, TimeUnit.SECONDS));
+            return List.of();
+        });
+        queue.offer("users:v0:2", write("2", "stale"));
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            pool.submit(queue::flush);
+            assertTrue(writing.await(2, TimeUnit.SECONDS));
+            Future<?> cancelled = pool.submit(() -> queue.cancel("users:v0:2"));
+            Thread.sleep(100);
+            assertFalse(cancelled.isDone());
+
+            release.countDown();
+            cancelled.get(2, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void fullQueueFallsBackToSynchronousWrite() {
+        properties.getWriteBehind().setQueueCapacity(1);
+        properties.getWriteBehind().setOfferTimeout(Duration.ofMillis(10));
+        when(redisTemplate.getKeySerializer()).thenReturn((RedisSerializer) RedisSerializer.string());
+        queue = new L2WriteBehindQueue(redisTemplate, properties.getWriteBehind());
+        L2Writer writer = new L2Writer(redisTemplate, queue, breaker);
+
+        assertEquals(L2Writer.Outcome.QUEUED,
+                writer.write(cache, "1", "users:v0:1", bytes("a"), Duration.ofMinutes(1), Set.of()));
+        // 队列已满：等待offerTimeout后在调用线程同步SET，不丢写入
+        assertEquals(L2Writer.Outcome.WRITTEN,
+                writer.write(cache, "2", "users:v0:2", bytes("b"), Duration.ofMinutes(1), Set.of()));
+
+        verify(redisTemplate, times(1)).execute(any(RedisCallback.class));
+        assertEquals(1, queue.syncFallbackCount());
+        assertEquals(1, queue.queueSize());
+        assertNull(writer.pending("users:v0:2"));
+        assertNotNull(writer.pending("users:v0:1"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void pipelineRunsAgainstConnection() {
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            RedisCallback<Object> callback = invocation.getArgument(0);
+            callback.doInRedis(connection);
+            return List.of();
+        });
+    }
+
+    private L2WriteBehindQueue.PendingWrite write(String key, String value) {
+        return new L2WriteBehindQueue.PendingWrite(cache, key, bytes("users:v0:" + key), bytes(value),
+                Duration.ofMinutes(1), Set.of());
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
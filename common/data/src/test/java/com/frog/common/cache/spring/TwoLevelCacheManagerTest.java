@@ -0,0 +1,81 @@
+package com.frog.common.cache.spring;
+
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.cache.invalidation.CacheInvalidationPublisher;
+import com.frog.common.redis.health.RedisCircuitBreaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 按标签失效：读取标签索引失败时与熔断打开相同，丢弃本节点L1并保留标签待重放
+ *
+ * @author Deng
+ * createData 2025/12/4 09:40
+ */
+public class TwoLevelCacheManagerTest {
+    private final CacheProperties properties = new CacheProperties();
+    private final RedisCircuitBreaker breaker = new RedisCircuitBreaker(null, properties);
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, Object> valueOps = mock(ValueOperations.class);
+    private final TwoLevelCacheManager manager = new TwoLevelCacheManager(redisTemplate, Duration.ofMinutes(10),
+            Map.of("users", Duration.ofMinutes(10)), Map.of(), Map.of(), null, properties,
+            mock(CacheInvalidationPublisher.class), breaker);
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void stubSerializers() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(redisTemplate.getKeySerializer()).thenReturn((RedisSerializer) RedisSerializer.string());
+        when(redisTemplate.getValueSerializer()).thenReturn((RedisSerializer) RedisSerializer.string());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        manager.close();
+        breaker.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void tagDrainFailureClearsLocalAndKeepsTagForReplay() {
+        stubSerializers();
+        TwoLevelCache cache = (TwoLevelCache) manager.getCache("users");
+        cache.put("k", "v");
+        assertEquals(1, cache.localSize());
+        when(redisTemplate.execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+                eq(List.of(CacheTagIndex.TAG_KEY_PREFIX + "user:1"))))
+                .thenThrow(new RedisConnectionFailureException("connection reset"));
+
+        manager.evictByTags(List.of("user:1"));
+
+        // 标签成员未知：本节点L1整体丢弃，标签留待下次失效或Redis恢复时重放
+        assertEquals(0, cache.localSize());
+        assertEquals(1, manager.degradedTagCount());
+
+        reset(redisTemplate);
+        stubSerializers();
+        when(redisTemplate.execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+                any(List.class))).thenReturn(List.of());
+
+        manager.evictByTags(List.of("user:2"));
+
+        assertEquals(0, manager.degradedTagCount());
+        verify(redisTemplate).execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+                eq(List.of(CacheTagIndex.TAG_KEY_PREFIX + "user:1")));
+    }
+}
@@ -0,0 +1,228 @@
+package com.frog.common.cache.spring;
+
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.cache.SingleFlightLoader;
+import com.frog.common.cache.invalidation.CacheInvalidationPublisher;
+import com.frog.common.redis.health.RedisCircuitBreaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * TwoLevelCache：旧代际回收只删除代际命名空间内严格低于当前代际的key；L2坏值按未命中处理且不计入熔断；
+ * 软过期条目在刷新窗口内只触发一次后台刷新；负缓存条目按独立TTL过期，并随写入、删除与失效广播清除
+ *
+ * @author Deng
+ * createData 2025/12/3 18:10
+ */
+public class TwoLevelCacheTest {
+    private static final String NAME = "users";
+
+    private final CacheProperties properties = new CacheProperties();
+    private final RedisCircuitBreaker breaker = new RedisCircuitBreaker(null, properties);
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, Object> valueOps = mock(ValueOperations.class);
+    private final List<String> unlinked = new ArrayList<>();
+    private final TwoLevelCache cache = new TwoLevelCache(NAME, Duration.ofMinutes(10), null, redisTemplate,
+            1 << 20, new SingleFlightLoader(null, properties.getLoadLease()), Runnable::run,
+            mock(CacheInvalidationPublisher.class), null, breaker, properties);
+
+    {
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(redisTemplate.unlink(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> keys = invocation.getArgument(0);
+            unlinked.addAll(keys);
+            return (long) keys.size();
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        breaker.shutdown();
+    }
+
+    @Test
+    public void parsesKeyGeneration() {
+        CacheGeneration generation = new CacheGeneration(NAME, redisTemplate, breaker, properties.getGeneration(),
+                null, () -> {
+                });
+        assertEquals(0, generation.generationOf("users:v0:42"));
+        assertEquals(3, generation.generationOf("users:v3:42"));
+        assertEquals(12, generation.generationOf("users:v12:42"));
+        // 不在代际命名空间内的key不属于本缓存
+        assertEquals(-1, generation.generationOf("users:42"));
+        assertEquals(-1, generation.generationOf("users:vip:42"));
+        assertEquals(-1, generation.generationOf("users:v:42"));
+        assertEquals(-1, generation.generationOf("usersx:v1:42"));
+    }
+
+    @Test
+    public void reclaimKeepsGenerationsBumpedDuringScan() {
+        when(valueOps.increment(CacheGeneration.GENERATION_KEY_PREFIX + NAME)).thenReturn(2L);
+        // 扫描期间其他节点再次clear，代际已到3
+        when(valueOps.get(CacheGeneration.GENERATION_KEY_PREFIX + NAME)).thenReturn(3L);
+        scanReturns("users:v0:a", "users:v1:b", "users:v2:c", "users:v3:d");
+
+        cache.clear();
+
+        assertEquals(List.of("users:v0:a", "users:v1:b"), unlinked);
+    }
+
+    @Test
+    public void reclaimHonoursGenerationReset() {
+        when(valueOps.increment(CacheGeneration.GENERATION_KEY_PREFIX + NAME)).thenReturn(2L);
+        // 代际计数器丢失后从1重新开始，v1的key属于当前代际
+        when(valueOps.get(CacheGeneration.GENERATION_KEY_PREFIX + NAME)).thenReturn(1L);
+        scanReturns("users:v0:a", "users:v1:b");
+
+        cache.clear();
+
+        assertEquals(List.of("users:v0:a"), unlinked);
+    }
+
+    @Test
+    public void reclaimLeavesKeysOutsideGenerationNamespace() {
+        when(valueOps.increment(CacheGeneration.GENERATION_KEY_PREFIX + NAME)).thenReturn(2L);
+        when(valueOps.get(CacheGeneration.GENERATION_KEY_PREFIX + NAME)).thenReturn(2L);
+        // 与缓存名同前缀的业务key、原有布局的旧条目都不属于代际命名空间
+        scanReturns("users:a", "users:vip:1", "users:v:2", "users:v1x:3", "users:v1:b");
+
+        cache.clear();
+
+        assertEquals(List.of("users:v1:b"), unlinked);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void undecodableValueIsMissAndEvictedWithoutTrippingBreaker() {
+        byte[] corrupt = {0x7f, 0x00, 0x01};
+        RedisSerializer<Object> valueSerializer = mock(RedisSerializer.class);
+        when(valueSerializer.deserialize(corrupt)).thenThrow(new SerializationException("unknown format"));
+        when(redisTemplate.getKeySerializer()).thenReturn((RedisSerializer) RedisSerializer.string());
+        when(redisTemplate.getValueSerializer()).thenReturn((RedisSerializer) valueSerializer);
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(corrupt);
+        when(redisTemplate.executePipelined(any(RedisCallback.class), isNull())).thenReturn(List.of(corrupt, 60_000L));
+
+        int reads = properties.getBreaker().getFailureThreshold() + 1;
+        for (int i = 0; i < reads; i++) {
+            assertNull(cache.get("k"));
+        }
+
+        assertFalse(breaker.isOpen());
+        assertEquals(reads, cache.getDecodeErrorCount());
+        assertEquals(reads, cache.getMissCount());
+        verify(redisTemplate, times(reads)).delete("users:v0:k");
+    }
+
+    @Test
+    public void refreshAheadReloadsStaleEntryOnceWhileServingOldValue() throws Exception {
+        // 关闭XFetch，只由软TTL触发刷新
+        properties.getExpiration().setEarlyRecomputeBeta(0);
+        stubStringSerializers();
+        List<Runnable> refreshTasks = new ArrayList<>();
+        TwoLevelCache refreshAhead = newCache(Duration.ofMillis(200), refreshTasks::add);
+        AtomicInteger loads = new AtomicInteger();
+
+        refreshAhead.put("k", "v0");
+        Thread.sleep(250);
+
+        // 超过软TTL：窗口内的调用方都拿到旧值，只提交一次刷新
+        for (int i = 0; i < 3; i++) {
+            assertEquals("v0", refreshAhead.get("k", () -> "v" + loads.incrementAndGet()));
+        }
+        assertEquals(1, refreshTasks.size());
+        assertEquals(0, loads.get());
+        assertEquals(3, refreshAhead.getStaleHitCount());
+
+        refreshTasks.get(0).run();
+
+        // 刷新写回后按新值应答，新条目重新计时，不再触发刷新
+        assertEquals("v1", refreshAhead.get("k", () -> "v" + loads.incrementAndGet()));
+        assertEquals(1, loads.get());
+        assertEquals(1, refreshTasks.size());
+        assertEquals(1, refreshAhead.getRefreshCount());
+        assertTrue(refreshAhead.isRefreshAhead());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void negativeEntryExpiresAndIsClearedByPutEvictAndBroadcast() throws Exception {
+        properties.getNegative().setTtl(Duration.ofMillis(100));
+        properties.getExpiration().setEarlyRecomputeBeta(0);
+        stubStringSerializers();
+        TwoLevelCache negative = newCache(null, Runnable::run);
+
+        // 已确认不存在：由L1应答包装的null，不访问L2
+        negative.put("a", null);
+        Cache.ValueWrapper absent = negative.get("a");
+        assertNotNull(absent);
+        assertNull(absent.get());
+        verify(redisTemplate, never()).execute(any(RedisCallback.class));
+        assertEquals(1, negative.getNegativeHitCount());
+
+        // 负缓存TTL到期后重新按未命中处理
+        Thread.sleep(150);
+        assertNull(negative.get("a"));
+
+        negative.put("b", null);
+        negative.put("b", "v");
+        assertEquals("v", negative.get("b", String.class));
+
+        negative.put("c", null);
+        negative.evict("c");
+        assertNull(negative.get("c"));
+
+        // 其他节点写入后经失效广播到达
+        negative.put("d", null);
+        negative.invalidateLocal("d");
+        assertNull(negative.get("d"));
+    }
+
+    private TwoLevelCache newCache(Duration refreshAfter, Executor refreshExecutor) {
+        return new TwoLevelCache(NAME, Duration.ofMinutes(10), refreshAfter, redisTemplate, 1 << 20,
+                new SingleFlightLoader(null, properties.getLoadLease()), refreshExecutor,
+                mock(CacheInvalidationPublisher.class), null, breaker, properties);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void stubStringSerializers() {
+        when(redisTemplate.getKeySerializer()).thenReturn((RedisSerializer) RedisSerializer.string());
+        when(redisTemplate.getValueSerializer()).thenReturn((RedisSerializer) RedisSerializer.string());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void scanReturns(String... keys) {
+        Iterator<String> it = List.of(keys).iterator();
+        Cursor<String> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> it.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> it.next());
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+    }
+}
@@ -0,0 +1,58 @@
+package com.frog.common.redis.codec;
+
+import com.frog.common.cache.CacheProperties;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * 紧凑编解码器与原JSON序列化器的字节数/耗时对比，默认不随单元测试运行（mvn test -Pbenchmark）
+ *
+ * @author Deng
+ * createData 2025/11/24 16:30
+ */
+@Tag("benchmark")
+public class CompactValueCodecBenchmark {
+    private static final int WARMUP = 2_000;
+    private static final int ROUNDS = 10_000;
+
+    @Test
+    public void compareWithJson() {
+        RedisSerializer<Object> json = CompactValueCodecTest.legacyJson();
+        CompactValueCodec compact = CompactValueCodecTest.codec(CacheProperties.Codec.WriteFormat.COMPACT);
+        for (Object sample : CompactValueCodecTest.samples()) {
+            report(sample.getClass().getSimpleName(), json, compact, sample);
+        }
+    }
+
+    private void report(String label, RedisSerializer<Object> json, RedisSerializer<Object> compact, Object sample) {
+        byte[] jsonBytes = json.serialize(sample);
+        byte[] compactBytes = compact.serialize(sample);
+        System.out.printf("%-16s bytes json=%d compact=%d (%.1f%%) | ns/op ser json=%d compact=%d | de json=%d compact=%d%n",
+                label, jsonBytes.length, compactBytes.length, 100.0 * compactBytes.length / jsonBytes.length,
+                serializeNanos(json, sample), serializeNanos(compact, sample),
+                deserializeNanos(json, jsonBytes), deserializeNanos(compact, compactBytes));
+    }
+
+    private long serializeNanos(RedisSerializer<Object> serializer, Object value) {
+        for (int i = 0; i < WARMUP; i++) {
+            serializer.serialize(value);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            serializer.serialize(value);
+        }
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+
+    private long deserializeNanos(RedisSerializer<Object> serializer, byte[] bytes) {
+        for (int i = 0; i < WARMUP; i++) {
+            serializer.deserialize(bytes);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            serializer.deserialize(bytes);
+        }
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+}
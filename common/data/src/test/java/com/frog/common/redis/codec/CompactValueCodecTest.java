@@ -0,0 +1,118 @@
+package com.frog.common.redis.codec;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.frog.common.cache.CacheProperties;
+import com.frog.common.dto.permission.PermissionDTO;
+import com.frog.common.dto.user.UserInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 紧凑编解码器：往返正确性、旧JSON兼容，以及比原JSON序列化器更小
+ * 耗时对比见{@link CompactValueCodecBenchmark}
+ *
+ * @author Deng
+ * createData 2025/11/24 16:30
+ */
+public class CompactValueCodecTest {
+    @Test
+    public void roundTripCompact() {
+        CompactValueCodec codec = codec(CacheProperties.Codec.WriteFormat.COMPACT);
+        UserInfo userInfo = sampleUserInfo(40, 20);
+
+        Object decoded = codec.deserialize(codec.serialize(userInfo));
+
+        assertInstanceOf(UserInfo.class, decoded);
+        assertEquals(userInfo, decoded);
+    }
+
+    @Test
+    public void readsLegacyJson() {
+        RedisSerializer<Object> json = legacyJson();
+        CompactValueCodec codec = codec(CacheProperties.Codec.WriteFormat.COMPACT);
+        UserInfo userInfo = sampleUserInfo(5, 2);
+
+        assertEquals(userInfo, codec.deserialize(json.serialize(userInfo)));
+    }
+
+    @Test
+    public void compactIsSmallerThanJson() {
+        RedisSerializer<Object> json = legacyJson();
+        CompactValueCodec compact = codec(CacheProperties.Codec.WriteFormat.COMPACT);
+        for (Object sample : samples()) {
+            byte[] compactBytes = compact.serialize(sample);
+            assertEquals(sample, compact.deserialize(compactBytes));
+            if (!(sample instanceof String)) {
+                // 短字符串有magic/flags头开销，只对集合与对象比较大小
+                assertTrue(compactBytes.length < json.serialize(sample).length, sample.getClass().getSimpleName());
+            }
+        }
+    }
+
+    static Object[] samples() {
+        return new Object[]{
+                sampleUserInfo(40, 20),
+                samplePermissions(200),
+                "dynamic:permission:mapping"
+        };
+    }
+
+    static CompactValueCodec codec(CacheProperties.Codec.WriteFormat format) {
+        CacheProperties.Codec config = new CacheProperties.Codec();
+        config.setWriteFormat(format);
+        return new CompactValueCodec(legacyJson(), config);
+    }
+
+    // 与RedisConfig中的JSON序列化器配置一致
+    static RedisSerializer<Object> legacyJson() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        mapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance,
+                ObjectMapper.DefaultTyping.NON_FINAL);
+        return new Jackson2JsonRedisSerializer<>(mapper, Object.class);
+    }
+
+    static UserInfo sampleUserInfo(int permissionCount, int menuCount) {
+        Set<PermissionDTO> menus = new HashSet<>();
+        for (int i = 0; i < menuCount; i++) {
+            PermissionDTO menu = new PermissionDTO();
+            menu.setId(UUID.randomUUID());
+            menu.setPermissionCode("system:menu:" + i);
+            menu.setPermissionName("菜单" + i);
+            menu.setPermissionType(1);
+            menu.setRoutePath("/system/menu/" + i);
+            menu.setVisible(true);
+            menus.add(menu);
+        }
+        return UserInfo.builder()
+                .userId(UUID.randomUUID())
+                .username("frog")
+                .realName("测试用户")
+                .deptId(UUID.randomUUID())
+                .userLevel(2)
+                .roles(new HashSet<>(Set.of("ROLE_ADMIN", "ROLE_USER")))
+                .permissions(samplePermissions(permissionCount))
+                .menuTree(menus)
+                .build();
+    }
+
+    static HashSet<String> samplePermissions(int count) {
+        HashSet<String> permissions = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            permissions.add("system:resource" + (i % 20) + ":action" + i);
+        }
+        return permissions;
+    }
+}
@@ -0,0 +1,97 @@
+package com.frog.common.redis.health;
+
+import com.frog.common.cache.CacheProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 熔断器状态机：连续失败打开、半开只放行一次探测、探测成功关闭并触发恢复回调
+ *
+ * @author Deng
+ * createData 2025/11/27 15:30
+ */
+public class RedisCircuitBreakerTest {
+    private RedisCircuitBreaker breaker;
+
+    @BeforeEach
+    public void setUp() {
+        CacheProperties properties = new CacheProperties();
+        properties.getBreaker().setFailureThreshold(3);
+        properties.getBreaker().setOpenDuration(Duration.ofMillis(50));
+        properties.getBreaker().setSlowCallThreshold(Duration.ofMillis(100));
+        // 不传连接工厂：无后台探测，仅由调用方半开探测
+        breaker = new RedisCircuitBreaker(null, properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        breaker.shutdown();
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess(0L);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.recordFailure();
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1, breaker.openCount());
+        assertEquals(1, breaker.rejectedCount());
+    }
+
+    @Test
+    public void slowCallsCountAsFailures() {
+        long slow = TimeUnit.MILLISECONDS.toNanos(200);
+        for (int i = 0; i < 3; i++) {
+            breaker.recordSuccess(slow);
+        }
+        assertTrue(breaker.isOpen());
+    }
+
+    @Test
+    public void halfOpenAllowsSingleProbeAndClosesOnSuccess() throws Exception {
+        CountDownLatch recovered = new CountDownLatch(1);
+        breaker.onRecovery(recovered::countDown);
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+        TimeUnit.MILLISECONDS.sleep(60);
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(RedisCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        breaker.recordSuccess(0L);
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(recovered.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failedProbeReopens() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+        TimeUnit.MILLISECONDS.sleep(60);
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        // 重新打开不计入打开次数
+        assertEquals(1, breaker.openCount());
+    }
+}
@@ -0,0 +1,283 @@
+package com.frog.common.web.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.function.IntConsumer;
+
+/**
+ * 按权限ID编码的不可变位集
+ * 权限编码经权限字典映射为从0开始的稠密int ID，第id位为1表示拥有该权限；
+ * hasAny/hasAll退化为逐个long字的与运算，不再对"system:user:update"这类字符串求哈希
+ * 序列化为小端字节序的Base64URL字符串（去掉末尾全零字节），几十个权限通常只占几十字节，
+ * 可直接放入缓存值与JWT声明
+ * 位集绑定编码时的字典纪元（epoch）：字典存储重建后同一ID可能对应不同编码，
+ * 纪元不同的位集之间的比较一律返回false，调用方应改用字符串集合；0表示未绑定任何字典
+ *
+ * @author Deng
+ * createData 2025/11/29 10:20
+ * @version 1.0
+ */
+public final class PermissionBitSet implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public static final PermissionBitSet EMPTY = new PermissionBitSet(new long[0], 0L);
+
+    /** 序列化时纪元与位集之间的分隔符，不属于Base64URL字符集 */
+    private static final char EPOCH_SEPARATOR = '.';
+
+    /** 最后一个字不为0（EMPTY除外），保证equals/hashCode与长度无关 */
+    private final long[] words;
+    private final long epoch;
+
+    private PermissionBitSet(long[] words, long epoch) {
+        this.words = words;
+        this.epoch = epoch;
+    }
+
+    public static PermissionBitSet of(int... ids) {
+        if (ids == null || ids.length == 0) {
+            return EMPTY;
+        }
+        Builder builder = builder();
+        for (int id : ids) {
+            builder.add(id);
+        }
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int index = id >>> 6;
+        return index < words.length && (words[index] & (1L << id)) != 0;
+    }
+
+    /**
+     * 编码时的字典纪元，0表示未绑定
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * 同一组ID绑定到指定字典纪元
+     */
+    public PermissionBitSet withEpoch(long epoch) {
+        return epoch == this.epoch ? this : new PermissionBitSet(words, epoch);
+    }
+
+    /**
+     * 与required存在交集；required为空或纪元不同时返回false
+     */
+    public boolean containsAny(PermissionBitSet required) {
+        if (required.epoch != epoch) {
+            return false;
+        }
+        long[] other = required.words;
+        int n = Math.min(words.length, other.length);
+        for (int i = 0; i < n; i++) {
+            if ((words[i] & other[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 包含required的全部位；required为空时返回true，纪元不同时返回false
+     */
+    public boolean containsAll(PermissionBitSet required) {
+        if (required.epoch != epoch) {
+            return false;
+        }
+        long[] other = required.words;
+        if (other.length > words.length) {
+            return false;
+        }
+        for (int i = 0; i < other.length; i++) {
+            if ((words[i] & other[i]) != other[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public PermissionBitSet or(PermissionBitSet other) {
+        if (other.epoch != epoch) {
+            throw new IllegalArgumentException("Cannot merge permission bits of different dictionary epochs: "
+                    + epoch + " vs " + other.epoch);
+        }
+        if (other.words.length == 0) {
+            return this;
+        }
+        if (words.length == 0) {
+            return other;
+        }
+        long[] a = words.length >= other.words.length ? words : other.words;
+        long[] b = a == words ? other.words : words;
+        long[] merged = Arrays.copyOf(a, a.length);
+        for (int i = 0; i < b.length; i++) {
+            merged[i] |= b[i];
+        }
+        return new PermissionBitSet(merged, epoch);
+    }
+
+    public boolean isEmpty() {
+        return words.length == 0;
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * 最大ID + 1，即解码该位集至少需要的字典大小
+     */
+    public int length() {
+        if (words.length == 0) {
+            return 0;
+        }
+        int last = words.length - 1;
+        return (last << 6) + 64 - Long.numberOfLeadingZeros(words[last]);
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                action.accept((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * 小端字节序，末尾全零字节不输出
+     */
+    public byte[] toByteArray() {
+        int bytes = (length() + 7) >>> 3;
+        byte[] out = new byte[bytes];
+        for (int i = 0; i < bytes; i++) {
+            out[i] = (byte) (words[i >>> 3] >>> ((i & 7) << 3));
+        }
+        return out;
+    }
+
+    /**
+     * 只含位，不含纪元
+     */
+    public static PermissionBitSet fromByteArray(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return EMPTY;
+        }
+        long[] words = new long[(bytes.length + 7) >>> 3];
+        for (int i = 0; i < bytes.length; i++) {
+            words[i >>> 3] |= (bytes[i] & 0xFFL) << ((i & 7) << 3);
+        }
+        return trimmed(words, 0L);
+    }
+
+    /**
+     * 已绑定纪元时输出"纪元(36进制).位集"，未绑定时只输出位集
+     */
+    @JsonValue
+    public String toBase64() {
+        String bits = Base64.getUrlEncoder().withoutPadding().encodeToString(toByteArray());
+        return epoch == 0L ? bits : Long.toUnsignedString(epoch, 36) + EPOCH_SEPARATOR + bits;
+    }
+
+    /**
+     * 不带纪元的旧格式解析为未绑定（纪元0），与任何字典都不匹配
+     */
+    @JsonCreator
+    public static PermissionBitSet fromBase64(String value) {
+        if (value == null || value.isEmpty()) {
+            return EMPTY;
+        }
+        int sep = value.indexOf(EPOCH_SEPARATOR);
+        long epoch = sep > 0 ? Long.parseUnsignedLong(value.substring(0, sep), 36) : 0L;
+        return fromByteArray(Base64.getUrlDecoder().decode(value.substring(sep + 1))).withEpoch(epoch);
+    }
+
+    private static PermissionBitSet trimmed(long[] words, long epoch) {
+        int n = words.length;
+        while (n > 0 && words[n - 1] == 0) {
+            n--;
+        }
+        if (n == 0) {
+            return epoch == 0L ? EMPTY : new PermissionBitSet(new long[0], epoch);
+        }
+        return new PermissionBitSet(n == words.length ? words : Arrays.copyOf(words, n), epoch);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof PermissionBitSet that && epoch == that.epoch
+                && Arrays.equals(words, that.words));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(epoch) + Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach(id -> {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append(id);
+        });
+        sb.append('}');
+        return epoch == 0L ? sb.toString() : sb.append('@').append(Long.toUnsignedString(epoch, 36)).toString();
+    }
+
+    /**
+     * 非线程安全，构建完成后丢弃
+     */
+    public static final class Builder {
+        private long[] words = new long[2];
+        private long epoch;
+
+        private Builder() {
+        }
+
+        public Builder epoch(long epoch) {
+            this.epoch = epoch;
+            return this;
+        }
+
+        public Builder add(int id) {
+            if (id < 0) {
+                throw new IllegalArgumentException("Permission id must be non-negative: " + id);
+            }
+            int index = id >>> 6;
+            if (index >= words.length) {
+                words = Arrays.copyOf(words, Math.max(index + 1, words.length * 2));
+            }
+            words[index] |= 1L << id;
+            return this;
+        }
+
+        public PermissionBitSet build() {
+            return trimmed(words.clone(), epoch);
+        }
+    }
+}
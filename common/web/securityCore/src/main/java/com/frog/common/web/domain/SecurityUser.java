@@ -44,6 +44,8 @@ public class SecurityUser implements UserDetails {
     private Integer userLevel;
     private Set<String> roles;
     private Set<String> permissions;
+    /** 经权限字典编码的权限位集（带字典纪元），与permissions内容一致；为null或纪元不符时权限校验使用字符串集合 */
+    private PermissionBitSet permissionBits;
     private String twoFactorSecret;
 
     // 安全相关字段
@@ -1,5 +1,7 @@
 package com.frog.common.access;
 
+import com.frog.common.dto.permission.AccessCheckRequest;
+import com.frog.common.dto.permission.AccessDecision;
 import com.frog.system.api.PermissionDubboService;
 import org.apache.dubbo.config.annotation.DubboReference;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -29,5 +31,14 @@ public class DubboPermissionAccess implements PermissionAccessPort {
     public Set<String> findAllPermissionsByUserId(UUID userId) {
         return permissionDubboService.findAllPermissionsByUserId(userId);
     }
-}
 
+    @Override
+    public AccessDecision checkAccess(UUID userId, String method, String path) {
+        return permissionDubboService.checkAccess(userId, method, path);
+    }
+
+    @Override
+    public List<AccessDecision> checkAccessBatch(List<AccessCheckRequest> requests) {
+        return permissionDubboService.checkAccessBatch(requests);
+    }
+}
@@ -1,5 +1,7 @@
 package com.frog.common.access;
 
+import com.frog.common.dto.permission.AccessCheckRequest;
+import com.frog.common.dto.permission.AccessDecision;
 import com.frog.common.feign.client.SysPermissionServiceClient;
 import com.frog.common.response.ApiResponse;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -31,5 +33,14 @@ public class FeignPermissionAccess implements PermissionAccessPort {
         ApiResponse<Set<String>> resp = permissionServiceClient.getUserPermissions(userId);
         return resp != null ? resp.data() : Set.of();
     }
-}
 
+    @Override
+    public AccessDecision checkAccess(UUID userId, String method, String path) {
+        return permissionServiceClient.checkAccess(userId, method, path);
+    }
+
+    @Override
+    public List<AccessDecision> checkAccessBatch(List<AccessCheckRequest> requests) {
+        return permissionServiceClient.checkAccessBatch(requests);
+    }
+}
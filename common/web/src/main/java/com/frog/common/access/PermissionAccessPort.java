@@ -1,5 +1,8 @@
 package com.frog.common.access;
 
+import com.frog.common.dto.permission.AccessCheckRequest;
+import com.frog.common.dto.permission.AccessDecision;
+
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -12,5 +15,12 @@ public interface PermissionAccessPort {
     List<String> findPermissionsByUrl(String url, String method);
 
     Set<String> findAllPermissionsByUserId(UUID userId);
+
+    /**
+     * Route matching and permission check combined into a single call.
+     */
+    AccessDecision checkAccess(UUID userId, String method, String path);
+
+    List<AccessDecision> checkAccessBatch(List<AccessCheckRequest> requests);
 }
 
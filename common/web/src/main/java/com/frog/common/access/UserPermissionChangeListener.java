@@ -0,0 +1,52 @@
+package com.frog.common.access;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * 订阅用户有效权限变更，失效本地近端缓存
+ * 消息格式见{@link UserPermissionChangePublisher}
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserPermissionChangeListener implements MessageListener {
+    private final UserPermissionNearCache nearCache;
+
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            if (body.startsWith("a:")) {
+                nearCache.onAllChanged();
+                return;
+            }
+            if (body.startsWith("u:")) {
+                int versionSeparator = body.lastIndexOf(':');
+                UUID userId = UUID.fromString(body.substring(2, versionSeparator));
+                nearCache.onUserChanged(userId, Long.parseLong(body.substring(versionSeparator + 1)));
+                return;
+            }
+            if (body.startsWith("g:")) {
+                if (body.length() == 2) {
+                    nearCache.onAllChanged();
+                } else {
+                    nearCache.onUserReloaded(UUID.fromString(body.substring(2)));
+                }
+                return;
+            }
+            log.warn("Unknown user permission change message: {}", body);
+        } catch (Exception e) {
+            // 无法解析时整体失效，宁可多回源也不保留可能过期的权限
+            log.warn("Failed to process user permission change message: {}", body, e);
+            nearCache.onAllChanged();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.frog.common.access;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * 用户有效权限变更广播
+ * 用户维度的变更（角色分配、临时角色授予/延期/终止/过期）递增该用户的权限版本并广播"u:用户ID:版本"；
+ * 角色或权限定义的变更影响范围无法逐个确定，广播"a:版本"让各节点整体失效
+ * 处于事务中时在提交后广播，避免节点在提交前重新加载到旧权限
+ * 系统服务节点的RBAC图应用变更后再广播"g:用户ID"或"g:"（不递增版本），
+ * 近端缓存据此丢弃在应用之前从旧图加载的结果
+ *
+ * @author Deng
+ * createData 2025/11/30 14:50
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserPermissionChangePublisher {
+    public static final String CHANNEL = "permission:user:changed";
+    private static final byte[] CHANNEL_BYTES = CHANNEL.getBytes(StandardCharsets.UTF_8);
+
+    private static final String USER_VERSION_PREFIX = "perm:user:version:";
+    private static final String ALL_VERSION_KEY = "perm:user:version:all";
+    /** 版本key的保留时间，远大于近端缓存的最大陈旧时间 */
+    private static final Duration VERSION_TTL = Duration.ofDays(7);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    public void userChanged(UUID userId) {
+        afterCommit(() -> publish(USER_VERSION_PREFIX + userId, "u:" + userId + ":"));
+    }
+
+    public void allChanged() {
+        afterCommit(() -> publish(ALL_VERSION_KEY, "a:"));
+    }
+
+    /**
+     * 本节点RBAC图已应用该用户的变更
+     */
+    public void userApplied(UUID userId) {
+        send("g:" + userId);
+    }
+
+    /**
+     * 本节点RBAC图已按定义变更重建
+     */
+    public void allApplied() {
+        send("g:");
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void publish(String versionKey, String messagePrefix) {
+        try {
+            Long version = redisTemplate.opsForValue().increment(versionKey);
+            redisTemplate.expire(versionKey, VERSION_TTL);
+            byte[] body = (messagePrefix + (version != null ? version : 0L)).getBytes(StandardCharsets.UTF_8);
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(CHANNEL_BYTES, body));
+        } catch (Exception e) {
+            // 通知失败时近端缓存在最大陈旧时间后自行过期
+            log.warn("Failed to publish user permission change {}: {}", messagePrefix, e.getMessage());
+        }
+    }
+
+    private void send(String message) {
+        try {
+            byte[] body = message.getBytes(StandardCharsets.UTF_8);
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(CHANNEL_BYTES, body));
+        } catch (Exception e) {
+            log.warn("Failed to publish user permission change {}: {}", message, e.getMessage());
+        }
+    }
+}
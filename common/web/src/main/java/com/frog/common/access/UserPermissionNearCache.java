@@ -0,0 +1,135 @@
+package com.frog.common.access;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 用户有效权限近端缓存
+ * 位于{@link PermissionAccessPort}（跨服务调用）之前，按用户缓存有效权限集合：
+ * - 条目记录加载时该用户的本地变更序号与全局纪元，角色、授权、临时角色变更时由{@link UserPermissionChangePublisher}
+ *   广播，本地失效对应用户并递增序号；角色/权限定义变更影响的用户无法逐个确定，推进全局纪元整体失效
+ * - 加载期间收到变更时（序号或纪元已变化）本次结果只返回不缓存，避免把变更前读到的权限写回缓存
+ * - 权限服务节点应用变更后会再广播一次，再次失效，丢弃在其应用之前从旧数据加载的结果
+ * - 条目写入后最多存活maxStaleness，兜底丢失的通知与临时角色的自然过期
+ *
+ * @author Deng
+ * createData 2025/11/30 14:20
+ * @version 1.0
+ */
+@Component
+@Slf4j
+public class UserPermissionNearCache {
+    private final UserPermissionNearCacheProperties properties;
+    private final Cache<UUID, Entry> entries;
+    // 用户最近一次失效时的本地序号；只用于判断加载期间是否发生变更，保留时间与条目一致即可
+    private final Cache<UUID, Long> userVersions;
+    private final AtomicLong changeSequence = new AtomicLong();
+    private final AtomicLong globalEpoch = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder staleLoads = new LongAdder();
+
+    private record Entry(Long version, long epoch, Set<String> permissions) {}
+
+    public UserPermissionNearCache(UserPermissionNearCacheProperties properties) {
+        this.properties = properties;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getMaxStaleness())
+                .build();
+        this.userVersions = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getMaxStaleness())
+                .build();
+    }
+
+    /**
+     * 获取用户有效权限，未命中时通过loader加载
+     */
+    public Set<String> get(UUID userId, Function<UUID, Set<String>> loader) {
+        if (!properties.isEnabled()) {
+            return loader.apply(userId);
+        }
+        long epoch = globalEpoch.get();
+        Long version = userVersions.getIfPresent(userId);
+        Entry entry = entries.getIfPresent(userId);
+        if (entry != null && entry.epoch() == epoch && Objects.equals(entry.version(), version)) {
+            hits.increment();
+            return entry.permissions();
+        }
+        misses.increment();
+
+        Set<String> loaded = loader.apply(userId);
+        Set<String> permissions = loaded != null ? Set.copyOf(loaded) : Set.of();
+        if (epoch == globalEpoch.get() && Objects.equals(version, userVersions.getIfPresent(userId))) {
+            entries.put(userId, new Entry(version, epoch, permissions));
+        } else {
+            staleLoads.increment();
+        }
+        return permissions;
+    }
+
+    /**
+     * 用户的角色或临时授权发生变更
+     */
+    public void onUserChanged(UUID userId, long version) {
+        invalidateUser(userId);
+        log.debug("User permission near cache invalidated: userId={}, version={}", userId, version);
+    }
+
+    /**
+     * 权限服务节点已应用该用户的变更
+     */
+    public void onUserReloaded(UUID userId) {
+        invalidateUser(userId);
+        log.debug("User permission near cache invalidated after reload: userId={}", userId);
+    }
+
+    private void invalidateUser(UUID userId) {
+        // 记录本地序号而非广播的版本：同一变更的再次失效也能让进行中的加载不写回
+        userVersions.put(userId, changeSequence.incrementAndGet());
+        entries.invalidate(userId);
+        invalidations.increment();
+    }
+
+    /**
+     * 角色或权限定义发生变更，所有用户失效
+     */
+    public void onAllChanged() {
+        globalEpoch.incrementAndGet();
+        entries.invalidateAll();
+        invalidations.increment();
+        log.debug("User permission near cache invalidated for all users");
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long invalidationCount() {
+        return invalidations.sum();
+    }
+
+    public long staleLoadCount() {
+        return staleLoads.sum();
+    }
+
+    public long size() {
+        return entries.estimatedSize();
+    }
+}
@@ -0,0 +1,24 @@
+package com.frog.common.access;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 用户有效权限近端缓存配置
+ */
+@Component
+@ConfigurationProperties(prefix = "frog.security.permission-near-cache")
+@Data
+public class UserPermissionNearCacheProperties {
+    /** 是否启用，关闭后每次都调用权限服务 */
+    private boolean enabled = true;
+
+    /** 最多缓存的用户数 */
+    private long maximumSize = 10_000;
+
+    /** 最大陈旧时间：变更通知丢失或临时角色自然过期时，条目最多在该时间后重新加载 */
+    private Duration maxStaleness = Duration.ofMinutes(2);
+}
@@ -1,11 +1,15 @@
 package com.frog.common.feign.client;
 
+import com.frog.common.dto.permission.AccessCheckRequest;
+import com.frog.common.dto.permission.AccessDecision;
 import com.frog.common.dto.permission.PermissionDTO;
 import com.frog.common.response.ApiResponse;
 import com.frog.common.feign.fallback.PermissionServiceClientFallbackFactory;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
@@ -69,4 +73,25 @@ public interface SysPermissionServiceClient {
     //todo 待完善
     @GetMapping("/api")
     List<Map<String, Object>> findApiPermissions();
-}
\ No newline at end of file
+
+    /**
+     * 查询版本号sinceRevision之后变更的API权限行（含停用、删除的行），按版本号升序
+     */
+    @GetMapping("/api/changes")
+    List<Map<String, Object>> findApiPermissionChanges(@RequestParam("sinceRevision") long sinceRevision,
+                                                       @RequestParam("limit") int limit);
+
+    /**
+     * 访问判定：一次调用完成路由规则匹配与用户权限判断
+     */
+    @GetMapping("/check-access")
+    AccessDecision checkAccess(@RequestParam("userId") UUID userId,
+                               @RequestParam("method") String method,
+                               @RequestParam("path") String path);
+
+    /**
+     * 批量访问判定，结果与请求顺序一致
+     */
+    @PostMapping("/check-access/batch")
+    List<AccessDecision> checkAccessBatch(@RequestBody List<AccessCheckRequest> requests);
+}
@@ -1,6 +1,8 @@
 package com.frog.common.feign.fallback;
 
 
+import com.frog.common.dto.permission.AccessCheckRequest;
+import com.frog.common.dto.permission.AccessDecision;
 import com.frog.common.dto.permission.PermissionDTO;
 import com.frog.common.feign.client.SysPermissionServiceClient;
 import com.frog.common.feign.factory.BaseFallbackFactory;
@@ -65,6 +67,45 @@ public class PermissionServiceClientFallbackFactory extends BaseFallbackFactory<
                 log.error("调用权限服务查询接口权限失败: 错误信息: {}", errorMsg, cause);
                 return Collections.emptyList();
             }
+
+            @Override
+            public List<Map<String, Object>> findApiPermissionChanges(long sinceRevision, int limit) {
+                log.error("调用权限服务查询接口权限变更失败: sinceRevision={}, 错误信息: {}", sinceRevision, errorMsg, cause);
+                // null表示未知（区别于"没有变更"），调用方保留当前映射，下个周期重试
+                return null;
+            }
+
+            @Override
+            public AccessDecision checkAccess(UUID userId, String method, String path) {
+                log.error("调用权限服务访问判定失败: userId={}, method={}, path={}, 错误信息: {}",
+                        userId, method, path, errorMsg, cause);
+                // 权限服务不可用时拒绝访问
+                return denied(userId, method, path);
+            }
+
+            @Override
+            public List<AccessDecision> checkAccessBatch(List<AccessCheckRequest> requests) {
+                log.error("调用权限服务批量访问判定失败: size={}, 错误信息: {}",
+                        requests != null ? requests.size() : 0, errorMsg, cause);
+                List<AccessDecision> decisions = new ArrayList<>();
+                if (requests != null) {
+                    for (AccessCheckRequest request : requests) {
+                        decisions.add(denied(request.getUserId(), request.getMethod(), request.getPath()));
+                    }
+                }
+                return decisions;
+            }
         };
     }
+
+    private static AccessDecision denied(UUID userId, String method, String path) {
+        return AccessDecision.builder()
+                .userId(userId)
+                .method(method)
+                .path(path)
+                .allowed(false)
+                .requiredPermissions(Collections.emptySet())
+                .decisionVersion(-1L)
+                .build();
+    }
 }
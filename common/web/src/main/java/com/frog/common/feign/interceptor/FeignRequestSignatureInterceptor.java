@@ -1,13 +1,13 @@
 package com.frog.common.feign.interceptor;
 
-import cn.hutool.crypto.SecureUtil;
-import cn.hutool.crypto.digest.HmacAlgorithm;
+import com.frog.common.security.internal.InternalRequestSignature;
 import feign.RequestInterceptor;
 import feign.RequestTemplate;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.net.URI;
 import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -37,44 +37,33 @@ public class FeignRequestSignatureInterceptor implements RequestInterceptor {
         String signature = calculateSignature(template, timestamp, nonce);
 
         // 3. 添加签名Header
-        template.header("X-Timestamp", timestamp);
-        template.header("X-Nonce", nonce);
-        template.header("X-Signature", signature);
-        template.header("X-App-Id", appId);
+        template.header(InternalRequestSignature.HEADER_TIMESTAMP, timestamp);
+        template.header(InternalRequestSignature.HEADER_NONCE, nonce);
+        template.header(InternalRequestSignature.HEADER_SIGNATURE, signature);
+        template.header(InternalRequestSignature.HEADER_APP_ID, appId);
 
         log.debug("Feign request signed: {} {}", template.method(), template.url());
     }
 
     private String calculateSignature(RequestTemplate template, String timestamp, String nonce) {
-        // 获取URI
-        String uri = template.path();
+        // 完整路径：@FeignClient的path在目标URL中，拦截器执行时尚未拼入template
+        String uri = targetPath(template) + template.path();
 
-        // 获取查询参数并排序
+        // 获取查询参数（每个名称取第一个值）
         Map<String, String> queries = template.queries().entrySet().stream()
                 .collect(Collectors.toMap(
                         Map.Entry::getKey,
                         e -> e.getValue().isEmpty() ? "" : e.getValue().iterator().next()
                 ));
 
-        String sortedParams = sortAndConcatParams(queries);
-
-        // 构建待签名字符串
-        String signContent = timestamp + nonce + appId + uri + sortedParams;
-
-        // HMAC-SHA256签名
-        return SecureUtil.hmac(HmacAlgorithm.HmacSHA256, secretKey).digestHex(signContent);
+        return InternalRequestSignature.sign(secretKey, timestamp, nonce, appId, uri, queries);
     }
 
-    /**
-     * 对参数进行排序并拼接成字符串
-     * @param params 参数映射
-     * @return 排序并拼接后的参数字符串
-     */
-    private String sortAndConcatParams(Map<String, String> params) {
-        return params.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .map(e -> e.getKey() + "=" + e.getValue())
-                .collect(Collectors.joining("&"));
+    private String targetPath(RequestTemplate template) {
+        if (template.feignTarget() == null) {
+            return "";
+        }
+        String path = URI.create(template.feignTarget().url()).getPath();
+        return path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
     }
 }
-
@@ -0,0 +1,45 @@
+package com.frog.common.security.config;
+
+import com.frog.common.access.UserPermissionChangeListener;
+import com.frog.common.access.UserPermissionChangePublisher;
+import com.frog.common.security.loader.PermissionChangeListener;
+import com.frog.common.security.loader.PermissionChangeNotifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
+
+/**
+ * 权限变更推送配置：API权限映射同步与用户有效权限近端缓存失效
+ *
+ * @author Deng
+ * createData 2025/11/30 10:40
+ * @version 1.0
+ */
+@Configuration
+public class PermissionSyncConfig {
+
+    @Bean
+    public RedisMessageListenerContainer permissionChangeListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            PermissionChangeListener listener) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(new MessageListenerAdapter(listener),
+                new ChannelTopic(PermissionChangeNotifier.CHANNEL));
+        return container;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer userPermissionChangeListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            UserPermissionChangeListener listener) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(new MessageListenerAdapter(listener),
+                new ChannelTopic(UserPermissionChangePublisher.CHANNEL));
+        return container;
+    }
+}
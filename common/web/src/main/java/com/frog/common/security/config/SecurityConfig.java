@@ -1,5 +1,6 @@
 package com.frog.common.security.config;
 
+import com.frog.common.security.filter.InternalServiceAuthenticationFilter;
 import com.frog.common.security.filter.JwtAuthenticationFilter;
 import com.frog.common.security.filter.SqlInjectionFilter;
 import com.frog.common.security.handler.JwtAccessDeniedHandler;
@@ -43,6 +44,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final InternalServiceAuthenticationFilter internalServiceAuthenticationFilter;
     private final SqlInjectionFilter sqlInjectionFilter;
     private final JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
     private final JwtAccessDeniedHandler jwtAccessDeniedHandler;
@@ -121,6 +123,7 @@ public class SecurityConfig {
                 // 8️⃣ 添加自定义过滤器
                 .addFilterBefore(sqlInjectionFilter, LogoutFilter.class)
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(internalServiceAuthenticationFilter, JwtAuthenticationFilter.class)
                 .addFilterAfter(stepUpFilter, JwtAuthenticationFilter.class);
 
         return http.build();
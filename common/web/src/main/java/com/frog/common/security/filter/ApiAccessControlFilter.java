@@ -1,8 +1,13 @@
 package com.frog.common.security.filter;
 
 import com.frog.common.access.PermissionAccessPort;
+import com.frog.common.access.UserPermissionNearCache;
+import com.frog.common.dto.permission.AccessDecision;
 import com.frog.common.log.enums.SecurityEventType;
 import com.frog.common.log.service.ISysAuditLogService;
+import com.frog.common.security.loader.DynamicPermissionLoader;
+import com.frog.common.security.loader.PermissionRouteIndex;
+import com.frog.common.security.loader.PermissionSnapshot;
 import com.frog.common.security.util.IpUtils;
 import com.frog.common.web.util.SecurityUtils;
 import jakarta.servlet.FilterChain;
@@ -19,9 +24,12 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 /**
  * API访问控制过滤器
  * 基于URL和HTTP方法进行细粒度权限控制
+ * 所需权限从本节点的权限快照（{@link DynamicPermissionLoader}，启动时从权限服务加载，之后按revision增量同步并接收变更推送）解析，
+ * 只有快照尚未加载时才回退到RPC，此时通过一次checkAccess调用同时完成规则匹配与用户权限判断
  *
  * @author Deng
  * createData 2025/11/6 15:24
@@ -33,6 +41,14 @@ import java.util.UUID;
 public class ApiAccessControlFilter extends OncePerRequestFilter {
     private final PermissionAccessPort permissionAccess;
     private final ISysAuditLogService auditLogService;
+    private final DynamicPermissionLoader permissionLoader;
+    private final UserPermissionNearCache userPermissionNearCache;
+
+    // 所需权限的解析来源统计：本地快照 vs RPC回退
+    private final LongAdder localResolves = new LongAdder();
+    private final LongAdder localResolveNanos = new LongAdder();
+    private final LongAdder rpcResolves = new LongAdder();
+    private final LongAdder rpcResolveNanos = new LongAdder();
 
     // 白名单路径（不需要权限检查）
     private static final List<String> WHITE_LIST = List.of(
@@ -66,23 +82,9 @@ public class ApiAccessControlFilter extends OncePerRequestFilter {
             return;
         }
 
-        // 查询该API需要的权限
-        List<String> requiredPermissions = permissionAccess
-                .findPermissionsByUrl(requestUri, method);
-
-        if (requiredPermissions.isEmpty()) {
-            // 没有配置权限要求，放行
-            filterChain.doFilter(request, response);
-            return;
-        }
-
-        // 获取用户权限
-        Set<String> userPermissions = permissionAccess
-                .findAllPermissionsByUserId(userId);
-
-        // 检查用户是否拥有所需权限
-        boolean hasPermission = requiredPermissions.stream()
-                .anyMatch(userPermissions::contains);
+        AccessDecision decision = decide(userId, requestUri, method);
+        boolean hasPermission = decision.isAllowed();
+        Set<String> requiredPermissions = decision.getRequiredPermissions();
 
         if (!hasPermission) {
             // 记录未授权访问
@@ -116,6 +118,69 @@ public class ApiAccessControlFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * 访问判定：快照已加载时查本地路由表并结合近端缓存的用户权限判断，
+     * 否则调用权限服务的checkAccess一次完成规则匹配与权限判断
+     */
+    private AccessDecision decide(UUID userId, String uri, String method) {
+        long start = System.nanoTime();
+        PermissionSnapshot snapshot = permissionLoader.currentSnapshot();
+        if (snapshot.getSource() != PermissionSnapshot.Source.EMPTY) {
+            PermissionRouteIndex.Route route = snapshot.matchRoute(method, uri);
+            Set<String> required = route != null ? route.permissions() : Set.of();
+            localResolves.increment();
+            localResolveNanos.add(System.nanoTime() - start);
+            // 没有配置权限要求时放行，无需加载用户权限
+            boolean allowed = required.isEmpty();
+            if (!allowed) {
+                // 获取用户权限（近端缓存，未命中时调用权限服务）
+                Set<String> userPermissions = userPermissionNearCache
+                        .get(userId, permissionAccess::findAllPermissionsByUserId);
+                allowed = required.stream().anyMatch(userPermissions::contains);
+            }
+            return AccessDecision.builder()
+                    .userId(userId)
+                    .method(method)
+                    .path(uri)
+                    .allowed(allowed)
+                    .matchedRule(route != null ? route.rule() : null)
+                    .requiredPermissions(required)
+                    .decisionVersion(permissionLoader.getSyncedRevision())
+                    .build();
+        }
+        AccessDecision decision = permissionAccess.checkAccess(userId, method, uri);
+        rpcResolves.increment();
+        rpcResolveNanos.add(System.nanoTime() - start);
+        if (decision == null) {
+            // 权限服务无法给出判定时拒绝访问
+            return AccessDecision.builder()
+                    .userId(userId)
+                    .method(method)
+                    .path(uri)
+                    .allowed(false)
+                    .requiredPermissions(Set.of())
+                    .decisionVersion(-1L)
+                    .build();
+        }
+        return decision;
+    }
+
+    public long localResolveCount() {
+        return localResolves.sum();
+    }
+
+    public long localResolveNanos() {
+        return localResolveNanos.sum();
+    }
+
+    public long rpcResolveCount() {
+        return rpcResolves.sum();
+    }
+
+    public long rpcResolveNanos() {
+        return rpcResolveNanos.sum();
+    }
+
     /**
      * 检查是否在白名单中
      */
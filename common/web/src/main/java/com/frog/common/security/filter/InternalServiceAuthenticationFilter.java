@@ -0,0 +1,99 @@
+package com.frog.common.security.filter;
+
+import com.frog.common.security.internal.InternalRequestSignature;
+import com.frog.common.security.internal.InternalServiceAuthentication;
+import jakarta.annotation.Nonnull;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+
+/**
+ * 服务间请求认证过滤器
+ * 校验Feign调用方附加的签名（算法见{@link InternalRequestSignature}），通过后以{@link InternalServiceAuthentication}认证
+ * - 时间戳超出有效期、nonce重复、签名不符时不认证，请求按匿名继续，由后续授权规则拒绝
+ * - 密钥仍为默认值时不认证任何签名请求，避免使用公开的默认密钥伪造服务调用
+ * - nonce记录在Redis中，Redis不可用时不认证（宁可拒绝服务调用也不放过重放）
+ *
+ * @author Deng
+ * createData 2025/12/5 10:40
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InternalServiceAuthenticationFilter extends OncePerRequestFilter {
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${security.feign.secret-key:your-internal-secret-key}")
+    private String secretKey;
+
+    private static final long EXPIRE_MILLIS = Duration.ofMinutes(5).toMillis();
+    private static final String NONCE_KEY_PREFIX = "feign:nonce:";
+
+    @Override
+    protected void doFilterInternal(@Nonnull HttpServletRequest request,
+                                    @Nonnull HttpServletResponse response,
+                                    @Nonnull FilterChain filterChain) throws ServletException, IOException {
+        String signature = request.getHeader(InternalRequestSignature.HEADER_SIGNATURE);
+        if (StringUtils.hasText(signature) && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String appId = request.getHeader(InternalRequestSignature.HEADER_APP_ID);
+            if (verify(request, signature, appId)) {
+                SecurityContextHolder.getContext().setAuthentication(new InternalServiceAuthentication(appId));
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private boolean verify(HttpServletRequest request, String signature, String appId) {
+        if (InternalRequestSignature.DEFAULT_SECRET_KEY.equals(secretKey)) {
+            log.warn("Internal request signature ignored: security.feign.secret-key is not configured");
+            return false;
+        }
+        String timestamp = request.getHeader(InternalRequestSignature.HEADER_TIMESTAMP);
+        String nonce = request.getHeader(InternalRequestSignature.HEADER_NONCE);
+        if (!StringUtils.hasText(appId) || !StringUtils.hasText(timestamp) || !StringUtils.hasText(nonce)) {
+            return false;
+        }
+        try {
+            if (Math.abs(System.currentTimeMillis() - Long.parseLong(timestamp)) > EXPIRE_MILLIS) {
+                log.warn("Internal request signature expired: appId={}, uri={}", appId, request.getRequestURI());
+                return false;
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        String expected = InternalRequestSignature.sign(secretKey, timestamp, nonce, appId,
+                request.getRequestURI(), InternalRequestSignature.parseQuery(request.getQueryString()));
+        if (!MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                signature.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("Internal request signature mismatch: appId={}, uri={}", appId, request.getRequestURI());
+            return false;
+        }
+        try {
+            Boolean first = redisTemplate.opsForValue()
+                    .setIfAbsent(NONCE_KEY_PREFIX + appId + ":" + nonce, "1", Duration.ofMillis(EXPIRE_MILLIS));
+            if (!Boolean.TRUE.equals(first)) {
+                log.warn("Internal request nonce replayed: appId={}, uri={}", appId, request.getRequestURI());
+                return false;
+            }
+        } catch (Exception e) {
+            log.warn("Internal request nonce check failed: {}", e.getMessage());
+            return false;
+        }
+        return true;
+    }
+}
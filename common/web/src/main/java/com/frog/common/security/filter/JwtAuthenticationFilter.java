@@ -73,6 +73,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                             .userId(userId)
                             .username(username)
                             .permissions(permissions)
+                            .permissionBits(jwtUtils.getPermissionBitsFromToken(token))
                             .roles(roles)
                             .build();
 
@@ -0,0 +1,63 @@
+package com.frog.common.security.internal;
+
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.crypto.digest.HmacAlgorithm;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 服务间请求签名
+ * Feign调用方（FeignRequestSignatureInterceptor）签名、被调用方（InternalServiceAuthenticationFilter）校验共用同一算法：
+ * HMAC-SHA256(timestamp + nonce + appId + 请求路径 + 按名称排序的查询参数)
+ * - 请求路径为完整路径（含@FeignClient的path前缀），与被调用方看到的URI一致
+ * - 查询参数取每个名称的第一个值，值保持请求行中的编码形式，两端不需要各自解码/编码
+ *
+ * @author Deng
+ * createData 2025/12/5 10:20
+ * @version 1.0
+ */
+public final class InternalRequestSignature {
+    public static final String HEADER_TIMESTAMP = "X-Timestamp";
+    public static final String HEADER_NONCE = "X-Nonce";
+    public static final String HEADER_SIGNATURE = "X-Signature";
+    public static final String HEADER_APP_ID = "X-App-Id";
+
+    /** 配置未修改时的默认密钥，使用它的签名不可信，被调用方不据此认证 */
+    public static final String DEFAULT_SECRET_KEY = "your-internal-secret-key";
+
+    private InternalRequestSignature() {
+    }
+
+    public static String sign(String secretKey, String timestamp, String nonce, String appId,
+                              String path, Map<String, String> queries) {
+        String sortedParams = queries.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> e.getKey() + "=" + e.getValue())
+                .collect(Collectors.joining("&"));
+        String signContent = timestamp + nonce + appId + path + sortedParams;
+        return SecureUtil.hmac(HmacAlgorithm.HmacSHA256, secretKey).digestHex(signContent);
+    }
+
+    /**
+     * 解析原始查询串：名称解码、值保持编码形式，同名参数取第一个
+     */
+    public static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> queries = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return queries;
+        }
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq >= 0 ? pair.substring(0, eq) : pair, StandardCharsets.UTF_8);
+            queries.putIfAbsent(name, eq >= 0 ? pair.substring(eq + 1) : "");
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,34 @@
+package com.frog.common.security.internal;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+
+import java.util.List;
+
+/**
+ * 通过服务间签名认证的调用方
+ * 不携带任何权限或角色：服务间接口按认证类型放行（见{@link InternalServiceGuard}），
+ * 不会与用户令牌中的权限、角色编码混淆
+ *
+ * @author Deng
+ * createData 2025/12/5 10:30
+ * @version 1.0
+ */
+public class InternalServiceAuthentication extends AbstractAuthenticationToken {
+    private final String appId;
+
+    public InternalServiceAuthentication(String appId) {
+        super(List.of());
+        this.appId = appId;
+        setAuthenticated(true);
+    }
+
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return appId;
+    }
+}
@@ -0,0 +1,21 @@
+package com.frog.common.security.internal;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+/**
+ * 服务间接口的访问判断，用法：@PreAuthorize("@internalServiceGuard.isInternalCall()")
+ *
+ * @author Deng
+ * createData 2025/12/5 10:35
+ * @version 1.0
+ */
+@Component("internalServiceGuard")
+public class InternalServiceGuard {
+
+    public boolean isInternalCall() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication instanceof InternalServiceAuthentication && authentication.isAuthenticated();
+    }
+}
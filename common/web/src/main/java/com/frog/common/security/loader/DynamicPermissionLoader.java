@@ -14,12 +14,17 @@ import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 动态权限加载服务
  * 支持权限热更新，无需重启应用
+ * 映射以不可变快照（{@link PermissionSnapshot}）通过单个volatile引用发布：读无锁，刷新时整体替换，
+ * 请求线程不会看到清空或写了一半的映射；规则数异常缩水的加载不发布，可回滚到上一快照
+ * 定时刷新按sys_permission.revision增量同步：只拉取上次同步之后变更的行，无变更时只有一次空查询，
+ * 只在权限编码可见性变化时清理用户权限相关缓存；每隔若干周期全量对账一次，兜底物理删除与提交顺序造成的遗漏
  *
  * @author Deng
  * createData 2025/11/7 10:18
@@ -33,13 +38,44 @@ public class DynamicPermissionLoader {
     private final CacheManager cacheManager;
     private final ApplicationEventPublisher eventPublisher;
     private final MultiLevelCache multiLevelCache;
+    private final PermissionLoaderProperties loaderProperties;
 
-    // 内存缓存：URL -> 所需权限列表
-    private final Map<String, Set<String>> urlPermissionCache = new ConcurrentHashMap<>();
+    // 当前生效的权限快照（映射 + 路由索引），刷新时整体替换
+    private volatile PermissionSnapshot snapshot = PermissionSnapshot.EMPTY;
 
-    // 权限版本号（用于检测变更）
+    // 上一个快照，用于回滚
+    private volatile PermissionSnapshot previousSnapshot;
+
+    // 权限版本号（用于检测变更），每次发布快照递增
     private final AtomicLong permissionVersion = new AtomicLong(0L);
 
+    // 因规则数异常缩水而拒绝发布的加载次数
+    private final LongAdder rejectedLoads = new LongAdder();
+
+    // 增量同步状态（仅在synchronized内修改）：权限ID -> 该行贡献的映射，已同步到的revision，-1表示需要全量同步
+    private final Map<String, ApiRule> rulesById = new HashMap<>();
+    private volatile long syncedRevision = -1L;
+    private int cyclesSinceFullSync;
+
+    private final LongAdder deltaSyncs = new LongAdder();
+    private final LongAdder deltaRows = new LongAdder();
+    private final LongAdder fullSyncs = new LongAdder();
+
+    // 推送触发的同步：同一时刻只有一个在执行，执行期间到达的通知合并为结束后的一次补充同步
+    private final AtomicBoolean syncRunning = new AtomicBoolean(false);
+    private volatile boolean syncRequested;
+    private final LongAdder pushSyncs = new LongAdder();
+
+    // 权限编码可见性变化（新增、删除、停用、改编码）时需要清理的缓存；仅URL变化不影响用户权限集合
+    private static final String[] PERMISSION_CODE_CACHES = {
+            "userPermissions", "permissionTree", "rolePermissions", "userInfo"
+    };
+
+    /**
+     * 单行API权限贡献的映射
+     */
+    private record ApiRule(String key, String permissionCode) {}
+
     private static final String PERM_MAPPING_CACHE_KEY = "dynamic:permission:mapping";
     private static final Duration PERM_MAPPING_TTL = Duration.ofMinutes(5);
 
@@ -49,17 +85,10 @@ public class DynamicPermissionLoader {
             @SuppressWarnings("unchecked")
             Map<String, Set<String>> cached = multiLevelCache.get(PERM_MAPPING_CACHE_KEY, Map.class);
             if (cached != null && !cached.isEmpty()) {
-                urlPermissionCache.clear();
-                Map<String, Set<String>> normalized = new HashMap<>();
-                for (Map.Entry<String, Set<String>> e : cached.entrySet()) {
-                    normalized.put(e.getKey(), new HashSet<>(e.getValue()));
-                }
-                urlPermissionCache.putAll(normalized);
-                
-                // 初始化版本号
-                permissionVersion.set(1L);
-                log.info("Initialized dynamic permission cache from MultiLevelCache, size={}",
-                        urlPermissionCache.size());
+                // 反序列化后的集合类型不确定，快照构建时统一复制
+                PermissionSnapshot restored = publish(cached, PermissionSnapshot.Source.CACHE);
+                log.info("Initialized dynamic permission cache from MultiLevelCache, size={}, version={}",
+                        restored.size(), restored.getVersion());
             }
         } catch (Exception e) {
             log.warn("Init from MultiLevelCache failed", e);
@@ -70,6 +99,13 @@ public class DynamicPermissionLoader {
      * 初始化加载权限配置
      */
     public void loadPermissions() {
+        fullLoad();
+    }
+
+    /**
+     * 全量加载，返回映射是否发生变化
+     */
+    private boolean fullLoad() {
         log.info("Loading dynamic permissions...");
 
         try {
@@ -78,6 +114,9 @@ public class DynamicPermissionLoader {
                     .findApiPermissions();
 
             Map<String, Set<String>> newCache = new HashMap<>();
+            Map<String, ApiRule> newRules = new HashMap<>();
+            long maxRevision = 0L;
+            boolean trackable = true;
 
             for (Map<String, Object> perm : apiPermissions) {
                 String apiPath = (String) perm.get("api_path");
@@ -85,200 +124,295 @@ public class DynamicPermissionLoader {
                 String permissionCode = (String) perm.get("permission_code");
 
                 if (apiPath != null && permissionCode != null) {
-                    String key = buildKey(httpMethod, apiPath);
+                    String key = PermissionSnapshot.key(httpMethod, apiPath);
                     newCache.computeIfAbsent(key, k -> new HashSet<>())
                             .add(permissionCode);
+                    Object id = perm.get("id");
+                    if (id != null && perm.get("revision") instanceof Number revision) {
+                        newRules.put(id.toString(), new ApiRule(key, permissionCode));
+                        maxRevision = Math.max(maxRevision, revision.longValue());
+                    } else {
+                        // 权限服务未返回id/revision：无法增量同步，保持每周期全量
+                        trackable = false;
+                    }
                 }
             }
 
-            // 原子性替换缓存
-            urlPermissionCache.clear();
-            urlPermissionCache.putAll(newCache);
+            if (isSuspiciousShrink(newCache.size())) {
+                rejectedLoads.increment();
+                log.error("Rejected permission load: {} mappings vs {} in current version {}, keeping current snapshot",
+                        newCache.size(), snapshot.size(), snapshot.getVersion());
+                return false;
+            }
+            boolean changed = !newCache.equals(snapshot.getMappings());
+
+            // 构建新快照后一次性替换引用
+            PermissionSnapshot loaded;
+            synchronized (this) {
+                loaded = publish(newCache, PermissionSnapshot.Source.LOAD);
+                rulesById.clear();
+                rulesById.putAll(newRules);
+                syncedRevision = trackable ? maxRevision : -1L;
+                cyclesSinceFullSync = 0;
+            }
+            fullSyncs.increment();
 
             // 持久化到多级缓存（供多实例共享，冷启动加速）
             multiLevelCache.set(PERM_MAPPING_CACHE_KEY, newCache, PERM_MAPPING_TTL);
 
-            permissionVersion.incrementAndGet();
-
             log.info("Loaded {} API permission mappings, version: {}",
-                    newCache.size(), permissionVersion.get());
+                    loaded.size(), loaded.getVersion());
 
             // 发布权限更新事件
-            eventPublisher.publishEvent(new PermissionRefreshEvent(this, permissionVersion.get()));
+            eventPublisher.publishEvent(new PermissionRefreshEvent(this, loaded.getVersion()));
+            return changed;
 
         } catch (Exception e) {
             log.error("Failed to load permissions", e);
+            return false;
         }
     }
 
     /**
-     * 定时刷新权限（每5分钟）
+     * 回滚到上一个快照（以新版本号重新发布），没有可回滚的快照时返回false
      */
-    @Scheduled(fixedRate = 300000)
-    public void scheduleRefresh() {
-        log.debug("Scheduled permission refresh triggered");
-        loadPermissions();
+    public synchronized boolean rollback() {
+        PermissionSnapshot target = previousSnapshot;
+        if (target == null) {
+            return false;
+        }
+        PermissionSnapshot rolledBack = swap(target.republish(permissionVersion.incrementAndGet(),
+                PermissionSnapshot.Source.ROLLBACK));
+        // 回滚后的映射与增量同步状态不再对应，下个周期重新全量同步（异常缩水的数据仍会被拒绝）
+        syncedRevision = -1L;
+        multiLevelCache.set(PERM_MAPPING_CACHE_KEY, new HashMap<>(rolledBack.getMappings()), PERM_MAPPING_TTL);
+        log.warn("Rolled back permission mappings to the rules of version {}, new version: {}",
+                target.getVersion(), rolledBack.getVersion());
+        eventPublisher.publishEvent(new PermissionRefreshEvent(this, rolledBack.getVersion()));
         clearRelatedCaches();
+        return true;
     }
 
     /**
-     * 手动刷新权限
+     * 更新单条URL的权限要求（写时复制，发布新版本快照）
+     * 属于本节点的临时覆盖，下一次从权限服务同步时以数据库为准
      */
-    public void manualRefresh() {
-        log.info("Manual permission refresh triggered");
-        loadPermissions();
-        clearRelatedCaches();
+    public synchronized void refreshUrlPermission(String method, String path, Set<String> permissions) {
+        Map<String, Set<String>> updated = new HashMap<>(snapshot.getMappings());
+        updated.put(PermissionSnapshot.key(method, path), permissions);
+        PermissionSnapshot next = publish(updated, PermissionSnapshot.Source.LOAD);
+        eventPublisher.publishEvent(new PermissionRefreshEvent(this, next.getVersion()));
     }
 
     /**
-     * 检查URL是否需要权限
+     * 删除单条URL的权限要求（写时复制，发布新版本快照）
+     * 属于本节点的临时覆盖，下一次从权限服务同步时以数据库为准
      */
-    public boolean requiresPermission(String method, String url) {
-        String key = buildKey(method, url);
-        return urlPermissionCache.containsKey(key);
+    public synchronized void removeUrlPermission(String method, String path) {
+        String key = PermissionSnapshot.key(method, path);
+        if (!snapshot.getMappings().containsKey(key)) {
+            return;
+        }
+        Map<String, Set<String>> updated = new HashMap<>(snapshot.getMappings());
+        updated.remove(key);
+        PermissionSnapshot next = publish(updated, PermissionSnapshot.Source.LOAD);
+        eventPublisher.publishEvent(new PermissionRefreshEvent(this, next.getVersion()));
     }
 
     /**
-     * 获取URL所需的权限
+     * 定时刷新权限（每5分钟）：已同步过时按revision增量同步，否则全量加载
      */
-    public Set<String> getRequiredPermissions(String method, String url) {
-        String key = buildKey(method, url);
-        Set<String> permissions = urlPermissionCache.get(key);
-
-        // 如果没有精确匹配，尝试通配符匹配
-        if (permissions == null || permissions.isEmpty()) {
-            permissions = matchWildcardPermissions(method, url);
+    @Scheduled(fixedRate = 300000)
+    public void scheduleRefresh() {
+        log.debug("Scheduled permission refresh triggered");
+        if (syncedRevision < 0) {
+            loadPermissions();
+            clearRelatedCaches();
+            return;
         }
-
-        return permissions != null ? permissions : Collections.emptySet();
+        if (++cyclesSinceFullSync >= loaderProperties.getFullSyncEveryCycles()) {
+            // 定期对账：映射没有变化时不清理缓存
+            if (fullLoad()) {
+                clearCaches(PERMISSION_CODE_CACHES);
+            }
+            return;
+        }
+        syncChanges();
     }
 
     /**
-     * 通配符匹配
-     * 支持路径参数: /api/users/{id} 匹配 /api/users/123
+     * 收到权限变更通知时立即同步（见{@link PermissionChangeNotifier}），不等待下一个定时周期
      */
-    private Set<String> matchWildcardPermissions(String method, String url) {
-        for (Map.Entry<String, Set<String>> entry : urlPermissionCache.entrySet()) {
-            String pattern = entry.getKey();
-
-            if (matchesPattern(pattern, method, url)) {
-                return entry.getValue();
+    public void requestSync() {
+        syncRequested = true;
+        while (syncRequested && syncRunning.compareAndSet(false, true)) {
+            try {
+                syncRequested = false;
+                pushSyncs.increment();
+                if (syncedRevision < 0) {
+                    loadPermissions();
+                    clearRelatedCaches();
+                } else {
+                    syncChanges();
+                }
+            } finally {
+                syncRunning.set(false);
             }
         }
-        return null;
     }
 
     /**
-     * 模式匹配
+     * 增量同步：拉取syncedRevision之后变更的行，应用到映射后发布新快照
      */
-    private boolean matchesPattern(String pattern, String method, String url) {
-        // 提取方法和路径
-        String[] patternParts = pattern.split(":", 2);
-        if (patternParts.length != 2) {
-            return false;
+    private void syncChanges() {
+        long since = syncedRevision;
+        int limit = loaderProperties.getDeltaBatchLimit();
+        List<Map<String, Object>> changes;
+        try {
+            changes = permissionServiceClient.findApiPermissionChanges(since, limit);
+        } catch (Exception e) {
+            log.warn("Fetch permission changes failed, sinceRevision={}: {}", since, e.getMessage());
+            return;
         }
-
-        String patternMethod = patternParts[0];
-        String patternPath = patternParts[1];
-
-        // 方法匹配（* 表示所有方法）
-        if (!"*".equals(patternMethod) && !method.equals(patternMethod)) {
-            return false;
+        if (changes == null || changes.isEmpty()) {
+            // 权限服务不可用或没有变更：保留当前快照，不清理任何缓存
+            return;
+        }
+        if (changes.size() >= limit) {
+            log.info("{}+ permission changes since revision {}, falling back to full load", limit, since);
+            if (fullLoad()) {
+                clearCaches(PERMISSION_CODE_CACHES);
+            }
+            return;
         }
 
-        // 路径匹配
-        return matchesPath(patternPath, url);
+        PermissionSnapshot updated;
+        boolean codesChanged = false;
+        synchronized (this) {
+            if (syncedRevision != since) {
+                // 期间发生了全量加载或回滚
+                return;
+            }
+            long maxRevision = since;
+            for (Map<String, Object> row : changes) {
+                Object id = row.get("id");
+                if (id == null) {
+                    continue;
+                }
+                ApiRule next = toActiveRule(row);
+                ApiRule previous = next != null ? rulesById.put(id.toString(), next) : rulesById.remove(id.toString());
+                String previousCode = previous != null ? previous.permissionCode() : null;
+                String nextCode = next != null ? next.permissionCode() : null;
+                codesChanged |= !Objects.equals(previousCode, nextCode);
+                if (row.get("revision") instanceof Number revision) {
+                    maxRevision = Math.max(maxRevision, revision.longValue());
+                }
+            }
+            updated = publish(toMappings(rulesById), PermissionSnapshot.Source.LOAD);
+            syncedRevision = maxRevision;
+        }
+        deltaSyncs.increment();
+        deltaRows.add(changes.size());
+
+        multiLevelCache.set(PERM_MAPPING_CACHE_KEY, new HashMap<>(updated.getMappings()), PERM_MAPPING_TTL);
+        log.info("Applied {} permission changes up to revision {}, version: {}",
+                changes.size(), syncedRevision, updated.getVersion());
+        eventPublisher.publishEvent(new PermissionRefreshEvent(this, updated.getVersion()));
+        if (codesChanged) {
+            clearCaches(PERMISSION_CODE_CACHES);
+        }
     }
 
     /**
-     * 路径匹配算法
-     * 支持: /api/users/{id}, /api/users/*, /api/**
+     * 变更行对应的生效映射；停用、删除、非API类型或缺少路径/编码的行返回null（移除映射）
      */
-    private boolean matchesPath(String pattern, String path) {
-        // 分割路径段
-        String[] patternSegments = pattern.split("/");
-        String[] pathSegments = path.split("/");
-
-        // ** 通配符：匹配任意层级
-        if (pattern.contains("**")) {
-            return matchesDeepWildcard(patternSegments, pathSegments);
-        }
-
-        // 长度不匹配
-        if (patternSegments.length != pathSegments.length) {
-            return false;
+    private static ApiRule toActiveRule(Map<String, Object> row) {
+        String apiPath = (String) row.get("api_path");
+        String permissionCode = (String) row.get("permission_code");
+        if (apiPath == null || permissionCode == null
+                || !isValue(row.get("permission_type"), 4)
+                || !isValue(row.get("status"), 1)
+                || !isValue(row.get("deleted"), 0)) {
+            return null;
         }
+        return new ApiRule(PermissionSnapshot.key((String) row.get("http_method"), apiPath), permissionCode);
+    }
 
-        // 逐段匹配
-        for (int i = 0; i < patternSegments.length; i++) {
-            String patternSeg = patternSegments[i];
-            String pathSeg = pathSegments[i];
-
-            // {xxx} 路径参数
-            if (patternSeg.startsWith("{") && patternSeg.endsWith("}")) {
-                continue;
-            }
-
-            // * 单层通配符
-            if ("*".equals(patternSeg)) {
-                continue;
-            }
+    private static boolean isValue(Object column, int expected) {
+        return column instanceof Number n && n.intValue() == expected;
+    }
 
-            // 精确匹配
-            if (!patternSeg.equals(pathSeg)) {
-                return false;
-            }
+    private static Map<String, Set<String>> toMappings(Map<String, ApiRule> rules) {
+        Map<String, Set<String>> mappings = new HashMap<>();
+        for (ApiRule rule : rules.values()) {
+            mappings.computeIfAbsent(rule.key(), k -> new HashSet<>()).add(rule.permissionCode());
         }
+        return mappings;
+    }
 
-        return true;
+    /**
+     * 手动刷新权限
+     */
+    public void manualRefresh() {
+        log.info("Manual permission refresh triggered");
+        loadPermissions();
+        clearRelatedCaches();
     }
 
     /**
-     * 深度通配符匹配
+     * 检查URL是否需要权限
      */
-    private boolean matchesDeepWildcard(String[] patternSegments, String[] pathSegments) {
-        int patternIdx = 0;
-        int pathIdx = 0;
+    public boolean requiresPermission(String method, String url) {
+        return snapshot.containsExact(method, url);
+    }
 
-        while (patternIdx < patternSegments.length && pathIdx < pathSegments.length) {
-            String patternSeg = patternSegments[patternIdx];
+    /**
+     * 获取URL所需的权限
+     */
+    public Set<String> getRequiredPermissions(String method, String url) {
+        // 读取一次引用，精确匹配与路由索引落在同一版本
+        return snapshot.requiredPermissions(method, url);
+    }
 
-            if ("**".equals(patternSeg)) {
-                // ** 匹配剩余所有路径
-                return true;
-            }
+    /**
+     * 当前生效的权限快照
+     */
+    public PermissionSnapshot currentSnapshot() {
+        return snapshot;
+    }
 
-            if (patternSeg.equals(pathSegments[pathIdx]) ||
-                    "*".equals(patternSeg) ||
-                    (patternSeg.startsWith("{") && patternSeg.endsWith("}"))) {
-                patternIdx++;
-                pathIdx++;
-            } else {
-                return false;
-            }
+    private PermissionSnapshot publish(Map<String, ? extends Set<String>> mappings, PermissionSnapshot.Source source) {
+        synchronized (this) {
+            return swap(PermissionSnapshot.of(permissionVersion.incrementAndGet(), source, mappings));
         }
+    }
 
-        return patternIdx == patternSegments.length && pathIdx == pathSegments.length;
+    private PermissionSnapshot swap(PermissionSnapshot next) {
+        previousSnapshot = snapshot == PermissionSnapshot.EMPTY ? null : snapshot;
+        snapshot = next;
+        return next;
     }
 
     /**
-     * 构建缓存key
+     * 新规则数是否相对当前快照异常缩水（权限服务返回空或部分数据）
      */
-    private String buildKey(String method, String path) {
-        return (method != null ? method : "*") + ":" + path;
+    private boolean isSuspiciousShrink(int newSize) {
+        int currentSize = snapshot.size();
+        return currentSize >= loaderProperties.getGuardMinRules()
+                && newSize < currentSize * loaderProperties.getMinRetainRatio();
     }
 
     /**
      * 清理相关缓存
      */
     private void clearRelatedCaches() {
-        try {
-            // 清理权限相关的所有缓存
-            String[] cacheNames = {
-                    "userPermissions", "userRoles", "permissionTree",
-                    "rolePermissions", "userInfo"
-            };
+        // 清理权限相关的所有缓存
+        clearCaches("userPermissions", "userRoles", "permissionTree",
+                "rolePermissions", "userInfo");
+    }
 
+    private void clearCaches(String... cacheNames) {
+        try {
             for (String cacheName : cacheNames) {
                 var cache = cacheManager.getCache(cacheName);
                 if (cache != null) {
@@ -295,30 +429,44 @@ public class DynamicPermissionLoader {
      * 获取权限版本号
      */
     public long getPermissionVersion() {
-        return permissionVersion.get();
+        return snapshot.getVersion();
     }
 
     /**
-     * 获取缓存统计信息
+     * 已同步到的sys_permission.revision，尚未同步时为-1；各节点可比较
      */
-    public Map<String, Object> getCacheStats() {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("version", permissionVersion.get());
-        stats.put("cachedMappings", urlPermissionCache.size());
-        stats.put("memorySize", estimateMemorySize());
-        return stats;
+    public long getSyncedRevision() {
+        return syncedRevision;
+    }
+
+    public long rejectedLoadCount() {
+        return rejectedLoads.sum();
     }
 
     /**
-     * 估算内存占用
+     * 获取缓存统计信息（命中计数按当前版本统计）
      */
-    private long estimateMemorySize() {
-        long size = 0;
-        for (Map.Entry<String, Set<String>> entry : urlPermissionCache.entrySet()) {
-            size += entry.getKey().length() * 2L; // String占用
-            size += entry.getValue().size() * 50L; // Set元素估算
-        }
-        return size;
+    public Map<String, Object> getCacheStats() {
+        PermissionSnapshot current = snapshot;
+        PermissionSnapshot previous = previousSnapshot;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("version", current.getVersion());
+        stats.put("source", current.getSource().name());
+        stats.put("createdAt", current.getCreatedAtMillis());
+        stats.put("cachedMappings", current.size());
+        stats.put("compiledRoutes", current.compiledRoutes());
+        stats.put("exactHits", current.exactHitCount());
+        stats.put("routeHits", current.routeHitCount());
+        stats.put("misses", current.missCount());
+        stats.put("memorySize", current.estimateMemorySize());
+        stats.put("previousVersion", previous != null ? previous.getVersion() : null);
+        stats.put("rejectedLoads", rejectedLoads.sum());
+        stats.put("syncedRevision", syncedRevision);
+        stats.put("fullSyncs", fullSyncs.sum());
+        stats.put("deltaSyncs", deltaSyncs.sum());
+        stats.put("deltaRows", deltaRows.sum());
+        stats.put("pushSyncs", pushSyncs.sum());
+        return stats;
     }
 
     /**
@@ -0,0 +1,27 @@
+package com.frog.common.security.loader;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订阅权限变更通知，触发本节点权限映射的增量同步
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PermissionChangeListener implements MessageListener {
+    private final DynamicPermissionLoader permissionLoader;
+
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        try {
+            permissionLoader.requestSync();
+        } catch (Exception e) {
+            log.warn("Failed to sync permissions on change notification", e);
+        }
+    }
+}
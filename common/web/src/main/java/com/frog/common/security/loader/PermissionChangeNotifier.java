@@ -0,0 +1,51 @@
+package com.frog.common.security.loader;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * API权限变更通知
+ * 权限服务在sys_permission提交后广播一条通知，各节点的{@link DynamicPermissionLoader}收到后立即按revision增量同步，
+ * 不必等到下一个定时周期；通知只是"有变更"的信号，变更内容与版本仍以revision查询为准，丢失的通知由定时同步兜底
+ *
+ * @author Deng
+ * createData 2025/11/30 10:15
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PermissionChangeNotifier {
+    public static final String CHANNEL = "permission:route:changed";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 通知各节点同步权限映射；处于事务中时在提交后发送，避免节点在提交前拉取到旧数据
+     */
+    public void notifyChanged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish();
+                }
+            });
+        } else {
+            publish();
+        }
+    }
+
+    private void publish() {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, System.currentTimeMillis());
+        } catch (Exception e) {
+            // 通知失败不影响业务，由定时增量同步兜底
+            log.warn("Failed to publish permission change notification: {}", e.getMessage());
+        }
+    }
+}
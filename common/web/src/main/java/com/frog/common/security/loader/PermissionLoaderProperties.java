@@ -0,0 +1,25 @@
+package com.frog.common.security.loader;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 动态权限加载配置
+ */
+@Component
+@ConfigurationProperties(prefix = "frog.security.permission-loader")
+@Data
+public class PermissionLoaderProperties {
+    /** 新加载的规则数低于当前快照的该比例时视为异常（如权限服务返回了不完整的数据），拒绝发布并保留当前快照 */
+    private double minRetainRatio = 0.5;
+
+    /** 当前快照规则数不少于该值时才做缩量检查，规则很少时增删几条属于正常变化 */
+    private int guardMinRules = 50;
+
+    /** 增量同步单次拉取的最大变更行数，达到该值时改为全量加载 */
+    private int deltaBatchLimit = 1000;
+
+    /** 每隔多少个定时刷新周期做一次全量对账（物理删除、并发事务提交顺序导致的遗漏由此兜底） */
+    private int fullSyncEveryCycles = 12;
+}
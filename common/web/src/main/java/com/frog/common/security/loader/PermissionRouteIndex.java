@@ -0,0 +1,242 @@
+package com.frog.common.security.loader;
+
+import java.util.*;
+
+/**
+ * 编译后的路由权限索引
+ * 每个HTTP方法一棵按路径段组织的前缀树，边分为三类：字面量、单段参数（{id} 与 * 等价）、多段通配（**）
+ * 匹配顺序固定为 字面量 > 单段参数 > 多段通配，逐段回溯，第一个完整匹配即最具体的路由；
+ * 方法精确的路由优先于方法为 * 的路由。每次权限刷新时整体重建，构建后只读，可无锁并发查询
+ * 查询按下标扫描请求路径，字面量子节点用有序数组二分查找并直接比较字符区间，不切分字符串也不分配对象
+ * 每个终点保存一个{@link Route}（规则 + 所需权限），需要知道命中了哪条规则时使用{@link #matchRoute}
+ *
+ * @author Deng
+ * createData 2025/11/28 09:30
+ * @version 1.0
+ */
+public final class PermissionRouteIndex {
+    public static final PermissionRouteIndex EMPTY = new PermissionRouteIndex(Map.of(), null, 0);
+
+    private static final String ANY_METHOD = "*";
+    private static final String DEEP_WILDCARD = "**";
+
+    private final Map<String, Node> rootsByMethod;
+    private final Node anyMethodRoot;
+    private final int size;
+
+    private PermissionRouteIndex(Map<String, Node> rootsByMethod, Node anyMethodRoot, int size) {
+        this.rootsByMethod = rootsByMethod;
+        this.anyMethodRoot = anyMethodRoot;
+        this.size = size;
+    }
+
+    /**
+     * 编译映射
+     *
+     * @param mappings key为"方法:路径"（方法为*表示任意方法），value为所需权限
+     */
+    public static PermissionRouteIndex compile(Map<String, Set<String>> mappings) {
+        Map<String, Builder> builders = new HashMap<>();
+        int size = 0;
+        for (Map.Entry<String, Set<String>> e : mappings.entrySet()) {
+            String key = e.getKey();
+            int sep = key.indexOf(':');
+            if (sep < 0 || e.getValue() == null || e.getValue().isEmpty()) {
+                continue;
+            }
+            builders.computeIfAbsent(key.substring(0, sep), m -> new Builder())
+                    .insert(key, key.substring(sep + 1), e.getValue());
+            size++;
+        }
+        Map<String, Node> roots = new HashMap<>();
+        builders.forEach((method, builder) -> roots.put(method, builder.build()));
+        Node anyRoot = roots.remove(ANY_METHOD);
+        return new PermissionRouteIndex(Map.copyOf(roots), anyRoot, size);
+    }
+
+    /**
+     * 路由终点：命中的规则（"方法:路径模式"，等价模式合并时取字典序最小者）与所需权限
+     */
+    public record Route(String rule, Set<String> permissions) {}
+
+    /**
+     * 查找请求所需权限，未匹配返回null
+     */
+    public Set<String> match(String method, String path) {
+        Route route = matchRoute(method, path);
+        return route != null ? route.permissions() : null;
+    }
+
+    /**
+     * 查找请求命中的路由，未匹配返回null
+     */
+    public Route matchRoute(String method, String path) {
+        if (path == null) {
+            return null;
+        }
+        int end = effectiveEnd(path);
+        Node root = method != null ? rootsByMethod.get(method) : null;
+        if (root != null) {
+            Route found = match(root, path, 0, end);
+            if (found != null) {
+                return found;
+            }
+        }
+        return anyMethodRoot != null ? match(anyMethodRoot, path, 0, end) : null;
+    }
+
+    /**
+     * 已编译的路由数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param pos 当前段起始下标；pos > end 表示路径段已全部消费
+     */
+    private static Route match(Node node, String path, int pos, int end) {
+        if (pos > end) {
+            return node.route;
+        }
+        int segEnd = path.indexOf('/', pos);
+        if (segEnd < 0 || segEnd > end) {
+            segEnd = end;
+        }
+        int next = segEnd + 1;
+
+        Node literal = node.literal(path, pos, segEnd);
+        if (literal != null) {
+            Route found = match(literal, path, next, end);
+            if (found != null) {
+                return found;
+            }
+        }
+        if (node.param != null) {
+            Route found = match(node.param, path, next, end);
+            if (found != null) {
+                return found;
+            }
+        }
+        // ** 匹配剩余的一个或多个段
+        return node.deepWildcard;
+    }
+
+    /**
+     * 与String.split("/")一致：去掉末尾的空段；仅由"/"组成的路径没有任何段
+     */
+    private static int effectiveEnd(String path) {
+        int end = path.length();
+        while (end > 0 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return end == 0 && !path.isEmpty() ? -1 : end;
+    }
+
+    private static final class Node {
+        // 按字典序排列，与literalNodes一一对应
+        private final String[] literalKeys;
+        private final Node[] literalNodes;
+        private final Node param;
+        private final Route deepWildcard;
+        private final Route route;
+
+        private Node(String[] literalKeys, Node[] literalNodes, Node param,
+                     Route deepWildcard, Route route) {
+            this.literalKeys = literalKeys;
+            this.literalNodes = literalNodes;
+            this.param = param;
+            this.deepWildcard = deepWildcard;
+            this.route = route;
+        }
+
+        private Node literal(String path, int from, int to) {
+            int low = 0;
+            int high = literalKeys.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(literalKeys[mid], path, from, to);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return literalNodes[mid];
+                }
+            }
+            return null;
+        }
+
+        private static int compare(String key, String path, int from, int to) {
+            int len = to - from;
+            int n = Math.min(key.length(), len);
+            for (int i = 0; i < n; i++) {
+                int diff = key.charAt(i) - path.charAt(from + i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return key.length() - len;
+        }
+    }
+
+    /**
+     * 构建期的可变节点
+     */
+    private static final class Builder {
+        private final TreeMap<String, Builder> literals = new TreeMap<>();
+        private Builder param;
+        private Route deepWildcard;
+        private Route route;
+
+        void insert(String rule, String pattern, Set<String> required) {
+            Builder node = this;
+            int end = effectiveEnd(pattern);
+            int pos = 0;
+            while (pos <= end) {
+                int segEnd = pattern.indexOf('/', pos);
+                if (segEnd < 0 || segEnd > end) {
+                    segEnd = end;
+                }
+                String segment = pattern.substring(pos, segEnd);
+                if (segment.contains(DEEP_WILDCARD)) {
+                    // ** 之后的段不参与匹配（与原有的逐条匹配语义一致）
+                    node.deepWildcard = merge(node.deepWildcard, rule, required);
+                    return;
+                }
+                if ("*".equals(segment) || (segment.startsWith("{") && segment.endsWith("}"))) {
+                    if (node.param == null) {
+                        node.param = new Builder();
+                    }
+                    node = node.param;
+                } else {
+                    node = node.literals.computeIfAbsent(segment, s -> new Builder());
+                }
+                pos = segEnd + 1;
+            }
+            node.route = merge(node.route, rule, required);
+        }
+
+        Node build() {
+            String[] keys = literals.keySet().toArray(new String[0]);
+            Node[] nodes = new Node[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                nodes[i] = literals.get(keys[i]).build();
+            }
+            return new Node(keys, nodes, param != null ? param.build() : null, deepWildcard, route);
+        }
+
+        /**
+         * 同一位置的多条路由（如 {id} 与 {userId}）合并所需权限
+         */
+        private static Route merge(Route current, String rule, Set<String> required) {
+            if (current == null) {
+                return new Route(rule, Collections.unmodifiableSet(new HashSet<>(required)));
+            }
+            Set<String> merged = new HashSet<>(current.permissions());
+            merged.addAll(required);
+            String canonical = current.rule().compareTo(rule) <= 0 ? current.rule() : rule;
+            return new Route(canonical, Collections.unmodifiableSet(merged));
+        }
+    }
+}
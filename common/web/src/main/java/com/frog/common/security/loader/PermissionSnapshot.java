@@ -0,0 +1,167 @@
+package com.frog.common.security.loader;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 不可变的权限映射快照
+ * 精确映射与编译后的路由索引属于同一版本，一次构建后只读，由加载器通过单个volatile引用整体发布；
+ * 请求线程读取一次引用后全部查询都落在同一版本上，不会看到清空或写了一半的映射
+ * 命中计数按版本独立累计，用于对比刷新前后的匹配分布
+ *
+ * @author Deng
+ * createData 2025/11/28 14:10
+ * @version 1.0
+ */
+public final class PermissionSnapshot {
+    public static final PermissionSnapshot EMPTY = new PermissionSnapshot(0L, Source.EMPTY, Map.of(),
+            PermissionRouteIndex.EMPTY);
+
+    public enum Source {
+        /** 尚未加载 */
+        EMPTY,
+        /** 启动时从多级缓存恢复 */
+        CACHE,
+        /** 从权限服务加载 */
+        LOAD,
+        /** 回滚到上一版本 */
+        ROLLBACK
+    }
+
+    private final long version;
+    private final Source source;
+    private final long createdAtMillis = System.currentTimeMillis();
+    private final Map<String, Set<String>> mappings;
+    private final PermissionRouteIndex routeIndex;
+
+    private final LongAdder exactHits = new LongAdder();
+    private final LongAdder routeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private PermissionSnapshot(long version, Source source, Map<String, Set<String>> mappings,
+                               PermissionRouteIndex routeIndex) {
+        this.version = version;
+        this.source = source;
+        this.mappings = mappings;
+        this.routeIndex = routeIndex;
+    }
+
+    /**
+     * 构建快照：复制映射（调用方之后的修改不影响快照）并编译路由索引
+     *
+     * @param mappings key为"方法:路径"，value为所需权限
+     */
+    public static PermissionSnapshot of(long version, Source source, Map<String, ? extends Set<String>> mappings) {
+        Map<String, Set<String>> copy = new HashMap<>(mappings.size() * 2);
+        mappings.forEach((key, perms) -> copy.put(key, Collections.unmodifiableSet(new HashSet<>(perms))));
+        Map<String, Set<String>> frozen = Collections.unmodifiableMap(copy);
+        return new PermissionSnapshot(version, source, frozen, PermissionRouteIndex.compile(frozen));
+    }
+
+    /**
+     * 以新版本号重新发布同一份映射（回滚），共享映射与索引，计数从零开始
+     */
+    public PermissionSnapshot republish(long newVersion, Source newSource) {
+        return new PermissionSnapshot(newVersion, newSource, mappings, routeIndex);
+    }
+
+    /**
+     * 映射key："方法:路径"，方法为空时为"*"
+     */
+    public static String key(String method, String path) {
+        return (method != null ? method : "*") + ":" + path;
+    }
+
+    /**
+     * 所需权限：先精确匹配，再查路由索引（{id}、*、**）；未配置返回空集合
+     */
+    public Set<String> requiredPermissions(String method, String url) {
+        Set<String> permissions = mappings.get(key(method, url));
+        if (permissions != null && !permissions.isEmpty()) {
+            exactHits.increment();
+            return permissions;
+        }
+        permissions = routeIndex.match(method, url);
+        if (permissions != null) {
+            routeHits.increment();
+            return permissions;
+        }
+        misses.increment();
+        return Collections.emptySet();
+    }
+
+    /**
+     * 命中的规则与所需权限，匹配顺序与{@link #requiredPermissions}相同；未配置返回null
+     */
+    public PermissionRouteIndex.Route matchRoute(String method, String url) {
+        String key = key(method, url);
+        Set<String> permissions = mappings.get(key);
+        if (permissions != null && !permissions.isEmpty()) {
+            exactHits.increment();
+            return new PermissionRouteIndex.Route(key, permissions);
+        }
+        PermissionRouteIndex.Route route = routeIndex.matchRoute(method, url);
+        if (route != null) {
+            routeHits.increment();
+            return route;
+        }
+        misses.increment();
+        return null;
+    }
+
+    public boolean containsExact(String method, String url) {
+        return mappings.containsKey(key(method, url));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public Map<String, Set<String>> getMappings() {
+        return mappings;
+    }
+
+    public int size() {
+        return mappings.size();
+    }
+
+    public int compiledRoutes() {
+        return routeIndex.size();
+    }
+
+    public long exactHitCount() {
+        return exactHits.sum();
+    }
+
+    public long routeHitCount() {
+        return routeHits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 估算内存占用
+     */
+    public long estimateMemorySize() {
+        long size = 0;
+        for (Map.Entry<String, Set<String>> entry : mappings.entrySet()) {
+            size += entry.getKey().length() * 2L; // String占用
+            size += entry.getValue().size() * 50L; // Set元素估算
+        }
+        return size;
+    }
+}
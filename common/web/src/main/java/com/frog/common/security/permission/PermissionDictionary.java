@@ -0,0 +1,324 @@
+package com.frog.common.security.permission;
+
+import com.frog.common.web.domain.PermissionBitSet;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 集群级权限字典
+ * 把权限编码映射为非负int ID，供PermissionBitSet编码使用
+ * - 数据源为持久化的{@link PermissionDictionaryStore}（ID只追加、永不复用），Redis中只保存其镜像；
+ *   不持有存储的服务只能读取镜像，遇到未登记的编码时编码失败，调用方继续使用字符串集合
+ * - 字典带纪元：存储重建后纪元改变，旧纪元编码的位集与令牌一律不可解码，
+ *   校验回退到字符串集合或按无权限处理，不会把旧ID解释成新编码
+ * - 本地持有不可变快照，经volatile引用整体替换；同一纪元内只合并不删除，
+ *   查询不访问Redis，只有遇到新编码（分配）或位集含本地未知的ID（加载）时才访问
+ *
+ * @author Deng
+ * createData 2025/11/29 10:45
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PermissionDictionary {
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ObjectProvider<PermissionDictionaryStore> storeProvider;
+
+    /** 镜像：编码→ID的hash，纪元存于保留字段（权限编码不含@） */
+    private static final String MIRROR_KEY = "perm:dict:mirror";
+    private static final String EPOCH_FIELD = "@epoch";
+    /** 重新加载的最小间隔，避免伪造或损坏的位集导致每次请求都访问Redis */
+    private static final long MIN_RELOAD_INTERVAL_MS = 1000L;
+
+    // Lua脚本：镜像纪元与存储不同时先整体清空，再写入编码与ID；与读取端的HGETALL互为原子
+    private static final DefaultRedisScript<Long> MIRROR = new DefaultRedisScript<>("""
+            local current = redis.call('hget', KEYS[1], '@epoch')
+            if current ~= ARGV[1] then
+                redis.call('del', KEYS[1])
+                redis.call('hset', KEYS[1], '@epoch', ARGV[1])
+            end
+            for i = 2, #ARGV, 2 do
+                redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            return 1
+            """, Long.class);
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile long lastReloadMillis;
+
+    /**
+     * 字典的不可变快照，codes[id]为对应的权限编码（空位为null），known为已知ID的位集（绑定纪元）
+     */
+    private record Snapshot(long epoch, Map<String, Integer> ids, String[] codes, PermissionBitSet known) {
+        static final Snapshot EMPTY = new Snapshot(0L, Map.of(), new String[0], PermissionBitSet.EMPTY);
+    }
+
+    /**
+     * 当前本地字典纪元，0表示尚未加载
+     */
+    public long epoch() {
+        return snapshot.epoch();
+    }
+
+    /**
+     * 当前本地字典版本（最大ID + 1）
+     */
+    public int version() {
+        return snapshot.codes().length;
+    }
+
+    /**
+     * 仅查本地字典，未分配或本地尚未加载返回-1
+     */
+    public int idOf(String code) {
+        Integer id = snapshot.ids().get(code);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * 编码权限集合，本地未知的编码由持久化存储分配ID（签发令牌时调用）
+     *
+     * @return 绑定当前纪元的位集；本服务不持有存储且镜像中没有该编码、或存储/Redis不可用时返回null，
+     * 调用方继续使用字符串集合
+     */
+    public PermissionBitSet encode(Collection<String> codes) {
+        if (codes == null) {
+            return null;
+        }
+        Snapshot current = snapshot;
+        List<String> unknown = null;
+        for (String code : codes) {
+            if (!current.ids().containsKey(code)) {
+                if (unknown == null) {
+                    unknown = new ArrayList<>();
+                }
+                unknown.add(code);
+            }
+        }
+        if (unknown != null) {
+            current = resolve(unknown);
+        }
+        if (current.epoch() == 0L) {
+            return null;
+        }
+        PermissionBitSet.Builder builder = PermissionBitSet.builder().epoch(current.epoch());
+        for (String code : codes) {
+            Integer id = current.ids().get(code);
+            if (id == null) {
+                return null;
+            }
+            builder.add(id);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 仅用本地字典编码（权限校验时把所需权限转为位集），不访问Redis
+     * 本地不存在的编码没有任何用户持有，直接忽略；调用方需要区分时使用{@link #idOf}
+     */
+    public PermissionBitSet encodeKnown(String... codes) {
+        Snapshot current = snapshot;
+        PermissionBitSet.Builder builder = PermissionBitSet.builder().epoch(current.epoch());
+        for (String code : codes) {
+            Integer id = current.ids().get(code);
+            if (id != null) {
+                builder.add(id);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 解码位集为权限编码集合
+     *
+     * @return 纪元与本地字典不同（加载后仍不同）时返回空集合，调用方按无权限处理
+     */
+    public Set<String> decode(PermissionBitSet bits) {
+        if (bits == null) {
+            return Collections.emptySet();
+        }
+        // 纪元相同但含本地未知ID时先加载；加载失败时只解码已知部分（均为该用户确实持有的权限）
+        covers(bits);
+        Snapshot current = snapshot;
+        if (bits.epoch() == 0L || bits.epoch() != current.epoch()) {
+            log.debug("Permission bits of epoch {} cannot be decoded with dictionary epoch {}",
+                    bits.epoch(), current.epoch());
+            return Collections.emptySet();
+        }
+        String[] codes = current.codes();
+        Set<String> result = new LinkedHashSet<>(bits.cardinality() * 2);
+        bits.forEach(id -> {
+            if (id < codes.length && codes[id] != null) {
+                result.add(codes[id]);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 位集是否可用本地字典比较：纪元相同且全部ID已知；否则先从Redis重新加载（限流）再判断
+     * 未绑定纪元的位集（旧格式）不可比较
+     */
+    public boolean covers(PermissionBitSet bits) {
+        if (bits.epoch() == 0L) {
+            return false;
+        }
+        if (snapshot.known().containsAll(bits)) {
+            return true;
+        }
+        return reloadThrottled().known().containsAll(bits);
+    }
+
+    /**
+     * 预先登记编码（持有存储的服务在启动与新增权限时调用），只读镜像的服务签发令牌时无需分配
+     *
+     * @return 是否登记成功；本服务不持有存储时返回false
+     */
+    public boolean register(Collection<String> codes) {
+        PermissionDictionaryStore store = storeProvider.getIfAvailable();
+        if (store == null || codes.isEmpty()) {
+            return false;
+        }
+        return assign(store, codes) != null;
+    }
+
+    /**
+     * 重新加载字典
+     *
+     * @return 加载后的本地版本
+     */
+    public int reload() {
+        return loadSnapshot().codes().length;
+    }
+
+    private Snapshot resolve(List<String> unknown) {
+        PermissionDictionaryStore store = storeProvider.getIfAvailable();
+        if (store == null) {
+            // 等待持有存储的服务登记后从镜像加载
+            return reloadThrottled();
+        }
+        Snapshot assigned = assign(store, unknown);
+        return assigned != null ? assigned : snapshot;
+    }
+
+    /**
+     * 存储分配ID后先写镜像再更新本地：本节点编码出的位集，其他节点总能从镜像解码
+     */
+    private Snapshot assign(PermissionDictionaryStore store, Collection<String> codes) {
+        try {
+            PermissionDictionaryStore.Entries entries = store.assign(codes);
+            writeMirror(entries);
+            return publish(entries.epoch(), entries.ids());
+        } catch (Exception e) {
+            log.warn("Failed to assign permission ids for {} codes: {}", codes.size(), e.getMessage());
+            return null;
+        }
+    }
+
+    private Snapshot reloadThrottled() {
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now - lastReloadMillis < MIN_RELOAD_INTERVAL_MS) {
+                return snapshot;
+            }
+            lastReloadMillis = now;
+            return loadSnapshot();
+        }
+    }
+
+    /**
+     * 从Redis镜像加载；镜像不存在（Redis数据丢失）时由持有存储的服务从存储加载并重建镜像
+     */
+    private synchronized Snapshot loadSnapshot() {
+        try {
+            Map<byte[], byte[]> entries = redisTemplate.execute((RedisCallback<Map<byte[], byte[]>>) connection ->
+                    connection.hashCommands().hGetAll(MIRROR_KEY.getBytes(StandardCharsets.UTF_8)));
+            long epoch = 0L;
+            Map<String, Integer> ids = new HashMap<>(entries != null ? entries.size() * 2 : 16);
+            if (entries != null) {
+                for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+                    String field = new String(entry.getKey(), StandardCharsets.UTF_8);
+                    long value = Long.parseLong(new String(entry.getValue(), StandardCharsets.US_ASCII));
+                    if (EPOCH_FIELD.equals(field)) {
+                        epoch = value;
+                    } else {
+                        ids.put(field, (int) value);
+                    }
+                }
+            }
+            if (epoch != 0L) {
+                return publish(epoch, ids);
+            }
+            PermissionDictionaryStore store = storeProvider.getIfAvailable();
+            if (store == null) {
+                return snapshot;
+            }
+            PermissionDictionaryStore.Entries stored = store.loadAll();
+            writeMirror(stored);
+            return publish(stored.epoch(), stored.ids());
+        } catch (Exception e) {
+            log.warn("Failed to load permission dictionary: {}", e.getMessage());
+            return snapshot;
+        }
+    }
+
+    private void writeMirror(PermissionDictionaryStore.Entries entries) {
+        Object[] args = new Object[1 + entries.ids().size() * 2];
+        args[0] = String.valueOf(entries.epoch());
+        int i = 1;
+        for (Map.Entry<String, Integer> entry : entries.ids().entrySet()) {
+            args[i++] = entry.getKey();
+            args[i++] = String.valueOf(entry.getValue());
+        }
+        redisTemplate.execute(MIRROR, StringRedisSerializer.UTF_8, null, List.of(MIRROR_KEY), args);
+    }
+
+    /**
+     * 同一纪元内与本地快照合并（ID永不复用，已知编码不会失效）；纪元不同则整体替换
+     */
+    private synchronized Snapshot publish(long epoch, Map<String, Integer> loaded) {
+        Snapshot current = snapshot;
+        Map<String, Integer> ids;
+        if (epoch == current.epoch()) {
+            if (current.ids().keySet().containsAll(loaded.keySet())) {
+                return current;
+            }
+            ids = new HashMap<>(current.ids());
+            ids.putAll(loaded);
+        } else {
+            if (current.epoch() != 0L) {
+                log.warn("Permission dictionary epoch changed: {} -> {}, bits of the old epoch are rejected",
+                        current.epoch(), epoch);
+            }
+            ids = new HashMap<>(loaded);
+        }
+        int version = ids.values().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+        String[] codes = new String[version];
+        PermissionBitSet.Builder known = PermissionBitSet.builder().epoch(epoch);
+        ids.forEach((code, id) -> {
+            codes[id] = code;
+            known.add(id);
+        });
+        Snapshot next = new Snapshot(epoch, Collections.unmodifiableMap(ids), codes, known.build());
+        snapshot = next;
+        log.debug("Permission dictionary published, epoch: {}, version: {}", epoch, version);
+        return next;
+    }
+}
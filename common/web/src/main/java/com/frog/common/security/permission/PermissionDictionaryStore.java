@@ -0,0 +1,34 @@
+package com.frog.common.security.permission;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 权限字典的持久化存储
+ * 由持有权限库的服务提供（见system服务的sys_permission_dict），其他服务只读取Redis镜像
+ * - ID只追加、永不复用：权限删除后编码与ID仍保留
+ * - 纪元在存储创建时生成，存储被清空重建时随之改变；位集与令牌携带纪元，纪元不同即不可解码
+ *
+ * @author Deng
+ * createData 2025/12/4 10:20
+ * @version 1.0
+ */
+public interface PermissionDictionaryStore {
+
+    /**
+     * 加载全部编码及ID
+     */
+    Entries loadAll();
+
+    /**
+     * 为编码分配ID，已存在的编码返回原ID
+     *
+     * @return 传入的全部编码及其ID
+     */
+    Entries assign(Collection<String> codes);
+
+    /**
+     * 存储的纪元与编码→ID映射
+     */
+    record Entries(long epoch, Map<String, Integer> ids) {}
+}
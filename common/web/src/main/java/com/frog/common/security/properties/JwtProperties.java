@@ -97,12 +97,28 @@ public class JwtProperties {
      */
     private Integer blacklistCleanupInterval = 24;
 
+    /**
+     * 访问令牌中权限的编码格式
+     * STRINGS: 权限编码字符串数组（permissions）
+     * BITSET: 经权限字典编码的位集（pbits，字典纪元 + Base64URL），令牌体积与权限数量基本无关
+     * BOTH: 同时写入两种格式，用于滚动升级期间兼容尚未识别pbits的服务
+     * 启用BITSET/BOTH前须先建立持久化字典（scripts/db/sys_permission_dict.sql）并由system服务登记全部权限；
+     * 字典存储重建后纪元改变，只携带pbits的旧令牌按无权限处理
+     */
+    private PermissionClaimFormat permissionClaimFormat = PermissionClaimFormat.STRINGS;
+
     public enum SessionPolicy {
         ALLOW_ALL,
         REPLACE_OLD,
         REJECT_NEW
     }
 
+    public enum PermissionClaimFormat {
+        STRINGS,
+        BITSET,
+        BOTH
+    }
+
     public enum CleanupStrategy {
         LAZY,
         SCHEDULED
@@ -1,7 +1,9 @@
 package com.frog.common.security.util;
 
 import com.frog.common.exception.UnauthorizedException;
+import com.frog.common.security.permission.PermissionDictionary;
 import com.frog.common.security.properties.JwtProperties;
+import com.frog.common.web.domain.PermissionBitSet;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
@@ -29,6 +31,7 @@ import java.util.*;
 public class JwtUtils {
     private final JwtProperties jwtProperties;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final PermissionDictionary permissionDictionary;
 
     @Value("${jwt.secret:t+gG4GvjtxpXiYSW64mTNVK2TmnwtvHNXrp0TGjrGz9sd5XzzFJ7bw83puCeMoVS8Yp+9pRl78FK0L8XI3zlcg==}")
     private String defaultSecret;
@@ -267,13 +270,26 @@ public class JwtUtils {
 
     /**
      * 从Token中提取权限
+     * 优先使用字符串数组；只携带位集且其字典纪元与本地不同（字典存储已重建）时按无权限处理，需重新登录
      */
     @SuppressWarnings("unchecked")
     public Set<String> getPermissionsFromToken(String token) {
         Claims claims = parseToken(token);
         if (claims == null) return Collections.emptySet();
         List<String> permList = (List<String>) claims.get("permissions");
-        return permList != null ? new HashSet<>(permList) : Collections.emptySet();
+        if (permList != null) {
+            return new HashSet<>(permList);
+        }
+        PermissionBitSet bits = getPermissionBits(claims);
+        return bits != null ? permissionDictionary.decode(bits) : Collections.emptySet();
+    }
+
+    /**
+     * 从Token中提取权限位集（含字典纪元），未携带pbits时返回null
+     */
+    public PermissionBitSet getPermissionBitsFromToken(String token) {
+        Claims claims = parseToken(token);
+        return claims != null ? getPermissionBits(claims) : null;
     }
 
 
@@ -332,7 +348,7 @@ public class JwtUtils {
         claims.put("userId", userId);
         claims.put("username", username);
         claims.put("roles", roles);
-        claims.put("permissions", permissions);
+        putPermissions(claims, permissions);
         claims.put("tokenType", tokenType);
         claims.put("deviceId", deviceId);
         claims.put("ipAddress", ipAddress);
@@ -340,6 +356,38 @@ public class JwtUtils {
         return claims;
     }
 
+    /**
+     * 按配置的格式写入权限；位集编码失败（编码未登记、存储或Redis不可用）时退回字符串数组
+     * pbits中带有字典纪元，解码方纪元不同即不使用
+     */
+    private void putPermissions(Map<String, Object> claims, Set<String> permissions) {
+        JwtProperties.PermissionClaimFormat format = jwtProperties.getPermissionClaimFormat();
+        if (format == JwtProperties.PermissionClaimFormat.STRINGS) {
+            claims.put("permissions", permissions);
+            return;
+        }
+        PermissionBitSet bits = permissionDictionary.encode(permissions);
+        if (bits != null) {
+            claims.put("pbits", bits.toBase64());
+        }
+        if (bits == null || format == JwtProperties.PermissionClaimFormat.BOTH) {
+            claims.put("permissions", permissions);
+        }
+    }
+
+    private PermissionBitSet getPermissionBits(Claims claims) {
+        Object bits = claims.get("pbits");
+        if (!(bits instanceof String encoded)) {
+            return null;
+        }
+        try {
+            return PermissionBitSet.fromBase64(encoded);
+        } catch (IllegalArgumentException e) {
+            log.warn("Malformed pbits claim ignored: {}", e.getMessage());
+            return null;
+        }
+    }
+
     private boolean validateBasicClaims(Claims claims) {
         String tokenType = (String) claims.get("tokenType");
         Date expiration = claims.getExpiration();
@@ -1,7 +1,10 @@
 package com.frog.common.security.util;
 
+import com.frog.common.security.permission.PermissionDictionary;
+import com.frog.common.web.domain.PermissionBitSet;
 import com.frog.common.web.domain.SecurityUser;
 import com.frog.common.web.util.SecurityUtils;
+import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,19 +18,26 @@ import java.util.stream.Collectors;
 /**
  * 权限验证工具类
  * 提供编程式权限验证方法
+ * 用户携带的权限位集属于当前字典纪元时按位比较，否则回退到字符串集合
  *
  * @author Deng
  * createData 2025/10/30 13:43
  * @version 1.0
  */
 @Component
+@RequiredArgsConstructor
 public class PermissionCheckUtil {
+    private final PermissionDictionary permissionDictionary;
 
     /**
      * 验证当前用户是否拥有指定权限
      */
     public boolean hasPermission(String permission) {
         return executeWithUser(user -> {
+            PermissionBitSet bits = permissionBits(user);
+            if (bits != null) {
+                return bits.contains(permissionDictionary.idOf(permission));
+            }
             Set<String> permissions = user.getPermissions();
             return permissions != null && permissions.contains(permission);
         });
@@ -42,6 +52,11 @@ public class PermissionCheckUtil {
         }
         
         return executeWithUser(user -> {
+            PermissionBitSet bits = permissionBits(user);
+            if (bits != null) {
+                // 本地字典未知的编码没有用户持有，忽略即可
+                return bits.containsAny(permissionDictionary.encodeKnown(permissions));
+            }
             Set<String> userPermissions = user.getPermissions();
             if (userPermissions == null || userPermissions.isEmpty()) {
                 return false;
@@ -65,6 +80,19 @@ public class PermissionCheckUtil {
         }
         
         return executeWithUser(user -> {
+            PermissionBitSet bits = permissionBits(user);
+            if (bits != null) {
+                PermissionBitSet.Builder required = PermissionBitSet.builder();
+                for (String permission : permissions) {
+                    int id = permissionDictionary.idOf(permission);
+                    if (id < 0) {
+                        // 本地字典未知的编码没有用户持有
+                        return false;
+                    }
+                    required.add(id);
+                }
+                return bits.containsAll(required.build());
+            }
             Set<String> userPermissions = user.getPermissions();
             if (userPermissions == null || userPermissions.isEmpty()) {
                 return false;
@@ -79,6 +107,30 @@ public class PermissionCheckUtil {
         });
     }
 
+    /**
+     * 验证当前用户是否拥有任一权限（所需权限预先经{@link PermissionDictionary#encodeKnown}编码）
+     */
+    public boolean hasAnyPermission(PermissionBitSet required) {
+        if (required == null || required.isEmpty()) {
+            return false;
+        }
+        return executeWithUser(user -> permissionBits(user) != null
+                ? user.getPermissionBits().containsAny(required)
+                : hasAnyPermission(permissionDictionary.decode(required).toArray(String[]::new)));
+    }
+
+    /**
+     * 验证当前用户是否拥有所有权限（所需权限预先经{@link PermissionDictionary#encodeKnown}编码）
+     */
+    public boolean hasAllPermissions(PermissionBitSet required) {
+        if (required == null || required.isEmpty()) {
+            return false;
+        }
+        return executeWithUser(user -> permissionBits(user) != null
+                ? user.getPermissionBits().containsAll(required)
+                : hasAllPermissions(permissionDictionary.decode(required).toArray(String[]::new)));
+    }
+
     /**
      * 验证当前用户是否拥有指定角色
      */
@@ -210,6 +262,15 @@ public class PermissionCheckUtil {
                 .collect(Collectors.toSet());
     }
     
+    /**
+     * 可按位比较的权限位集：位集中出现本地字典尚未加载的ID时先重新加载，
+     * 之后本地字典查不到的编码即确实没有用户持有；纪元与本地字典不同时返回null，改用字符串集合
+     */
+    private PermissionBitSet permissionBits(SecurityUser user) {
+        PermissionBitSet bits = user.getPermissionBits();
+        return bits != null && permissionDictionary.covers(bits) ? bits : null;
+    }
+
     /**
      * 使用当前用户执行操作的通用方法(返回boolean类型)
      * @param function 要执行的操作
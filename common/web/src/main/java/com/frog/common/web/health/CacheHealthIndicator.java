@@ -1,31 +1,36 @@
 package com.frog.common.web.health;
 
 import com.frog.common.cache.MultiLevelCache;
+import com.frog.common.redis.health.RedisCircuitBreaker;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
 
+import java.time.Instant;
+
+/**
+ * 缓存健康检查
+ * 直接读取Redis熔断器状态，不在每次探活时额外获取连接；
+ * 熔断打开时缓存以L1_ONLY模式继续服务，实例仍为UP，避免Redis抖动导致整个实例被摘除
+ */
 @Component
 @RequiredArgsConstructor
 public class CacheHealthIndicator implements HealthIndicator {
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisCircuitBreaker circuitBreaker;
     private final MultiLevelCache multiLevelCache;
 
     @Override
     public Health health() {
-        try {
-            String pong = redisTemplate.getRequiredConnectionFactory().getConnection().ping();
-            boolean redisOk = pong != null && !pong.isEmpty();
-            long l1Size = multiLevelCache.localSize();
-            Health.Builder b = redisOk ? Health.up() : Health.down();
-            return b.withDetail("redis", redisOk ? "UP" : "DOWN")
-                    .withDetail("multilevel.l1.size", l1Size)
-                    .build();
-        } catch (Exception e) {
-            return Health.down(e).build();
-        }
+        RedisCircuitBreaker.State state = circuitBreaker.getState();
+        boolean redisOk = state == RedisCircuitBreaker.State.CLOSED;
+        return Health.up()
+                .withDetail("redis", redisOk ? "UP" : "DOWN")
+                .withDetail("breaker", state.name())
+                .withDetail("mode", redisOk ? "L1_L2" : "L1_ONLY")
+                .withDetail("breaker.lastStateChange", Instant.ofEpochMilli(circuitBreaker.getLastStateChangeMillis()).toString())
+                .withDetail("multilevel.l1.size", multiLevelCache.localSize())
+                .withDetail("multilevel.degraded.keys", multiLevelCache.degradedKeyCount())
+                .build();
     }
 }
-
@@ -1,45 +1,126 @@
 package com.frog.common.web.metrics;
 
 import com.frog.common.cache.MultiLevelCache;
+import com.frog.common.cache.invalidation.CacheInvalidationBatchListener;
+import com.frog.common.cache.invalidation.CacheInvalidationPublisher;
+import com.frog.common.cache.invalidation.RedisTrackingInvalidator;
+import com.frog.common.cache.spring.L2WriteBehindQueue;
 import com.frog.common.cache.spring.TwoLevelCache;
 import com.frog.common.cache.spring.TwoLevelCacheManager;
+import com.frog.common.redis.health.RedisCircuitBreaker;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.binder.MeterBinder;
 import io.micrometer.core.instrument.FunctionCounter;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.Map;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class CacheMetricsConfig {
 
     @Bean
-    public MeterBinder cacheMeters(TwoLevelCacheManager manager, MultiLevelCache multiLevelCache) {
+    public MeterBinder cacheMeters(TwoLevelCacheManager manager, MultiLevelCache multiLevelCache,
+                                   CacheInvalidationPublisher invalidationPublisher,
+                                   CacheInvalidationBatchListener invalidationListener,
+                                   ObjectProvider<RedisTrackingInvalidator> trackingInvalidator,
+                                   RedisCircuitBreaker circuitBreaker) {
         return registry -> {
-            // TwoLevelCache per-cache metrics
-            for (Map.Entry<String, TwoLevelCache> e : manager.currentCaches().entrySet()) {
-                String cacheName = e.getKey();
-                TwoLevelCache cache = e.getValue();
-
-                Gauge.builder("cache.local.size", cache, TwoLevelCache::localSize)
-                        .description("TwoLevel local cache size")
-                        .tag("cache", cacheName)
-                        .register(registry);
+            // TwoLevelCache per-cache metrics：懒创建的缓存在创建时注册
+            manager.onCacheCreated(cache -> bindTwoLevelCache(registry, cache));
 
-                FunctionCounter.builder("cache.local.hits", cache, c -> 
-                                (double) c.getLocalStats().hitCount())
-                        .description("TwoLevel local cache hits")
-                        .tag("cache", cacheName)
-                        .register(registry);
+            Gauge.builder("cache.local.heap.used", manager, TwoLevelCacheManager::totalLocalWeight)
+                    .description("TwoLevel estimated bytes across all local caches")
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("cache.local.heap.max", manager, TwoLevelCacheManager::localHeapCap)
+                    .description("TwoLevel global local cache byte cap")
+                    .baseUnit("bytes")
+                    .register(registry);
 
-                FunctionCounter.builder("cache.local.misses", cache, c -> 
-                                (double) c.getLocalStats().missCount())
-                        .description("TwoLevel local cache misses")
-                        .tag("cache", cacheName)
-                        .register(registry);
+            Gauge.builder("cache.refresh.queue", manager, TwoLevelCacheManager::refreshQueueSize)
+                    .description("TwoLevel background refresh queue depth")
+                    .register(registry);
+            FunctionCounter.builder("cache.tag.evicted.keys", manager, m ->
+                            (double) m.tagEvictedKeyCount())
+                    .description("TwoLevel entries evicted through tag indexes")
+                    .register(registry);
+
+            // L2 write-behind (optional)
+            L2WriteBehindQueue writeBehind = manager.getWriteBehind();
+            if (writeBehind != null) {
+                bindWriteBehind(registry, writeBehind);
             }
 
+            // Redis circuit breaker：0=CLOSED，1=OPEN，2=HALF_OPEN
+            Gauge.builder("cache.redis.breaker.state", circuitBreaker, b -> b.getState().ordinal())
+                    .description("Redis circuit breaker state (0=closed, 1=open, 2=half-open)")
+                    .register(registry);
+            FunctionCounter.builder("cache.redis.breaker.opens", circuitBreaker, b -> (double) b.openCount())
+                    .description("Times the redis circuit breaker opened")
+                    .register(registry);
+            FunctionCounter.builder("cache.redis.breaker.rejected", circuitBreaker, b -> (double) b.rejectedCount())
+                    .description("Redis calls skipped while the breaker was open")
+                    .register(registry);
+            FunctionCounter.builder("cache.invalidation.replay.overflows", invalidationPublisher, p ->
+                            (double) p.replayOverflowCount())
+                    .description("Queued invalidations dropped in favor of a full L1 flush on peers")
+                    .register(registry);
+            Gauge.builder("multilevel.degraded.keys", multiLevelCache, MultiLevelCache::degradedKeyCount)
+                    .description("MultiLevel keys written only to L1 while redis was unavailable")
+                    .register(registry);
+
+            // L1 invalidation bus metrics
+            FunctionCounter.builder("cache.invalidation.keys.published", invalidationPublisher, p ->
+                            (double) p.keysPublishedCount())
+                    .description("Invalidation keys published")
+                    .register(registry);
+            FunctionCounter.builder("cache.invalidation.frames.sent", invalidationPublisher, p ->
+                            (double) p.framesSentCount())
+                    .description("Invalidation frames sent")
+                    .register(registry);
+            FunctionCounter.builder("cache.invalidation.publish.failures", invalidationPublisher, p ->
+                            (double) p.publishFailureCount())
+                    .description("Invalidation frames failed to publish")
+                    .register(registry);
+            Gauge.builder("cache.invalidation.pending", invalidationPublisher, CacheInvalidationPublisher::pendingCount)
+                    .description("Invalidation keys waiting for the next frame")
+                    .register(registry);
+            FunctionCounter.builder("cache.invalidation.frames.received", invalidationListener, l ->
+                            (double) l.framesReceivedCount())
+                    .description("Invalidation frames received from peers")
+                    .register(registry);
+            FunctionCounter.builder("cache.invalidation.keys.received", invalidationListener, l ->
+                            (double) l.keysReceivedCount())
+                    .description("Invalidation keys received from peers")
+                    .register(registry);
+            FunctionCounter.builder("cache.invalidation.gaps", invalidationListener, l ->
+                            (double) l.gapsDetectedCount())
+                    .description("Sequence gaps that forced a full L1 flush")
+                    .register(registry);
+            Gauge.builder("cache.invalidation.nodes.tracked", invalidationListener,
+                            CacheInvalidationBatchListener::trackedNodeCount)
+                    .description("Peer nodes whose invalidation sequence is being tracked")
+                    .register(registry);
+
+            // Redis client tracking (optional)
+            trackingInvalidator.ifAvailable(t -> {
+                FunctionCounter.builder("cache.tracking.keys.invalidated", t, x ->
+                                (double) x.keysInvalidatedCount())
+                        .description("Keys invalidated by redis tracking pushes")
+                        .register(registry);
+                FunctionCounter.builder("cache.tracking.flushes", t, x ->
+                                (double) x.flushCount())
+                        .description("Full L1 flushes caused by tracking reconnects or FLUSHDB")
+                        .register(registry);
+            });
+
             // MultiLevelCache general metrics
             Gauge.builder("multilevel.local.size", multiLevelCache, MultiLevelCache::localSize)
                     .description("MultiLevel L1 size")
@@ -52,7 +133,244 @@ public class CacheMetricsConfig {
                             (double) c.localStats().missCount())
                     .description("MultiLevel L1 misses")
                     .register(registry);
+            Gauge.builder("multilevel.negative.size", multiLevelCache, MultiLevelCache::negativeSize)
+                    .description("MultiLevel negative entries in L1")
+                    .register(registry);
+            FunctionCounter.builder("multilevel.negative.hits", multiLevelCache, c ->
+                            (double) c.negativeHitCount())
+                    .description("MultiLevel lookups answered by a negative entry")
+                    .register(registry);
+            FunctionCounter.builder("multilevel.decode.errors", multiLevelCache, c ->
+                            (double) c.decodeErrorCount())
+                    .description("MultiLevel L2 values that failed to deserialize and were evicted")
+                    .register(registry);
+            FunctionCounter.builder("multilevel.load.executed", multiLevelCache, c ->
+                            (double) c.singleFlight().executedCount())
+                    .description("MultiLevel loader executions")
+                    .register(registry);
+            FunctionCounter.builder("multilevel.load.coalesced", multiLevelCache, c ->
+                            (double) c.singleFlight().coalescedCount())
+                    .description("MultiLevel loads coalesced onto an in-flight load")
+                    .register(registry);
+            FunctionCounter.builder("multilevel.load.lease.waits", multiLevelCache, c ->
+                            (double) c.singleFlight().leaseWaitHitCount())
+                    .description("MultiLevel loads served from L2 after waiting on a peer lease")
+                    .register(registry);
+            FunctionCounter.builder("multilevel.refresh.early", multiLevelCache, c ->
+                            (double) c.earlyRecomputeCount())
+                    .description("MultiLevel probabilistic early recomputations (XFetch)")
+                    .register(registry);
+            FunctionCounter.builder("multilevel.hotkey.promotions", multiLevelCache, c ->
+                            (double) c.hotPromotionCount())
+                    .description("MultiLevel hot keys pinned in L1 with the extended TTL")
+                    .register(registry);
+            Gauge.builder("multilevel.load.inflight", multiLevelCache, c -> c.singleFlight().inFlightCount())
+                    .description("MultiLevel loads currently in flight")
+                    .register(registry);
         };
     }
-}
 
+    private static void bindTwoLevelCache(MeterRegistry registry, TwoLevelCache cache) {
+        String cacheName = cache.getName();
+
+        Gauge.builder("cache.local.size", cache, TwoLevelCache::localSize)
+                .description("TwoLevel local cache size")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        FunctionCounter.builder("cache.local.hits", cache, c -> 
+                        (double) c.getLocalStats().hitCount())
+                .description("TwoLevel local cache hits")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        FunctionCounter.builder("cache.local.misses", cache, c -> 
+                        (double) c.getLocalStats().missCount())
+                .description("TwoLevel local cache misses")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        Gauge.builder("cache.local.weight", cache, TwoLevelCache::localWeight)
+                .description("TwoLevel local cache estimated bytes")
+                .baseUnit("bytes")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        Gauge.builder("cache.local.budget", cache, TwoLevelCache::getLocalBudgetBytes)
+                .description("TwoLevel local cache byte budget after fair share")
+                .baseUnit("bytes")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        FunctionCounter.builder("cache.local.evictions", cache, c ->
+                        (double) c.getLocalStats().evictionCount())
+                .description("TwoLevel local cache evictions")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        FunctionCounter.builder("cache.local.eviction.weight", cache, c ->
+                        (double) c.getLocalStats().evictionWeight())
+                .description("TwoLevel local cache bytes evicted")
+                .baseUnit("bytes")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        FunctionCounter.builder("cache.load.executed", cache, c ->
+                        (double) c.getSingleFlight().executedCount())
+                .description("TwoLevel loader executions")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        FunctionCounter.builder("cache.load.coalesced", cache, c ->
+                        (double) c.getSingleFlight().coalescedCount())
+                .description("TwoLevel loads coalesced onto an in-flight load")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        FunctionCounter.builder("cache.load.lease.waits", cache, c ->
+                        (double) c.getSingleFlight().leaseWaitHitCount())
+                .description("TwoLevel loads served from L2 after waiting on a peer lease")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        FunctionCounter.builder("cache.refresh.stale.hits", cache, c ->
+                        (double) c.getStaleHitCount())
+                .description("TwoLevel reads served past the soft TTL")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        FunctionCounter.builder("cache.refresh.count", cache, c ->
+                        (double) c.getRefreshCount())
+                .description("TwoLevel refresh-ahead reloads")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        FunctionCounter.builder("cache.refresh.early", cache, c ->
+                        (double) c.getEarlyRecomputeCount())
+                .description("TwoLevel probabilistic early recomputations (XFetch)")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        FunctionCounter.builder("cache.refresh.failures", cache, c ->
+                        (double) c.getRefreshFailureCount())
+                .description("TwoLevel background refresh failures")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        Gauge.builder("cache.negative.size", cache, TwoLevelCache::negativeSize)
+                .description("TwoLevel negative entries in L1")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        FunctionCounter.builder("cache.negative.hits", cache, c ->
+                        (double) c.getNegativeHitCount())
+                .description("TwoLevel lookups answered by a negative entry")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        Gauge.builder("cache.generation", cache, TwoLevelCache::getGeneration)
+                .description("TwoLevel current key generation (bumped by clear)")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        FunctionCounter.builder("cache.generation.reclaimed", cache, c ->
+                        (double) c.getReclaimedKeyCount())
+                .description("TwoLevel stale-generation keys reclaimed by SCAN")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        // 分层命中：result固定三种取值
+        FunctionCounter.builder("cache.requests", cache, c -> (double) c.getL1HitCount())
+                .description("TwoLevel lookups by tier outcome")
+                .tags("cache", cacheName, "result", "l1_hit")
+                .register(registry);
+        FunctionCounter.builder("cache.requests", cache, c -> (double) c.getL2HitCount())
+                .description("TwoLevel lookups by tier outcome")
+                .tags("cache", cacheName, "result", "l2_hit")
+                .register(registry);
+        FunctionCounter.builder("cache.requests", cache, c -> (double) c.getMissCount())
+                .description("TwoLevel lookups by tier outcome")
+                .tags("cache", cacheName, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.decode.errors", cache, c -> (double) c.getDecodeErrorCount())
+                .description("TwoLevel L2 values that failed to deserialize and were evicted")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        for (RemovalCause cause : RemovalCause.values()) {
+            FunctionCounter.builder("cache.local.removals", cache, c -> (double) c.getRemovalCount(cause))
+                    .description("TwoLevel L1 removals by cause")
+                    .tags("cache", cacheName, "cause", cause.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+
+        FunctionCounter.builder("cache.invalidation.sent", cache, c -> (double) c.getInvalidationsSentCount())
+                .description("TwoLevel invalidations published by this cache")
+                .tag("cache", cacheName)
+                .register(registry);
+        FunctionCounter.builder("cache.invalidation.received", cache, c -> (double) c.getInvalidationsReceivedCount())
+                .description("TwoLevel invalidations applied to this cache's L1")
+                .tag("cache", cacheName)
+                .register(registry);
+
+        Timer redisGet = latencyTimer("cache.redis.latency", cacheName)
+                .description("TwoLevel Redis round trip latency")
+                .tag("operation", "get")
+                .register(registry);
+        Timer redisSet = latencyTimer("cache.redis.latency", cacheName)
+                .description("TwoLevel Redis round trip latency")
+                .tag("operation", "set")
+                .register(registry);
+        Timer load = latencyTimer("cache.load.latency", cacheName)
+                .description("TwoLevel loader latency")
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+        cache.bindMetrics((operation, nanos) -> (switch (operation) {
+            case REDIS_GET -> redisGet;
+            case REDIS_SET -> redisSet;
+            case LOAD -> load;
+        }).record(nanos, TimeUnit.NANOSECONDS));
+    }
+
+    private static void bindWriteBehind(MeterRegistry registry, L2WriteBehindQueue queue) {
+        Gauge.builder("cache.writebehind.queue", queue, L2WriteBehindQueue::queueSize)
+                .description("TwoLevel keys waiting for the write-behind flush")
+                .register(registry);
+        Gauge.builder("cache.writebehind.queue.capacity", queue, L2WriteBehindQueue::queueCapacity)
+                .description("TwoLevel write-behind queue capacity")
+                .register(registry);
+        FunctionCounter.builder("cache.writebehind.enqueued", queue, q -> (double) q.enqueuedCount())
+                .description("TwoLevel L2 writes queued")
+                .register(registry);
+        FunctionCounter.builder("cache.writebehind.coalesced", queue, q -> (double) q.coalescedCount())
+                .description("TwoLevel L2 writes merged into a pending write of the same key")
+                .register(registry);
+        FunctionCounter.builder("cache.writebehind.flushed", queue, q -> (double) q.flushedKeyCount())
+                .description("TwoLevel L2 writes flushed to Redis")
+                .register(registry);
+        FunctionCounter.builder("cache.writebehind.failures", queue, q -> (double) q.flushFailureCount())
+                .description("TwoLevel write-behind batches that failed")
+                .register(registry);
+        FunctionCounter.builder("cache.writebehind.sync.fallbacks", queue, q -> (double) q.syncFallbackCount())
+                .description("TwoLevel writes done on the caller thread because the queue was full")
+                .register(registry);
+        Timer flush = Timer.builder("cache.writebehind.flush.latency")
+                .description("TwoLevel write-behind pipelined batch latency")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(50_000))
+                .maximumExpectedValue(Duration.ofSeconds(1))
+                .register(registry);
+        queue.bindFlushLatencyRecorder(nanos -> flush.record(nanos, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * 直方图桶数由期望范围限定，避免无界
+     */
+    private static Timer.Builder latencyTimer(String name, String cacheName) {
+        return Timer.builder(name)
+                .tag("cache", cacheName)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(50_000))
+                .maximumExpectedValue(Duration.ofSeconds(1));
+    }
+}
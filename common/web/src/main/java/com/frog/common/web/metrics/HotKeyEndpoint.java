@@ -0,0 +1,38 @@
+package com.frog.common.web.metrics;
+
+import com.frog.common.cache.HotKeyDetector;
+import com.frog.common.cache.MultiLevelCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 热点key报告（/actuator/hotkeys）：MultiLevelCache按L2读取频率识别的Top-K热点
+ *
+ * @author Deng
+ * createData 2025/11/27 10:30
+ * @version 1.0
+ */
+@Component
+@Endpoint(id = "hotkeys")
+@RequiredArgsConstructor
+public class HotKeyEndpoint {
+    private final MultiLevelCache multiLevelCache;
+
+    @ReadOperation
+    public Map<String, Object> hotKeys() {
+        HotKeyDetector detector = multiLevelCache.hotKeys();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("enabled", detector != null);
+        report.put("l2Reads", detector != null ? detector.recordedCount() : 0L);
+        report.put("promotions", multiLevelCache.hotPromotionCount());
+        report.put("pinned", multiLevelCache.pinnedCount());
+        report.put("topKeys", detector != null ? detector.topKeys() : List.of());
+        return report;
+    }
+}
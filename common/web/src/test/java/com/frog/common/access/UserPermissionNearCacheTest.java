@@ -0,0 +1,73 @@
+package com.frog.common.access;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 用户有效权限近端缓存：命中、按用户/全局失效，以及加载期间到达的变更不会把旧结果写回缓存
+ *
+ * @author Deng
+ * createData 2025/11/30 15:30
+ */
+public class UserPermissionNearCacheTest {
+    private final UUID userId = UUID.randomUUID();
+
+    @Test
+    public void servesHitsUntilInvalidated() {
+        UserPermissionNearCache cache = new UserPermissionNearCache(new UserPermissionNearCacheProperties());
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(userId, id -> { loads.incrementAndGet(); return Set.of("a"); });
+        cache.get(userId, id -> { loads.incrementAndGet(); return Set.of("a"); });
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.hitCount());
+
+        cache.onUserChanged(userId, 1);
+        assertEquals(Set.of("b"), cache.get(userId, id -> { loads.incrementAndGet(); return Set.of("b"); }));
+        cache.onAllChanged();
+        assertEquals(Set.of("c"), cache.get(userId, id -> { loads.incrementAndGet(); return Set.of("c"); }));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void discardsLoadRacingWithChange() {
+        UserPermissionNearCache cache = new UserPermissionNearCache(new UserPermissionNearCacheProperties());
+
+        // 加载过程中收到该用户的变更：本次结果返回但不缓存
+        Set<String> stale = cache.get(userId, id -> {
+            cache.onUserChanged(id, 7);
+            return Set.of("old");
+        });
+        assertEquals(Set.of("old"), stale);
+        assertEquals(1, cache.staleLoadCount());
+        assertEquals(Set.of("new"), cache.get(userId, id -> Set.of("new")));
+        assertEquals(Set.of("new"), cache.get(userId, id -> Set.of("unexpected")));
+
+        // 加载过程中发生全局失效同理
+        cache.onUserChanged(userId, 8);
+        cache.get(userId, id -> {
+            cache.onAllChanged();
+            return Set.of("old");
+        });
+        assertEquals(Set.of("fresh"), cache.get(userId, id -> Set.of("fresh")));
+    }
+
+    @Test
+    public void discardsLoadRacingWithReloadOfSameVersion() {
+        UserPermissionNearCache cache = new UserPermissionNearCache(new UserPermissionNearCacheProperties());
+        cache.onUserChanged(userId, 3);
+
+        // 权限服务节点应用变更前加载到的旧结果：应用后的再次失效使其不写回，即使广播版本未变
+        cache.get(userId, id -> {
+            cache.onUserReloaded(id);
+            return Set.of("old");
+        });
+        assertEquals(1, cache.staleLoadCount());
+        assertEquals(Set.of("new"), cache.get(userId, id -> Set.of("new")));
+    }
+}
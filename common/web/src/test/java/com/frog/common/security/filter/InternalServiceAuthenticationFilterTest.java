@@ -0,0 +1,92 @@
+package com.frog.common.security.filter;
+
+import com.frog.common.security.internal.InternalRequestSignature;
+import com.frog.common.security.internal.InternalServiceGuard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 服务间请求认证：签名正确且nonce首次出现时认证，重放、篡改参数与默认密钥均不认证
+ *
+ * @author Deng
+ * createData 2025/12/5 11:10
+ */
+public class InternalServiceAuthenticationFilterTest {
+    private static final String SECRET = "test-internal-secret";
+    private static final String PATH = "/api/system/permissions/api/changes";
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, Object> valueOps = mock(ValueOperations.class);
+    private final InternalServiceAuthenticationFilter filter = new InternalServiceAuthenticationFilter(redisTemplate);
+    private final InternalServiceGuard guard = new InternalServiceGuard();
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void authenticatesSignedRequestOnce() throws Exception {
+        ReflectionTestUtils.setField(filter, "secretKey", SECRET);
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.setIfAbsent(anyString(), any(), any(Duration.class))).thenReturn(true, false);
+
+        filter.doFilter(signed("sinceRevision=3&limit=100", SECRET), new MockHttpServletResponse(), new MockFilterChain());
+        assertTrue(guard.isInternalCall());
+
+        // 同一nonce再次出现视为重放
+        SecurityContextHolder.clearContext();
+        filter.doFilter(signed("sinceRevision=3&limit=100", SECRET), new MockHttpServletResponse(), new MockFilterChain());
+        assertFalse(guard.isInternalCall());
+    }
+
+    @Test
+    public void rejectsTamperedQueryAndDefaultSecret() throws Exception {
+        ReflectionTestUtils.setField(filter, "secretKey", SECRET);
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.setIfAbsent(anyString(), any(), any(Duration.class))).thenReturn(true);
+
+        MockHttpServletRequest tampered = signed("sinceRevision=3&limit=100", SECRET);
+        tampered.setQueryString("sinceRevision=0&limit=100");
+        filter.doFilter(tampered, new MockHttpServletResponse(), new MockFilterChain());
+        assertFalse(guard.isInternalCall());
+
+        ReflectionTestUtils.setField(filter, "secretKey", InternalRequestSignature.DEFAULT_SECRET_KEY);
+        filter.doFilter(signed("sinceRevision=3&limit=100", InternalRequestSignature.DEFAULT_SECRET_KEY),
+                new MockHttpServletResponse(), new MockFilterChain());
+        assertFalse(guard.isInternalCall());
+    }
+
+    private static MockHttpServletRequest signed(String query, String secret) {
+        String timestamp = String.valueOf(System.currentTimeMillis());
+        String nonce = "n-1";
+        Map<String, String> queries = InternalRequestSignature.parseQuery(query);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", PATH);
+        request.setQueryString(query);
+        request.addHeader(InternalRequestSignature.HEADER_TIMESTAMP, timestamp);
+        request.addHeader(InternalRequestSignature.HEADER_NONCE, nonce);
+        request.addHeader(InternalRequestSignature.HEADER_APP_ID, "gateway");
+        request.addHeader(InternalRequestSignature.HEADER_SIGNATURE,
+                InternalRequestSignature.sign(secret, timestamp, nonce, "gateway", PATH, queries));
+        return request;
+    }
+}
@@ -0,0 +1,50 @@
+package com.frog.common.security.loader;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 路由规模从1k到50k时的单次查询耗时，默认不随单元测试运行（mvn test -Pbenchmark）
+ *
+ * @author Deng
+ * createData 2025/11/28 10:20
+ */
+@Tag("benchmark")
+public class PermissionRouteIndexBenchmark {
+    private static final int WARMUP = 20_000;
+    private static final int ROUNDS = 200_000;
+
+    @Test
+    public void lookupCostIndependentOfRouteCount() {
+        for (int routes : new int[]{1_000, 10_000, 50_000}) {
+            PermissionRouteIndex index = PermissionRouteIndex.compile(PermissionRouteIndexTest.mappings(routes));
+            String[] paths = {
+                    "/api/module" + (routes / 4 - 1) + "/items/123/detail",
+                    "/api/module" + (routes / 8) + "/items/abc",
+                    "/api/module0/files/a/b/c",
+                    "/api/missing/route"
+            };
+            System.out.printf("routes=%-6d ns/op=%d%n", routes, measure(index, paths));
+        }
+    }
+
+    private static long measure(PermissionRouteIndex index, String[] paths) {
+        int sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            Set<String> found = index.match("GET", paths[i & 3]);
+            sink += found != null ? found.size() : 0;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            Set<String> found = index.match("GET", paths[i & 3]);
+            sink += found != null ? found.size() : 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        assertTrue(sink > 0);
+        return elapsed / ROUNDS;
+    }
+}
@@ -0,0 +1,105 @@
+package com.frog.common.security.loader;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 路由权限索引：匹配语义、具体度顺序与大路由表下的匹配结果
+ * 查询耗时见{@link PermissionRouteIndexBenchmark}
+ *
+ * @author Deng
+ * createData 2025/11/28 10:20
+ */
+public class PermissionRouteIndexTest {
+    @Test
+    public void matchesParamsAndWildcards() {
+        Map<String, Set<String>> mappings = new HashMap<>();
+        mappings.put("GET:/api/users/{id}", Set.of("user:view"));
+        mappings.put("GET:/api/users/*/roles", Set.of("user:role:view"));
+        mappings.put("*:/api/files/**", Set.of("file:access"));
+        mappings.put("GET:/", Set.of("root"));
+        PermissionRouteIndex index = PermissionRouteIndex.compile(mappings);
+
+        assertEquals(Set.of("user:view"), index.match("GET", "/api/users/42"));
+        assertEquals(Set.of("user:view"), index.match("GET", "/api/users/42/"));
+        assertEquals(Set.of("user:role:view"), index.match("GET", "/api/users/42/roles"));
+        assertEquals(Set.of("file:access"), index.match("POST", "/api/files/a/b/c.txt"));
+        assertEquals(Set.of("root"), index.match("GET", "/"));
+        assertEquals("GET:/api/users/{id}", index.matchRoute("GET", "/api/users/42").rule());
+        assertEquals("*:/api/files/**", index.matchRoute("POST", "/api/files/a/b/c.txt").rule());
+        assertNull(index.match("GET", "/api/files"));
+        assertNull(index.match("DELETE", "/api/users/42"));
+        assertNull(index.match("GET", "/api/users/42/roles/7"));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void prefersMostSpecificRoute() {
+        Map<String, Set<String>> mappings = new HashMap<>();
+        mappings.put("GET:/api/users/me", Set.of("user:self"));
+        mappings.put("GET:/api/users/{id}", Set.of("user:view"));
+        mappings.put("GET:/api/**", Set.of("api:any"));
+        mappings.put("*:/api/users/{id}", Set.of("user:any-method"));
+        PermissionRouteIndex index = PermissionRouteIndex.compile(mappings);
+
+        // 字面量 > 参数 > 多段通配，方法精确 > 任意方法
+        assertEquals(Set.of("user:self"), index.match("GET", "/api/users/me"));
+        assertEquals(Set.of("user:view"), index.match("GET", "/api/users/7"));
+        assertEquals(Set.of("api:any"), index.match("GET", "/api/users/7/orders"));
+        assertEquals(Set.of("user:any-method"), index.match("PUT", "/api/users/7"));
+    }
+
+    @Test
+    public void backtracksFromLiteralToParam() {
+        Map<String, Set<String>> mappings = new HashMap<>();
+        mappings.put("GET:/api/users/export", Set.of("user:export"));
+        mappings.put("GET:/api/users/{id}/logs", Set.of("user:logs"));
+        PermissionRouteIndex index = PermissionRouteIndex.compile(mappings);
+
+        assertEquals(Set.of("user:logs"), index.match("GET", "/api/users/export/logs"));
+    }
+
+    @Test
+    public void mergesEquivalentPatterns() {
+        Map<String, Set<String>> mappings = new HashMap<>();
+        mappings.put("GET:/api/roles/{id}", Set.of("role:view"));
+        mappings.put("GET:/api/roles/{roleId}", Set.of("role:detail"));
+        PermissionRouteIndex index = PermissionRouteIndex.compile(mappings);
+
+        assertEquals(Set.of("role:view", "role:detail"), index.match("GET", "/api/roles/1"));
+    }
+
+    @Test
+    public void matchesInLargeRouteTable() {
+        int routes = 50_000;
+        PermissionRouteIndex index = PermissionRouteIndex.compile(mappings(routes));
+
+        assertEquals(routes, index.size());
+        assertEquals(Set.of("m" + (routes / 4 - 1) + ":detail"),
+                index.match("GET", "/api/module" + (routes / 4 - 1) + "/items/123/detail"));
+        assertEquals(Set.of("m7:view"), index.match("GET", "/api/module7/items/abc"));
+        assertEquals(Set.of("m0:file"), index.match("DELETE", "/api/module0/files/a/b/c"));
+        assertNull(index.match("GET", "/api/missing/route"));
+    }
+
+    /**
+     * 每个模块4条路由：字面量、单段参数、参数+字面量、多段通配
+     */
+    static Map<String, Set<String>> mappings(int routes) {
+        Map<String, Set<String>> mappings = new HashMap<>(routes * 2);
+        for (int i = 0; mappings.size() < routes; i++) {
+            String base = "/api/module" + i;
+            mappings.put("GET:" + base + "/items", Set.of("m" + i + ":list"));
+            mappings.put("GET:" + base + "/items/{id}", Set.of("m" + i + ":view"));
+            mappings.put("GET:" + base + "/items/{id}/detail", Set.of("m" + i + ":detail"));
+            mappings.put("*:" + base + "/files/**", Set.of("m" + i + ":file"));
+        }
+        return mappings;
+    }
+}
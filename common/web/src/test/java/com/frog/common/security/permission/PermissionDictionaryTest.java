@@ -0,0 +1,91 @@
+package com.frog.common.security.permission;
+
+import com.frog.common.web.domain.PermissionBitSet;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 权限字典：位集绑定存储纪元，存储重建后旧位集不可解码；只读镜像的服务不自行分配ID
+ *
+ * @author Deng
+ * createData 2025/12/4 11:20
+ */
+public class PermissionDictionaryTest {
+
+    @Test
+    public void rejectsBitsFromRebuiltDictionary() {
+        PermissionDictionary before = storeNode(new FakeStore(11L, Map.of("user:read", 0, "user:write", 1)));
+        PermissionBitSet bits = before.encode(Set.of("user:write"));
+        assertEquals(11L, bits.epoch());
+        assertEquals(Set.of("user:write"), before.decode(bits));
+
+        // 字典存储被清空重建：同一ID对应其他编码，新启动的节点不得按新字典解释旧位集
+        PermissionDictionary after = storeNode(new FakeStore(12L, Map.of("user:write", 0, "user:read", 1)));
+        assertEquals(12L, after.encode(Set.of("user:read")).epoch());
+        assertFalse(after.covers(bits));
+        assertTrue(after.decode(bits).isEmpty());
+        assertFalse(after.encodeKnown("user:write").containsAny(bits));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void mirrorOnlyNodeEncodesRegisteredCodes() {
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        Map<byte[], byte[]> mirror = new HashMap<>();
+        mirror.put(bytes("@epoch"), bytes("11"));
+        mirror.put(bytes("user:read"), bytes("0"));
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(mirror);
+        ObjectProvider<PermissionDictionaryStore> noStore = mock(ObjectProvider.class);
+        PermissionDictionary dictionary = new PermissionDictionary(redisTemplate, noStore);
+
+        PermissionBitSet bits = dictionary.encode(Set.of("user:read"));
+        assertEquals(PermissionBitSet.of(0).withEpoch(11L), bits);
+        // 未登记的编码无法分配，调用方改用字符串
+        assertNull(dictionary.encode(Set.of("user:read", "user:delete")));
+        // 旧格式位集没有纪元
+        assertFalse(dictionary.covers(PermissionBitSet.of(0)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PermissionDictionary storeNode(PermissionDictionaryStore store) {
+        ObjectProvider<PermissionDictionaryStore> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(store);
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(Map.of());
+        return new PermissionDictionary(redisTemplate, provider);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 固定纪元与ID的存储
+     */
+    private record FakeStore(long epoch, Map<String, Integer> ids) implements PermissionDictionaryStore {
+        @Override
+        public Entries loadAll() {
+            return new Entries(epoch, ids);
+        }
+
+        @Override
+        public Entries assign(Collection<String> codes) {
+            Map<String, Integer> assigned = new HashMap<>();
+            codes.forEach(code -> assigned.put(code, ids.get(code)));
+            return new Entries(epoch, assigned);
+        }
+    }
+}
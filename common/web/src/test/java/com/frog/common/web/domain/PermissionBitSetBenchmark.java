@@ -0,0 +1,133 @@
+package com.frog.common.web.domain;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static com.frog.common.web.domain.PermissionBitSetTest.DICTIONARY_SIZE;
+import static com.frog.common.web.domain.PermissionBitSetTest.USER_PERMISSIONS;
+import static com.frog.common.web.domain.PermissionBitSetTest.checkStrings;
+import static com.frog.common.web.domain.PermissionBitSetTest.dictionary;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 权限位集与HashSet&lt;String&gt;相比的校验耗时、堆占用和序列化体积，默认不随单元测试运行（mvn test -Pbenchmark）
+ *
+ * @author Deng
+ * createData 2025/11/29 11:30
+ */
+@Tag("benchmark")
+public class PermissionBitSetBenchmark {
+    private static final int WARMUP = 200_000;
+    private static final int ROUNDS = 2_000_000;
+    private static final int USERS = 10_000;
+
+    @Test
+    public void checkLatencyAgainstStringSet() {
+        String[] codes = dictionary();
+        Random random = new Random(42);
+        int[] held = random.ints(0, DICTIONARY_SIZE).distinct().limit(USER_PERMISSIONS).toArray();
+        Set<String> userStrings = new HashSet<>();
+        for (int id : held) {
+            userStrings.add(codes[id]);
+        }
+        PermissionBitSet userBits = PermissionBitSet.of(held);
+
+        // 每次校验3个所需权限，与@PreAuthorize/编程式校验的常见写法一致；所需位集可预先编码
+        String[][] requiredStrings = new String[64][];
+        PermissionBitSet[] requiredBits = new PermissionBitSet[64];
+        for (int i = 0; i < requiredStrings.length; i++) {
+            int[] ids = random.ints(0, DICTIONARY_SIZE).distinct().limit(3).toArray();
+            requiredStrings[i] = new String[]{codes[ids[0]], codes[ids[1]], codes[ids[2]]};
+            requiredBits[i] = PermissionBitSet.of(ids);
+        }
+
+        long stringAny = timeStrings(userStrings, requiredStrings, true);
+        long bitsAny = timeBits(userBits, requiredBits, true);
+        long stringAll = timeStrings(userStrings, requiredStrings, false);
+        long bitsAll = timeBits(userBits, requiredBits, false);
+        System.out.printf("hasAny  strings ns/op=%d bitset ns/op=%d%n", stringAny, bitsAny);
+        System.out.printf("hasAll  strings ns/op=%d bitset ns/op=%d%n", stringAll, bitsAll);
+    }
+
+    @Test
+    public void heapAndSerializedSizeAgainstStringSet() {
+        String[] codes = dictionary();
+        Random random = new Random(7);
+        List<int[]> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(random.ints(0, DICTIONARY_SIZE).distinct().limit(USER_PERMISSIONS).toArray());
+        }
+
+        long before = usedHeap();
+        List<PermissionBitSet> bitSets = new ArrayList<>(USERS);
+        for (int[] ids : users) {
+            bitSets.add(PermissionBitSet.of(ids));
+        }
+        long bitsHeap = usedHeap() - before;
+
+        // 字符串集合反序列化自缓存/令牌时每个元素都是新对象，这里同样为每个用户复制字符串
+        before = usedHeap();
+        List<Set<String>> stringSets = new ArrayList<>(USERS);
+        for (int[] ids : users) {
+            Set<String> set = new HashSet<>();
+            for (int id : ids) {
+                set.add(new String(codes[id]));
+            }
+            stringSets.add(set);
+        }
+        long stringHeap = usedHeap() - before;
+
+        Set<String> sample = stringSets.get(0);
+        int jsonBytes = sample.stream().mapToInt(code -> code.length() + 3).sum() + 1;
+        int base64Bytes = bitSets.get(0).toBase64().length() + 2;
+        System.out.printf("heap/user strings=%dB bitset=%dB%n", stringHeap / USERS, bitsHeap / USERS);
+        System.out.printf("serialized/user json-array=%dB base64-bitset=%dB%n", jsonBytes, base64Bytes);
+        assertTrue(base64Bytes < jsonBytes);
+        assertEquals(stringSets.size(), bitSets.size());
+    }
+
+    private static long timeStrings(Set<String> user, String[][] required, boolean any) {
+        int hits = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            hits += checkStrings(user, required[i & 63], any) ? 1 : 0;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            hits += checkStrings(user, required[i & 63], any) ? 1 : 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        assertTrue(hits >= 0);
+        return elapsed / ROUNDS;
+    }
+
+    private static long timeBits(PermissionBitSet user, PermissionBitSet[] required, boolean any) {
+        int hits = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            PermissionBitSet r = required[i & 63];
+            hits += (any ? user.containsAny(r) : user.containsAll(r)) ? 1 : 0;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            PermissionBitSet r = required[i & 63];
+            hits += (any ? user.containsAny(r) : user.containsAll(r)) ? 1 : 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        assertTrue(hits >= 0);
+        return elapsed / ROUNDS;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
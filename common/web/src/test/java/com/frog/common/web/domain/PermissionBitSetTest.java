@@ -0,0 +1,138 @@
+package com.frog.common.web.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 权限位集：集合语义、字典纪元隔离、序列化往返、与HashSet&lt;String&gt;校验结果一致且序列化更小
+ * 校验耗时与堆占用对比见{@link PermissionBitSetBenchmark}
+ *
+ * @author Deng
+ * createData 2025/11/29 11:30
+ */
+public class PermissionBitSetTest {
+    /** 字典规模与单个用户持有的权限数，取后台管理系统的典型量级 */
+    static final int DICTIONARY_SIZE = 400;
+    static final int USER_PERMISSIONS = 60;
+
+    @Test
+    public void containsAnyAndAll() {
+        PermissionBitSet user = PermissionBitSet.of(1, 5, 64, 130);
+
+        assertTrue(user.contains(64));
+        assertFalse(user.contains(63));
+        assertFalse(user.contains(-1));
+        assertFalse(user.contains(10_000));
+        assertTrue(user.containsAny(PermissionBitSet.of(2, 130)));
+        assertFalse(user.containsAny(PermissionBitSet.of(2, 129, 500)));
+        assertTrue(user.containsAll(PermissionBitSet.of(1, 130)));
+        assertFalse(user.containsAll(PermissionBitSet.of(1, 131)));
+        assertFalse(user.containsAll(PermissionBitSet.of(1, 500)));
+        assertTrue(user.containsAll(PermissionBitSet.EMPTY));
+        assertFalse(user.containsAny(PermissionBitSet.EMPTY));
+        assertEquals(4, user.cardinality());
+        assertEquals(131, user.length());
+        assertEquals(PermissionBitSet.of(1, 2, 5, 64, 130), user.or(PermissionBitSet.of(2)));
+    }
+
+    @Test
+    public void roundTripsThroughBase64() {
+        PermissionBitSet bits = PermissionBitSet.of(0, 7, 8, 63, 64, 255);
+        assertEquals(bits, PermissionBitSet.fromBase64(bits.toBase64()));
+        assertEquals(bits, PermissionBitSet.fromByteArray(bits.toByteArray()));
+        assertEquals(32, bits.toByteArray().length);
+        assertEquals(PermissionBitSet.EMPTY, PermissionBitSet.fromBase64(PermissionBitSet.EMPTY.toBase64()));
+        // 末尾全零字节不影响相等性
+        assertEquals(PermissionBitSet.of(3), PermissionBitSet.fromByteArray(new byte[]{8, 0, 0, 0, 0, 0, 0, 0, 0}));
+    }
+
+    @Test
+    public void isolatesDictionaryEpochs() {
+        PermissionBitSet user = PermissionBitSet.of(1, 5).withEpoch(7L);
+
+        assertEquals(7L, user.epoch());
+        assertTrue(user.containsAny(PermissionBitSet.of(5).withEpoch(7L)));
+        assertTrue(user.containsAll(PermissionBitSet.builder().epoch(7L).build()));
+        // 其他纪元（或未绑定纪元）编码的ID含义不同，一律不匹配
+        assertFalse(user.containsAny(PermissionBitSet.of(5).withEpoch(8L)));
+        assertFalse(user.containsAll(PermissionBitSet.of(5)));
+        assertFalse(user.equals(PermissionBitSet.of(1, 5)));
+        assertThrows(IllegalArgumentException.class, () -> user.or(PermissionBitSet.of(2)));
+
+        assertEquals(user, PermissionBitSet.fromBase64(user.toBase64()));
+        PermissionBitSet empty = PermissionBitSet.builder().epoch(7L).build();
+        assertEquals(empty, PermissionBitSet.fromBase64(empty.toBase64()));
+        // 旧格式（无纪元）解析为未绑定
+        assertEquals(0L, PermissionBitSet.fromBase64(PermissionBitSet.of(1, 5).toBase64()).epoch());
+    }
+
+    @Test
+    public void agreesWithStringSet() {
+        String[] codes = dictionary();
+        Random random = new Random(42);
+        for (int user = 0; user < 100; user++) {
+            int[] held = random.ints(0, DICTIONARY_SIZE).distinct().limit(USER_PERMISSIONS).toArray();
+            Set<String> userStrings = new HashSet<>();
+            for (int id : held) {
+                userStrings.add(codes[id]);
+            }
+            PermissionBitSet userBits = PermissionBitSet.of(held);
+            for (int check = 0; check < 20; check++) {
+                int[] ids = random.ints(0, DICTIONARY_SIZE).distinct().limit(3).toArray();
+                String[] required = {codes[ids[0]], codes[ids[1]], codes[ids[2]]};
+                PermissionBitSet requiredBits = PermissionBitSet.of(ids);
+                assertEquals(checkStrings(userStrings, required, true), userBits.containsAny(requiredBits));
+                assertEquals(checkStrings(userStrings, required, false), userBits.containsAll(requiredBits));
+            }
+        }
+    }
+
+    @Test
+    public void serializedSmallerThanStringArray() {
+        String[] codes = dictionary();
+        int[] held = new Random(7).ints(0, DICTIONARY_SIZE).distinct().limit(USER_PERMISSIONS).toArray();
+        int jsonBytes = 1;
+        for (int id : held) {
+            jsonBytes += codes[id].length() + 3;
+        }
+        assertTrue(PermissionBitSet.of(held).toBase64().length() + 2 < jsonBytes);
+    }
+
+    static String[] dictionary() {
+        String[] modules = {"system", "monitor", "audit", "workflow", "report"};
+        String[] resources = {"user", "role", "dept", "menu", "permission", "config", "dict", "notice",
+                "job", "log"};
+        String[] actions = {"list", "query", "add", "update", "delete", "export", "import", "reset"};
+        String[] codes = new String[DICTIONARY_SIZE];
+        int n = 0;
+        for (String module : modules) {
+            for (String resource : resources) {
+                for (String action : actions) {
+                    codes[n++] = module + ":" + resource + ":" + action;
+                }
+            }
+        }
+        return codes;
+    }
+
+    static boolean checkStrings(Set<String> user, String[] required, boolean any) {
+        for (String permission : required) {
+            boolean held = user.contains(permission);
+            if (any && held) {
+                return true;
+            }
+            if (!any && !held) {
+                return false;
+            }
+        }
+        return !any;
+    }
+}
@@ -0,0 +1,53 @@
+-- ======================================================================
+-- 权限字典 DDL（PostgreSQL，与 sys_permission 同库）
+-- ======================================================================
+-- 用途：
+-- - 权限编码 → 非负整数ID，供权限位集（PermissionBitSet）与令牌 pbits 声明使用
+-- - ID取自序列，只追加、永不复用：权限删除后本表行保留，禁止删除或改写已有行
+-- - sys_permission_dict_epoch 保存字典纪元，建表时随机生成；本表被清空重建时须同时重建纪元，
+--   旧纪元编码的位集与令牌随之失效（校验回退到字符串集合或按无权限处理）
+-- 维护：
+-- - system 服务启动时登记全部权限编码，新增权限时登记新编码（PermissionDictionaryStoreImpl）
+-- - Redis 中的 perm:dict:mirror 只是本表的镜像，丢失后由 system 服务从本表重建
+-- 上线顺序：先执行本脚本并发布 system 服务，再把 jwt.permission-claim-format 切换为 BOTH/BITSET
+-- ======================================================================
+
+CREATE SEQUENCE IF NOT EXISTS sys_permission_dict_id_seq AS INTEGER MINVALUE 0 START WITH 0;
+
+CREATE TABLE IF NOT EXISTS sys_permission_dict
+(
+    id              INTEGER      NOT NULL DEFAULT nextval('sys_permission_dict_id_seq') PRIMARY KEY,
+    permission_code VARCHAR(100) NOT NULL,
+    create_time     TIMESTAMP    NOT NULL DEFAULT NOW(),
+    CONSTRAINT uk_sys_permission_dict_code UNIQUE (permission_code)
+);
+
+ALTER SEQUENCE sys_permission_dict_id_seq OWNED BY sys_permission_dict.id;
+
+CREATE TABLE IF NOT EXISTS sys_permission_dict_epoch
+(
+    id          SMALLINT  NOT NULL DEFAULT 1 PRIMARY KEY CHECK (id = 1),
+    epoch       BIGINT    NOT NULL CHECK (epoch > 0),
+    create_time TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+COMMENT ON TABLE sys_permission_dict IS '权限字典（ID只追加、永不复用）';
+COMMENT ON COLUMN sys_permission_dict.id IS '权限位ID';
+COMMENT ON COLUMN sys_permission_dict.permission_code IS '权限编码';
+COMMENT ON COLUMN sys_permission_dict.create_time IS '分配时间';
+COMMENT ON TABLE sys_permission_dict_epoch IS '权限字典纪元（单行）';
+COMMENT ON COLUMN sys_permission_dict_epoch.epoch IS '纪元，字典重建时重新生成';
+
+-- 纪元只在首次执行时生成，重复执行不改变
+INSERT INTO sys_permission_dict_epoch (id, epoch)
+VALUES (1, 1 + floor(random() * 9007199254740990)::BIGINT)
+ON CONFLICT (id) DO NOTHING;
+
+-- 登记现有权限编码（含已删除的权限，避免其编码日后恢复时取得新ID）
+INSERT INTO sys_permission_dict (permission_code)
+SELECT permission_code
+FROM sys_permission
+WHERE permission_code IS NOT NULL
+GROUP BY permission_code
+ORDER BY MIN(create_time)
+ON CONFLICT (permission_code) DO NOTHING;
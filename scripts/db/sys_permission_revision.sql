@@ -0,0 +1,37 @@
+-- ======================================================================
+-- sys_permission 变更版本号 DDL
+-- ======================================================================
+-- 用途：
+-- - 各节点的动态权限加载器只拉取 revision 大于本地已同步版本的行（增量同步），
+--   无变更的刷新周期只执行一次命中索引的空查询
+-- - revision 由序列在 INSERT/UPDATE 时统一分配，应用层不写该列
+-- - 逻辑删除（deleted = 1）属于 UPDATE，同样会分配新版本；物理删除不会留下记录，
+--   由加载器定期全量对账兜底
+-- ======================================================================
+
+CREATE SEQUENCE IF NOT EXISTS sys_permission_revision_seq;
+
+ALTER TABLE sys_permission
+    ADD COLUMN IF NOT EXISTS revision BIGINT NOT NULL DEFAULT nextval('sys_permission_revision_seq');
+
+CREATE OR REPLACE FUNCTION sys_permission_bump_revision()
+    RETURNS TRIGGER AS
+$$
+BEGIN
+    NEW.revision := nextval('sys_permission_revision_seq');
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_sys_permission_revision ON sys_permission;
+CREATE TRIGGER trg_sys_permission_revision
+    BEFORE INSERT OR UPDATE
+    ON sys_permission
+    FOR EACH ROW
+EXECUTE FUNCTION sys_permission_bump_revision();
+
+-- 增量查询：WHERE revision > ? ORDER BY revision LIMIT ?
+CREATE INDEX IF NOT EXISTS idx_sys_permission_revision
+    ON sys_permission (revision);
+
+COMMENT ON COLUMN sys_permission.revision IS '变更版本号,INSERT/UPDATE时由触发器从序列分配,单调递增';
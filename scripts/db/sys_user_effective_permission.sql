@@ -0,0 +1,66 @@
+-- ======================================================================
+-- 用户有效权限物化表 DDL（PostgreSQL，与 sys_user_role 等权限表同库）
+-- ======================================================================
+-- 用途：
+-- - 报表、DBA 查询与其他服务可直接用 SQL 读取用户有效权限，
+--   findEffectivePermissionsByUserId 等查询由多表联接改为按主键前缀的单次索引查找
+-- - 每行是用户经由"已审批、启用且未删除的角色"获得的一个"启用且未删除的权限"
+-- - expire_time 为授予该权限的分配中最晚的过期时间，任一分配为永久授权时为 NULL；
+--   临时角色到期后无需改写本表，读取时按 expire_time > NOW() 过滤
+-- 维护：
+-- - 角色分配、角色授权、角色/权限状态变更在同一事务内按用户删除后重新计算
+--   （UserEffectivePermissionServiceImpl）
+-- - UserEffectivePermissionBackfillTask 按用户分批全量回填，每周对账一次
+-- 上线顺序：先执行本脚本（建表并完成首次回填），再发布读取本表的服务版本
+-- ======================================================================
+
+CREATE TABLE IF NOT EXISTS sys_user_effective_permission
+(
+    user_id         UUID         NOT NULL,
+    permission_id   UUID         NOT NULL,
+    permission_code VARCHAR(100) NOT NULL,
+    expire_time     TIMESTAMP    NULL,
+    update_time     TIMESTAMP    NOT NULL,
+    PRIMARY KEY (user_id, permission_id)
+);
+
+-- 反查：持有某权限的用户
+CREATE INDEX IF NOT EXISTS idx_uep_permission_code
+    ON sys_user_effective_permission (permission_code, user_id);
+
+-- 按权限/角色定位受影响用户
+CREATE INDEX IF NOT EXISTS idx_sys_user_role_role_user
+    ON sys_user_role (role_id, user_id);
+CREATE INDEX IF NOT EXISTS idx_sys_role_permission_permission_role
+    ON sys_role_permission (permission_id, role_id);
+
+COMMENT ON TABLE sys_user_effective_permission IS '用户有效权限物化表';
+COMMENT ON COLUMN sys_user_effective_permission.user_id IS '用户ID';
+COMMENT ON COLUMN sys_user_effective_permission.permission_id IS '权限ID';
+COMMENT ON COLUMN sys_user_effective_permission.permission_code IS '权限编码';
+COMMENT ON COLUMN sys_user_effective_permission.expire_time IS '最晚过期时间,NULL表示永久';
+COMMENT ON COLUMN sys_user_effective_permission.update_time IS '计算时间';
+
+-- 首次回填（之后由回填任务按批重建），重复执行时覆盖已有行
+INSERT INTO sys_user_effective_permission
+    (user_id, permission_id, permission_code, expire_time, update_time)
+SELECT ur.user_id,
+       p.id,
+       p.permission_code,
+       CASE WHEN COUNT(*) > COUNT(ur.expire_time) THEN NULL ELSE MAX(ur.expire_time) END,
+       NOW()
+FROM sys_user_role ur
+         INNER JOIN sys_role r ON ur.role_id = r.id
+         INNER JOIN sys_role_permission rp ON ur.role_id = rp.role_id
+         INNER JOIN sys_permission p ON rp.permission_id = p.id
+WHERE ur.approval_status = 1
+  AND (ur.expire_time IS NULL OR ur.expire_time > NOW())
+  AND r.status = 1
+  AND r.deleted = 0
+  AND p.status = 1
+  AND p.deleted = 0
+GROUP BY ur.user_id, p.id, p.permission_code
+ON CONFLICT (user_id, permission_id) DO UPDATE
+    SET permission_code = EXCLUDED.permission_code,
+        expire_time     = EXCLUDED.expire_time,
+        update_time     = EXCLUDED.update_time;
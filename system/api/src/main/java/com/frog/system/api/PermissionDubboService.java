@@ -1,5 +1,8 @@
 package com.frog.system.api;
 
+import com.frog.common.dto.permission.AccessCheckRequest;
+import com.frog.common.dto.permission.AccessDecision;
+
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -19,5 +22,16 @@ public interface PermissionDubboService {
      * Get all effective permission codes for a user.
      */
     Set<String> findAllPermissionsByUserId(UUID userId);
+
+    /**
+     * Match the route rule and decide access for the user in one round trip.
+     * Returns the decision, the matched rule and the rule revision it was based on.
+     */
+    AccessDecision checkAccess(UUID userId, String method, String path);
+
+    /**
+     * Batch variant of {@link #checkAccess} for many (user, route) pairs; results keep request order.
+     */
+    List<AccessDecision> checkAccessBatch(List<AccessCheckRequest> requests);
 }
 
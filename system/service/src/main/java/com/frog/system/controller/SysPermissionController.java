@@ -2,6 +2,8 @@ package com.frog.system.controller;
 
 import com.frog.common.log.annotation.AuditLog;
 import com.frog.common.response.ApiResponse;
+import com.frog.common.dto.permission.AccessCheckRequest;
+import com.frog.common.dto.permission.AccessDecision;
 import com.frog.common.dto.permission.PermissionDTO;
 import com.frog.system.service.ISysPermissionService;
 import lombok.RequiredArgsConstructor;
@@ -10,6 +12,7 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -86,6 +89,45 @@ public class SysPermissionController {
         return ApiResponse.success();
     }
 
+    /**
+     * 查询所有API权限（服务间调用：动态权限加载器全量同步）
+     */
+    @GetMapping("/api")
+    @PreAuthorize("@internalServiceGuard.isInternalCall()")
+    public List<Map<String, Object>> apiPermissions() {
+        return permissionService.findApiPermissions();
+    }
+
+    /**
+     * 查询版本号之后变更的API权限（服务间调用：动态权限加载器增量同步）
+     */
+    @GetMapping("/api/changes")
+    @PreAuthorize("@internalServiceGuard.isInternalCall()")
+    public List<Map<String, Object>> apiPermissionChanges(@RequestParam("sinceRevision") long sinceRevision,
+                                                          @RequestParam("limit") int limit) {
+        return permissionService.findApiPermissionChanges(sinceRevision, limit);
+    }
+
+    /**
+     * 访问判定（服务间调用：路由规则匹配与用户权限判断合并为一次调用）
+     */
+    @GetMapping("/check-access")
+    @PreAuthorize("@internalServiceGuard.isInternalCall()")
+    public AccessDecision checkAccess(@RequestParam("userId") UUID userId,
+                                      @RequestParam("method") String method,
+                                      @RequestParam("path") String path) {
+        return permissionService.checkAccess(userId, method, path);
+    }
+
+    /**
+     * 批量访问判定（服务间调用）
+     */
+    @PostMapping("/check-access/batch")
+    @PreAuthorize("@internalServiceGuard.isInternalCall()")
+    public List<AccessDecision> checkAccessBatch(@RequestBody List<AccessCheckRequest> requests) {
+        return permissionService.checkAccessBatch(requests);
+    }
+
     /**
      * 根据id查询权限
      */
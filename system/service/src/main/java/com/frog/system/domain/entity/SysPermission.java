@@ -1,6 +1,7 @@
 package com.frog.system.domain.entity;
 
 import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
 import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableName;
 import com.baomidou.mybatisplus.annotation.IdType;
@@ -110,4 +111,8 @@ public class SysPermission implements Serializable {
 
     @Schema(description = "逻辑删除")
     private Integer deleted;
+
+    @Schema(description = "变更版本号(由数据库触发器分配)")
+    @TableField(value = "revision", insertStrategy = FieldStrategy.NEVER, updateStrategy = FieldStrategy.NEVER)
+    private Long revision;
 }
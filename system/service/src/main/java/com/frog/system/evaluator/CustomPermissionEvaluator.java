@@ -1,5 +1,6 @@
 package com.frog.system.evaluator;
 
+import com.frog.common.access.UserPermissionNearCache;
 import com.frog.common.web.domain.SecurityUser;
 import com.frog.system.service.ISysPermissionService;
 import lombok.RequiredArgsConstructor;
@@ -22,6 +23,7 @@ import java.io.Serializable;
 @Slf4j
 public class CustomPermissionEvaluator implements PermissionEvaluator {
     private final ISysPermissionService permissionService;
+    private final UserPermissionNearCache userPermissionNearCache;
 
     /**
      * 判断用户是否有指定权限
@@ -35,8 +37,10 @@ public class CustomPermissionEvaluator implements PermissionEvaluator {
 
         String permissionCode = permission.toString();
 
-        // 检查用户是否有该权限
-        boolean hasPermission = permissionService.hasPermission(user.getUserId(), permissionCode);
+        // 检查用户是否有该权限：按用户缓存整个权限集合，不再按"用户:权限"逐个缓存判断结果
+        boolean hasPermission = userPermissionNearCache
+                .get(user.getUserId(), permissionService::getUserPermissions)
+                .contains(permissionCode);
 
         log.debug("Permission check - User: {}, Permission: {}, Result: {}",
                 user.getUsername(), permissionCode, hasPermission);
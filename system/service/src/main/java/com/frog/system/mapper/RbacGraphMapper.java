@@ -0,0 +1,63 @@
+package com.frog.system.mapper;
+
+import com.frog.system.domain.entity.SysRole;
+import com.frog.system.rbac.RolePermissionRow;
+import com.frog.system.rbac.UserRoleRow;
+import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 进程内RBAC图加载查询
+ *
+ * @author Deng
+ * createData 2025/12/1 10:50
+ */
+@Mapper
+public interface RbacGraphMapper {
+
+    /**
+     * 所有角色（含停用、已删除，用于区分构建后新增的角色）
+     */
+    @Select("""
+            SELECT id, role_code, status, deleted FROM sys_role
+            """)
+    List<SysRole> findAllRoles();
+
+    /**
+     * 角色→权限边，只包含启用且未删除的权限
+     */
+    @Select("""
+            SELECT rp.role_id, p.permission_code FROM sys_role_permission rp
+            INNER JOIN sys_permission p ON rp.permission_id = p.id
+            WHERE p.status = 1 AND p.deleted = 0
+            """)
+    List<RolePermissionRow> findRolePermissionEdges();
+
+    /**
+     * 流式读取所有已审批且未过期的用户角色分配
+     * PostgreSQL驱动在事务内（autocommit关闭）按fetchSize分批拉取游标，避免一次性加载全部分配
+     */
+    @Select("""
+            SELECT user_id, role_id, expire_time FROM sys_user_role
+            WHERE approval_status = 1
+            AND (expire_time IS NULL OR expire_time > NOW())
+            """)
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    @ResultType(UserRoleRow.class)
+    void streamActiveUserRoles(ResultHandler<UserRoleRow> handler);
+
+    /**
+     * 单个用户已审批且未过期的角色分配（增量更新）
+     */
+    @Select("""
+            SELECT user_id, role_id, expire_time FROM sys_user_role
+            WHERE user_id = #{userId}
+            AND approval_status = 1
+            AND (expire_time IS NULL OR expire_time > NOW())
+            """)
+    List<UserRoleRow> findActiveUserRoles(@Param("userId") UUID userId);
+}
@@ -0,0 +1,67 @@
+package com.frog.system.mapper;
+
+import com.frog.system.rbac.PermissionDictRow;
+import org.apache.ibatis.annotations.*;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 权限字典 Mapper 接口
+ * sys_permission_dict 只追加：ID取自序列且永不复用，已有行不删除、不改写
+ *
+ * @author Deng
+ * createData 2025/12/4 10:45
+ * @version 1.0
+ */
+@Mapper
+public interface SysPermissionDictMapper {
+
+    /**
+     * 字典纪元，未执行建表脚本时为null
+     */
+    @Select("""
+            SELECT epoch FROM sys_permission_dict_epoch WHERE id = 1
+            """)
+    Long findEpoch();
+
+    /**
+     * 全部编码及ID
+     */
+    @Select("""
+            SELECT id, permission_code FROM sys_permission_dict
+            """)
+    List<PermissionDictRow> findAll();
+
+    /**
+     * 按编码查询已分配的ID
+     */
+    @Select("""
+            <script>
+            SELECT id, permission_code FROM sys_permission_dict
+            WHERE permission_code IN
+            <foreach collection='codes' item='code' open='(' separator=',' close=')'>#{code}</foreach>
+            </script>
+            """)
+    List<PermissionDictRow> findByCodes(@Param("codes") Collection<String> codes);
+
+    /**
+     * 为新编码分配ID，并发插入同一编码时以先提交者为准
+     */
+    @Insert("""
+            <script>
+            INSERT INTO sys_permission_dict (permission_code) VALUES
+            <foreach collection='codes' item='code' separator=','>(#{code})</foreach>
+            ON CONFLICT (permission_code) DO NOTHING
+            </script>
+            """)
+    int insertCodes(@Param("codes") Collection<String> codes);
+
+    /**
+     * 权限表中的全部编码（含已删除，其编码恢复时沿用原ID）
+     */
+    @Select("""
+            SELECT DISTINCT permission_code FROM sys_permission WHERE permission_code IS NOT NULL
+            """)
+    List<String> findAllPermissionCodes();
+}
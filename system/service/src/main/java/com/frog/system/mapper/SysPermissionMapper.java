@@ -8,6 +8,7 @@ import org.apache.ibatis.annotations.*;
 import java.io.Serializable;
 import java.security.Permission;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -22,14 +23,12 @@ import java.util.UUID;
 @Mapper
 public interface SysPermissionMapper extends BaseMapper<SysPermission> {
     /**
-     * 查询用户权限
+     * 查询用户权限（有效权限物化表）
      */
     @Select("""
-            SELECT DISTINCT p.permission_code FROM sys_permission p
-            INNER JOIN sys_role_permission rp ON p.id = rp.permission_id
-            INNER JOIN sys_user_role ur ON rp.role_id = ur.role_id
-            WHERE ur.user_id = #{userId}
-            AND p.status = 1 AND p.deleted = 0
+            SELECT permission_code FROM sys_user_effective_permission
+            WHERE user_id = #{userId}
+            AND (expire_time IS NULL OR expire_time > NOW())
             """)
     Set<String> findAllPermissionsByUserId(@Param("userId") UUID userId);
 
@@ -66,14 +65,10 @@ public interface SysPermissionMapper extends BaseMapper<SysPermission> {
      * 检查资源权限
      */
     @Select("""
-            <script>
-            SELECT COUNT(*) > 0 FROM sys_user_role ur
-            INNER JOIN sys_role_permission rp ON ur.role_id = rp.role_id
-            INNER JOIN sys_permission p ON rp.permission_id = p.id
-            WHERE ur.user_id = #{userId}
-            AND p.permission_code = #{permission}
-            AND p.status = 1
-            </script>
+            SELECT COUNT(*) > 0 FROM sys_user_effective_permission
+            WHERE user_id = #{userId}
+            AND permission_code = #{permission}
+            AND (expire_time IS NULL OR expire_time > NOW())
             """)
     boolean checkResourcePermission(@Param("userId") UUID userId,
                                     @Param("resourceType") String resourceType,
@@ -140,4 +135,36 @@ public interface SysPermissionMapper extends BaseMapper<SysPermission> {
             SELECT COUNT(*) FROM sys_role_permission WHERE permission_id = #{permissionId}
             """)
     Integer countRolesByPermissionId(@Param("permissionId") UUID permissionId);
+
+    /**
+     * 查询使用该权限的角色ID（按role标签失效用户缓存）
+     */
+    @Select("""
+            SELECT role_id FROM sys_role_permission WHERE permission_id = #{permissionId}
+            """)
+    List<UUID> findRoleIdsByPermissionId(@Param("permissionId") UUID permissionId);
+
+    /**
+     * 查询所有生效的API权限（动态权限加载器全量同步）
+     */
+    @Select("""
+            SELECT id, api_path, http_method, permission_code, revision FROM sys_permission
+            WHERE permission_type = 4 AND api_path IS NOT NULL
+            AND status = 1 AND deleted = 0
+            """)
+    List<Map<String, Object>> findApiPermissions();
+
+    /**
+     * 查询版本号大于sinceRevision的权限行（动态权限加载器增量同步）
+     * 不过滤状态、类型与逻辑删除：停用、删除或改为非API类型的行同样需要下发，由加载器移除对应映射
+     */
+    @Select("""
+            SELECT id, api_path, http_method, permission_code, permission_type, status, deleted, revision
+            FROM sys_permission
+            WHERE revision > #{sinceRevision}
+            ORDER BY revision ASC
+            LIMIT #{limit}
+            """)
+    List<Map<String, Object>> findApiPermissionChanges(@Param("sinceRevision") long sinceRevision,
+                                                       @Param("limit") int limit);
 }
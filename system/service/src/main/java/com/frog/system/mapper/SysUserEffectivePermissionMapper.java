@@ -0,0 +1,88 @@
+package com.frog.system.mapper;
+
+import org.apache.ibatis.annotations.*;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 用户有效权限物化表 Mapper 接口
+ * sys_user_effective_permission 每行是用户经由已审批、启用角色获得的一个启用权限，
+ * expire_time 为授予该权限的分配中最晚的过期时间（任一分配永久则为NULL），读取时再按NOW()过滤
+ *
+ * @author Deng
+ * createData 2025/12/2 10:10
+ * @version 1.0
+ */
+@Mapper
+public interface SysUserEffectivePermissionMapper {
+
+    /**
+     * 删除用户的物化行
+     */
+    @Delete("""
+            <script>
+            DELETE FROM sys_user_effective_permission
+            WHERE user_id IN
+            <foreach collection='userIds' item='userId' open='(' separator=',' close=')'>#{userId}</foreach>
+            </script>
+            """)
+    int deleteByUserIds(@Param("userIds") Collection<UUID> userIds);
+
+    /**
+     * 按角色分配重新计算用户的物化行（需先删除）
+     */
+    @Insert("""
+            <script>
+            INSERT INTO sys_user_effective_permission
+            (user_id, permission_id, permission_code, expire_time, update_time)
+            SELECT ur.user_id, p.id, p.permission_code,
+                   CASE WHEN COUNT(*) > COUNT(ur.expire_time) THEN NULL ELSE MAX(ur.expire_time) END,
+                   NOW()
+            FROM sys_user_role ur
+            INNER JOIN sys_role r ON ur.role_id = r.id
+            INNER JOIN sys_role_permission rp ON ur.role_id = rp.role_id
+            INNER JOIN sys_permission p ON rp.permission_id = p.id
+            WHERE ur.user_id IN
+            <foreach collection='userIds' item='userId' open='(' separator=',' close=')'>#{userId}</foreach>
+            AND ur.approval_status = 1
+            AND (ur.expire_time IS NULL OR ur.expire_time > NOW())
+            AND r.status = 1 AND r.deleted = 0
+            AND p.status = 1 AND p.deleted = 0
+            GROUP BY ur.user_id, p.id, p.permission_code
+            </script>
+            """)
+    int insertByUserIds(@Param("userIds") Collection<UUID> userIds);
+
+    /**
+     * 持有该角色的用户（含未审批、已过期的分配，重新计算时统一过滤）
+     */
+    @Select("""
+            SELECT DISTINCT user_id FROM sys_user_role WHERE role_id = #{roleId}
+            """)
+    List<UUID> findUserIdsByRoleId(@Param("roleId") UUID roleId);
+
+    /**
+     * 经由任一角色持有该权限的用户
+     */
+    @Select("""
+            SELECT DISTINCT ur.user_id FROM sys_user_role ur
+            INNER JOIN sys_role_permission rp ON ur.role_id = rp.role_id
+            WHERE rp.permission_id = #{permissionId}
+            """)
+    List<UUID> findUserIdsByPermissionId(@Param("permissionId") UUID permissionId);
+
+    /**
+     * 回填：按ID顺序分页遍历用户（键集分页，afterId为null时从头开始）
+     */
+    @Select("""
+            <script>
+            SELECT id FROM sys_user
+            <if test='afterId != null'>WHERE id &gt; #{afterId}</if>
+            ORDER BY id
+            LIMIT #{limit}
+            </script>
+            """)
+    List<UUID> findUserIdsAfter(@Param("afterId") UUID afterId, @Param("limit") int limit);
+}
@@ -44,14 +44,13 @@ public interface SysUserMapper extends BaseMapper<SysUser> {
             """)
     Set<String> findRolesByUserId(@Param("userId") UUID userId);
 
+    /**
+     * 用户有效权限：读取物化表（见SysUserEffectivePermissionMapper），按主键前缀的单次索引查找
+     */
     @Select("""
-            SELECT DISTINCT p.permission_code FROM sys_permission p
-            INNER JOIN sys_role_permission rp ON p.id = rp.permission_id
-            INNER JOIN sys_user_role ur ON rp.role_id = ur.role_id
-            WHERE ur.user_id = #{userId}
-            AND p.status = 1 AND p.deleted = 0
-            AND ur.approval_status = 1
-            AND (ur.expire_time IS NULL OR ur.expire_time > NOW())
+            SELECT permission_code FROM sys_user_effective_permission
+            WHERE user_id = #{userId}
+            AND (expire_time IS NULL OR expire_time > NOW())
             """)
     Set<String> findEffectivePermissionsByUserId(@Param("userId") UUID userId);
 
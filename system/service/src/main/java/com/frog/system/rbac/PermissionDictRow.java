@@ -0,0 +1,16 @@
+package com.frog.system.rbac;
+
+import lombok.Data;
+
+/**
+ * 权限字典行：权限编码及其位ID
+ *
+ * @author Deng
+ * createData 2025/12/4 10:40
+ * @version 1.0
+ */
+@Data
+public class PermissionDictRow {
+    private Integer id;
+    private String permissionCode;
+}
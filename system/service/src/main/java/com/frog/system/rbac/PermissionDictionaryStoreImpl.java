@@ -0,0 +1,76 @@
+package com.frog.system.rbac;
+
+import com.frog.common.security.permission.PermissionDictionaryStore;
+import com.frog.system.mapper.SysPermissionDictMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 基于sys_permission_dict的权限字典存储
+ * 纪元在读取ID前后各查一次，不一致说明字典在读取期间被重建，本次结果作废
+ *
+ * @author Deng
+ * createData 2025/12/4 10:50
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+public class PermissionDictionaryStoreImpl implements PermissionDictionaryStore {
+    private final SysPermissionDictMapper dictMapper;
+
+    // 单条SQL的IN列表上限
+    private static final int BATCH = 500;
+
+    @Override
+    public Entries loadAll() {
+        long epoch = epoch();
+        Map<String, Integer> ids = new HashMap<>();
+        collect(dictMapper.findAll(), ids);
+        return entries(epoch, ids);
+    }
+
+    @Override
+    public Entries assign(Collection<String> codes) {
+        long epoch = epoch();
+        List<String> distinct = codes.stream().filter(Objects::nonNull).distinct().toList();
+        Map<String, Integer> ids = HashMap.newHashMap(distinct.size());
+        for (int from = 0; from < distinct.size(); from += BATCH) {
+            List<String> batch = distinct.subList(from, Math.min(from + BATCH, distinct.size()));
+            collect(dictMapper.findByCodes(batch), ids);
+            // 先查后插：已分配的编码不消耗序列值，只有并发插入同一编码时冲突方浪费一个ID
+            List<String> missing = batch.stream().filter(code -> !ids.containsKey(code)).toList();
+            if (!missing.isEmpty()) {
+                dictMapper.insertCodes(missing);
+                collect(dictMapper.findByCodes(missing), ids);
+            }
+        }
+        return entries(epoch, ids);
+    }
+
+    private Entries entries(long epoch, Map<String, Integer> ids) {
+        if (epoch() != epoch) {
+            throw new IllegalStateException("Permission dictionary was rebuilt while reading, epoch " + epoch);
+        }
+        return new Entries(epoch, ids);
+    }
+
+    private long epoch() {
+        Long epoch = dictMapper.findEpoch();
+        if (epoch == null) {
+            throw new IllegalStateException("Permission dictionary epoch missing, run scripts/db/sys_permission_dict.sql");
+        }
+        return epoch;
+    }
+
+    private static void collect(List<PermissionDictRow> rows, Map<String, Integer> ids) {
+        for (PermissionDictRow row : rows) {
+            ids.put(row.getPermissionCode(), row.getId());
+        }
+    }
+}
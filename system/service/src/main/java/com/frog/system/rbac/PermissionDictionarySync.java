@@ -0,0 +1,62 @@
+package com.frog.system.rbac;
+
+import com.frog.common.security.permission.PermissionDictionary;
+import com.frog.system.mapper.SysPermissionDictMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * 权限字典登记
+ * 启动时登记权限表中的全部编码，新增或修改权限时登记新编码；
+ * 只读Redis镜像的服务（如签发令牌的认证服务）因此无需自行分配ID
+ *
+ * @author Deng
+ * createData 2025/12/4 11:00
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PermissionDictionarySync {
+    private final PermissionDictionary permissionDictionary;
+    private final SysPermissionDictMapper dictMapper;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerAll() {
+        List<String> codes = dictMapper.findAllPermissionCodes();
+        if (codes.isEmpty()) {
+            return;
+        }
+        if (permissionDictionary.register(codes)) {
+            log.info("Permission dictionary registered: codes={}, epoch={}", codes.size(), permissionDictionary.epoch());
+        } else {
+            log.warn("Permission dictionary registration failed, permission bits stay disabled until it succeeds");
+        }
+    }
+
+    /**
+     * 登记权限编码；处于事务中时在提交后登记，回滚的权限不占用ID
+     */
+    public void register(String permissionCode) {
+        if (permissionCode == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    permissionDictionary.register(List.of(permissionCode));
+                }
+            });
+        } else {
+            permissionDictionary.register(List.of(permissionCode));
+        }
+    }
+}
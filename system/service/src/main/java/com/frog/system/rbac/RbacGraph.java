@@ -0,0 +1,284 @@
+package com.frog.system.rbac;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内RBAC图
+ * - 权限编码、角色按构建顺序编号为int，角色→权限邻接表为有序int数组（只包含启用且未删除的权限）
+ * - 用户→角色分配为并列的角色编号数组与过期时间数组（毫秒，永久授权为Long.MAX_VALUE），只包含已审批通过的分配
+ * - 角色与权限部分构建后不可变，角色/权限定义变更时整体重建；用户分配支持按用户整体替换（授予、撤销、延期、终止）
+ * 查询语义与SysUserMapper.findRolesByUserId/findEffectivePermissionsByUserId一致：
+ * 角色须启用且未删除，分配须已审批且未过期（过期在查询时按当前时间判断）
+ *
+ * @author Deng
+ * createData 2025/12/1 10:20
+ * @version 1.0
+ */
+public final class RbacGraph {
+    private static final long NEVER_EXPIRES = Long.MAX_VALUE;
+    private static final int[] EMPTY = new int[0];
+
+    private final String[] permissionCodes;
+    private final Map<UUID, Integer> roleIndex;
+    // 按编号反查角色ID
+    private final UUID[] roleIds;
+    // 停用或已删除的角色编码为null、邻接表为空，但保留编号，用于区分"未启用"与"构建后新增"
+    private final String[] roleCodes;
+    private final int[][] rolePermissions;
+    private final long edgeCount;
+    private final ConcurrentHashMap<UUID, Assignments> users;
+
+    /**
+     * 用户的角色分配，roles与expiresAt按下标对应
+     */
+    private record Assignments(int[] roles, long[] expiresAt) {}
+
+    /**
+     * 单条用户角色分配
+     *
+     * @param expiresAtMillis 过期时间（毫秒），null表示永久
+     */
+    public record Assignment(UUID roleId, Long expiresAtMillis) {}
+
+    private RbacGraph(String[] permissionCodes, Map<UUID, Integer> roleIndex, String[] roleCodes,
+                      int[][] rolePermissions, ConcurrentHashMap<UUID, Assignments> users) {
+        this.permissionCodes = permissionCodes;
+        this.roleIndex = roleIndex;
+        this.roleIds = new UUID[roleCodes.length];
+        roleIndex.forEach((roleId, role) -> roleIds[role] = roleId);
+        this.roleCodes = roleCodes;
+        this.rolePermissions = rolePermissions;
+        long edges = 0;
+        for (int[] permissions : rolePermissions) {
+            edges += permissions.length;
+        }
+        this.edgeCount = edges;
+        this.users = users;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 用户当前有效的权限编码
+     */
+    public Set<String> effectivePermissions(UUID userId, long nowMillis) {
+        Assignments assignments = users.get(userId);
+        if (assignments == null) {
+            return new HashSet<>();
+        }
+        int[] roles = assignments.roles();
+        long[] expiresAt = assignments.expiresAt();
+        int single = -1;
+        int activeRoles = 0;
+        for (int i = 0; i < roles.length; i++) {
+            if (expiresAt[i] > nowMillis && rolePermissions[roles[i]].length > 0) {
+                single = roles[i];
+                activeRoles++;
+            }
+        }
+        if (activeRoles == 0) {
+            return new HashSet<>();
+        }
+        if (activeRoles == 1) {
+            return toCodes(rolePermissions[single]);
+        }
+        // 多个角色：位图合并去重
+        long[] words = new long[(permissionCodes.length + 63) >>> 6];
+        int count = 0;
+        for (int i = 0; i < roles.length; i++) {
+            if (expiresAt[i] <= nowMillis) {
+                continue;
+            }
+            for (int permission : rolePermissions[roles[i]]) {
+                long bit = 1L << permission;
+                if ((words[permission >>> 6] & bit) == 0) {
+                    words[permission >>> 6] |= bit;
+                    count++;
+                }
+            }
+        }
+        Set<String> result = HashSet.newHashSet(count);
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                result.add(permissionCodes[(w << 6) + Long.numberOfTrailingZeros(word)]);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 用户当前有效的角色编码
+     */
+    public Set<String> roleCodes(UUID userId, long nowMillis) {
+        Assignments assignments = users.get(userId);
+        Set<String> result = new HashSet<>();
+        if (assignments == null) {
+            return result;
+        }
+        for (int i = 0; i < assignments.roles().length; i++) {
+            String code = roleCodes[assignments.roles()[i]];
+            if (code != null && assignments.expiresAt()[i] > nowMillis) {
+                result.add(code);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 用户当前分配的角色ID（含未启用的角色），角色启停或授权变更都会影响该用户
+     */
+    public List<UUID> roleIds(UUID userId, long nowMillis) {
+        Assignments assignments = users.get(userId);
+        if (assignments == null) {
+            return new ArrayList<>();
+        }
+        List<UUID> result = new ArrayList<>(assignments.roles().length);
+        for (int i = 0; i < assignments.roles().length; i++) {
+            if (assignments.expiresAt()[i] > nowMillis) {
+                result.add(roleIds[assignments.roles()[i]]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 整体替换用户的角色分配（已按审批状态过滤）
+     *
+     * @return 分配中的角色是否都已在图中；存在构建后新增的角色时返回false，由调用方安排重建
+     */
+    public boolean replaceUser(UUID userId, Collection<Assignment> assignments) {
+        Assignments compact = compact(assignments);
+        if (compact.roles().length == 0) {
+            users.remove(userId);
+        } else {
+            users.put(userId, compact);
+        }
+        return compact.roles().length == distinctRoles(assignments);
+    }
+
+    public int userCount() {
+        return users.size();
+    }
+
+    public int roleCount() {
+        return roleCodes.length;
+    }
+
+    public int permissionCount() {
+        return permissionCodes.length;
+    }
+
+    public long edgeCount() {
+        return edgeCount;
+    }
+
+    private Assignments compact(Collection<Assignment> assignments) {
+        // 同一角色存在多条分配（如永久与临时并存）时取最晚的过期时间
+        Map<Integer, Long> merged = new TreeMap<>();
+        for (Assignment assignment : assignments) {
+            Integer role = roleIndex.get(assignment.roleId());
+            if (role == null) {
+                continue;
+            }
+            long expiresAt = assignment.expiresAtMillis() != null ? assignment.expiresAtMillis() : NEVER_EXPIRES;
+            merged.merge(role, expiresAt, Math::max);
+        }
+        if (merged.isEmpty()) {
+            return new Assignments(EMPTY, new long[0]);
+        }
+        int[] roles = new int[merged.size()];
+        long[] expiresAt = new long[merged.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Long> entry : merged.entrySet()) {
+            roles[i] = entry.getKey();
+            expiresAt[i++] = entry.getValue();
+        }
+        return new Assignments(roles, expiresAt);
+    }
+
+    private static long distinctRoles(Collection<Assignment> assignments) {
+        return assignments.stream().map(Assignment::roleId).distinct().count();
+    }
+
+    private Set<String> toCodes(int[] permissions) {
+        Set<String> result = HashSet.newHashSet(permissions.length);
+        for (int permission : permissions) {
+            result.add(permissionCodes[permission]);
+        }
+        return result;
+    }
+
+    /**
+     * 构建器：先登记角色，再添加角色权限与用户分配；引用未登记角色的边被忽略
+     */
+    public static final class Builder {
+        private final Map<String, Integer> permissionIndex = new HashMap<>();
+        private final List<String> permissionCodes = new ArrayList<>();
+        private final Map<UUID, Integer> roleIndex = new HashMap<>();
+        private final List<String> roleCodes = new ArrayList<>();
+        private final List<BitSet> rolePermissions = new ArrayList<>();
+        private final Map<UUID, List<Assignment>> users = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * 登记角色
+         *
+         * @param active 是否启用且未删除；未启用的角色不授予任何权限
+         */
+        public Builder role(UUID roleId, String roleCode, boolean active) {
+            if (roleId == null || roleIndex.containsKey(roleId)) {
+                return this;
+            }
+            roleIndex.put(roleId, roleCodes.size());
+            roleCodes.add(active ? roleCode : null);
+            rolePermissions.add(active ? new BitSet() : null);
+            return this;
+        }
+
+        /**
+         * 角色授予权限（权限须已按启用、未删除过滤）
+         */
+        public Builder grant(UUID roleId, String permissionCode) {
+            Integer role = roleIndex.get(roleId);
+            if (role == null || permissionCode == null || rolePermissions.get(role) == null) {
+                return this;
+            }
+            Integer permission = permissionIndex.computeIfAbsent(permissionCode, code -> {
+                permissionCodes.add(code);
+                return permissionCodes.size() - 1;
+            });
+            rolePermissions.get(role).set(permission);
+            return this;
+        }
+
+        /**
+         * 用户角色分配（须已按审批状态过滤）
+         */
+        public Builder assign(UUID userId, UUID roleId, Long expiresAtMillis) {
+            if (userId == null || roleId == null) {
+                return this;
+            }
+            users.computeIfAbsent(userId, id -> new ArrayList<>(2)).add(new Assignment(roleId, expiresAtMillis));
+            return this;
+        }
+
+        public RbacGraph build() {
+            int[][] adjacency = new int[roleCodes.size()][];
+            for (int i = 0; i < adjacency.length; i++) {
+                BitSet bits = rolePermissions.get(i);
+                adjacency[i] = bits == null || bits.isEmpty() ? EMPTY : bits.stream().toArray();
+            }
+            RbacGraph graph = new RbacGraph(permissionCodes.toArray(new String[0]), Map.copyOf(roleIndex),
+                    roleCodes.toArray(new String[0]), adjacency, new ConcurrentHashMap<>(users.size()));
+            users.forEach(graph::replaceUser);
+            return graph;
+        }
+    }
+}
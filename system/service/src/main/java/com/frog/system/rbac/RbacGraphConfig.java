@@ -0,0 +1,67 @@
+package com.frog.system.rbac;
+
+import com.frog.common.access.UserPermissionChangePublisher;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
+
+/**
+ * 进程内RBAC图：订阅用户权限变更广播，暴露图规模与查询来源指标
+ *
+ * @author Deng
+ * createData 2025/12/1 11:40
+ * @version 1.0
+ */
+@Configuration
+public class RbacGraphConfig {
+
+    @Bean
+    public RedisMessageListenerContainer rbacGraphListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            RbacGraphService rbacGraphService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(new MessageListenerAdapter(rbacGraphService),
+                new ChannelTopic(UserPermissionChangePublisher.CHANNEL));
+        return container;
+    }
+
+    @Bean
+    public MeterBinder rbacGraphMeters(RbacGraphService rbacGraphService) {
+        return registry -> {
+            Gauge.builder("system.rbac.graph.users", rbacGraphService, RbacGraphService::userCount)
+                    .description("Users with active role assignments held in the RBAC graph")
+                    .register(registry);
+            Gauge.builder("system.rbac.graph.edges", rbacGraphService, RbacGraphService::edgeCount)
+                    .description("Role to permission edges held in the RBAC graph")
+                    .register(registry);
+            Gauge.builder("system.rbac.graph.build.millis", rbacGraphService, RbacGraphService::lastBuildMillis)
+                    .description("Duration of the last full RBAC graph build")
+                    .register(registry);
+            FunctionCounter.builder("system.rbac.graph.queries", rbacGraphService,
+                            s -> (double) s.graphQueryCount())
+                    .description("Effective-permission and role queries answered by the RBAC graph")
+                    .tag("source", "graph")
+                    .register(registry);
+            FunctionCounter.builder("system.rbac.graph.queries", rbacGraphService,
+                            s -> (double) s.fallbackQueryCount())
+                    .description("Effective-permission and role queries answered by the database")
+                    .tag("source", "database")
+                    .register(registry);
+            FunctionCounter.builder("system.rbac.graph.rebuilds", rbacGraphService,
+                            s -> (double) s.rebuildCount())
+                    .description("Full RBAC graph rebuilds")
+                    .register(registry);
+            FunctionCounter.builder("system.rbac.graph.user.reloads", rbacGraphService,
+                            s -> (double) s.userReloadCount())
+                    .description("Incremental per-user assignment reloads")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package com.frog.system.rbac;
+
+import com.frog.system.domain.entity.SysRole;
+import com.frog.system.mapper.RbacGraphMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * RBAC图加载
+ * 全量构建在同一个REPEATABLE READ只读事务中读取角色、角色权限与用户分配，三张表来自同一个一致性快照，
+ * 不会出现角色已读、其权限或分配在读取之间被修改的交错状态
+ *
+ * @author Deng
+ * createData 2025/12/1 11:00
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+public class RbacGraphLoader {
+    private final RbacGraphMapper rbacGraphMapper;
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public RbacGraph loadSnapshot() {
+        RbacGraph.Builder builder = RbacGraph.builder();
+        for (SysRole role : rbacGraphMapper.findAllRoles()) {
+            boolean active = Objects.equals(role.getStatus(), 1) && !Objects.equals(role.getDeleted(), 1);
+            builder.role(role.getId(), role.getRoleCode(), active);
+        }
+        for (RolePermissionRow edge : rbacGraphMapper.findRolePermissionEdges()) {
+            builder.grant(edge.getRoleId(), edge.getPermissionCode());
+        }
+        rbacGraphMapper.streamActiveUserRoles(context -> {
+            UserRoleRow row = context.getResultObject();
+            builder.assign(row.getUserId(), row.getRoleId(), toMillis(row.getExpireTime()));
+        });
+        return builder.build();
+    }
+
+    /**
+     * 单个用户当前的角色分配
+     */
+    public List<RbacGraph.Assignment> loadUser(UUID userId) {
+        List<UserRoleRow> rows = rbacGraphMapper.findActiveUserRoles(userId);
+        List<RbacGraph.Assignment> assignments = new ArrayList<>(rows.size());
+        for (UserRoleRow row : rows) {
+            assignments.add(new RbacGraph.Assignment(row.getRoleId(), toMillis(row.getExpireTime())));
+        }
+        return assignments;
+    }
+
+    // expire_time按应用时区解释，与数据库NOW()一致的前提是两者时区相同
+    private static Long toMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : null;
+    }
+}
@@ -0,0 +1,23 @@
+package com.frog.system.rbac;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 进程内RBAC图配置
+ *
+ * @author Deng
+ * createData 2025/12/1 10:45
+ * @version 1.0
+ */
+@Component
+@ConfigurationProperties(prefix = "frog.system.rbac-graph")
+@Data
+public class RbacGraphProperties {
+    /** 是否启用，关闭后有效权限与角色查询直接走数据库 */
+    private boolean enabled = true;
+
+    /** 全量重建间隔（毫秒），兜底丢失的变更通知 */
+    private long rebuildIntervalMs = 600_000;
+}
@@ -0,0 +1,342 @@
+package com.frog.system.rbac;
+
+import com.frog.common.access.UserPermissionChangePublisher;
+import com.frog.common.cache.spring.TwoLevelCacheManager;
+import com.frog.system.mapper.SysUserMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户有效权限与角色查询（进程内RBAC图）
+ * - 启动完成后从数据库一致性快照构建{@link RbacGraph}，构建完成前以及关闭时回退到SysUserMapper的联表查询
+ * - 订阅{@link UserPermissionChangePublisher}的变更广播：用户维度变更（授予、撤销、临时角色延期/终止/过期）
+ *   只重新读取该用户的分配并替换；角色或权限定义变更整体重建
+ * - 全量重建在独立的单线程上执行，不占用Redis监听线程；执行期间到达的重建请求合并为一次
+ * - 重建期间到达的用户变更在新图发布后再应用一次，避免被较早的快照覆盖
+ * - 定期全量重建，兜底丢失的通知
+ * - 缓存按标签失效发生在提交后，与本节点收到变更通知没有先后保证，期间回源会按旧图写回缓存：
+ *   用户变更重新加载后再按用户标签失效一次；定义变更从收到通知到重建完成期间查询回退到数据库，
+ *   重建完成后清空由图派生的缓存；两种情况都再广播一次，让各服务的近端缓存丢弃期间从旧图加载的结果
+ *
+ * @author Deng
+ * createData 2025/12/1 11:20
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RbacGraphService implements MessageListener {
+    private final RbacGraphLoader graphLoader;
+    private final RbacGraphProperties properties;
+    private final SysUserMapper sysUserMapper;
+    private final TwoLevelCacheManager cacheManager;
+    private final UserPermissionChangePublisher permissionChangePublisher;
+
+    /** 回源读取本图的缓存 */
+    private static final List<String> DERIVED_CACHES =
+            List.of("userPermissions", "userRoles", "userInfo", "userDetails");
+
+    private volatile RbacGraph graph;
+
+    // 重建：同一时刻只有一个在执行，执行期间到达的请求合并为结束后的一次补充重建
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "rbac-graph-rebuild");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean rebuildRunning = new AtomicBoolean(false);
+    private volatile boolean rebuildRequested;
+    private volatile boolean rebuilding;
+    private final Set<UUID> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    // 增量更新失败的用户，在成功重新加载前查询回退到数据库
+    private final Set<UUID> unsyncedUsers = ConcurrentHashMap.newKeySet();
+    // 收到的定义变更序号与已由重建应用的序号，二者不同时查询回退到数据库
+    private final AtomicLong definitionChanges = new AtomicLong();
+    private volatile long appliedDefinitionChanges;
+
+    private final LongAdder graphQueries = new LongAdder();
+    private final LongAdder fallbackQueries = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder userReloads = new LongAdder();
+    private volatile long lastBuildMillis;
+
+    /**
+     * 用户当前有效的权限编码
+     */
+    public Set<String> getEffectivePermissions(UUID userId) {
+        RbacGraph current = graphFor(userId);
+        if (current == null) {
+            fallbackQueries.increment();
+            return sysUserMapper.findEffectivePermissionsByUserId(userId);
+        }
+        graphQueries.increment();
+        return current.effectivePermissions(userId, System.currentTimeMillis());
+    }
+
+    /**
+     * 用户当前有效的角色编码
+     */
+    public Set<String> getRoleCodes(UUID userId) {
+        RbacGraph current = graphFor(userId);
+        if (current == null) {
+            fallbackQueries.increment();
+            return sysUserMapper.findRolesByUserId(userId);
+        }
+        graphQueries.increment();
+        return current.roleCodes(userId, System.currentTimeMillis());
+    }
+
+    /**
+     * 用户当前分配的角色ID，用于缓存标签：图可用时不访问数据库
+     */
+    public List<UUID> getRoleIds(UUID userId) {
+        RbacGraph current = graphFor(userId);
+        if (current == null) {
+            fallbackQueries.increment();
+            return sysUserMapper.findRoleIdsByUserId(userId);
+        }
+        graphQueries.increment();
+        return current.roleIds(userId, System.currentTimeMillis());
+    }
+
+    private RbacGraph graphFor(UUID userId) {
+        if (!properties.isEnabled() || unsyncedUsers.contains(userId)
+                || definitionChanges.get() != appliedDefinitionChanges) {
+            return null;
+        }
+        return graph;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialBuild() {
+        if (properties.isEnabled()) {
+            requestRebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${frog.system.rbac-graph.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        if (properties.isEnabled() && graph != null) {
+            requestRebuild();
+        }
+    }
+
+    /**
+     * 角色或权限定义发生变更：重建完成前查询回退到数据库
+     */
+    public void onDefinitionsChanged() {
+        definitionChanges.incrementAndGet();
+        requestRebuild();
+    }
+
+    /**
+     * 请求全量重建（异步），已有重建在执行时合并到其结束后的一次补充重建
+     */
+    public void requestRebuild() {
+        rebuildRequested = true;
+        if (!rebuildRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuildExecutor.execute(this::drainRebuilds);
+        } catch (RejectedExecutionException e) {
+            // 关闭中
+            rebuildRunning.set(false);
+        }
+    }
+
+    private void drainRebuilds() {
+        do {
+            try {
+                while (rebuildRequested) {
+                    rebuildRequested = false;
+                    rebuild();
+                }
+            } finally {
+                rebuildRunning.set(false);
+            }
+            // 释放标志前后到达的请求由本线程继续处理
+        } while (rebuildRequested && rebuildRunning.compareAndSet(false, true));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        Set<UUID> unsyncedBefore = new HashSet<>(unsyncedUsers);
+        // 先取序号再读快照：快照包含该序号之前提交的全部定义变更
+        long definitionChange = definitionChanges.get();
+        rebuilding = true;
+        RbacGraph built;
+        try {
+            built = graphLoader.loadSnapshot();
+        } catch (Exception e) {
+            rebuilding = false;
+            changedDuringRebuild.clear();
+            log.warn("RBAC graph rebuild failed, keeping previous graph: {}", e.getMessage());
+            return;
+        }
+        graph = built;
+        rebuilding = false;
+        unsyncedUsers.removeAll(unsyncedBefore);
+        for (UUID userId : List.copyOf(changedDuringRebuild)) {
+            changedDuringRebuild.remove(userId);
+            reloadUser(built, userId);
+            evictDerived(userId);
+        }
+        if (definitionChange != appliedDefinitionChanges) {
+            appliedDefinitionChanges = definitionChange;
+            evictAllDerived();
+        }
+        rebuilds.increment();
+        lastBuildMillis = System.currentTimeMillis() - start;
+        log.info("RBAC graph built: users={}, roles={}, permissions={}, edges={}, took={}ms",
+                built.userCount(), built.roleCount(), built.permissionCount(), built.edgeCount(), lastBuildMillis);
+    }
+
+    /**
+     * 用户的角色分配发生变更
+     */
+    public void onUserChanged(UUID userId) {
+        if (rebuilding) {
+            changedDuringRebuild.add(userId);
+        }
+        RbacGraph current = graph;
+        if (current != null) {
+            reloadUser(current, userId);
+        }
+        evictDerived(userId);
+    }
+
+    /**
+     * 图已应用该用户的变更后再失效一次：清除失效与应用之间按旧图写回的缓存条目
+     */
+    private void evictDerived(UUID userId) {
+        try {
+            cacheManager.evictByTags(List.of("user:" + userId));
+        } catch (Exception e) {
+            log.warn("Failed to evict caches derived from RBAC graph for user {}: {}", userId, e.getMessage());
+        }
+        permissionChangePublisher.userApplied(userId);
+    }
+
+    /**
+     * 定义变更由重建应用后清空派生缓存：受影响的角色无法从通知中确定
+     */
+    private void evictAllDerived() {
+        for (String name : DERIVED_CACHES) {
+            try {
+                Cache cache = cacheManager.getCache(name);
+                if (cache != null) {
+                    cache.clear();
+                }
+            } catch (Exception e) {
+                log.warn("Failed to clear cache {} derived from RBAC graph: {}", name, e.getMessage());
+            }
+        }
+        permissionChangePublisher.allApplied();
+    }
+
+    private void reloadUser(RbacGraph target, UUID userId) {
+        try {
+            boolean allRolesKnown = target.replaceUser(userId, graphLoader.loadUser(userId));
+            unsyncedUsers.remove(userId);
+            userReloads.increment();
+            if (!allRolesKnown) {
+                // 分配了构建后新增的角色
+                requestRebuild();
+            }
+        } catch (Exception e) {
+            unsyncedUsers.add(userId);
+            log.warn("Failed to reload RBAC assignments for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * 消息格式见{@link UserPermissionChangePublisher}
+     */
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            if (body.startsWith("a:")) {
+                onDefinitionsChanged();
+                return;
+            }
+            if (body.startsWith("u:")) {
+                onUserChanged(UUID.fromString(body.substring(2, body.lastIndexOf(':'))));
+                return;
+            }
+            if (body.startsWith("g:")) {
+                // 各节点应用变更后的广播，只用于近端缓存
+                return;
+            }
+            log.warn("Unknown user permission change message: {}", body);
+        } catch (Exception e) {
+            log.warn("Failed to process user permission change message: {}", body, e);
+            onDefinitionsChanged();
+        }
+    }
+
+    public boolean isReady() {
+        return graph != null;
+    }
+
+    public int userCount() {
+        RbacGraph current = graph;
+        return current != null ? current.userCount() : 0;
+    }
+
+    public long edgeCount() {
+        RbacGraph current = graph;
+        return current != null ? current.edgeCount() : 0;
+    }
+
+    public long graphQueryCount() {
+        return graphQueries.sum();
+    }
+
+    public long fallbackQueryCount() {
+        return fallbackQueries.sum();
+    }
+
+    public long rebuildCount() {
+        return rebuilds.sum();
+    }
+
+    public long userReloadCount() {
+        return userReloads.sum();
+    }
+
+    public long lastBuildMillis() {
+        return lastBuildMillis;
+    }
+}
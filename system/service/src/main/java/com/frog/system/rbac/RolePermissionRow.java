@@ -0,0 +1,18 @@
+package com.frog.system.rbac;
+
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * RBAC图加载行：角色授予的权限编码
+ *
+ * @author Deng
+ * createData 2025/12/1 10:40
+ * @version 1.0
+ */
+@Data
+public class RolePermissionRow {
+    private UUID roleId;
+    private String permissionCode;
+}
@@ -0,0 +1,20 @@
+package com.frog.system.rbac;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * RBAC图加载行：用户角色分配
+ *
+ * @author Deng
+ * createData 2025/12/1 10:40
+ * @version 1.0
+ */
+@Data
+public class UserRoleRow {
+    private UUID userId;
+    private UUID roleId;
+    private LocalDateTime expireTime;
+}
@@ -1,5 +1,7 @@
 package com.frog.system.rpc;
 
+import com.frog.common.dto.permission.AccessCheckRequest;
+import com.frog.common.dto.permission.AccessDecision;
 import com.frog.system.api.PermissionDubboService;
 import com.frog.system.service.ISysPermissionService;
 import org.apache.dubbo.config.annotation.DubboService;
@@ -27,5 +29,14 @@ public class PermissionDubboServiceImpl implements PermissionDubboService {
     public Set<String> findAllPermissionsByUserId(UUID userId) {
         return permissionService.getUserPermissions(userId);
     }
-}
 
+    @Override
+    public AccessDecision checkAccess(UUID userId, String method, String path) {
+        return permissionService.checkAccess(userId, method, path);
+    }
+
+    @Override
+    public List<AccessDecision> checkAccessBatch(List<AccessCheckRequest> requests) {
+        return permissionService.checkAccessBatch(requests);
+    }
+}
@@ -1,11 +1,14 @@
 package com.frog.system.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.frog.common.dto.permission.AccessCheckRequest;
+import com.frog.common.dto.permission.AccessDecision;
 import com.frog.common.dto.permission.PermissionDTO;
 import com.frog.system.domain.entity.SysPermission;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -42,4 +45,18 @@ public interface ISysPermissionService extends IService<SysPermission> {
     void updatePermission(PermissionDTO permissionDTO);
 
     void deletePermission(UUID id);
+
+    List<Map<String, Object>> findApiPermissions();
+
+    List<Map<String, Object>> findApiPermissionChanges(long sinceRevision, int limit);
+
+    /**
+     * Resolve the route rule and decide access for one user in a single call.
+     */
+    AccessDecision checkAccess(UUID userId, String method, String path);
+
+    /**
+     * Batch variant of {@link #checkAccess}; results keep the order of the requests.
+     */
+    List<AccessDecision> checkAccessBatch(List<AccessCheckRequest> requests);
 }
@@ -0,0 +1,32 @@
+package com.frog.system.service;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * <p>
+ * 用户有效权限物化表维护
+ * </p>
+ * 均加入调用方事务：与角色分配、角色授权、权限状态的修改一同提交或回滚
+ *
+ * @author Deng
+ * createData 2025/12/2 10:30
+ * @version 1.0
+ */
+public interface IUserEffectivePermissionService {
+
+    /**
+     * 重新计算指定用户的有效权限
+     */
+    void refreshUsers(Collection<UUID> userIds);
+
+    /**
+     * 重新计算持有该角色的所有用户
+     */
+    void refreshUsersOfRole(UUID roleId);
+
+    /**
+     * 重新计算经由任一角色持有该权限的所有用户
+     */
+    void refreshUsersOfPermission(UUID permissionId);
+}
@@ -1,5 +1,7 @@
 package com.frog.system.service.Impl;
 
+import com.frog.common.cache.tag.CacheEvictByTag;
+import com.frog.common.cache.tag.CacheTags;
 import com.frog.common.dto.dept.DeptDTO;
 import com.frog.common.exception.BusinessException;
 import com.frog.common.util.UUIDv7Util;
@@ -55,6 +57,7 @@ public class SysDeptServiceImpl extends ServiceImpl<SysDeptMapper, SysDept> impl
      */
     @Override
     @Cacheable(value = "deptChildren", key = "#deptId")
+    @CacheTags("#result.![ 'dept:' + #this ]")
     public List<UUID> getDeptAndChildren(UUID deptId) {
         return deptMapper.selectDeptAndChildren(deptId);
     }
@@ -64,7 +67,8 @@ public class SysDeptServiceImpl extends ServiceImpl<SysDeptMapper, SysDept> impl
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = {"deptTree", "deptChildren"}, allEntries = true)
+    @CacheEvict(value = "deptTree", key = "'all'")
+    @CacheEvictByTag("'dept:' + #deptDTO.parentId")
     public void addDept(DeptDTO deptDTO) {
         // 1. 校验部门编码唯一性
         if (deptMapper.existsByDeptCode(deptDTO.getDeptCode())) {
@@ -95,7 +99,8 @@ public class SysDeptServiceImpl extends ServiceImpl<SysDeptMapper, SysDept> impl
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = {"deptTree", "deptChildren"}, allEntries = true)
+    @CacheEvict(value = "deptTree", key = "'all'")
+    @CacheEvictByTag({"'dept:' + #deptDTO.id", "'dept:' + #deptDTO.parentId"})
     public void updateDept(DeptDTO deptDTO) {
         SysDept existDept = deptMapper.selectById(deptDTO.getId());
         if (existDept == null) {
@@ -129,7 +134,8 @@ public class SysDeptServiceImpl extends ServiceImpl<SysDeptMapper, SysDept> impl
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = {"deptTree", "deptChildren"}, allEntries = true)
+    @CacheEvict(value = "deptTree", key = "'all'")
+    @CacheEvictByTag("'dept:' + #id")
     public void deleteDept(UUID id) {
         SysDept dept = deptMapper.selectById(id);
         if (dept == null) {
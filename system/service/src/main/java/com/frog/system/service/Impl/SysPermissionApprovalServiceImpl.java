@@ -3,6 +3,7 @@ package com.frog.system.service.Impl;
 import com.alibaba.fastjson2.JSON;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.frog.common.access.UserPermissionChangePublisher;
 import com.frog.common.exception.BusinessException;
 import com.frog.common.util.UUIDv7Util;
 import com.frog.common.dto.approval.ApprovalDTO;
@@ -13,6 +14,7 @@ import com.frog.system.domain.entity.SysUser;
 import com.frog.system.mapper.SysPermissionApprovalMapper;
 import com.frog.system.mapper.SysUserMapper;
 import com.frog.system.service.ISysPermissionApprovalService;
+import com.frog.system.service.IUserEffectivePermissionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -35,6 +37,8 @@ public class SysPermissionApprovalServiceImpl
         implements ISysPermissionApprovalService {
     private final SysPermissionApprovalMapper approvalMapper;
     private final SysUserMapper userMapper;
+    private final IUserEffectivePermissionService effectivePermissionService;
+    private final UserPermissionChangePublisher permissionChangePublisher;
 
     /**
      * 提交权限申请
@@ -191,6 +195,8 @@ public class SysPermissionApprovalServiceImpl
                                         .toList();
                                 userMapper.batchInsertUserRoles(targetUserId, roleIds,
                                         SecurityUtils.getCurrentUserUuid().orElse(null));
+                                effectivePermissionService.refreshUsers(List.of(targetUserId));
+                                permissionChangePublisher.userChanged(targetUserId);
                             });
 
             case 2 -> // 权限申请
@@ -2,16 +2,30 @@ package com.frog.system.service.Impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.frog.common.access.UserPermissionChangePublisher;
+import com.frog.common.access.UserPermissionNearCache;
 import com.frog.common.exception.BusinessException;
 import com.frog.common.util.UUIDv7Util;
+import com.frog.common.dto.permission.AccessCheckRequest;
+import com.frog.common.dto.permission.AccessDecision;
 import com.frog.common.dto.permission.PermissionDTO;
+import com.frog.common.cache.tag.CacheEvictByTag;
+import com.frog.common.cache.tag.CacheTags;
+import com.frog.common.security.loader.DynamicPermissionLoader;
+import com.frog.common.security.loader.PermissionChangeNotifier;
+import com.frog.common.security.loader.PermissionRouteIndex;
+import com.frog.common.security.loader.PermissionSnapshot;
 import com.frog.system.domain.entity.SysPermission;
 import com.frog.system.mapper.SysPermissionMapper;
+import com.frog.system.rbac.PermissionDictionarySync;
+import com.frog.system.rbac.RbacGraphService;
 import com.frog.system.service.ISysPermissionService;
+import com.frog.system.service.IUserEffectivePermissionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.BeanUtils;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -32,16 +46,35 @@ import java.util.stream.Collectors;
 public class SysPermissionServiceImpl extends ServiceImpl<SysPermissionMapper, SysPermission>
         implements ISysPermissionService {
     private final SysPermissionMapper sysPermissionMapper;
+    private final PermissionChangeNotifier permissionChangeNotifier;
+    private final UserPermissionChangePublisher userPermissionChangePublisher;
+    private final DynamicPermissionLoader permissionLoader;
+    private final UserPermissionNearCache userPermissionNearCache;
+    private final RbacGraphService rbacGraphService;
+    private final IUserEffectivePermissionService effectivePermissionService;
+    private final PermissionDictionarySync permissionDictionarySync;
+
+    // 增量同步单次返回的最大行数，超出时由调用方改为全量同步
+    private static final int MAX_CHANGE_BATCH = 5000;
+
+    // 批量访问判定单次最多处理的（用户, 路由）数
+    private static final int MAX_ACCESS_CHECK_BATCH = 500;
+
+    // 权限快照尚未加载时由数据库规则编译的路由索引，短时复用，避免每次判定都查库编译
+    private static final long COLD_START_SNAPSHOT_TTL_MS = 10_000L;
+    private volatile PermissionSnapshot coldStartSnapshot = PermissionSnapshot.EMPTY;
 
     /**
      * 检查用户是否有指定权限
+     * 带角色标签的缓存key以t1:开头：上线后不再命中未挂角色标签的旧条目，旧条目随TTL过期
      */
     @Cacheable(
             value = "userPermissions",
-            key = "#userId + ':' + #permissionCode"
+            key = "'t1:' + #userId + ':' + #permissionCode"
     )
+    @CacheTags({"'user:' + #userId", "@rbacGraphService.getRoleIds(#userId).![ 'role:' + #this ]"})
     public boolean hasPermission(UUID userId, String permissionCode) {
-        Set<String> permissions = sysPermissionMapper.findAllPermissionsByUserId(userId);
+        Set<String> permissions = rbacGraphService.getEffectivePermissions(userId);
         return permissions.contains(permissionCode);
     }
 
@@ -60,10 +93,11 @@ public class SysPermissionServiceImpl extends ServiceImpl<SysPermissionMapper, S
      */
     @Cacheable(
             value = "userRoles",
-            key = "#userId"
+            key = "'t1:' + #userId"
     )
+    @CacheTags({"'user:' + #userId", "@rbacGraphService.getRoleIds(#userId).![ 'role:' + #this ]"})
     public Set<String> getUserRoles(UUID userId) {
-        return sysPermissionMapper.findRolesByUserId(userId);
+        return rbacGraphService.getRoleCodes(userId);
     }
 
     /**
@@ -71,10 +105,12 @@ public class SysPermissionServiceImpl extends ServiceImpl<SysPermissionMapper, S
      */
     @Cacheable(
             value = "userPermissions",
-            key = "#userId"
+            key = "'t1:' + #userId",
+            sync = true
     )
+    @CacheTags({"'user:' + #userId", "@rbacGraphService.getRoleIds(#userId).![ 'role:' + #this ]"})
     public Set<String> getUserPermissions(UUID userId) {
-        return sysPermissionMapper.findAllPermissionsByUserId(userId);
+        return rbacGraphService.getEffectivePermissions(userId);
     }
 
     /**
@@ -89,7 +125,8 @@ public class SysPermissionServiceImpl extends ServiceImpl<SysPermissionMapper, S
      */
     @Cacheable(
             value = "permissionTree",
-            key = "'all'"
+            key = "'all'",
+            sync = true
     )
     public List<PermissionDTO> getPermissionTree() {
         List<SysPermission> permissions = sysPermissionMapper.findPermissionTree();
@@ -120,11 +157,12 @@ public class SysPermissionServiceImpl extends ServiceImpl<SysPermissionMapper, S
 
     /**
      * 新增权限
+     * 新权限尚未授予任何角色，用户维度缓存不受影响
      */
     @Transactional(rollbackFor = Exception.class)
     @CacheEvict(
-            value = {"permission", "permissionTree", "userPermissions", "userInfo"},
-            allEntries = true
+            value = "permissionTree",
+            key = "'all'"
     )
     public void addPermission(PermissionDTO permissionDTO) {
         // 检查权限编码是否存在
@@ -139,16 +177,20 @@ public class SysPermissionServiceImpl extends ServiceImpl<SysPermissionMapper, S
         permission.setId(UUIDv7Util.generate());
 
         sysPermissionMapper.insert(permission);
+        permissionDictionarySync.register(permission.getPermissionCode());
+        permissionChangeNotifier.notifyChanged();
     }
 
     /**
      * 修改权限
+     * 只失效持有该权限的角色下的用户缓存
      */
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(
-            value = {"permission", "permissionTree", "userPermissions", "userInfo"},
-            allEntries = true
-    )
+    @Caching(evict = {
+            @CacheEvict(value = "permission", key = "#permissionDTO.id"),
+            @CacheEvict(value = "permissionTree", key = "'all'")
+    })
+    @CacheEvictByTag("@sysPermissionMapper.findRoleIdsByPermissionId(#permissionDTO.id).![ 'role:' + #this ]")
     public void updatePermission(PermissionDTO permissionDTO) {
         SysPermission existPermission = sysPermissionMapper.selectById(permissionDTO.getId());
         if (existPermission == null) {
@@ -164,16 +206,22 @@ public class SysPermissionServiceImpl extends ServiceImpl<SysPermissionMapper, S
         copyPropertiesFromDTO(permissionDTO, permission);
 
         sysPermissionMapper.updateById(permission);
+        permissionDictionarySync.register(permission.getPermissionCode());
+        effectivePermissionService.refreshUsersOfPermission(existPermission.getId());
+        permissionChangeNotifier.notifyChanged();
+        // 编码或状态变化影响持有该权限的所有用户
+        userPermissionChangePublisher.allChanged();
     }
 
     /**
      * 删除权限
+     * 仍被角色使用的权限不允许删除，用户维度缓存不受影响
      */
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(
-            value = {"permission", "permissionTree", "userPermissions", "userInfo"},
-            allEntries = true
-    )
+    @Caching(evict = {
+            @CacheEvict(value = "permission", key = "#id"),
+            @CacheEvict(value = "permissionTree", key = "'all'")
+    })
     public void deletePermission(UUID id) {
         SysPermission permission = sysPermissionMapper.selectById(id);
         if (permission == null) {
@@ -196,6 +244,22 @@ public class SysPermissionServiceImpl extends ServiceImpl<SysPermissionMapper, S
         }
 
         sysPermissionMapper.deleteById(id);
+        permissionChangeNotifier.notifyChanged();
+    }
+
+    /**
+     * 查询所有生效的API权限（全量同步）
+     */
+    public List<Map<String, Object>> findApiPermissions() {
+        return sysPermissionMapper.findApiPermissions();
+    }
+
+    /**
+     * 查询sinceRevision之后变更的权限行（增量同步），单次最多返回limit行
+     */
+    public List<Map<String, Object>> findApiPermissionChanges(long sinceRevision, int limit) {
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_CHANGE_BATCH));
+        return sysPermissionMapper.findApiPermissionChanges(sinceRevision, boundedLimit);
     }
 
     // ========== 私有方法 ==========
@@ -252,4 +316,80 @@ public class SysPermissionServiceImpl extends ServiceImpl<SysPermissionMapper, S
         }
         parent.setChildren(children);
     }
+
+    /**
+     * 访问判定：匹配路由规则并判断用户是否持有任一所需权限
+     * 规则取本服务的权限快照（与各节点同源，按revision同步），快照尚未加载时由数据库规则编译同样的路由索引，
+     * 判定与快照一致（含{id}、*、**规则）
+     */
+    public AccessDecision checkAccess(UUID userId, String method, String path) {
+        return decide(userId, method, path, userPermissionNearCache.get(userId, this::loadUserPermissions));
+    }
+
+    /**
+     * 批量访问判定：同一用户的权限只加载一次，结果与请求顺序一致
+     */
+    public List<AccessDecision> checkAccessBatch(List<AccessCheckRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return List.of();
+        }
+        if (requests.size() > MAX_ACCESS_CHECK_BATCH) {
+            throw new BusinessException("批量访问判定最多" + MAX_ACCESS_CHECK_BATCH + "条");
+        }
+        Map<UUID, Set<String>> permissionsByUser = new HashMap<>();
+        List<AccessDecision> decisions = new ArrayList<>(requests.size());
+        for (AccessCheckRequest request : requests) {
+            Set<String> userPermissions = permissionsByUser.computeIfAbsent(request.getUserId(),
+                    userId -> userPermissionNearCache.get(userId, this::loadUserPermissions));
+            decisions.add(decide(request.getUserId(), request.getMethod(), request.getPath(), userPermissions));
+        }
+        return decisions;
+    }
+
+    private AccessDecision decide(UUID userId, String method, String path, Set<String> userPermissions) {
+        PermissionSnapshot snapshot = permissionLoader.currentSnapshot();
+        long version = -1L;
+        if (snapshot.getSource() != PermissionSnapshot.Source.EMPTY) {
+            version = permissionLoader.getSyncedRevision();
+        } else {
+            snapshot = coldStartSnapshot();
+        }
+        PermissionRouteIndex.Route route = snapshot.matchRoute(method, path);
+        String matchedRule = route != null ? route.rule() : null;
+        Set<String> required = route != null ? route.permissions() : Set.of();
+        boolean allowed = required.isEmpty() || required.stream().anyMatch(userPermissions::contains);
+        return AccessDecision.builder()
+                .userId(userId)
+                .method(method)
+                .path(path)
+                .allowed(allowed)
+                .matchedRule(matchedRule)
+                .requiredPermissions(required)
+                .decisionVersion(version)
+                .build();
+    }
+
+    private PermissionSnapshot coldStartSnapshot() {
+        PermissionSnapshot current = coldStartSnapshot;
+        if (current.getSource() != PermissionSnapshot.Source.EMPTY
+                && System.currentTimeMillis() - current.getCreatedAtMillis() < COLD_START_SNAPSHOT_TTL_MS) {
+            return current;
+        }
+        Map<String, Set<String>> mappings = new HashMap<>();
+        for (Map<String, Object> row : sysPermissionMapper.findApiPermissions()) {
+            String apiPath = (String) row.get("api_path");
+            String permissionCode = (String) row.get("permission_code");
+            if (apiPath != null && permissionCode != null) {
+                mappings.computeIfAbsent(PermissionSnapshot.key((String) row.get("http_method"), apiPath),
+                        k -> new HashSet<>()).add(permissionCode);
+            }
+        }
+        PermissionSnapshot built = PermissionSnapshot.of(0L, PermissionSnapshot.Source.LOAD, mappings);
+        coldStartSnapshot = built;
+        return built;
+    }
+
+    private Set<String> loadUserPermissions(UUID userId) {
+        return rbacGraphService.getEffectivePermissions(userId);
+    }
 }
@@ -2,18 +2,22 @@ package com.frog.system.service.Impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.frog.common.access.UserPermissionChangePublisher;
 import com.frog.common.exception.BusinessException;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.frog.common.cache.tag.CacheEvictByTag;
 import com.frog.common.dto.role.RoleDTO;
 import com.frog.common.web.util.SecurityUtils;
 import com.frog.system.domain.entity.SysRole;
 import com.frog.system.mapper.SysRoleMapper;
 import com.frog.system.service.ISysRoleService;
+import com.frog.system.service.IUserEffectivePermissionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,6 +38,8 @@ import java.util.stream.Collectors;
 @Slf4j
 public class SysRoleServiceImpl extends ServiceImpl<SysRoleMapper, SysRole> implements ISysRoleService {
     private final SysRoleMapper roleMapper;
+    private final UserPermissionChangePublisher permissionChangePublisher;
+    private final IUserEffectivePermissionService effectivePermissionService;
 
     /**
      * 分页查询角色列表
@@ -104,11 +110,12 @@ public class SysRoleServiceImpl extends ServiceImpl<SysRoleMapper, SysRole> impl
 
     /**
      * 新增角色
+     * 新角色尚无用户，只需失效角色列表
      */
     @Transactional(rollbackFor = Exception.class)
     @CacheEvict(
-            value = {"role", "roles", "userRoles"},
-            allEntries = true
+            value = "roles",
+            key = "'all'"
     )
     public void addRole(RoleDTO roleDTO) {
         // 检查角色编码是否存在
@@ -131,12 +138,14 @@ public class SysRoleServiceImpl extends ServiceImpl<SysRoleMapper, SysRole> impl
 
     /**
      * 修改角色
+     * 只失效该角色下用户的缓存（role标签），其他用户继续命中
      */
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(
-            value = {"role", "roles", "userRoles", "userPermissions"},
-            allEntries = true
-    )
+    @Caching(evict = {
+            @CacheEvict(value = "role", key = "#roleDTO.id"),
+            @CacheEvict(value = "roles", key = "'all'")
+    })
+    @CacheEvictByTag("'role:' + #roleDTO.id")
     public void updateRole(RoleDTO roleDTO) {
         SysRole existRole = roleMapper.selectById(roleDTO.getId());
         if (existRole == null) {
@@ -152,6 +161,9 @@ public class SysRoleServiceImpl extends ServiceImpl<SysRoleMapper, SysRole> impl
         BeanUtils.copyProperties(roleDTO, role);
 
         roleMapper.updateById(role);
+        effectivePermissionService.refreshUsersOfRole(role.getId());
+        // 角色下的用户无法逐个确定（状态变化影响所有持有者），各节点近端缓存整体失效
+        permissionChangePublisher.allChanged();
 
         log.info("Role updated: {}, by: {}", role.getRoleCode(), SecurityUtils.getCurrentUsername());
     }
@@ -160,10 +172,11 @@ public class SysRoleServiceImpl extends ServiceImpl<SysRoleMapper, SysRole> impl
      * 删除角色
      */
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(
-            value = {"role", "roles", "userRoles", "userPermissions"},
-            allEntries = true
-    )
+    @Caching(evict = {
+            @CacheEvict(value = {"role", "rolePermissions"}, key = "#id"),
+            @CacheEvict(value = "roles", key = "'all'")
+    })
+    @CacheEvictByTag("'role:' + #id")
     public void deleteRole(UUID id) {
         SysRole role = roleMapper.selectById(id);
         if (role == null) {
@@ -192,12 +205,14 @@ public class SysRoleServiceImpl extends ServiceImpl<SysRoleMapper, SysRole> impl
 
     /**
      * 授权权限
+     * 只失效该角色下用户的权限缓存（role标签）
      */
     @Transactional(rollbackFor = Exception.class)
     @CacheEvict(
-            value = {"role", "userRoles", "userPermissions", "userInfo"},
-            allEntries = true
+            value = {"role", "rolePermissions"},
+            key = "#roleId"
     )
+    @CacheEvictByTag("'role:' + #roleId")
     public void grantPermissions(UUID roleId, List<UUID> permissionIds) {
         SysRole role = roleMapper.selectById(roleId);
         if (role == null) {
@@ -212,6 +227,9 @@ public class SysRoleServiceImpl extends ServiceImpl<SysRoleMapper, SysRole> impl
             roleMapper.batchInsertRolePermissions(roleId, permissionIds, SecurityUtils.getCurrentUserUuid().orElse(null));
         }
 
+        effectivePermissionService.refreshUsersOfRole(roleId);
+        permissionChangePublisher.allChanged();
+
         log.info("Permissions granted to role: {}, permissions count: {}, by: {}",
                 role.getRoleCode(), permissionIds != null ? permissionIds.size() : 0, SecurityUtils.getCurrentUsername());
     }
@@ -3,6 +3,9 @@ package com.frog.system.service.Impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.frog.common.access.UserPermissionChangePublisher;
+import com.frog.common.cache.tag.CacheEvictByTag;
+import com.frog.common.cache.tag.CacheTags;
 import com.frog.common.response.ResultCode;
 import com.frog.common.util.UUIDv7Util;
 
@@ -15,7 +18,9 @@ import com.frog.common.web.util.SecurityUtils;
 import com.frog.system.domain.entity.SysUser;
 import com.frog.system.mapper.SysPermissionMapper;
 import com.frog.system.mapper.SysUserMapper;
+import com.frog.system.rbac.RbacGraphService;
 import com.frog.system.service.ISysUserService;
+import com.frog.system.service.IUserEffectivePermissionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
@@ -46,6 +51,9 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
     private final SysUserMapper userMapper;
     private final SysPermissionMapper permissionMapper;
     private final PasswordEncoder passwordEncoder;
+    private final UserPermissionChangePublisher permissionChangePublisher;
+    private final RbacGraphService rbacGraphService;
+    private final IUserEffectivePermissionService effectivePermissionService;
 
     /**
      * 分页查询用户列表
@@ -78,6 +86,7 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
             value = "user",
             key = "#id"
     )
+    @CacheTags({"'user:' + #id", "#result.roleIds?.![ 'role:' + #this ]"})
     public UserDTO getUserById(UUID id) {
         SysUser user = userMapper.selectById(id);
         if (user == null) {
@@ -101,11 +110,13 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
 
     /**
      * 获取用户详细信息（包含权限和菜单）
+     * 带角色标签的缓存key以t1:开头：上线后不再命中未挂角色标签的旧条目，旧条目随TTL过期
      */
     @Cacheable(
             value = "userInfo",
-            key = "#userId"
+            key = "'t1:' + #userId"
     )
+    @CacheTags({"'user:' + #userId", "@rbacGraphService.getRoleIds(#userId).![ 'role:' + #this ]"})
     public UserInfo getUserInfo(UUID userId) {
         SysUser user = userMapper.selectById(userId);
         if (user == null) {
@@ -124,8 +135,8 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
                 .build();
 
         // 查询角色和权限
-        Set<String> roles = userMapper.findRolesByUserId(userId);
-        Set<String> permissions = userMapper.findEffectivePermissionsByUserId(userId);
+        Set<String> roles = rbacGraphService.getRoleCodes(userId);
+        Set<String> permissions = rbacGraphService.getEffectivePermissions(userId);
 
         userInfo.setRoles(roles);
         userInfo.setPermissions(permissions);
@@ -142,8 +153,8 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
      */
     @Transactional(rollbackFor = Exception.class)
     @CacheEvict(
-            value = {"user", "userDetails", "userInfo"},
-            allEntries = true
+            value = "userDetails",
+            key = "'t1:' + #userDTO.username"
     )
     public void addUser(UserDTO userDTO) {
         // 检查用户名是否存在
@@ -175,6 +186,7 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
         if (userDTO.getRoleIds() != null && !userDTO.getRoleIds().isEmpty()) {
             userMapper.batchInsertUserRoles(user.getId(), userDTO.getRoleIds(),
                     SecurityUtils.getCurrentUserUuid().orElse(null));
+            effectivePermissionService.refreshUsers(List.of(user.getId()));
         }
 
         log.info("User created: {}, by: {}", user.getUsername(), SecurityUtils.getCurrentUsername());
@@ -184,10 +196,7 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
      * 修改用户
      */
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(
-            value = {"user", "userDetails", "userInfo"},
-            key = "#userDTO.id"
-    )
+    @CacheEvictByTag("'user:' + #userDTO.id")
     public void updateUser(UserDTO userDTO) {
         SysUser existUser = userMapper.selectById(userDTO.getId());
         if (existUser == null) {
@@ -209,6 +218,8 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
                 userMapper.batchInsertUserRoles(user.getId(), userDTO.getRoleIds(),
                         SecurityUtils.getCurrentUserUuid().orElse(null));
             }
+            effectivePermissionService.refreshUsers(List.of(user.getId()));
+            permissionChangePublisher.userChanged(user.getId());
         }
 
         log.info("User updated: {}, by: {}", user.getUsername(), SecurityUtils.getCurrentUsername());
@@ -218,10 +229,7 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
      * 删除用户（逻辑删除）
      */
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(
-            value = {"user", "userDetails", "userInfo"},
-            key = "#id"
-    )
+    @CacheEvictByTag("'user:' + #id")
     public void deleteUser(UUID id) {
         SysUser user = userMapper.selectById(id);
         if (user == null) {
@@ -241,6 +249,7 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
         }
 
         userMapper.deleteById(id);
+        permissionChangePublisher.userChanged(id);
 
         log.info("User deleted: {}, by: {}", user.getUsername(), SecurityUtils.getCurrentUsername());
     }
@@ -249,10 +258,7 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
      * 重置密码
      */
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(
-            value = {"user", "userDetails"},
-            key = "#id"
-    )
+    @CacheEvictByTag("'user:' + #id")
     public String resetPassword(UUID id) {
         SysUser user = userMapper.selectById(id);
         if (user == null) {
@@ -307,10 +313,7 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
      * 修改密码
      */
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(
-            value = {"user", "userDetails"},
-            key = "#userId"
-    )
+    @CacheEvictByTag("'user:' + #userId")
     public void changePassword(UUID userId, String oldPassword, String newPassword) {
         SysUser user = userMapper.selectById(userId);
         if (user == null) {
@@ -344,10 +347,7 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
      * 授权角色
      */
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(
-            value = {"user", "userDetails", "userInfo", "userRoles", "userPermissions"},
-            key = "#userId"
-    )
+    @CacheEvictByTag("'user:' + #userId")
     public void grantRoles(UUID userId, List<UUID> roleIds) {
         SysUser user = userMapper.selectById(userId);
         if (user == null) {
@@ -362,6 +362,9 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
             userMapper.batchInsertUserRoles(userId, roleIds, SecurityUtils.getCurrentUserUuid().orElse(null));
         }
 
+        effectivePermissionService.refreshUsers(List.of(userId));
+        permissionChangePublisher.userChanged(userId);
+
         log.info("Roles granted to user: {}, roles: {}, by: {}",
                 user.getUsername(), roleIds, SecurityUtils.getCurrentUsername());
     }
@@ -370,10 +373,7 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
      * 锁定/解锁用户
      */
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(
-            value = {"user", "userDetails"},
-            key = "#id"
-    )
+    @CacheEvictByTag("'user:' + #id")
     public void lockUser(UUID id, Boolean lock) {
         SysUser user = userMapper.selectById(id);
         if (user == null) {
@@ -403,9 +403,10 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
     @Override
     @Transactional(rollbackFor = Exception.class)
     @CacheEvict(
-            value = {"user", "userDetails", "userInfo", "userRoles", "userPermissions"},
+            value = "userTemporaryRoles",
             key = "#userId"
     )
+    @CacheEvictByTag("'user:' + #userId")
     public void grantTemporaryRoles(UUID userId, List<UUID> roleIds,
                                     LocalDateTime effectiveTime, LocalDateTime expireTime) {
         SysUser user = userMapper.selectById(userId);
@@ -432,6 +433,9 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
             );
         }
 
+        effectivePermissionService.refreshUsers(List.of(userId));
+        permissionChangePublisher.userChanged(userId);
+
         log.info("Temporary roles granted to user: {}, roles: {}, expireTime: {}, by: {}",
                 user.getUsername(), roleIds, expireTime, SecurityUtils.getCurrentUsername());
     }
@@ -442,9 +446,10 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
     @Override
     @Transactional(rollbackFor = Exception.class)
     @CacheEvict(
-            value = {"user", "userDetails", "userInfo", "userRoles"},
+            value = "userTemporaryRoles",
             key = "#userId"
     )
+    @CacheEvictByTag("'user:' + #userId")
     public void extendTemporaryRole(UUID userId, UUID roleId, LocalDateTime newExpireTime) {
         // 验证用户是否有该临时角色
         if (!userMapper.hasTemporaryRole(userId, roleId)) {
@@ -461,6 +466,9 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
             throw new BusinessException("延长临时角色失败");
         }
 
+        effectivePermissionService.refreshUsers(List.of(userId));
+        permissionChangePublisher.userChanged(userId);
+
         log.info("Temporary role extended: userId={}, roleId={}, newExpireTime={}, by={}",
                 userId, roleId, newExpireTime, SecurityUtils.getCurrentUsername());
     }
@@ -471,15 +479,19 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
     @Override
     @Transactional(rollbackFor = Exception.class)
     @CacheEvict(
-            value = {"user", "userDetails", "userInfo", "userRoles", "userPermissions"},
+            value = "userTemporaryRoles",
             key = "#userId"
     )
+    @CacheEvictByTag("'user:' + #userId")
     public void terminateTemporaryRole(UUID userId, UUID roleId) {
         int updated = userMapper.terminateTemporaryRole(userId, roleId);
         if (updated == 0) {
             throw new BusinessException("终止临时角色失败，可能该角色不存在或已过期");
         }
 
+        effectivePermissionService.refreshUsers(List.of(userId));
+        permissionChangePublisher.userChanged(userId);
+
         log.info("Temporary role terminated: userId={}, roleId={}, by={}",
                 userId, roleId, SecurityUtils.getCurrentUsername());
     }
@@ -510,8 +522,9 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
     @Override
     @Cacheable(
             value = "userDataScope",
-            key = "#userId"
+            key = "'t1:' + #userId"
     )
+    @CacheTags({"'user:' + #userId", "@rbacGraphService.getRoleIds(#userId).![ 'role:' + #this ]"})
     public Integer getUserDataScope(UUID userId) {
         Integer dataScope = userMapper.getUserDataScope(userId);
         return dataScope != null ? dataScope : 5; // 默认仅本人
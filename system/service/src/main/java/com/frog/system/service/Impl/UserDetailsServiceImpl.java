@@ -1,7 +1,9 @@
 package com.frog.system.service.Impl;
 
+import com.frog.common.cache.tag.CacheTags;
 import com.frog.common.web.domain.SecurityUser;
 import com.frog.system.mapper.SysUserMapper;
+import com.frog.system.rbac.RbacGraphService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
@@ -24,13 +26,19 @@ import java.util.Set;
 @Slf4j
 public class UserDetailsServiceImpl implements UserDetailsService {
     private final SysUserMapper sysUserMapper;
+    private final RbacGraphService rbacGraphService;
 
+    /**
+     * 按用户名缓存，挂用户与角色标签：用户修改、锁定、改密与角色变更按标签失效
+     * 带标签的缓存key以t1:开头：上线后不再命中未挂标签的旧条目，旧条目随TTL过期
+     */
     @Override
     @Cacheable(
             value = "userDetails",
-            key = "#username",
+            key = "'t1:' + #username",
             unless = "#result == null"
     )
+    @CacheTags({"'user:' + #result.userId", "@rbacGraphService.getRoleIds(#result.userId).![ 'role:' + #this ]"})
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         // 查询用户基本信息
         var user = sysUserMapper.findByUsername(username);
@@ -40,10 +48,10 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         }
 
         // 查询用户角色
-        Set<String> roles = sysUserMapper.findRolesByUserId(user.getId());
+        Set<String> roles = rbacGraphService.getRoleCodes(user.getId());
 
         // 查询用户权限（包括角色权限）
-        Set<String> permissions = sysUserMapper.findEffectivePermissionsByUserId(user.getId());
+        Set<String> permissions = rbacGraphService.getEffectivePermissions(user.getId());
 
         SecurityUser securityUser = SecurityUser.builder()
                 .userId(user.getId())
@@ -0,0 +1,58 @@
+package com.frog.system.service.Impl;
+
+import com.frog.system.mapper.SysUserEffectivePermissionMapper;
+import com.frog.system.service.IUserEffectivePermissionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 用户有效权限物化表维护实现
+ * 按用户先删除再由角色分配重新计算，单条SQL的IN列表按批拆分
+ *
+ * @author Deng
+ * createData 2025/12/2 10:30
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserEffectivePermissionServiceImpl implements IUserEffectivePermissionService {
+    private final SysUserEffectivePermissionMapper effectivePermissionMapper;
+
+    // 单条SQL处理的最大用户数
+    private static final int REFRESH_BATCH = 500;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void refreshUsers(Collection<UUID> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        List<UUID> distinct = userIds.stream().distinct().toList();
+        int rows = 0;
+        for (int from = 0; from < distinct.size(); from += REFRESH_BATCH) {
+            List<UUID> batch = distinct.subList(from, Math.min(from + REFRESH_BATCH, distinct.size()));
+            effectivePermissionMapper.deleteByUserIds(batch);
+            rows += effectivePermissionMapper.insertByUserIds(batch);
+        }
+        log.debug("Effective permissions refreshed: users={}, rows={}", distinct.size(), rows);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void refreshUsersOfRole(UUID roleId) {
+        refreshUsers(effectivePermissionMapper.findUserIdsByRoleId(roleId));
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void refreshUsersOfPermission(UUID permissionId) {
+        refreshUsers(effectivePermissionMapper.findUserIdsByPermissionId(permissionId));
+    }
+}
@@ -1,6 +1,8 @@
 package com.frog.system.task;
 
+import com.frog.common.access.UserPermissionChangePublisher;
 import com.frog.system.mapper.SysUserMapper;
+import com.frog.system.service.IUserEffectivePermissionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -9,6 +11,8 @@ import com.frog.system.notification.NotificationService;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
 
 /**
  * 权限过期检查定时任务
@@ -23,6 +27,8 @@ import java.util.Map;
 public class PermissionExpiryTask {
     private final SysUserMapper userMapper;
     private final NotificationService notificationService;
+    private final UserPermissionChangePublisher permissionChangePublisher;
+    private final IUserEffectivePermissionService effectivePermissionService;
 
     /**
      * 每天凌晨2点检查并处理过期权限
@@ -50,6 +56,16 @@ public class PermissionExpiryTask {
                 int updatedCount = userMapper.updateExpiredRolesStatus();
                 log.info("Updated {} expired role assignments", updatedCount);
 
+                // 重新计算这些用户的有效权限物化行，并失效各节点的近端缓存
+                List<UUID> expiredUserIds = expiredRoles.stream()
+                        .map(role -> role.get("user_id"))
+                        .filter(Objects::nonNull)
+                        .map(userId -> userId instanceof UUID uuid ? uuid : UUID.fromString(userId.toString()))
+                        .distinct()
+                        .toList();
+                effectivePermissionService.refreshUsers(expiredUserIds);
+                expiredUserIds.forEach(permissionChangePublisher::userChanged);
+
                 // 3. 发送过期通知（TODO: 集成邮件/短信服务）
                 sendExpiryNotifications(expiredRoles);
             }
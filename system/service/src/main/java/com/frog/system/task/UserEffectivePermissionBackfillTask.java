@@ -0,0 +1,74 @@
+package com.frog.system.task;
+
+import com.frog.system.mapper.SysUserEffectivePermissionMapper;
+import com.frog.system.service.IUserEffectivePermissionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 用户有效权限物化表回填任务
+ * 按用户ID键集分页，每批用户在独立事务中删除并重新计算，不会长时间持有大范围的锁；
+ * 与在线维护并发时两者都从当前的角色分配重新计算，结果一致
+ *
+ * @author Deng
+ * createData 2025/12/2 11:00
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserEffectivePermissionBackfillTask {
+    private final SysUserEffectivePermissionMapper effectivePermissionMapper;
+    private final IUserEffectivePermissionService effectivePermissionService;
+
+    // 每批处理的用户数
+    private static final int CHUNK_SIZE = 500;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * 每周日凌晨4点全量对账，修正直接改库等绕过服务层的变更
+     */
+    @Scheduled(cron = "0 0 4 ? * SUN")
+    public void reconcile() {
+        backfill();
+    }
+
+    /**
+     * 全量回填，返回处理的用户数；已有回填在执行时直接返回-1
+     */
+    public int backfill() {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Effective permission backfill already running, skipped");
+            return -1;
+        }
+        long start = System.currentTimeMillis();
+        int users = 0;
+        try {
+            UUID afterId = null;
+            List<UUID> chunk;
+            do {
+                chunk = effectivePermissionMapper.findUserIdsAfter(afterId, CHUNK_SIZE);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                effectivePermissionService.refreshUsers(chunk);
+                users += chunk.size();
+                afterId = chunk.get(chunk.size() - 1);
+            } while (chunk.size() == CHUNK_SIZE);
+            log.info("Effective permission backfill completed: users={}, took={}ms",
+                    users, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Effective permission backfill failed after {} users", users, e);
+        } finally {
+            running.set(false);
+        }
+        return users;
+    }
+}
@@ -0,0 +1,55 @@
+package com.frog.system.rbac;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+/**
+ * 5万用户、200角色规模下的构建与有效权限查询耗时，默认不随单元测试运行（mvn test -Pbenchmark）
+ *
+ * @author Deng
+ * createData 2025/12/1 14:10
+ */
+@Tag("benchmark")
+public class RbacGraphBenchmark {
+
+    @Test
+    public void answersQueriesInMicroseconds() {
+        int roles = 200;
+        int users = 50_000;
+        RbacGraph.Builder builder = RbacGraph.builder();
+        UUID[] roleIds = new UUID[roles];
+        for (int r = 0; r < roles; r++) {
+            roleIds[r] = UUID.randomUUID();
+            builder.role(roleIds[r], "ROLE_" + r, true);
+            for (int p = 0; p < 40; p++) {
+                builder.grant(roleIds[r], "perm:" + ((r * 7 + p) % 2000));
+            }
+        }
+        UUID[] userIds = new UUID[users];
+        for (int u = 0; u < users; u++) {
+            userIds[u] = UUID.randomUUID();
+            for (int k = 0; k < 3; k++) {
+                builder.assign(userIds[u], roleIds[(u + k * 31) % roles], null);
+            }
+        }
+        long buildStart = System.nanoTime();
+        RbacGraph graph = builder.build();
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+        long now = System.currentTimeMillis();
+        int sink = 0;
+        for (int i = 0; i < 200_000; i++) {
+            sink += graph.effectivePermissions(userIds[i % users], now).size();
+        }
+        int iterations = 500_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += graph.effectivePermissions(userIds[i % users], now).size();
+        }
+        long nanosPerQuery = (System.nanoTime() - start) / iterations;
+        System.out.printf("users=%d roles=%d edges=%d build=%dms effectivePermissions=%dns/op (%d)%n",
+                graph.userCount(), graph.roleCount(), graph.edgeCount(), buildMillis, nanosPerQuery, sink);
+    }
+}
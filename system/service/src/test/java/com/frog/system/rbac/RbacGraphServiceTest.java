@@ -0,0 +1,157 @@
+package com.frog.system.rbac;
+
+import com.frog.common.access.UserPermissionChangePublisher;
+import com.frog.common.cache.spring.TwoLevelCacheManager;
+import com.frog.system.mapper.SysUserMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.connection.DefaultMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * RBAC图重建调度：不阻塞监听线程，执行期间的重建请求合并为一次；
+ * 变更应用到图之后再失效派生缓存，定义变更重建完成前查询回退到数据库
+ *
+ * @author Deng
+ * createData 2025/12/3 15:20
+ */
+public class RbacGraphServiceTest {
+    private final RbacGraphLoader loader = mock(RbacGraphLoader.class);
+    private final SysUserMapper userMapper = mock(SysUserMapper.class);
+    private final TwoLevelCacheManager cacheManager = mock(TwoLevelCacheManager.class);
+    private final UserPermissionChangePublisher publisher = mock(UserPermissionChangePublisher.class);
+    private final RbacGraphService service =
+            new RbacGraphService(loader, new RbacGraphProperties(), userMapper, cacheManager, publisher);
+    private final UUID admin = UUID.randomUUID();
+    private final UUID alice = UUID.randomUUID();
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    public void rebuildRunsOffListenerThreadAndCoalesces() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        when(loader.loadSnapshot()).thenAnswer(invocation -> {
+            if (loads.incrementAndGet() == 1) {
+                started.countDown();
+                assertTrue(release.await(5, TimeUnit.SECONDS));
+            }
+            return RbacGraph.builder().build();
+        });
+
+        // 监听线程立即返回，即使重建仍在执行
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () -> service.onMessage(allChanged(), null));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            assertTimeoutPreemptively(Duration.ofSeconds(1), () -> service.onMessage(allChanged(), null));
+        }
+        release.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (service.rebuildCount() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+        assertEquals(2, loads.get());
+        assertEquals(2, service.rebuildCount());
+        assertTrue(service.isReady());
+    }
+
+    @Test
+    public void evictsUserCachesAfterReloadingAssignments() throws Exception {
+        when(loader.loadSnapshot()).thenReturn(RbacGraph.builder()
+                .role(admin, "ADMIN", true)
+                .grant(admin, "user:read")
+                .assign(alice, admin, null)
+                .build());
+        awaitRebuilds(1);
+        assertEquals(Set.of("user:read"), service.getEffectivePermissions(alice));
+
+        // 撤销全部角色：先按新分配替换，再失效缓存并通知近端缓存
+        when(loader.loadUser(alice)).thenReturn(List.of());
+        service.onMessage(message("u:" + alice + ":3"), null);
+
+        InOrder order = inOrder(loader, cacheManager, publisher);
+        order.verify(loader).loadUser(alice);
+        order.verify(cacheManager).evictByTags(List.of("user:" + alice));
+        order.verify(publisher).userApplied(alice);
+        assertTrue(service.getEffectivePermissions(alice).isEmpty());
+    }
+
+    @Test
+    public void fallsBackToDatabaseUntilDefinitionChangeIsRebuilt() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        when(loader.loadSnapshot()).thenAnswer(invocation -> {
+            if (loads.incrementAndGet() == 1) {
+                return RbacGraph.builder()
+                        .role(admin, "ADMIN", true)
+                        .grant(admin, "user:read")
+                        .assign(alice, admin, null)
+                        .build();
+            }
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return RbacGraph.builder()
+                    .role(admin, "ADMIN", true)
+                    .grant(admin, "user:write")
+                    .assign(alice, admin, null)
+                    .build();
+        });
+        Cache cache = mock(Cache.class);
+        when(cacheManager.getCache(anyString())).thenReturn(cache);
+        awaitRebuilds(1);
+
+        // 角色权限已在数据库修改，重建完成前不再按旧图回答
+        when(userMapper.findEffectivePermissionsByUserId(alice)).thenReturn(Set.of("user:write"));
+        service.onMessage(allChanged(), null);
+        assertEquals(Set.of("user:write"), service.getEffectivePermissions(alice));
+        assertEquals(1, service.fallbackQueryCount());
+        verify(cache, never()).clear();
+
+        release.countDown();
+        awaitRebuilds(2);
+        assertEquals(Set.of("user:write"), service.getEffectivePermissions(alice));
+        assertEquals(1, service.fallbackQueryCount());
+        // 重建期间回源的条目可能来自旧图，重建后清空派生缓存
+        verify(cache, times(4)).clear();
+        verify(publisher).allApplied();
+    }
+
+    private void awaitRebuilds(long count) throws InterruptedException {
+        if (count == 1) {
+            service.requestRebuild();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (service.rebuildCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, service.rebuildCount());
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("permission:user:changed".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static DefaultMessage allChanged() {
+        return new DefaultMessage("permission:user:changed".getBytes(StandardCharsets.UTF_8),
+                "a:1".getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,121 @@
+package com.frog.system.rbac;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 进程内RBAC图：有效权限与角色的过滤语义、按用户替换分配与多角色合并
+ * 查询耗时见{@link RbacGraphBenchmark}
+ *
+ * @author Deng
+ * createData 2025/12/1 14:10
+ */
+public class RbacGraphTest {
+    private final UUID admin = UUID.randomUUID();
+    private final UUID auditor = UUID.randomUUID();
+    private final UUID disabled = UUID.randomUUID();
+    private final UUID alice = UUID.randomUUID();
+
+    private RbacGraph.Builder baseGraph() {
+        return RbacGraph.builder()
+                .role(admin, "ADMIN", true)
+                .role(auditor, "AUDITOR", true)
+                .role(disabled, "DISABLED", false)
+                .grant(admin, "user:read")
+                .grant(admin, "user:write")
+                .grant(auditor, "user:read")
+                .grant(auditor, "log:read")
+                .grant(disabled, "system:shutdown");
+    }
+
+    @Test
+    public void resolvesActiveAssignments() {
+        long now = System.currentTimeMillis();
+        RbacGraph graph = baseGraph()
+                .assign(alice, admin, null)
+                .assign(alice, auditor, now + 60_000)
+                .assign(alice, disabled, null)
+                .build();
+
+        assertEquals(Set.of("user:read", "user:write", "log:read"), graph.effectivePermissions(alice, now));
+        assertEquals(Set.of("ADMIN", "AUDITOR"), graph.roleCodes(alice, now));
+
+        // 临时角色过期后不再生效
+        assertEquals(Set.of("user:read", "user:write"), graph.effectivePermissions(alice, now + 120_000));
+        assertEquals(Set.of("ADMIN"), graph.roleCodes(alice, now + 120_000));
+
+        assertTrue(graph.effectivePermissions(UUID.randomUUID(), now).isEmpty());
+    }
+
+    @Test
+    public void resolvesRoleIdsForCacheTags() {
+        long now = System.currentTimeMillis();
+        RbacGraph graph = baseGraph()
+                .assign(alice, admin, null)
+                .assign(alice, auditor, now + 60_000)
+                .assign(alice, disabled, null)
+                .build();
+
+        // 未启用的角色同样返回：启用后会改变该用户的权限
+        assertEquals(Set.of(admin, auditor, disabled), new HashSet<>(graph.roleIds(alice, now)));
+        assertEquals(Set.of(admin, disabled), new HashSet<>(graph.roleIds(alice, now + 120_000)));
+        assertTrue(graph.roleIds(UUID.randomUUID(), now).isEmpty());
+    }
+
+    @Test
+    public void replacesUserAssignments() {
+        long now = System.currentTimeMillis();
+        RbacGraph graph = baseGraph().assign(alice, admin, null).build();
+
+        // 永久与临时分配并存时取较晚的过期时间
+        assertTrue(graph.replaceUser(alice, List.of(
+                new RbacGraph.Assignment(auditor, now - 1),
+                new RbacGraph.Assignment(auditor, null))));
+        assertEquals(Set.of("user:read", "log:read"), graph.effectivePermissions(alice, now));
+
+        // 撤销全部角色
+        assertTrue(graph.replaceUser(alice, List.of()));
+        assertEquals(0, graph.userCount());
+        assertTrue(graph.roleCodes(alice, now).isEmpty());
+
+        // 构建后新增的角色：已知部分照常生效，返回false提示重建
+        assertFalse(graph.replaceUser(alice, List.of(
+                new RbacGraph.Assignment(admin, null),
+                new RbacGraph.Assignment(UUID.randomUUID(), null))));
+        assertEquals(Set.of("user:read", "user:write"), graph.effectivePermissions(alice, now));
+    }
+
+    @Test
+    public void mergesPermissionsAcrossManyRoles() {
+        int roles = 200;
+        RbacGraph.Builder builder = RbacGraph.builder();
+        UUID[] roleIds = new UUID[roles];
+        for (int r = 0; r < roles; r++) {
+            roleIds[r] = UUID.randomUUID();
+            builder.role(roleIds[r], "ROLE_" + r, true);
+            for (int p = 0; p < 40; p++) {
+                builder.grant(roleIds[r], "perm:" + ((r * 7 + p) % 2000));
+            }
+        }
+        UUID user = UUID.randomUUID();
+        Set<String> expected = new HashSet<>();
+        for (int k = 0; k < 3; k++) {
+            int r = k * 31;
+            builder.assign(user, roleIds[r], null);
+            for (int p = 0; p < 40; p++) {
+                expected.add("perm:" + ((r * 7 + p) % 2000));
+            }
+        }
+        RbacGraph graph = builder.build();
+
+        assertEquals(roles * 40L, graph.edgeCount());
+        assertEquals(expected, graph.effectivePermissions(user, System.currentTimeMillis()));
+        assertEquals(Set.of("ROLE_0", "ROLE_31", "ROLE_62"), graph.roleCodes(user, System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,64 @@
+package com.frog.system.service.Impl;
+
+import com.frog.common.access.UserPermissionChangePublisher;
+import com.frog.common.access.UserPermissionNearCache;
+import com.frog.common.access.UserPermissionNearCacheProperties;
+import com.frog.common.dto.permission.AccessDecision;
+import com.frog.common.security.loader.DynamicPermissionLoader;
+import com.frog.common.security.loader.PermissionChangeNotifier;
+import com.frog.common.security.loader.PermissionSnapshot;
+import com.frog.system.mapper.SysPermissionMapper;
+import com.frog.system.rbac.PermissionDictionarySync;
+import com.frog.system.rbac.RbacGraphService;
+import com.frog.system.service.IUserEffectivePermissionService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 访问判定：权限快照尚未加载时按数据库规则编译的路由索引判定，与快照判定一致
+ *
+ * @author Deng
+ * createData 2025/12/5 14:20
+ */
+public class SysPermissionServiceImplTest {
+    private final SysPermissionMapper mapper = mock(SysPermissionMapper.class);
+    private final DynamicPermissionLoader loader = mock(DynamicPermissionLoader.class);
+    private final RbacGraphService rbacGraphService = mock(RbacGraphService.class);
+    private final SysPermissionServiceImpl service = new SysPermissionServiceImpl(mapper,
+            mock(PermissionChangeNotifier.class), mock(UserPermissionChangePublisher.class), loader,
+            new UserPermissionNearCache(new UserPermissionNearCacheProperties()), rbacGraphService,
+            mock(IUserEffectivePermissionService.class), mock(PermissionDictionarySync.class));
+    private final UUID userId = UUID.randomUUID();
+
+    @Test
+    public void coldStartMatchesPatternRules() {
+        when(loader.currentSnapshot()).thenReturn(PermissionSnapshot.EMPTY);
+        when(mapper.findApiPermissions()).thenReturn(List.of(
+                Map.of("api_path", "/api/system/users/{id}", "http_method", "DELETE",
+                        "permission_code", "system:user:delete"),
+                Map.of("api_path", "/api/files/**", "http_method", "GET",
+                        "permission_code", "file:read")));
+        when(rbacGraphService.getEffectivePermissions(userId)).thenReturn(Set.of("file:read"));
+
+        // 参数与通配规则在冷启动时同样生效，不会因精确匹配落空而放行
+        AccessDecision delete = service.checkAccess(userId, "DELETE", "/api/system/users/42");
+        assertFalse(delete.isAllowed());
+        assertEquals("DELETE:/api/system/users/{id}", delete.getMatchedRule());
+        assertEquals(-1L, delete.getDecisionVersion());
+
+        AccessDecision read = service.checkAccess(userId, "GET", "/api/files/a/b.txt");
+        assertTrue(read.isAllowed());
+        assertEquals(Set.of("file:read"), read.getRequiredPermissions());
+
+        // 冷启动索引短时复用
+        verify(mapper, times(1)).findApiPermissions();
+        verify(mapper, never()).findPermissionsByUrl(anyString(), anyString());
+    }
+}
@@ -0,0 +1,62 @@
+package com.frog.system.service.Impl;
+
+import com.frog.system.mapper.SysUserEffectivePermissionMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * 用户有效权限物化表维护：去重、按批先删后插、空集合不访问数据库
+ *
+ * @author Deng
+ * createData 2025/12/3 16:10
+ */
+public class UserEffectivePermissionServiceImplTest {
+    private final SysUserEffectivePermissionMapper mapper = mock(SysUserEffectivePermissionMapper.class);
+    private final UserEffectivePermissionServiceImpl service = new UserEffectivePermissionServiceImpl(mapper);
+
+    @Test
+    public void refreshesDistinctUsersInBatches() {
+        List<UUID> userIds = new ArrayList<>();
+        for (int i = 0; i < 1_200; i++) {
+            userIds.add(UUID.randomUUID());
+        }
+        userIds.add(userIds.get(0));
+
+        service.refreshUsers(userIds);
+
+        InOrder order = inOrder(mapper);
+        for (int size : new int[]{500, 500, 200}) {
+            order.verify(mapper).deleteByUserIds(argThat(batch -> batch.size() == size));
+            order.verify(mapper).insertByUserIds(argThat(batch -> batch.size() == size));
+        }
+        verifyNoMoreInteractions(mapper);
+    }
+
+    @Test
+    public void skipsEmptyUserSet() {
+        service.refreshUsers(List.of());
+        service.refreshUsers(null);
+        verifyNoInteractions(mapper);
+    }
+
+    @Test
+    public void refreshesUsersHoldingRole() {
+        UUID roleId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        when(mapper.findUserIdsByRoleId(roleId)).thenReturn(List.of(userId));
+
+        service.refreshUsersOfRole(roleId);
+
+        verify(mapper).deleteByUserIds(List.of(userId));
+        verify(mapper).insertByUserIds(List.of(userId));
+        verify(mapper, never()).findUserIdsByPermissionId(any());
+    }
+}